@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Module;
+import com.google.inject.name.Names;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.Elements;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures recording the elements of a module, where most of the cost is working out the source of
+ * each binding. The bindings are made from a module installed a few levels deep, so that the call
+ * stack at each binding is as deep as in a typical application.
+ *
+ * <p>Run once for each value of the {@code guice_include_stack_traces} property, for example with
+ * {@code -jvmArgsAppend -Dguice_include_stack_traces=COMPLETE}, and add {@code -prof gc} to
+ * compare the memory allocated per binding. {@link #retainedHeap} reports the heap retained by
+ * the recorded elements, which is dominated by their {@code ElementSource}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ElementSourceBenchmark {
+
+  /** How many copies of the elements to hold on to while measuring the retained heap. */
+  private static final int RETAINED_COPIES = 20;
+
+  @Param({"1000"})
+  int bindings;
+
+  private Module module;
+
+  @Setup
+  public void setUp() {
+    module = new Nested(3, new ManyBindingsModule(bindings));
+  }
+
+  @Benchmark
+  public List<Element> getElements() {
+    return Elements.getElements(module);
+  }
+
+  /**
+   * Records {@link #RETAINED_COPIES} copies of the elements and holds on to them, reporting the
+   * heap that they retain as a secondary result.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  public List<List<Element>> retainedHeap(RetainedHeap retainedHeap) {
+    Elements.getElements(module); // so that the classes it needs are loaded before measuring
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long before = usedHeapAfterGc(memory);
+    List<List<Element>> retained = Lists.newArrayList();
+    for (int i = 0; i < RETAINED_COPIES; i++) {
+      retained.add(Elements.getElements(module));
+    }
+    long after = usedHeapAfterGc(memory);
+    retainedHeap.bytesPerBinding = (after - before) / (RETAINED_COPIES * (long) bindings);
+    return retained;
+  }
+
+  /** The heap retained by the elements of each binding, in bytes. */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class RetainedHeap {
+    public long bytesPerBinding;
+  }
+
+  private static long usedHeapAfterGc(MemoryMXBean memory) {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  /** Installs a module from within {@code depth} levels of other modules. */
+  static class Nested extends AbstractModule {
+    private final int depth;
+    private final Module module;
+
+    Nested(int depth, Module module) {
+      this.depth = depth;
+      this.module = module;
+    }
+
+    @Override
+    protected void configure() {
+      install(depth > 1 ? new Nested(depth - 1, module) : module);
+    }
+  }
+
+  /** Binds {@code count} named constants. */
+  static class ManyBindingsModule extends AbstractModule {
+    private final int count;
+
+    ManyBindingsModule(int count) {
+      this.count = count;
+    }
+
+    @Override
+    protected void configure() {
+      for (int i = 0; i < count; i++) {
+        bind(String.class).annotatedWith(Names.named("binding" + i)).toInstance("value" + i);
+      }
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creating an injector for eight classes with constructor, field and method injections,
+ * when their injection points are already cached by earlier injectors, and when each injector uses
+ * new copies of the classes, loaded by a class loader of their own, so nothing is cached for them.
+ * The fresh copies also pay for linking the classes and generating their {@code FastClass}es, so
+ * the difference between the two is an upper bound on what the cache saves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InjectionPointCacheBenchmark {
+
+  private static final ImmutableList<Class<?>> SERVICES =
+      ImmutableList.<Class<?>>of(
+          Service0.class,
+          Service1.class,
+          Service2.class,
+          Service3.class,
+          Service4.class,
+          Service5.class,
+          Service6.class,
+          Service7.class);
+
+  private List<Class<?>> freshServices;
+
+  @Setup(Level.Invocation)
+  public void loadFreshServices() throws ClassNotFoundException {
+    ClassLoader classLoader = new CopyingClassLoader();
+    ImmutableList.Builder<Class<?>> services = ImmutableList.builder();
+    for (Class<?> service : SERVICES) {
+      services.add(classLoader.loadClass(service.getName()));
+    }
+    freshServices = services.build();
+  }
+
+  @Benchmark
+  public Injector cachedClasses() {
+    return Guice.createInjector(new ServicesModule(SERVICES));
+  }
+
+  @Benchmark
+  public Injector freshClasses() {
+    return Guice.createInjector(new ServicesModule(freshServices));
+  }
+
+  static class ServicesModule extends AbstractModule {
+    private final List<Class<?>> services;
+
+    ServicesModule(List<Class<?>> services) {
+      this.services = services;
+    }
+
+    @Override
+    protected void configure() {
+      for (Class<?> service : services) {
+        bind(service);
+      }
+    }
+  }
+
+  /** Defines its own copies of the services, and delegates to its parent for other classes. */
+  static class CopyingClassLoader extends ClassLoader {
+    CopyingClassLoader() {
+      super(InjectionPointCacheBenchmark.class.getClassLoader());
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.startsWith(InjectionPointCacheBenchmark.class.getName() + "$Service")) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> loaded = findLoadedClass(name);
+        if (loaded != null) {
+          return loaded;
+        }
+        try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+          byte[] bytes = ByteStreams.toByteArray(in);
+          return defineClass(name, bytes, 0, bytes.length);
+        } catch (IOException e) {
+          throw new ClassNotFoundException(name, e);
+        }
+      }
+    }
+  }
+
+  public static class Dependency {}
+
+  public static class Service0 {
+    @Inject Dependency field;
+
+    @Inject
+    public Service0(Dependency dependency) {}
+
+    @Inject
+    void setDependency(Dependency dependency) {}
+  }
+
+  public static class Service1 {
+    @Inject Dependency field;
+
+    @Inject
+    public Service1(Dependency dependency) {}
+
+    @Inject
+    void setDependency(Dependency dependency) {}
+  }
+
+  public static class Service2 {
+    @Inject Dependency field;
+
+    @Inject
+    public Service2(Dependency dependency) {}
+
+    @Inject
+    void setDependency(Dependency dependency) {}
+  }
+
+  public static class Service3 {
+    @Inject Dependency field;
+
+    @Inject
+    public Service3(Dependency dependency) {}
+
+    @Inject
+    void setDependency(Dependency dependency) {}
+  }
+
+  public static class Service4 {
+    @Inject Dependency field;
+
+    @Inject
+    public Service4(Dependency dependency) {}
+
+    @Inject
+    void setDependency(Dependency dependency) {}
+  }
+
+  public static class Service5 {
+    @Inject Dependency field;
+
+    @Inject
+    public Service5(Dependency dependency) {}
+
+    @Inject
+    void setDependency(Dependency dependency) {}
+  }
+
+  public static class Service6 {
+    @Inject Dependency field;
+
+    @Inject
+    public Service6(Dependency dependency) {}
+
+    @Inject
+    void setDependency(Dependency dependency) {}
+  }
+
+  public static class Service7 {
+    @Inject Dependency field;
+
+    @Inject
+    public Service7(Dependency dependency) {}
+
+    @Inject
+    void setDependency(Dependency dependency) {}
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+import com.google.inject.name.Names;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Guice#createInjector} over flat graphs of 100, 1k and 10k bindings. The
+ * bindings are a mix of instance, linked, provider and singleton-scoped bindings so that every
+ * binding processor is exercised.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InjectorCreationBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  int bindings;
+
+  @Param({"DEVELOPMENT", "PRODUCTION"})
+  Stage stage;
+
+  private Module module;
+
+  @Setup
+  public void setUp() {
+    module = new ManyBindingsModule(bindings);
+  }
+
+  @Benchmark
+  public Injector createInjector() {
+    return Guice.createInjector(stage, module);
+  }
+
+  /** Binds {@code count} distinct keys, cycling through the common kinds of bindings. */
+  static class ManyBindingsModule extends AbstractModule {
+    private final int count;
+
+    ManyBindingsModule(int count) {
+      this.count = count;
+    }
+
+    @Override
+    protected void configure() {
+      for (int i = 0; i < count; i++) {
+        Key<Service> key = Key.get(Service.class, Names.named("service" + i));
+        switch (i % 4) {
+          case 0:
+            bind(key).toInstance(new ServiceImpl(new Dependency()));
+            break;
+          case 1:
+            bind(key).to(ServiceImpl.class);
+            break;
+          case 2:
+            bind(key).toProvider(ServiceProvider.class);
+            break;
+          default:
+            bind(key).to(ServiceImpl.class).in(Singleton.class);
+            break;
+        }
+      }
+    }
+  }
+
+  interface Service {}
+
+  static class Dependency {}
+
+  static class ServiceImpl implements Service {
+    final Dependency dependency;
+
+    @Inject
+    ServiceImpl(Dependency dependency) {
+      this.dependency = dependency;
+    }
+  }
+
+  static class ServiceProvider implements Provider<Service> {
+    @Inject Dependency dependency;
+
+    @Override
+    public Service get() {
+      return new ServiceImpl(dependency);
+    }
+  }
+}
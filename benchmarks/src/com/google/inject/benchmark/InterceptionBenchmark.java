@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import static com.google.inject.matcher.Matchers.annotatedWith;
+import static com.google.inject.matcher.Matchers.any;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures calls to methods intercepted with one and three pass-through interceptors, against the
+ * same call on an unenhanced instance. The {@code reused} benchmarks fork with {@code
+ * -Dguice_interception=REUSED_INVOCATIONS}, so that they measure {@code InterceptorChainCallback}
+ * rather than {@code InterceptorStackCallback}. The nested benchmarks make three intercepted calls
+ * from inside an intercepted call, as interceptors can reuse those invocations.
+ *
+ * <p>Add {@code -prof gc} to compare what each call allocates. Both include the argument array and
+ * boxing done by the enhanced method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterceptionBenchmark {
+
+  private static final String REUSED_INVOCATIONS = "-Dguice_interception=REUSED_INVOCATIONS";
+
+  private Service plain;
+  private Service oneInterceptor;
+  private Service threeInterceptors;
+  private int argument;
+
+  @Setup
+  public void setUp() {
+    plain = Guice.createInjector().getInstance(Service.class);
+    oneInterceptor = Guice.createInjector(new InterceptorModule(1)).getInstance(Service.class);
+    threeInterceptors = Guice.createInjector(new InterceptorModule(3)).getInstance(Service.class);
+    argument = 42;
+  }
+
+  @Benchmark
+  public int notIntercepted() {
+    return plain.compute(argument);
+  }
+
+  @Benchmark
+  public int oneInterceptor() {
+    return oneInterceptor.compute(argument);
+  }
+
+  @Benchmark
+  public int threeInterceptors() {
+    return threeInterceptors.compute(argument);
+  }
+
+  @Benchmark
+  public int nestedCalls() {
+    return oneInterceptor.computeThrice(argument);
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = REUSED_INVOCATIONS)
+  public int oneInterceptorReused() {
+    return oneInterceptor.compute(argument);
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = REUSED_INVOCATIONS)
+  public int threeInterceptorsReused() {
+    return threeInterceptors.compute(argument);
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = REUSED_INVOCATIONS)
+  public int nestedCallsReused() {
+    return oneInterceptor.computeThrice(argument);
+  }
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(ElementType.METHOD)
+  @interface Intercepted {}
+
+  static class Service {
+    @Intercepted
+    public int compute(int value) {
+      return value * 31 + 7;
+    }
+
+    @Intercepted
+    public int computeThrice(int value) {
+      return compute(value) + compute(value + 1) + compute(value + 2);
+    }
+  }
+
+  static class InterceptorModule extends AbstractModule {
+    private final int interceptors;
+
+    InterceptorModule(int interceptors) {
+      this.interceptors = interceptors;
+    }
+
+    @Override
+    protected void configure() {
+      for (int i = 0; i < interceptors; i++) {
+        bindInterceptor(any(), annotatedWith(Intercepted.class), new PassThroughInterceptor());
+      }
+    }
+  }
+
+  static class PassThroughInterceptor implements MethodInterceptor {
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+  }
+}
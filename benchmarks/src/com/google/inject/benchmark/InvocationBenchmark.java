@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures provisioning through a {@code @Provides} method and through an injectable constructor,
+ * with constructors and provider methods invoked by FastClass and, in the {@code methodHandle}
+ * benchmarks, by the constant method handles of {@code -Dguice_invocation=METHOD_HANDLE}. Add
+ * {@code -jvmArgsAppend -XX:+UnlockDiagnosticVMOptions -jvmArgsAppend -XX:+PrintInlining} to see
+ * that the provider method is inlined into its generated invoker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvocationBenchmark {
+
+  private static final String METHOD_HANDLE = "-Dguice_invocation=METHOD_HANDLE";
+
+  private Provider<Provided> providesMethodProvider;
+  private Provider<Constructed> constructorProvider;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Guice.createInjector(new ProvidesModule());
+    providesMethodProvider = injector.getProvider(Provided.class);
+    constructorProvider = injector.getProvider(Constructed.class);
+  }
+
+  @Benchmark
+  public Provided providesMethodFastClass() {
+    return providesMethodProvider.get();
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = METHOD_HANDLE)
+  public Provided providesMethodMethodHandle() {
+    return providesMethodProvider.get();
+  }
+
+  @Benchmark
+  public Constructed constructorFastClass() {
+    return constructorProvider.get();
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = METHOD_HANDLE)
+  public Constructed constructorMethodHandle() {
+    return constructorProvider.get();
+  }
+
+  public static class Leaf {}
+
+  public static class Provided {
+    final Leaf leaf;
+    final int hash;
+
+    Provided(Leaf leaf, int hash) {
+      this.leaf = leaf;
+      this.hash = hash;
+    }
+  }
+
+  public static class Constructed {
+    final Leaf leaf;
+
+    @Inject
+    public Constructed(Leaf leaf) {
+      this.leaf = leaf;
+    }
+  }
+
+  public static class ProvidesModule extends AbstractModule {
+    @Override
+    protected void configure() {}
+
+    @Provides
+    public Provided provideProvided(Leaf leaf) {
+      return new Provided(leaf, leaf.hashCode() * 31);
+    }
+  }
+}
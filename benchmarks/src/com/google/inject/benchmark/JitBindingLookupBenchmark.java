@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures contention on lookups of existing just-in-time bindings, which every {@code
+ * getProvider} call and every child injector performs. Run with 1 and 16 threads to compare how
+ * throughput scales.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JitBindingLookupBenchmark {
+
+  private Injector injector;
+  private Injector child;
+
+  @Setup
+  public void setUp() {
+    injector = Guice.createInjector();
+    child = injector.createChildInjector();
+    // Create the JIT bindings up front, so only lookups are measured.
+    injector.getInstance(RequestHandler.class);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Provider<RequestHandler> getProvider_1thread() {
+    return injector.getProvider(RequestHandler.class);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public Provider<RequestHandler> getProvider_16threads() {
+    return injector.getProvider(RequestHandler.class);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Provider<RequestHandler> childGetProvider_1thread() {
+    return child.getProvider(RequestHandler.class);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public Provider<RequestHandler> childGetProvider_16threads() {
+    return child.getProvider(RequestHandler.class);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public RequestHandler childInjectorPerRequest_16threads() {
+    return injector.createChildInjector().getInstance(RequestHandler.class);
+  }
+
+  static class Dao {}
+
+  static class RequestHandler {
+    @Inject
+    RequestHandler(Dao dao) {}
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.MapBinder;
+import com.google.inject.multibindings.Multibinder;
+import com.google.inject.name.Names;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures provisioning of {@link Multibinder} sets and {@link MapBinder} maps whose elements are
+ * unscoped constructor bindings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultibindingBenchmark {
+
+  private static final Key<Set<Handler>> SET_KEY = Key.get(new TypeLiteral<Set<Handler>>() {});
+  private static final Key<Map<String, Handler>> MAP_KEY =
+      Key.get(new TypeLiteral<Map<String, Handler>>() {});
+
+  @Param({"10", "100"})
+  int elements;
+
+  private Provider<Set<Handler>> setProvider;
+  private Provider<Map<String, Handler>> mapProvider;
+
+  @Setup
+  public void setUp() {
+    Injector injector =
+        Guice.createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                Multibinder<Handler> setBinder = Multibinder.newSetBinder(binder(), Handler.class);
+                MapBinder<String, Handler> mapBinder =
+                    MapBinder.newMapBinder(binder(), String.class, Handler.class);
+                for (int i = 0; i < elements; i++) {
+                  // Elements must be distinct, so bind each to its own annotated key.
+                  Key<Handler> key = Key.get(Handler.class, Names.named("handler" + i));
+                  bind(key).to(HandlerImpl.class);
+                  setBinder.addBinding().to(key);
+                  mapBinder.addBinding("handler" + i).to(key);
+                }
+              }
+            });
+    setProvider = injector.getProvider(SET_KEY);
+    mapProvider = injector.getProvider(MAP_KEY);
+  }
+
+  @Benchmark
+  public Set<Handler> multibinderSet() {
+    return setProvider.get();
+  }
+
+  @Benchmark
+  public Map<String, Handler> mapBinderMap() {
+    return mapProvider.get();
+  }
+
+  interface Handler {}
+
+  static class HandlerImpl implements Handler {}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code InjectorImpl.getInstance} for unscoped objects: a ten level deep chain of
+ * constructor injections, a single object with many injected fields and methods, and a
+ * {@code @Provides} method.
+ *
+ * <p>Pass {@code -jvmArgsAppend -Dguice_members_injection=GENERATED} to measure members injection
+ * through generated classes rather than reflection, or {@code -jvmArgsAppend
+ * -Dguice_invocation=METHOD_HANDLE} to invoke constructors and provider methods through method
+ * handles rather than FastClass. Pass {@code -jvmArgsAppend -Dguice_provisioning=FLAT_PLAN} to
+ * construct the deep chain from a flattened plan rather than by recursing through its factories.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProvisionBenchmark {
+
+  private static final Key<Level0> DEEP_KEY = Key.get(Level0.class);
+
+  private Injector injector;
+  private Provider<Level0> deepProvider;
+  private Provider<Wide> wideProvider;
+  private Provider<Provided> providesMethodProvider;
+
+  @Setup
+  public void setUp() {
+    injector = Guice.createInjector(new ProvidesModule());
+    deepProvider = injector.getProvider(Level0.class);
+    wideProvider = injector.getProvider(Wide.class);
+    providesMethodProvider = injector.getProvider(Provided.class);
+  }
+
+  @Benchmark
+  public Level0 getInstanceDeepChain() {
+    return injector.getInstance(DEEP_KEY);
+  }
+
+  @Benchmark
+  public Level0 providerDeepChain() {
+    return deepProvider.get();
+  }
+
+  @Benchmark
+  public Wide providerManyMembers() {
+    return wideProvider.get();
+  }
+
+  @Benchmark
+  public Provided providesMethod() {
+    return providesMethodProvider.get();
+  }
+
+  @Benchmark
+  public Level0 byHandDeepChain() {
+    return new Level0(
+        new Level1(
+            new Level2(
+                new Level3(
+                    new Level4(
+                        new Level5(new Level6(new Level7(new Level8(new Level9(new Leaf()))))))))));
+  }
+
+  static class Leaf {}
+
+  static class Provided {
+    final Leaf leaf;
+
+    Provided(Leaf leaf) {
+      this.leaf = leaf;
+    }
+  }
+
+  static class ProvidesModule extends AbstractModule {
+    @Override
+    protected void configure() {}
+
+    @Provides
+    Provided provideProvided(Leaf leaf) {
+      return new Provided(leaf);
+    }
+  }
+
+  static class Level9 {
+    @Inject
+    Level9(Leaf next) {}
+  }
+
+  static class Level8 {
+    @Inject
+    Level8(Level9 next) {}
+  }
+
+  static class Level7 {
+    @Inject
+    Level7(Level8 next) {}
+  }
+
+  static class Level6 {
+    @Inject
+    Level6(Level7 next) {}
+  }
+
+  static class Level5 {
+    @Inject
+    Level5(Level6 next) {}
+  }
+
+  static class Level4 {
+    @Inject
+    Level4(Level5 next) {}
+  }
+
+  static class Level3 {
+    @Inject
+    Level3(Level4 next) {}
+  }
+
+  static class Level2 {
+    @Inject
+    Level2(Level3 next) {}
+  }
+
+  static class Level1 {
+    @Inject
+    Level1(Level2 next) {}
+  }
+
+  static class Level0 {
+    @Inject
+    Level0(Level1 next) {}
+  }
+
+  static class Wide {
+    @Inject Leaf f0;
+    @Inject Leaf f1;
+    @Inject Leaf f2;
+    @Inject Leaf f3;
+    @Inject Leaf f4;
+    @Inject Leaf f5;
+    @Inject Leaf f6;
+    @Inject Leaf f7;
+    @Inject Leaf f8;
+    @Inject Leaf f9;
+    Leaf m0;
+    Leaf m1;
+
+    @Inject
+    void setM0(Leaf leaf) {
+      m0 = leaf;
+    }
+
+    @Inject
+    void setM1(Leaf leaf) {
+      m1 = leaf;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.name.Names;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the first gets of many singletons, from several threads in each of several injectors,
+ * so that most of the cost is taking the locks that {@code SingletonScope} holds while creating
+ * them. Threads sharing an injector start at different singletons, and sometimes wait for each
+ * other.
+ *
+ * <p>Every invocation gets the singletons from new injectors, which are created before it starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SingletonCreationBenchmark {
+
+  @Param({"4"})
+  int injectors;
+
+  @Param({"2"})
+  int threadsPerInjector;
+
+  @Param({"1000"})
+  int singletons;
+
+  private ExecutorService executor;
+  private List<Injector> created;
+
+  @Setup(Level.Trial)
+  public void startThreads() {
+    executor = Executors.newFixedThreadPool(injectors * threadsPerInjector);
+  }
+
+  @Setup(Level.Invocation)
+  public void createInjectors() {
+    created = Lists.newArrayList();
+    for (int i = 0; i < injectors; i++) {
+      created.add(Guice.createInjector(new ManySingletonsModule(singletons)));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopThreads() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public int createSingletons() throws Exception {
+    List<Future<Integer>> futures = Lists.newArrayList();
+    for (Injector injector : created) {
+      for (int i = 0; i < threadsPerInjector; i++) {
+        int first = i * singletons / threadsPerInjector;
+        futures.add(executor.submit(new GetAll(injector, singletons, first)));
+      }
+    }
+    int gets = 0;
+    for (Future<Integer> future : futures) {
+      gets += future.get();
+    }
+    return gets;
+  }
+
+  private static Key<Object> key(int index) {
+    return Key.get(Object.class, Names.named("singleton" + index));
+  }
+
+  /** Gets every singleton from an injector, starting at {@code first}. */
+  static class GetAll implements Callable<Integer> {
+    private final Injector injector;
+    private final int count;
+    private final int first;
+
+    GetAll(Injector injector, int count, int first) {
+      this.injector = injector;
+      this.count = count;
+      this.first = first;
+    }
+
+    @Override
+    public Integer call() {
+      for (int i = 0; i < count; i++) {
+        injector.getInstance(key((first + i) % count));
+      }
+      return count;
+    }
+  }
+
+  /** Binds {@code count} singletons, each provided by a new object. */
+  static class ManySingletonsModule extends AbstractModule {
+    private final int count;
+
+    ManySingletonsModule(int count) {
+      this.count = count;
+    }
+
+    @Override
+    protected void configure() {
+      Provider<Object> provider =
+          new Provider<Object>() {
+            @Override
+            public Object get() {
+              return new Object();
+            }
+          };
+      for (int i = 0; i < count; i++) {
+        bind(key(i)).toProvider(provider).in(Singleton.class);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures hot gets of an already initialized singleton through {@code SingletonScope}, from 1,
+ * 8 and 64 threads sharing one injector.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SingletonScopeBenchmark {
+
+  private Injector injector;
+  private Provider<Service> provider;
+
+  @Setup
+  public void setUp() {
+    injector =
+        Guice.createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                bind(Service.class).in(Singleton.class);
+              }
+            });
+    provider = injector.getProvider(Service.class);
+    // Make sure every benchmark measures the initialized fast path.
+    provider.get();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Service provider_1thread() {
+    return provider.get();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Service provider_8threads() {
+    return provider.get();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public Service provider_64threads() {
+    return provider.get();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Service getInstance_1thread() {
+    return injector.getInstance(Service.class);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Service getInstance_8threads() {
+    return injector.getInstance(Service.class);
+  }
+
+  @Benchmark
+  @Threads(64)
+  public Service getInstance_64threads() {
+    return injector.getInstance(Service.class);
+  }
+
+  static class Service {}
+}
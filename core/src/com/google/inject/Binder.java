@@ -28,6 +28,7 @@ import com.google.inject.spi.TypeConverter;
 import com.google.inject.spi.TypeListener;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
 
 /**
  * Collects configuration information (primarily <i>bindings</i>) which will be used to create an
@@ -455,6 +456,21 @@ public interface Binder {
    */
   void requireExactBindingAnnotations();
 
+  /**
+   * Creates eager singletons, and all singletons in {@link Stage#PRODUCTION}, concurrently on
+   * {@code executor} while the injector is being created. Singletons are started after the other
+   * singletons they depend on, and the injector isn't returned until all of them are finished.
+   * Errors are reported in the same order as if the singletons had been created one at a time.
+   *
+   * <p>The executor must not run tasks on the thread that creates the injector, unless it runs
+   * them immediately. If this is called more than once, the last executor is used.
+   *
+   * <p>Child injectors and private modules use their parent's executor unless they specify one.
+   *
+   * @since 4.2
+   */
+  void loadEagerSingletonsInParallel(Executor executor);
+
   /**
    * Adds a scanner that will look in all installed modules for annotations the scanner can parse,
    * and binds them like {@literal @}Provides methods. Scanners apply to all modules installed in
@@ -196,6 +196,23 @@ public interface Injector {
    */
   <T> T getInstance(Class<T> type);
 
+  /**
+   * Returns the appropriate instances for the given injection keys, in the same order; equivalent
+   * to calling {@link #getInstance(Key)} for each key. This is cheaper than separate calls when
+   * many instances are needed at once, because the injector is only entered once. When feasible,
+   * avoid using this method, in favor of having Guice inject your dependencies ahead of time.
+   *
+   * <p>The bindings for all the keys are found before any instance is provided. If providing an
+   * instance fails, the instances for the remaining keys are still provided, so that the exception
+   * reports every key that failed.
+   *
+   * @throws ConfigurationException if this injector cannot find or create the provider for any of
+   *     the keys, in which case no instances are provided.
+   * @throws ProvisionException if there was a runtime failure while providing any of the instances.
+   * @since 4.2
+   */
+  List<Object> getInstances(Iterable<? extends Key<?>> keys);
+
   /**
    * Returns this injector's parent, or {@code null} if this is a top-level injector.
    *
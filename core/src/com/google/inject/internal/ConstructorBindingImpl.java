@@ -27,6 +27,7 @@ import com.google.inject.ConfigurationException;
 import com.google.inject.Inject;
 import com.google.inject.Key;
 import com.google.inject.TypeLiteral;
+import com.google.inject.internal.InternalFlags.ProvisioningOption;
 import com.google.inject.internal.util.Classes;
 import com.google.inject.spi.BindingTargetVisitor;
 import com.google.inject.spi.ConstructorBinding;
@@ -161,6 +162,11 @@ final class ConstructorBindingImpl<T> extends BindingImpl<T>
     return factory.constructorInjector != null;
   }
 
+  /** Returns the constructor to use, or null if the binding hasn't been initialized. */
+  ConstructorInjector<T> getConstructorInjector() {
+    return factory.constructorInjector;
+  }
+
   /** Returns an injection point that can be used to clean up the constructor store. */
   InjectionPoint getInternalConstructor() {
     if (factory.constructorInjector != null) {
@@ -277,17 +283,56 @@ final class ConstructorBindingImpl<T> extends BindingImpl<T>
     return Objects.hashCode(getKey(), getScoping(), constructorInjectionPoint);
   }
 
-  private static class Factory<T> implements InternalFactory<T> {
+  static final class Factory<T> implements InternalFactory<T> {
     private final boolean failIfNotLinked;
     private final Key<?> key;
     private ConstructorInjector<T> constructorInjector;
     private ProvisionListenerStackCallback<T> provisionCallback;
+    /** Provisions this binding and its dependencies, if it's worth doing so with a plan. */
+    private ProvisioningPlan<T> plan;
+    /** True once it's known whether {@link #plan} is used. */
+    private boolean planResolved;
 
     Factory(boolean failIfNotLinked, Key<?> key) {
       this.failIfNotLinked = failIfNotLinked;
       this.key = key;
     }
 
+    /** Returns the constructor to use, or null if the binding hasn't been initialized. */
+    ConstructorInjector<T> getConstructorInjector() {
+      return constructorInjector;
+    }
+
+    /**
+     * Returns true if {@link ProvisioningPlan} can construct this binding's instances without
+     * calling this factory. Must only be called once the binding is initialized.
+     */
+    boolean canProvisionWithPlan(boolean linked) {
+      return provisionCallback == null
+          && (linked || !failIfNotLinked)
+          && constructorInjector.getMembersInjector() != null;
+    }
+
+    /** Builds the plan, or returns null if it can't be built, or can't be built yet. */
+    private ProvisioningPlan<T> resolvePlan(ConstructorInjector<T> localInjector) {
+      if (!canProvisionWithPlan(true)) {
+        planResolved = true;
+        return null;
+      }
+      ProvisioningPlan<T> newPlan = ProvisioningPlan.create(localInjector);
+      if (newPlan == null) {
+        return null; // try again once the dependencies are initialized
+      }
+      // a plan that only calls this binding's constructor saves nothing
+      if (newPlan.getConstructorCount() > 1) {
+        plan = newPlan;
+      } else {
+        newPlan = null;
+      }
+      planResolved = true;
+      return newPlan;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public T get(Errors errors, InternalContext context, Dependency<?> dependency, boolean linked)
@@ -301,6 +346,16 @@ final class ConstructorBindingImpl<T> extends BindingImpl<T>
         throw errors.jitDisabled(key).toException();
       }
 
+      if (InternalFlags.getProvisioningOption() == ProvisioningOption.FLAT_PLAN) {
+        ProvisioningPlan<T> localPlan = plan;
+        if (localPlan == null && !planResolved) {
+          localPlan = resolvePlan(localInjector);
+        }
+        if (localPlan != null) {
+          return localPlan.provision(errors, context, dependency);
+        }
+      }
+
       // This may not actually be safe because it could return a super type of T (if that's all the
       // client needs), but it should be OK in practice thanks to the wonders of erasure.
       return (T) localInjector.construct(errors, context, dependency, provisionCallback);
@@ -55,6 +55,15 @@ final class ConstructorInjector<T> {
     return constructionProxy;
   }
 
+  /** Returns the injectors for the constructor's parameters, or null if it has none. */
+  SingleParameterInjector<?>[] getParameterInjectors() {
+    return parameterInjectors;
+  }
+
+  MembersInjectorImpl<T> getMembersInjector() {
+    return membersInjector;
+  }
+
   /**
    * Construct an instance. Returns {@code Object} instead of {@code T} because it may return a
    * proxy.
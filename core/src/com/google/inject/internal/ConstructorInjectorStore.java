@@ -61,6 +61,11 @@ final class ConstructorInjectorStore {
     return cache.remove(ip);
   }
 
+  /** Purges the constructors that failed, which are only kept to report their errors again. */
+  void removeFailures() {
+    cache.removeFailures();
+  }
+
   private <T> ConstructorInjector<T> createConstructor(InjectionPoint injectionPoint, Errors errors)
       throws ErrorsException {
     int numErrorsBefore = errors.size();
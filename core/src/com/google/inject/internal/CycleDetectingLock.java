@@ -3,16 +3,16 @@ package com.google.inject.internal;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -41,8 +41,9 @@ interface CycleDetectingLock<ID> {
    * the last lock in the list is the one that the thread is currently waiting for. Returned map is
    * created atomically.
    *
-   * <p>In case no cycle is detected performance is O(threads creating singletons), in case cycle is
-   * detected performance is O(singleton locks).
+   * <p>In case the lock is not contended performance is O(1), in case the thread has to wait
+   * performance is O(threads creating singletons), in case cycle is detected performance is
+   * O(singleton locks).
    */
   ListMultimap<Thread, ID> lockOrDetectPotentialLocksCycle();
 
@@ -50,9 +51,10 @@ interface CycleDetectingLock<ID> {
   void unlock();
 
   /**
-   * Wraps locks so they would never cause a deadlock. On each {@link
-   * CycleDetectingLock#lockOrDetectPotentialLocksCycle} we check for dependency cycles within locks
-   * created by the same factory. Either we detect a cycle and return it or take it atomically.
+   * Wraps locks so they would never cause a deadlock. Whenever {@link
+   * CycleDetectingLock#lockOrDetectPotentialLocksCycle} would have to wait, we check for dependency
+   * cycles, which may span locks created by several factories. Either we detect a cycle and return
+   * it or take the lock. Only the ids of locks created by the same factory are returned.
    *
    * <p>Important to note that we do not prevent deadlocks in the client code. As an example: Thread
    * A takes lock L and creates singleton class CA depending on the singleton class CB. Meanwhile
@@ -75,11 +77,13 @@ interface CycleDetectingLock<ID> {
      *
      * <p>Element is added inside {@link #lockOrDetectPotentialLocksCycle()} before {@link
      * Lock#lock} is called. Element is removed inside {@link #lockOrDetectPotentialLocksCycle()}
-     * after {@link Lock#lock} and synchronously with adding it to {@link #locksOwnedByThread}.
+     * after {@link Lock#lock} and before the lock is added to {@link #locksOwnedByThread}.
      *
      * <p>Same lock can be added for several threads in case all of them are trying to take it.
      *
-     * <p>Guarded by {@code CycleDetectingLockFactory.class}.
+     * <p>Shared by all factories, so that cycles spanning several factories are detected too. Only
+     * threads that have to wait for a lock are added, so threads taking uncontended locks never
+     * need the monitor. Guarded by {@code CycleDetectingLockFactory.class}.
      */
     private static Map<Thread, ReentrantCycleDetectingLock<?>> lockThreadIsWaitingOn =
         Maps.newHashMap();
@@ -94,16 +98,14 @@ interface CycleDetectingLock<ID> {
      * </ul>
      *
      * <p>Element is added inside {@link #lockOrDetectPotentialLocksCycle()} after {@link Lock#lock}
-     * is called. Element is removed inside {@link #unlock()} synchronously with {@link
-     * Lock#unlock()} call.
+     * is called, and before the lock's owner is set. Element is removed inside {@link #unlock()}
+     * after the lock's owner is cleared and before {@link Lock#unlock()} is called.
      *
-     * <p>Same lock can only be present several times for the same thread as locks are reentrant.
-     * Lock can not be owned by several different threads as the same time.
-     *
-     * <p>Guarded by {@code CycleDetectingLockFactory.class}.
+     * <p>Each thread only changes its own stack, so it can be read by other threads without
+     * locking. Lock can not be owned by several different threads as the same time.
      */
-    private static final Multimap<Thread, ReentrantCycleDetectingLock<?>> locksOwnedByThread =
-        LinkedHashMultimap.create();
+    private static final ConcurrentMap<Thread, List<ReentrantCycleDetectingLock<?>>>
+        locksOwnedByThread = Maps.newConcurrentMap();
 
     /**
      * Creates new lock within this factory context. We can guarantee that locks created by the same
@@ -125,13 +127,14 @@ interface CycleDetectingLock<ID> {
       /** Factory that was used to create this lock. */
       private final CycleDetectingLockFactory<ID> lockFactory;
       /**
-       * Thread that owns this lock. Nullable. Guarded by {@code CycleDetectingLockFactory.this}.
+       * Thread that owns this lock. Nullable. Only changed by the owner thread, while it holds
+       * {@link #lockImplementation}.
        */
-      private Thread lockOwnerThread = null;
+      private volatile Thread lockOwnerThread = null;
 
       /**
-       * Number of times that thread owned this lock. Guarded by {@code
-       * CycleDetectingLockFactory.this}.
+       * Number of times that thread owned this lock. Only accessed by the owner thread, while it
+       * holds {@link #lockImplementation}.
        */
       private int lockReentranceCount = 0;
 
@@ -143,36 +146,50 @@ interface CycleDetectingLock<ID> {
             Preconditions.checkNotNull(lockImplementation, "lockImplementation");
       }
 
+      /**
+       * {@inheritDoc}
+       *
+       * <p>A thread that doesn't have to wait can't be part of a cycle, so an uncontended lock is
+       * taken without looking for cycles. Cycles are looked for, under a monitor shared by all
+       * factories, only before waiting. All the other threads in a cycle are already waiting when
+       * the last one joins it, so the last one always finds it.
+       */
       @Override
       public ListMultimap<Thread, ID> lockOrDetectPotentialLocksCycle() {
         final Thread currentThread = Thread.currentThread();
-        synchronized (CycleDetectingLockFactory.class) {
-          checkState();
-          // Add this lock to the waiting map to ensure it is included in any reported lock cycle.
-          lockThreadIsWaitingOn.put(currentThread, this);
-          ListMultimap<Thread, ID> locksInCycle = detectPotentialLocksCycle();
-          if (!locksInCycle.isEmpty()) {
-            // We aren't actually going to wait for this lock, so remove it from the map.
-            lockThreadIsWaitingOn.remove(currentThread);
-            // potential deadlock is found, we don't try to take this lock
-            return locksInCycle;
+        if (!lockImplementation.tryLock()) {
+          synchronized (CycleDetectingLockFactory.class) {
+            checkState();
+            // Add this lock to the waiting map to ensure it is included in any reported lock cycle.
+            lockThreadIsWaitingOn.put(currentThread, this);
+            ListMultimap<Thread, ID> locksInCycle = detectPotentialLocksCycle();
+            if (!locksInCycle.isEmpty()) {
+              // We aren't actually going to wait for this lock, so remove it from the map.
+              lockThreadIsWaitingOn.remove(currentThread);
+              // potential deadlock is found, we don't try to take this lock
+              return locksInCycle;
+            }
           }
 
-        }
-
-        // this may be blocking, but we don't expect it to cause a deadlock
-        lockImplementation.lock();
+          // this may be blocking, but we don't expect it to cause a deadlock
+          lockImplementation.lock();
 
-        synchronized (CycleDetectingLockFactory.class) {
-          // current thread is no longer waiting on this lock
-          lockThreadIsWaitingOn.remove(currentThread);
-          checkState();
+          synchronized (CycleDetectingLockFactory.class) {
+            // current thread is no longer waiting on this lock
+            lockThreadIsWaitingOn.remove(currentThread);
+          }
+        }
 
-          // mark it as owned by us
-          lockOwnerThread = currentThread;
-          lockReentranceCount++;
+        // mark it as owned by us
+        if (lockReentranceCount++ == 0) {
+          List<ReentrantCycleDetectingLock<?>> ownedLocks = locksOwnedByThread.get(currentThread);
+          if (ownedLocks == null) {
+            ownedLocks = new CopyOnWriteArrayList<>();
+            locksOwnedByThread.put(currentThread, ownedLocks);
+          }
           // add this lock to the list of locks owned by a current thread
-          locksOwnedByThread.put(currentThread, this);
+          ownedLocks.add(this);
+          lockOwnerThread = currentThread;
         }
         // no deadlock is found, locking successful
         return ImmutableListMultimap.of();
@@ -181,31 +198,28 @@ interface CycleDetectingLock<ID> {
       @Override
       public void unlock() {
         final Thread currentThread = Thread.currentThread();
-        synchronized (CycleDetectingLockFactory.class) {
-          checkState();
-          Preconditions.checkState(
-              lockOwnerThread != null, "Thread is trying to unlock a lock that is not locked");
-          Preconditions.checkState(
-              lockOwnerThread == currentThread,
-              "Thread is trying to unlock a lock owned by another thread");
-
-          // releasing underlying lock
-          lockImplementation.unlock();
+        Preconditions.checkState(
+            lockOwnerThread != null, "Thread is trying to unlock a lock that is not locked");
+        Preconditions.checkState(
+            lockOwnerThread == currentThread,
+            "Thread is trying to unlock a lock owned by another thread");
 
-          // be sure to release the lock synchronously with updating internal state
-          lockReentranceCount--;
-          if (lockReentranceCount == 0) {
-            // we no longer own this lock
-            lockOwnerThread = null;
-            Preconditions.checkState(
-                locksOwnedByThread.remove(currentThread, this),
-                "Internal error: Can not find this lock in locks owned by a current thread");
-            if (locksOwnedByThread.get(currentThread).isEmpty()) {
-              // clearing memory
-              locksOwnedByThread.removeAll(currentThread);
-            }
+        lockReentranceCount--;
+        if (lockReentranceCount == 0) {
+          // we no longer own this lock
+          lockOwnerThread = null;
+          List<ReentrantCycleDetectingLock<?>> ownedLocks = locksOwnedByThread.get(currentThread);
+          Preconditions.checkState(
+              ownedLocks != null && ownedLocks.remove(this),
+              "Internal error: Can not find this lock in locks owned by a current thread");
+          if (ownedLocks.isEmpty()) {
+            // clearing memory
+            locksOwnedByThread.remove(currentThread);
           }
         }
+
+        // releasing underlying lock, only once our internal state is updated
+        lockImplementation.unlock();
       }
 
       /** Check consistency of an internal state. */
@@ -214,23 +228,16 @@ interface CycleDetectingLock<ID> {
         Preconditions.checkState(
             !lockThreadIsWaitingOn.containsKey(currentThread),
             "Internal error: Thread should not be in a waiting thread on a lock now");
-        if (lockOwnerThread != null) {
-          // check state of a locked lock
+        if (lockOwnerThread == currentThread) {
+          // check state of a lock locked by us; other threads' locks may be changing
           Preconditions.checkState(
               lockReentranceCount >= 0,
               "Internal error: Lock ownership and reentrance count internal states do not match");
+          List<ReentrantCycleDetectingLock<?>> ownedLocks = locksOwnedByThread.get(currentThread);
           Preconditions.checkState(
-              locksOwnedByThread.get(lockOwnerThread).contains(this),
+              ownedLocks != null && ownedLocks.contains(this),
               "Internal error: Set of locks owned by a current thread and lock "
                   + "ownership status do not match");
-        } else {
-          // check state of a non locked lock
-          Preconditions.checkState(
-              lockReentranceCount == 0,
-              "Internal error: Reentrance count of a non locked lock is expect to be zero");
-          Preconditions.checkState(
-              !locksOwnedByThread.values().contains(this),
-              "Internal error: Non locked lock should not be owned by any thread");
         }
       }
 
@@ -262,8 +269,12 @@ interface CycleDetectingLock<ID> {
         // lock that is a part of a potential locks cycle, starts with current lock
         ReentrantCycleDetectingLock<?> lockOwnerWaitingOn = this;
         // try to find a dependency path between lock's owner thread and a current thread
-        while (lockOwnerWaitingOn != null && lockOwnerWaitingOn.lockOwnerThread != null) {
+        while (lockOwnerWaitingOn != null) {
+          // read once, the lock may be released at any time by a thread that isn't waiting
           Thread threadOwnerThreadWaits = lockOwnerWaitingOn.lockOwnerThread;
+          if (threadOwnerThreadWaits == null) {
+            break;
+          }
           // in case locks cycle exists lock we're waiting for is part of it
           lockOwnerWaitingOn =
               addAllLockIdsAfter(threadOwnerThreadWaits, lockOwnerWaitingOn, potentialLocksCycle);
@@ -285,9 +296,12 @@ interface CycleDetectingLock<ID> {
           ReentrantCycleDetectingLock<?> lock,
           ListMultimap<Thread, ID> potentialLocksCycle) {
         boolean found = false;
-        Collection<ReentrantCycleDetectingLock<?>> ownedLocks = locksOwnedByThread.get(thread);
-        Preconditions.checkNotNull(
-            ownedLocks, "Internal error: No locks were found taken by a thread");
+        List<ReentrantCycleDetectingLock<?>> ownedLocks = locksOwnedByThread.get(thread);
+        if (ownedLocks == null) {
+          // the thread has just released the lock, so it isn't waiting and can't be in a cycle
+          return null;
+        }
+        // iterates over a snapshot of the locks
         for (ReentrantCycleDetectingLock<?> ownedLock : ownedLocks) {
           if (ownedLock == lock) {
             found = true;
@@ -302,9 +316,10 @@ interface CycleDetectingLock<ID> {
             potentialLocksCycle.put(thread, userLockId);
           }
         }
-        Preconditions.checkState(
-            found,
-            "Internal error: We can not find locks that created a cycle that we detected");
+        if (!found) {
+          // the thread has just released the lock, so it isn't waiting and can't be in a cycle
+          return null;
+        }
         ReentrantCycleDetectingLock<?> unownedLock = lockThreadIsWaitingOn.get(thread);
         // If this thread is waiting for a lock add it to the cycle and return it
         if (unownedLock != null && unownedLock.lockFactory == this.lockFactory) {
@@ -16,8 +16,11 @@
 
 package com.google.inject.internal;
 
+import static com.google.inject.internal.InternalFlags.getInvocationOption;
+
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.inject.internal.InternalFlags.InvocationOption;
 import com.google.inject.spi.InjectionPoint;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -44,6 +47,14 @@ final class DefaultConstructionProxyFactory<T> implements ConstructionProxyFacto
     @SuppressWarnings("unchecked") // the injection point is for a constructor of T
     final Constructor<T> constructor = (Constructor<T>) injectionPoint.getMember();
 
+    if (getInvocationOption() == InvocationOption.METHOD_HANDLE) {
+      try {
+        return new MethodHandleProxy<T>(injectionPoint, constructor);
+      } catch (IllegalAccessException e) {
+        /* fall-through */
+      }
+    }
+
     /*if[AOP]*/
     try {
       net.sf.cglib.reflect.FastClass fc = BytecodeGen.newFastClassForMember(constructor);
@@ -107,6 +118,56 @@ final class DefaultConstructionProxyFactory<T> implements ConstructionProxyFacto
   }
   /*end[AOP]*/
 
+  /**
+   * A {@link ConstructionProxy} that invokes the constructor through a {@link MethodHandleInvoker}
+   * that is created once per constructor.
+   */
+  static final class MethodHandleProxy<T> implements ConstructionProxy<T> {
+    final Constructor<T> constructor;
+    final InjectionPoint injectionPoint;
+    final MethodHandleInvoker invoker;
+
+    MethodHandleProxy(InjectionPoint injectionPoint, Constructor<T> constructor)
+        throws IllegalAccessException {
+      if (!Modifier.isPublic(constructor.getDeclaringClass().getModifiers())
+          || !Modifier.isPublic(constructor.getModifiers())) {
+        constructor.setAccessible(true);
+      }
+      this.injectionPoint = injectionPoint;
+      this.constructor = constructor;
+      this.invoker = MethodHandleInvoker.create(constructor);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object... arguments) throws InvocationTargetException {
+      try {
+        return (T) invoker.invoke(null, arguments);
+      } catch (Throwable userException) {
+        // like Constructor.newInstance, wrap everything the constructor throws, errors included
+        throw new InvocationTargetException(userException);
+      }
+    }
+
+    @Override
+    public InjectionPoint getInjectionPoint() {
+      return injectionPoint;
+    }
+
+    @Override
+    public Constructor<T> getConstructor() {
+      return constructor;
+    }
+
+    /*if[AOP]*/
+    @Override
+    public ImmutableMap<Method, List<org.aopalliance.intercept.MethodInterceptor>>
+        getMethodInterceptors() {
+      return ImmutableMap.of();
+    }
+    /*end[AOP]*/
+  }
+
   private static final class ReflectiveProxy<T> implements ConstructionProxy<T> {
     final Constructor<T> constructor;
     final InjectionPoint injectionPoint;
@@ -52,6 +52,19 @@ final class FactoryProxy<T> implements InternalFactory<T>, CreationListener {
     }
   }
 
+  Key<? extends T> getTargetKey() {
+    return targetKey;
+  }
+
+  Object getSource() {
+    return source;
+  }
+
+  /** Returns the factory of the target binding, or null until the injector is created. */
+  InternalFactory<? extends T> getTargetFactory() {
+    return targetFactory;
+  }
+
   @Override
   public T get(Errors errors, InternalContext context, Dependency<?> dependency, boolean linked)
       throws ErrorsException {
@@ -19,6 +19,7 @@ package com.google.inject.internal;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import java.util.Iterator;
 
 /**
  * Lazily creates (and caches) values for keys. If creating the value fails (with errors), an
@@ -62,4 +63,13 @@ public abstract class FailableCache<K, V> {
   boolean remove(K key) {
     return delegate.asMap().remove(key) != null;
   }
+
+  /** Removes the errors cached for keys that failed, so they're created again if requested. */
+  void removeFailures() {
+    for (Iterator<Object> i = delegate.asMap().values().iterator(); i.hasNext(); ) {
+      if (i.next() instanceof Errors) {
+        i.remove();
+      }
+    }
+  }
 }
@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import static com.google.inject.internal.InternalFlags.getMembersInjectionOption;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.TypeLiteral;
+import com.google.inject.internal.InternalFlags.MembersInjectionOption;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.ProtectionDomain;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.DefaultNamingPolicy;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.Local;
+import net.sf.cglib.core.NamingPolicy;
+import net.sf.cglib.core.Predicate;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Injects all of the fields and methods of an instance with a single call into a class that is
+ * generated for the instance's type. The generated class assigns fields and invokes methods
+ * directly, so injection doesn't pay for reflective access checks and argument boxing on every
+ * member.
+ *
+ * <p>Values for all members are resolved before any of them are injected. If any value can't be
+ * resolved, no members are injected and the errors are reported as usual.
+ */
+final class GeneratedMembersInjector {
+  private static final Logger logger = Logger.getLogger(GeneratedMembersInjector.class.getName());
+
+  /**
+   * Implemented by generated classes. This is public so that classes generated into the
+   * classloader of the user's type can see it.
+   */
+  public interface DirectInjector {
+    /**
+     * Assigns {@code values} to the members of {@code instance}, in order. Before each method is
+     * invoked, its index in the member list is stored as an {@link Integer} in the last slot of
+     * {@code values} so that failures can be attributed to it.
+     */
+    void inject(Object instance, Object[] values);
+  }
+
+  private final ImmutableList<SingleMemberInjector> memberInjectors;
+  private final DirectInjector directInjector;
+  private final int valueCount;
+
+  private GeneratedMembersInjector(
+      ImmutableList<SingleMemberInjector> memberInjectors,
+      DirectInjector directInjector,
+      int valueCount) {
+    this.memberInjectors = memberInjectors;
+    this.directInjector = directInjector;
+    this.valueCount = valueCount;
+  }
+
+  /**
+   * Returns a generated injector for {@code memberInjectors}, or null if generated members
+   * injection is disabled or not possible for {@code type}.
+   */
+  static GeneratedMembersInjector create(
+      TypeLiteral<?> type, ImmutableList<SingleMemberInjector> memberInjectors) {
+    if (getMembersInjectionOption() != MembersInjectionOption.GENERATED) {
+      return null;
+    }
+    return generate(type, memberInjectors);
+  }
+
+  /**
+   * Returns a generated injector for {@code memberInjectors}, or null if some member can't be
+   * accessed from generated code.
+   */
+  static GeneratedMembersInjector generate(
+      TypeLiteral<?> type, ImmutableList<SingleMemberInjector> memberInjectors) {
+    Class<?> rawType = type.getRawType();
+    ClassLoader typeLoader = rawType.getClassLoader();
+    if (typeLoader == null || memberInjectors.isEmpty()) {
+      return null;
+    }
+
+    ImmutableList.Builder<Member> members = ImmutableList.builder();
+    ImmutableList.Builder<String> key = ImmutableList.builder();
+    boolean allPublic = Modifier.isPublic(rawType.getModifiers());
+    int valueCount = 0;
+    for (SingleMemberInjector memberInjector : memberInjectors) {
+      Member member = memberInjector.getInjectionPoint().getMember();
+      int modifiers = member.getModifiers();
+      Class<?> declaringClass = member.getDeclaringClass();
+      if (Modifier.isPrivate(modifiers)
+          || Modifier.isStatic(modifiers)
+          || declaringClass.isInterface()) {
+        return null;
+      }
+      boolean publicMember =
+          Modifier.isPublic(modifiers) && Modifier.isPublic(declaringClass.getModifiers());
+      if (!publicMember && !isSamePackage(declaringClass, rawType)) {
+        return null;
+      }
+      allPublic &= publicMember;
+
+      Class<?>[] valueTypes;
+      if (member instanceof Field) {
+        if (Modifier.isFinal(modifiers)) {
+          return null;
+        }
+        valueTypes = new Class<?>[] {((Field) member).getType()};
+      } else {
+        valueTypes = ((Method) member).getParameterTypes();
+      }
+      for (Class<?> valueType : valueTypes) {
+        Class<?> elementType = valueType;
+        while (elementType.isArray()) {
+          elementType = elementType.getComponentType();
+        }
+        if (!elementType.isPrimitive() && !Modifier.isPublic(elementType.getModifiers())) {
+          if (!isSamePackage(elementType, rawType)) {
+            return null;
+          }
+          allPublic = false;
+        }
+      }
+
+      members.add(member);
+      key.add(member.toString());
+      valueCount += valueTypes.length;
+    }
+
+    ClassLoader classLoader;
+    if (allPublic) {
+      classLoader = BytecodeGen.getClassLoader(rawType);
+    } else if (canSeeDirectInjector(typeLoader) && !rawType.getName().startsWith("java.")) {
+      classLoader = typeLoader;
+    } else {
+      return null;
+    }
+
+    Generator generator = new Generator(rawType, members.build());
+    generator.setClassLoader(classLoader);
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine("Loading " + rawType + " MembersInjector with " + classLoader);
+    }
+    try {
+      return new GeneratedMembersInjector(
+          memberInjectors, generator.generate(key.add(rawType.getName()).build()), valueCount);
+    } catch (net.sf.cglib.core.CodeGenerationException e) {
+      logger.log(Level.FINE, "Unable to generate MembersInjector for " + rawType, e);
+      return null;
+    }
+  }
+
+  /** Injects all members of {@code instance}, recording failures in {@code errors}. */
+  void injectMembers(Object instance, Errors errors, InternalContext context) {
+    ImmutableList<SingleMemberInjector> localMemberInjectors = memberInjectors;
+    Object[] values = new Object[valueCount + 1];
+    int numErrorsBefore = errors.size();
+    int index = 0;
+    // optimization: use manual for/each to save allocating an iterator here
+    for (int i = 0, size = localMemberInjectors.size(); i < size; i++) {
+      SingleMemberInjector memberInjector = localMemberInjectors.get(i);
+      if (memberInjector instanceof SingleFieldInjector) {
+        values[index++] = ((SingleFieldInjector) memberInjector).getValue(errors, context);
+      } else {
+        SingleParameterInjector<?>[] parameterInjectors =
+            ((SingleMethodInjector) memberInjector).getParameterInjectors();
+        if (parameterInjectors != null) {
+          for (SingleParameterInjector<?> parameterInjector : parameterInjectors) {
+            try {
+              values[index] = parameterInjector.inject(errors, context);
+            } catch (ErrorsException e) {
+              errors.merge(e.getErrors());
+            }
+            index++;
+          }
+        }
+      }
+    }
+    if (errors.size() != numErrorsBefore) {
+      return;
+    }
+
+    try {
+      directInjector.inject(instance, values);
+    } catch (Throwable userException) {
+      Object failedIndex = values[valueCount];
+      if (!(failedIndex instanceof Integer)) {
+        throw userException;
+      }
+      int failed = (Integer) failedIndex;
+      errors
+          .withSource(localMemberInjectors.get(failed).getInjectionPoint())
+          .errorInjectingMethod(userException);
+      // like the reflective path, keep injecting the remaining members so all failures are
+      // reported, with the values that were already resolved for them
+      injectReflectively(instance, values, failed + 1, errors);
+    }
+  }
+
+  /** Injects the members from {@code start} on with their resolved {@code values}. */
+  private void injectReflectively(Object instance, Object[] values, int start, Errors errors) {
+    int index = 0;
+    for (int i = 0, size = memberInjectors.size(); i < size; i++) {
+      SingleMemberInjector memberInjector = memberInjectors.get(i);
+      if (memberInjector instanceof SingleFieldInjector) {
+        if (i >= start) {
+          ((SingleFieldInjector) memberInjector).setValue(instance, values[index]);
+        }
+        index++;
+      } else {
+        SingleMethodInjector methodInjector = (SingleMethodInjector) memberInjector;
+        SingleParameterInjector<?>[] parameterInjectors = methodInjector.getParameterInjectors();
+        int parameterCount = parameterInjectors != null ? parameterInjectors.length : 0;
+        if (i >= start) {
+          Object[] parameters = new Object[parameterCount];
+          System.arraycopy(values, index, parameters, 0, parameterCount);
+          methodInjector.invoke(errors, instance, parameters);
+        }
+        index += parameterCount;
+      }
+    }
+  }
+
+  /** Returns true if {@code a} and {@code b} are in the same runtime package. */
+  private static boolean isSamePackage(Class<?> a, Class<?> b) {
+    return a.getClassLoader() == b.getClassLoader()
+        && packageName(a.getName()).equals(packageName(b.getName()));
+  }
+
+  private static String packageName(String className) {
+    int lastDot = className.lastIndexOf('.');
+    return lastDot == -1 ? "" : className.substring(0, lastDot);
+  }
+
+  /** Returns true if classes generated in {@code classLoader} can implement our interface. */
+  private static boolean canSeeDirectInjector(ClassLoader classLoader) {
+    try {
+      return classLoader.loadClass(DirectInjector.class.getName()) == DirectInjector.class;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private static final NamingPolicy NAMING_POLICY =
+      new DefaultNamingPolicy() {
+        @Override
+        protected String getTag() {
+          return "ByGuice";
+        }
+
+        @Override
+        public String getClassName(String prefix, String source, Object key, Predicate names) {
+          // as with FastClass, keep jarjar's renaming of the source out of our class names
+          return super.getClassName(prefix, "MembersInjector", key, names);
+        }
+      };
+
+  private static final Type DIRECT_INJECTOR = Type.getType(DirectInjector.class);
+  private static final Type INTEGER = Type.getType(Integer.class);
+  private static final Signature INJECT =
+      new Signature(
+          "inject",
+          Type.VOID_TYPE,
+          new Type[] {Constants.TYPE_OBJECT, Constants.TYPE_OBJECT_ARRAY});
+  private static final Signature INTEGER_VALUE_OF =
+      new Signature("valueOf", INTEGER, new Type[] {Type.INT_TYPE});
+
+  /** Emits an implementation of {@link DirectInjector} for a fixed list of members. */
+  private static final class Generator extends AbstractClassGenerator {
+    private static final Source SOURCE = new Source(GeneratedMembersInjector.class.getName());
+
+    private final Class<?> type;
+    private final List<Member> members;
+
+    Generator(Class<?> type, List<Member> members) {
+      super(SOURCE);
+      this.type = type;
+      this.members = members;
+      setNamePrefix(type.getName());
+      setNamingPolicy(NAMING_POLICY);
+    }
+
+    DirectInjector generate(Object key) {
+      return (DirectInjector) super.create(key);
+    }
+
+    @Override
+    protected ClassLoader getDefaultClassLoader() {
+      return type.getClassLoader();
+    }
+
+    @Override
+    protected ProtectionDomain getProtectionDomain() {
+      return ReflectUtils.getProtectionDomain(type);
+    }
+
+    @Override
+    public void generateClass(ClassVisitor visitor) {
+      ClassEmitter ce = new ClassEmitter(visitor);
+      ce.begin_class(
+          Constants.V1_2,
+          Constants.ACC_PUBLIC,
+          getClassName(),
+          Constants.TYPE_OBJECT,
+          new Type[] {DIRECT_INJECTOR},
+          Constants.SOURCE_FILE);
+      EmitUtils.null_constructor(ce);
+
+      CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, INJECT, null);
+      Type targetType = Type.getType(type);
+      Local target = e.make_local(targetType);
+      e.load_arg(0);
+      e.checkcast(targetType);
+      e.store_local(target);
+
+      int valueCount = 0;
+      for (Member member : members) {
+        valueCount +=
+            member instanceof Field ? 1 : ((Method) member).getParameterTypes().length;
+      }
+
+      int index = 0;
+      for (int i = 0; i < members.size(); i++) {
+        Member member = members.get(i);
+        if (member instanceof Field) {
+          Field field = (Field) member;
+          Type fieldType = Type.getType(field.getType());
+          e.load_local(target);
+          loadValue(e, index++, fieldType);
+          e.putfield(Type.getType(field.getDeclaringClass()), field.getName(), fieldType);
+        } else {
+          Method method = (Method) member;
+          e.load_arg(1);
+          e.push(valueCount);
+          e.push(i);
+          e.invoke_static(INTEGER, INTEGER_VALUE_OF);
+          e.aastore();
+
+          e.load_local(target);
+          for (Class<?> parameterType : method.getParameterTypes()) {
+            loadValue(e, index++, Type.getType(parameterType));
+          }
+          e.invoke_virtual(
+              Type.getType(method.getDeclaringClass()), ReflectUtils.getSignature(method));
+          Type returnType = Type.getType(method.getReturnType());
+          if (returnType.getSize() == 2) {
+            e.pop2();
+          } else if (returnType.getSize() == 1) {
+            e.pop();
+          }
+        }
+      }
+      e.return_value();
+      e.end_method();
+      ce.end_class();
+    }
+
+    private static void loadValue(CodeEmitter e, int index, Type type) {
+      e.load_arg(1);
+      e.aaload(index);
+      e.unbox(type);
+    }
+
+    @Override
+    protected Object firstInstance(Class type) {
+      return ReflectUtils.newInstance(type);
+    }
+
+    @Override
+    protected Object nextInstance(Object instance) {
+      return instance;
+    }
+  }
+}
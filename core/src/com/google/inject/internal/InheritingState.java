@@ -54,13 +54,14 @@ final class InheritingState implements State {
   private final List<TypeListenerBinding> typeListenerBindings = Lists.newArrayList();
   private final List<ProvisionListenerBinding> provisionListenerBindings = Lists.newArrayList();
   private final List<ModuleAnnotatedMethodScannerBinding> scannerBindings = Lists.newArrayList();
-  private final WeakKeySet blacklistedKeys;
+  /** Created when a child first blacklists a key, since most states never have children. */
+  private volatile WeakKeySet blacklistedKeys;
+
   private final Object lock;
 
   InheritingState(State parent) {
     this.parent = checkNotNull(parent, "parent");
     this.lock = (parent == State.NONE) ? this : parent.lock();
-    this.blacklistedKeys = new WeakKeySet(lock);
   }
 
   @Override
@@ -186,17 +187,46 @@ final class InheritingState implements State {
   @Override
   public void blacklist(Key<?> key, State state, Object source) {
     parent.blacklist(key, state, source);
-    blacklistedKeys.add(key, state, source);
+    WeakKeySet localBlacklistedKeys;
+    do {
+      localBlacklistedKeys = blacklistedKeys;
+      if (localBlacklistedKeys == null) {
+        synchronized (lock) {
+          if (blacklistedKeys == null) {
+            blacklistedKeys = new WeakKeySet();
+          }
+          localBlacklistedKeys = blacklistedKeys;
+        }
+      }
+      localBlacklistedKeys.add(key, state, source);
+      // retry if the set was dropped as empty before the key was added to it
+    } while (localBlacklistedKeys != blacklistedKeys);
   }
 
   @Override
   public boolean isBlacklisted(Key<?> key) {
-    return blacklistedKeys.contains(key);
+    WeakKeySet localBlacklistedKeys = blacklistedKeys;
+    return localBlacklistedKeys != null && localBlacklistedKeys.contains(key);
   }
 
   @Override
   public Set<Object> getSourcesForBlacklistedKey(Key<?> key) {
-    return blacklistedKeys.getSources(key);
+    WeakKeySet localBlacklistedKeys = blacklistedKeys;
+    return localBlacklistedKeys != null ? localBlacklistedKeys.getSources(key) : null;
+  }
+
+  /** Returns the keys blacklisted by children of this state, or null if there are none. */
+  WeakKeySet getBlacklistedKeys() {
+    return blacklistedKeys;
+  }
+
+  /** Drops the blacklist if every child that blacklisted a key has been collected. */
+  void dropEmptyBlacklist() {
+    synchronized (lock) {
+      if (blacklistedKeys != null && blacklistedKeys.isEmpty()) {
+        blacklistedKeys = null;
+      }
+    }
   }
 
   @Override
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.HasDependencies;
+import com.google.inject.spi.InjectorFootprint;
+import com.google.inject.spi.InjectorFootprint.Structure;
+import com.google.inject.spi.InstanceBinding;
+import com.google.inject.spi.PrivateElements;
+import com.google.inject.spi.ProviderInstanceBinding;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Measures and compacts injectors for {@link InjectorFootprint}.
+ *
+ * <p>Sizes come from walking each structure's objects reflectively. Only objects of Guice, Guava
+ * and JDK types are walked, and bound instances and providers are skipped, so that the
+ * application's own objects aren't counted. Where the JDK
+ * doesn't allow its fields to be read, collections are walked through their elements instead.
+ */
+public final class InjectorFootprints {
+  private InjectorFootprints() {}
+
+  public static InjectorFootprint measure(Injector injector) {
+    InjectorImpl injectorImpl = toInjectorImpl(injector);
+    List<Binding<?>> bindings = Lists.newArrayList();
+    List<Object> bindingMaps;
+    synchronized (injectorImpl.state.lock()) {
+      bindings.addAll(injectorImpl.state.getExplicitBindingsThisLevel().values());
+      bindings.addAll(injectorImpl.jitBindings.values());
+      bindingMaps =
+          ImmutableList.<Object>of(
+              injectorImpl.state.getExplicitBindingsThisLevel(),
+              injectorImpl.jitBindings,
+              injectorImpl.publishedJitBindings,
+              injectorImpl.failedJitBindings,
+              injectorImpl.bindingsMultimap);
+    }
+
+    List<Object> sources = Lists.newArrayList();
+    List<Object> keys = Lists.newArrayList();
+    List<Object> injectionPoints = Lists.newArrayList();
+    Sizer sizer = new Sizer();
+    for (Binding<?> binding : bindings) {
+      if (binding instanceof InstanceBinding) {
+        sizer.skip(((InstanceBinding<?>) binding).getInstance());
+      } else if (binding instanceof ProviderInstanceBinding) {
+        sizer.skip(((ProviderInstanceBinding<?>) binding).getUserSuppliedProvider());
+      }
+      sources.add(binding.getSource());
+      keys.add(binding.getKey());
+      if (binding instanceof ConstructorBindingImpl
+          && !((ConstructorBindingImpl<?>) binding).isInitialized()) {
+        continue;
+      }
+      if (binding instanceof HasDependencies) {
+        for (Dependency<?> dependency : ((HasDependencies) binding).getDependencies()) {
+          if (dependency.getInjectionPoint() != null) {
+            injectionPoints.add(dependency.getInjectionPoint());
+          }
+        }
+      }
+    }
+    WeakKeySet blacklist = ((InheritingState) injectorImpl.state).getBlacklistedKeys();
+
+    Map<Structure, Long> bytes = Maps.newEnumMap(Structure.class);
+    Map<Structure, Integer> objects = Maps.newEnumMap(Structure.class);
+    for (Structure structure : Structure.values()) {
+      List<Object> roots;
+      switch (structure) {
+        case SOURCES:
+          roots = sources;
+          break;
+        case KEYS:
+          roots = keys;
+          break;
+        case INJECTION_POINTS:
+          roots = injectionPoints;
+          break;
+        case BLACKLIST:
+          roots = blacklist != null ? ImmutableList.<Object>of(blacklist) : ImmutableList.of();
+          break;
+        case CACHES:
+          roots = Lists.<Object>newArrayList(injectorImpl.constructors);
+          roots.add(injectorImpl.membersInjectorStore);
+          roots.add(injectorImpl.provisionListenerStore);
+          break;
+        case BINDINGS:
+          roots = Lists.<Object>newArrayList(bindings);
+          roots.addAll(bindingMaps);
+          break;
+        default:
+          throw new AssertionError(structure);
+      }
+      long bytesBefore = sizer.bytes;
+      int objectsBefore = sizer.objects;
+      sizer.count(roots);
+      bytes.put(structure, sizer.bytes - bytesBefore);
+      objects.put(structure, sizer.objects - objectsBefore);
+    }
+    return new InjectorFootprint(bytes, objects);
+  }
+
+  public static void compact(Injector injector) {
+    InjectorImpl injectorImpl = toInjectorImpl(injector);
+    List<Injector> privateInjectors = Lists.newArrayList();
+    synchronized (injectorImpl.state.lock()) {
+      injectorImpl.constructors.removeFailures();
+      injectorImpl.membersInjectorStore.removeFailures();
+      ((InheritingState) injectorImpl.state).dropEmptyBlacklist();
+      for (Binding<?> binding : injectorImpl.state.getExplicitBindingsThisLevel().values()) {
+        if (binding instanceof ExposedBindingImpl) {
+          PrivateElements privateElements = ((ExposedBindingImpl<?>) binding).getPrivateElements();
+          // their immutable forms don't keep the binders that recorded the private module
+          privateElements.getElements();
+          privateElements.getExposedKeys();
+          privateInjectors.add(privateElements.getInjector());
+        }
+      }
+    }
+    for (Injector privateInjector : privateInjectors) {
+      compact(privateInjector);
+    }
+  }
+
+  private static InjectorImpl toInjectorImpl(Injector injector) {
+    checkArgument(
+        injector instanceof InjectorImpl, "%s isn't supported, only created injectors", injector);
+    return (InjectorImpl) injector;
+  }
+
+  /**
+   * Estimates the sizes of objects for a 64-bit JVM with compressed references, counting each
+   * object once.
+   */
+  private static final class Sizer {
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+    /** The size of a node in JDK maps, for maps whose fields can't be read. */
+    private static final int MAP_ENTRY = 32;
+
+    private static final String[] WALKED_PACKAGES = {
+      "com.google.inject.", "com.google.common.", "java.", "javax.", "sun.", "com.sun.", "jdk."
+    };
+
+    private final Set<Object> counted = Sets.newIdentityHashSet();
+    private final Map<Class<?>, Layout> layouts = Maps.newHashMap();
+    long bytes;
+    int objects;
+
+    /** Excludes {@code object}, which the application bound, from being counted. */
+    void skip(Object object) {
+      counted.add(object);
+    }
+
+    /** Counts the objects reachable from {@code roots} that haven't been counted yet. */
+    void count(Iterable<?> roots) {
+      Deque<Object> pending = new ArrayDeque<>();
+      for (Object root : roots) {
+        push(pending, root);
+      }
+      while (!pending.isEmpty()) {
+        Object object = pending.pop();
+        Class<?> type = object.getClass();
+        objects++;
+        if (type.isArray()) {
+          Class<?> componentType = type.getComponentType();
+          int length = Array.getLength(object);
+          bytes += align(ARRAY_HEADER + (long) length * sizeOf(componentType));
+          if (!componentType.isPrimitive()) {
+            for (Object element : (Object[]) object) {
+              push(pending, element);
+            }
+          }
+          continue;
+        }
+
+        Layout layout = layout(type);
+        bytes += layout.size;
+        if (layout.accessible) {
+          for (Field field : layout.references) {
+            try {
+              push(pending, field.get(object));
+            } catch (IllegalAccessException e) {
+              throw new AssertionError(e); // the field was made accessible
+            }
+          }
+        } else if (object instanceof Map) {
+          for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+            bytes += MAP_ENTRY;
+            push(pending, entry.getKey());
+            push(pending, entry.getValue());
+          }
+        } else if (object instanceof Collection) {
+          for (Object element : (Collection<?>) object) {
+            bytes += REFERENCE;
+            push(pending, element);
+          }
+        }
+      }
+    }
+
+    private void push(Deque<Object> pending, Object object) {
+      if (object != null && isWalked(object) && counted.add(object)) {
+        pending.push(object);
+      }
+    }
+
+    /** Returns true for Guice's metadata, and false for the application's objects. */
+    private static boolean isWalked(Object object) {
+      if (object instanceof Class
+          || object instanceof ClassLoader
+          || object instanceof Thread
+          || object instanceof Member
+          || object instanceof Injector
+          || object instanceof State) {
+        return false;
+      }
+      if (object.getClass().isArray()) {
+        return true;
+      }
+      String name = object.getClass().getName();
+      for (String walkedPackage : WALKED_PACKAGES) {
+        if (name.startsWith(walkedPackage)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private Layout layout(Class<?> type) {
+      Layout layout = layouts.get(type);
+      if (layout == null) {
+        layout = new Layout(type);
+        layouts.put(type, layout);
+      }
+      return layout;
+    }
+
+    static long align(long size) {
+      return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    static int sizeOf(Class<?> type) {
+      if (type == long.class || type == double.class) {
+        return 8;
+      } else if (type == int.class || type == float.class) {
+        return 4;
+      } else if (type == short.class || type == char.class) {
+        return 2;
+      } else if (type == byte.class || type == boolean.class) {
+        return 1;
+      }
+      return REFERENCE;
+    }
+
+    /** The size of a type's instances, and the fields that refer to other objects. */
+    private static final class Layout {
+      final long size;
+      final List<Field> references = Lists.newArrayList();
+      boolean accessible = true;
+
+      Layout(Class<?> type) {
+        long fieldBytes = 0;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+          for (Field field : c.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+              continue;
+            }
+            fieldBytes += sizeOf(field.getType());
+            // references don't keep their referents, or their queues
+            if (field.getType().isPrimitive() || c == Reference.class) {
+              continue;
+            }
+            try {
+              field.setAccessible(true);
+              references.add(field);
+            } catch (RuntimeException e) {
+              // the JDK doesn't allow its fields to be read on Java 9 and later
+              accessible = false;
+            }
+          }
+        }
+        size = align(OBJECT_HEADER + fieldBytes);
+      }
+    }
+  }
+}
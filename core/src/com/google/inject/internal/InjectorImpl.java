@@ -38,6 +38,8 @@ import com.google.inject.ProvisionException;
 import com.google.inject.Scope;
 import com.google.inject.Stage;
 import com.google.inject.TypeLiteral;
+import com.google.inject.internal.CycleDetectingLock.CycleDetectingLockFactory;
+import com.google.inject.internal.InternalFlags.ContextStorageOption;
 import com.google.inject.internal.util.SourceProvider;
 import com.google.inject.spi.BindingTargetVisitor;
 import com.google.inject.spi.ConvertedConstantBinding;
@@ -46,6 +48,7 @@ import com.google.inject.spi.HasDependencies;
 import com.google.inject.spi.InjectionPoint;
 import com.google.inject.spi.InstanceBinding;
 import com.google.inject.spi.ProviderBinding;
+import com.google.inject.spi.StartupProfile;
 import com.google.inject.spi.TypeConverterBinding;
 import com.google.inject.util.Providers;
 import java.lang.annotation.Annotation;
@@ -53,11 +56,14 @@ import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 /**
  * Default {@link Injector} implementation.
@@ -74,18 +80,22 @@ final class InjectorImpl implements Injector, Lookups {
     final boolean disableCircularProxies;
     final boolean atInjectRequired;
     final boolean exactBindingAnnotationsRequired;
+    /** Executor to create eager singletons on, or null to create them on the calling thread. */
+    final Executor eagerSingletonExecutor;
 
     InjectorOptions(
         Stage stage,
         boolean jitDisabled,
         boolean disableCircularProxies,
         boolean atInjectRequired,
-        boolean exactBindingAnnotationsRequired) {
+        boolean exactBindingAnnotationsRequired,
+        Executor eagerSingletonExecutor) {
       this.stage = stage;
       this.jitDisabled = jitDisabled;
       this.disableCircularProxies = disableCircularProxies;
       this.atInjectRequired = atInjectRequired;
       this.exactBindingAnnotationsRequired = exactBindingAnnotationsRequired;
+      this.eagerSingletonExecutor = eagerSingletonExecutor;
     }
 
     @Override
@@ -96,6 +106,7 @@ final class InjectorImpl implements Injector, Lookups {
           .add("disableCircularProxies", disableCircularProxies)
           .add("atInjectRequired", atInjectRequired)
           .add("exactBindingAnnotationsRequired", exactBindingAnnotationsRequired)
+          .add("eagerSingletonExecutor", eagerSingletonExecutor)
           .toString();
     }
   }
@@ -117,12 +128,33 @@ final class InjectorImpl implements Injector, Lookups {
 
   /** Just-in-time binding cache. Guarded by state.lock() */
   final Map<Key<?>, BindingImpl<?>> jitBindings = Maps.newHashMap();
+  /**
+   * The fully created entries of {@link #jitBindings}, readable without holding state.lock().
+   * Entries are only added while holding the lock and when no just-in-time binding is being
+   * created, so a binding found here has been completely initialized.
+   */
+  final Map<Key<?>, BindingImpl<?>> publishedJitBindings = Maps.newConcurrentMap();
   /**
    * Cache of Keys that we were unable to create JIT bindings for, so we don't keep trying. Also
    * guarded by state.lock().
    */
   final Set<Key<?>> failedJitBindings = Sets.newHashSet();
 
+  /**
+   * The number of {@link #getJustInTimeBinding} calls in progress on the thread holding
+   * state.lock(). Only used on the root injector, which owns the lock. Guarded by state.lock().
+   */
+  private int jitLookupDepth;
+
+  /** The root of this injector's tree. All injectors in a tree share the same state.lock(). */
+  private final InjectorImpl root;
+
+  /**
+   * Creates the locks that {@link SingletonScope} holds while creating singletons. Shared by all
+   * injectors in a tree, so that a lock cycle is reported with the keys from this tree only.
+   */
+  final CycleDetectingLockFactory<Key<?>> singletonLockFactory;
+
   Lookups lookups = new DeferredLookups(this);
 
   InjectorImpl(InjectorImpl parent, State state, InjectorOptions injectorOptions) {
@@ -132,11 +164,27 @@ final class InjectorImpl implements Injector, Lookups {
 
     if (parent != null) {
       localContext = parent.localContext;
+      activeContexts = parent.activeContexts;
+      contextPool = parent.contextPool;
+      root = parent.root;
+      singletonLockFactory = parent.singletonLockFactory;
     } else {
-      // No ThreadLocal.initialValue(), as that would cause classloader leaks. See
-      // https://github.com/google/guice/issues/288#issuecomment-48216933,
-      // https://github.com/google/guice/issues/288#issuecomment-48216944
-      localContext = new ThreadLocal<>();
+      root = this;
+      singletonLockFactory = new CycleDetectingLockFactory<Key<?>>();
+      if (InternalFlags.getContextStorageOption() == ContextStorageOption.THREAD_LOCAL) {
+        // No ThreadLocal.initialValue(), as that would cause classloader leaks. See
+        // https://github.com/google/guice/issues/288#issuecomment-48216933,
+        // https://github.com/google/guice/issues/288#issuecomment-48216944
+        localContext = new ThreadLocal<>();
+        activeContexts = null;
+      } else {
+        localContext = null;
+        activeContexts = Maps.newConcurrentMap();
+      }
+      contextPool =
+          new InternalContext.Pool(
+              Math.max(Runtime.getRuntime().availableProcessors() * 2, MIN_CONTEXT_POOL_SIZE),
+              activeContexts);
     }
   }
 
@@ -176,6 +224,10 @@ final class InjectorImpl implements Injector, Lookups {
     if (explicitBinding != null) {
       return explicitBinding;
     }
+    BindingImpl<T> publishedBinding = getPublishedJitBinding(key);
+    if (publishedBinding != null) {
+      return publishedBinding;
+    }
     synchronized (state.lock()) {
       // See if any jit bindings have been created for this key.
       for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
@@ -251,47 +303,99 @@ final class InjectorImpl implements Injector, Lookups {
    */
   private <T> BindingImpl<T> getJustInTimeBinding(Key<T> key, Errors errors, JitLimitation jitType)
       throws ErrorsException {
+    // Bindings that have been completely created don't need the lock.
+    BindingImpl<T> published = getPublishedJitBinding(key);
+    if (published != null) {
+      return checkJitBindingAllowed(key, published, errors, jitType);
+    }
 
-    boolean jitOverride = isProvider(key) || isTypeLiteral(key) || isMembersInjector(key);
     synchronized (state.lock()) {
-      // first try to find a JIT binding that we've already created
-      for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
-        @SuppressWarnings("unchecked") // we only store bindings that match their key
-        BindingImpl<T> binding = (BindingImpl<T>) injector.jitBindings.get(key);
-
-        if (binding != null) {
-          // If we found a JIT binding and we don't allow them,
-          // fail.  (But allow bindings created through TypeConverters.)
-          if (options.jitDisabled
-              && jitType == JitLimitation.NO_JIT
-              && !jitOverride
-              && !(binding instanceof ConvertedConstantBindingImpl)) {
-            throw errors.jitDisabled(key).toException();
-          } else {
-            return binding;
-          }
+      root.jitLookupDepth++;
+      try {
+        BindingImpl<T> binding = getOrCreateJustInTimeBinding(key, errors, jitType);
+        // Nested lookups may return bindings that are still being initialized, or that a failing
+        // outer lookup will clean up. Only the outermost lookup knows the binding is complete.
+        if (root.jitLookupDepth == 1) {
+          publishJitBinding(key, binding);
         }
+        return binding;
+      } finally {
+        root.jitLookupDepth--;
       }
+    } // end synchronized(state.lock())
+  }
 
-      // If we previously failed creating this JIT binding and our Errors has
-      // already recorded an error, then just directly throw that error.
-      // We need to do this because it's possible we already cleaned up the
-      // entry in jitBindings (during cleanup), and we may be trying
-      // to create it again (in the case of a recursive JIT binding).
-      // We need both of these guards for different reasons
-      // failedJitBindings.contains: We want to continue processing if we've never
-      //   failed before, so that our initial error message contains
-      //   as much useful information as possible about what errors exist.
-      // errors.hasErrors: If we haven't already failed, then it's OK to
-      //   continue processing, to make sure the ultimate error message
-      //   is the correct one.
-      // See: ImplicitBindingsTest#testRecursiveJitBindingsCleanupCorrectly
-      // for where this guard compes into play.
-      if (failedJitBindings.contains(key) && errors.hasErrors()) {
-        throw errors.toException();
+  /** Looks up or creates a just-in-time binding. Must be called while holding state.lock(). */
+  private <T> BindingImpl<T> getOrCreateJustInTimeBinding(
+      Key<T> key, Errors errors, JitLimitation jitType) throws ErrorsException {
+    // first try to find a JIT binding that we've already created
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      @SuppressWarnings("unchecked") // we only store bindings that match their key
+      BindingImpl<T> binding = (BindingImpl<T>) injector.jitBindings.get(key);
+
+      if (binding != null) {
+        return checkJitBindingAllowed(key, binding, errors, jitType);
       }
-      return createJustInTimeBindingRecursive(key, errors, options.jitDisabled, jitType);
-    } // end synchronized(state.lock())
+    }
+
+    // If we previously failed creating this JIT binding and our Errors has
+    // already recorded an error, then just directly throw that error.
+    // We need to do this because it's possible we already cleaned up the
+    // entry in jitBindings (during cleanup), and we may be trying
+    // to create it again (in the case of a recursive JIT binding).
+    // We need both of these guards for different reasons
+    // failedJitBindings.contains: We want to continue processing if we've never
+    //   failed before, so that our initial error message contains
+    //   as much useful information as possible about what errors exist.
+    // errors.hasErrors: If we haven't already failed, then it's OK to
+    //   continue processing, to make sure the ultimate error message
+    //   is the correct one.
+    // See: ImplicitBindingsTest#testRecursiveJitBindingsCleanupCorrectly
+    // for where this guard compes into play.
+    if (failedJitBindings.contains(key) && errors.hasErrors()) {
+      throw errors.toException();
+    }
+    return createJustInTimeBindingRecursive(key, errors, options.jitDisabled, jitType);
+  }
+
+  /** Returns the existing JIT binding for {@code key}, or fails if JIT bindings are disallowed. */
+  private <T> BindingImpl<T> checkJitBindingAllowed(
+      Key<T> key, BindingImpl<T> binding, Errors errors, JitLimitation jitType)
+      throws ErrorsException {
+    // If we found a JIT binding and we don't allow them,
+    // fail.  (But allow bindings created through TypeConverters.)
+    if (options.jitDisabled
+        && jitType == JitLimitation.NO_JIT
+        && !(isProvider(key) || isTypeLiteral(key) || isMembersInjector(key))
+        && !(binding instanceof ConvertedConstantBindingImpl)) {
+      throw errors.jitDisabled(key).toException();
+    }
+    return binding;
+  }
+
+  /** Returns a completely created JIT binding for {@code key} without locking, or null. */
+  private <T> BindingImpl<T> getPublishedJitBinding(Key<T> key) {
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      @SuppressWarnings("unchecked") // we only store bindings that match their key
+      BindingImpl<T> binding = (BindingImpl<T>) injector.publishedJitBindings.get(key);
+      if (binding != null) {
+        return binding;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Makes {@code binding} visible to lock-free lookups on the injector that owns it. Must be
+   * called while holding state.lock().
+   */
+  private void publishJitBinding(Key<?> key, BindingImpl<?> binding) {
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      if (injector.jitBindings.get(key) == binding) {
+        injector.publishedJitBindings.put(key, binding);
+        return;
+      }
+    }
   }
 
   /** Returns true if the key type is Provider (but not a subclass of Provider). */
@@ -650,6 +754,7 @@ final class InjectorImpl implements Injector, Lookups {
   private void removeFailedJitBinding(Binding<?> binding, InjectionPoint ip) {
     failedJitBindings.add(binding.getKey());
     jitBindings.remove(binding.getKey());
+    publishedJitBindings.remove(binding.getKey());
     membersInjectorStore.remove(binding.getKey().getTypeLiteral());
     provisionListenerStore.remove(binding);
     if (ip != null) {
@@ -852,7 +957,13 @@ final class InjectorImpl implements Injector, Lookups {
     }
 
     key = MoreTypes.canonicalizeKey(key); // before storing the key long-term, canonicalize it.
-    BindingImpl<T> binding = createJustInTimeBinding(key, errors, jitDisabled, jitType);
+    BindingImpl<T> binding;
+    StartupProfiler.Step step = StartupProfiler.start(StartupProfile.Kind.JIT_BINDING, key);
+    try {
+      binding = createJustInTimeBinding(key, errors, jitDisabled, jitType);
+    } finally {
+      StartupProfiler.end(step);
+    }
     state.parent().blacklist(key, state, binding.getSource());
     jitBindings.put(key, binding);
     return binding;
@@ -1031,6 +1142,12 @@ final class InjectorImpl implements Injector, Lookups {
   /** Cached provision listener callbacks for each key. */
   ProvisionListenerCallbackStore provisionListenerStore;
 
+  /** Provision counts and times, or null unless provision metrics are enabled. */
+  ProvisionMetricsImpl provisionMetrics;
+
+  /** Records the profile of this injector's creation, or null unless profiling is enabled. */
+  StartupProfiler startupProfiler;
+
   @Override
   @SuppressWarnings("unchecked") // the members injector type is consistent with instance's type
   public void injectMembers(Object instance) {
@@ -1112,6 +1229,52 @@ final class InjectorImpl implements Injector, Lookups {
     return getProvider(type).get();
   }
 
+  @Override
+  public List<Object> getInstances(Iterable<? extends Key<?>> keys) {
+    Errors errors = new Errors();
+    List<Dependency<?>> dependencies = Lists.newArrayList();
+    List<BindingImpl<?>> bindings = Lists.newArrayList();
+    for (Key<?> key : keys) {
+      Errors keyErrors = new Errors(key);
+      try {
+        bindings.add(getBindingOrThrow(key, keyErrors, JitLimitation.NO_JIT));
+        dependencies.add(Dependency.get(key));
+        keyErrors.throwIfNewErrors(0);
+      } catch (ErrorsException e) {
+        errors.merge(keyErrors.merge(e.getErrors()));
+      }
+    }
+    if (errors.hasErrors()) {
+      throw new ConfigurationException(errors.getMessages());
+    }
+
+    Object[] instances = new Object[bindings.size()];
+    InternalContext context = enterContext();
+    try {
+      for (int i = 0; i < instances.length; i++) {
+        BindingImpl<?> binding = bindings.get(i);
+        Dependency<?> dependency = dependencies.get(i);
+        Errors keyErrors = new Errors(dependency);
+        Dependency<?> previous = context.pushDependency(dependency, binding.getSource());
+        try {
+          instances[i] = binding.getInternalFactory().get(keyErrors, context, dependency, false);
+          keyErrors.throwIfNewErrors(0);
+        } catch (ErrorsException e) {
+          // carry on, so that a failure is reported for each key
+          errors.merge(keyErrors.merge(e.getErrors()));
+        } finally {
+          context.popStateAndSetDependency(previous);
+        }
+      }
+    } finally {
+      context.close();
+    }
+    if (errors.hasErrors()) {
+      throw new ProvisionException(errors.getMessages());
+    }
+    return Collections.unmodifiableList(Arrays.asList(instances));
+  }
+
   /**
    * Holds Object[] as a mutable wrapper, rather than InternalContext, since array operations are
    * faster than ThreadLocal.set() / .get() operations.
@@ -1125,8 +1288,27 @@ final class InjectorImpl implements Injector, Lookups {
    */
   private final ThreadLocal<Object[]> localContext;
 
+  /**
+   * The contexts of the threads that are using this injector's tree, when contexts aren't kept in
+   * {@link #localContext}. A thread's entry is removed as soon as it closes its outermost context,
+   * so that nothing is kept for threads that aren't using the injector, however many there are.
+   */
+  private final ConcurrentMap<Thread, InternalContext> activeContexts;
+
+  /** The smallest number of unused contexts to keep for each injector tree. */
+  private static final int MIN_CONTEXT_POOL_SIZE = 4;
+
+  /**
+   * The contexts that no thread is using, kept for the outermost calls into this injector's tree.
+   * Unlike {@link #localContext}, nothing in the pool is tied to a thread.
+   */
+  private final InternalContext.Pool contextPool;
+
   /** Only to be called by the {@link SingletonScope} provider. */
   InternalContext getLocalContext() {
+    if (localContext == null) {
+      return activeContexts.get(Thread.currentThread());
+    }
     return (InternalContext) localContext.get()[0];
   }
 
@@ -1147,6 +1329,17 @@ final class InjectorImpl implements Injector, Lookups {
    * }</pre>
    */
   InternalContext enterContext() {
+    if (localContext == null) {
+      Thread thread = Thread.currentThread();
+      InternalContext ctx = activeContexts.get(thread);
+      if (ctx == null) {
+        ctx = contextPool.open(options, null);
+        activeContexts.put(thread, ctx);
+      } else {
+        ctx.enter();
+      }
+      return ctx;
+    }
     Object[] reference = localContext.get();
     if (reference == null) {
       reference = new Object[1];
@@ -1154,7 +1347,7 @@ final class InjectorImpl implements Injector, Lookups {
     }
     InternalContext ctx = (InternalContext) reference[0];
     if (ctx == null) {
-      reference[0] = ctx = new InternalContext(options, reference);
+      reference[0] = ctx = contextPool.open(options, reference);
     } else {
       ctx.enter();
     }
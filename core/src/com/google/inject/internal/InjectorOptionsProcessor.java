@@ -22,9 +22,11 @@ import static com.google.common.base.Preconditions.checkState;
 import com.google.inject.Stage;
 import com.google.inject.internal.InjectorImpl.InjectorOptions;
 import com.google.inject.spi.DisableCircularProxiesOption;
+import com.google.inject.spi.LoadEagerSingletonsInParallelOption;
 import com.google.inject.spi.RequireAtInjectOnConstructorsOption;
 import com.google.inject.spi.RequireExactBindingAnnotationsOption;
 import com.google.inject.spi.RequireExplicitBindingsOption;
+import java.util.concurrent.Executor;
 
 /**
  * A processor to gather injector options.
@@ -37,6 +39,7 @@ class InjectorOptionsProcessor extends AbstractProcessor {
   private boolean jitDisabled = false;
   private boolean atInjectRequired = false;
   private boolean exactBindingAnnotationsRequired = false;
+  private Executor eagerSingletonExecutor = null;
 
   InjectorOptionsProcessor(Errors errors) {
     super(errors);
@@ -66,6 +69,12 @@ class InjectorOptionsProcessor extends AbstractProcessor {
     return true;
   }
 
+  @Override
+  public Boolean visit(LoadEagerSingletonsInParallelOption option) {
+    eagerSingletonExecutor = option.getExecutor();
+    return true;
+  }
+
   InjectorOptions getOptions(Stage stage, InjectorOptions parentOptions) {
     checkNotNull(stage, "stage must be set");
     if (parentOptions == null) {
@@ -74,7 +83,8 @@ class InjectorOptionsProcessor extends AbstractProcessor {
           jitDisabled,
           disableCircularProxies,
           atInjectRequired,
-          exactBindingAnnotationsRequired);
+          exactBindingAnnotationsRequired,
+          eagerSingletonExecutor);
     } else {
       checkState(stage == parentOptions.stage, "child & parent stage don't match");
       return new InjectorOptions(
@@ -82,7 +92,10 @@ class InjectorOptionsProcessor extends AbstractProcessor {
           jitDisabled || parentOptions.jitDisabled,
           disableCircularProxies || parentOptions.disableCircularProxies,
           atInjectRequired || parentOptions.atInjectRequired,
-          exactBindingAnnotationsRequired || parentOptions.exactBindingAnnotationsRequired);
+          exactBindingAnnotationsRequired || parentOptions.exactBindingAnnotationsRequired,
+          eagerSingletonExecutor != null
+              ? eagerSingletonExecutor
+              : parentOptions.eagerSingletonExecutor);
     }
   }
 }
@@ -30,7 +30,6 @@ import com.google.inject.Singleton;
 import com.google.inject.Stage;
 import com.google.inject.internal.InjectorImpl.InjectorOptions;
 import com.google.inject.internal.util.SourceProvider;
-import com.google.inject.internal.util.Stopwatch;
 import com.google.inject.spi.Dependency;
 import com.google.inject.spi.Element;
 import com.google.inject.spi.Elements;
@@ -80,6 +79,9 @@ final class InjectorShell {
     /** null unless this exists in a {@link Binder#newPrivateBinder private environment} */
     private PrivateElementsImpl privateElements;
 
+    private boolean recordProvisionMetrics =
+        InternalFlags.getProvisionMetricsOption() == InternalFlags.ProvisionMetricsOption.ENABLED;
+
     Builder stage(Stage stage) {
       this.stage = stage;
       return this;
@@ -93,6 +95,11 @@ final class InjectorShell {
       return this;
     }
 
+    Builder recordProvisionMetrics() {
+      this.recordProvisionMetrics = true;
+      return this;
+    }
+
     Builder privateElements(PrivateElements privateElements) {
       this.privateElements = (PrivateElementsImpl) privateElements;
       this.elements.addAll(privateElements.getElements());
@@ -122,7 +129,7 @@ final class InjectorShell {
     List<InjectorShell> build(
         Initializer initializer,
         ProcessedBindingData bindingData,
-        Stopwatch stopwatch,
+        StartupProfiler profiler,
         Errors errors) {
       checkState(stage != null, "Stage not initialized");
       checkState(privateElements == null || parent != null, "PrivateElements with no parent");
@@ -151,13 +158,13 @@ final class InjectorShell {
         TypeConverterBindingProcessor.prepareBuiltInConverters(injector);
       }
 
-      stopwatch.resetAndLog("Module execution");
+      profiler.endPhase("Module execution");
 
       new MessageProcessor(errors).process(injector, elements);
 
       /*if[AOP]*/
       new InterceptorBindingProcessor(errors).process(injector, elements);
-      stopwatch.resetAndLog("Interceptors creation");
+      profiler.endPhase("Interceptors creation");
       /*end[AOP]*/
 
       new ListenerBindingProcessor(errors).process(injector, elements);
@@ -165,29 +172,40 @@ final class InjectorShell {
       injector.membersInjectorStore = new MembersInjectorStore(injector, typeListenerBindings);
       List<ProvisionListenerBinding> provisionListenerBindings =
           injector.state.getProvisionListenerBindings();
+      if (privateElements != null) {
+        injector.provisionMetrics = parent.provisionMetrics;
+      } else if (recordProvisionMetrics) {
+        injector.provisionMetrics = new ProvisionMetricsImpl();
+      }
       injector.provisionListenerStore =
-          new ProvisionListenerCallbackStore(provisionListenerBindings);
-      stopwatch.resetAndLog("TypeListeners & ProvisionListener creation");
+          new ProvisionListenerCallbackStore(provisionListenerBindings, injector.provisionMetrics);
+      profiler.endPhase("TypeListeners & ProvisionListener creation");
 
       new ScopeBindingProcessor(errors).process(injector, elements);
-      stopwatch.resetAndLog("Scopes creation");
+      profiler.endPhase("Scopes creation");
 
       new TypeConverterBindingProcessor(errors).process(injector, elements);
-      stopwatch.resetAndLog("Converters creation");
+      profiler.endPhase("Converters creation");
 
       bindStage(injector, stage);
       bindInjector(injector);
       bindLogger(injector);
+      if (privateElements != null) {
+        injector.startupProfiler = parent.startupProfiler;
+      } else if (profiler.isRecording()) {
+        injector.startupProfiler = profiler;
+      }
 
       // Process all normal bindings, then UntargettedBindings.
       // This is necessary because UntargettedBindings can create JIT bindings
       // and need all their other dependencies set up ahead of time.
       new BindingProcessor(errors, initializer, bindingData).process(injector, elements);
+      profiler.endPhase("Binding creation");
       new UntargettedBindingProcessor(errors, bindingData).process(injector, elements);
-      stopwatch.resetAndLog("Binding creation");
+      profiler.endPhase("Untargetted binding creation");
 
       new ModuleAnnotatedMethodScannerProcessor(errors).process(injector, elements);
-      stopwatch.resetAndLog("Module annotated method scanners creation");
+      profiler.endPhase("Module annotated method scanners creation");
 
       List<InjectorShell> injectorShells = Lists.newArrayList();
       injectorShells.add(new InjectorShell(this, elements, injector));
@@ -196,9 +214,9 @@ final class InjectorShell {
       PrivateElementProcessor processor = new PrivateElementProcessor(errors);
       processor.process(injector, elements);
       for (Builder builder : processor.getInjectorShellBuilders()) {
-        injectorShells.addAll(builder.build(initializer, bindingData, stopwatch, errors));
+        injectorShells.addAll(builder.build(initializer, bindingData, profiler, errors));
       }
-      stopwatch.resetAndLog("Private environment creation");
+      profiler.endPhase("Private environment creation");
 
       return injectorShells;
     }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.List;
+import net.sf.cglib.proxy.MethodProxy;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Intercepts a method with a chain of interceptors, without allocating a {@link MethodInvocation}
+ * for each interceptor. The invocation is reset for every call and walks the chain by moving its
+ * index, and intercepted calls nested inside it reuse the invocations that it keeps for them. A
+ * chain of one interceptor skips the index, and proceeds straight to the intercepted method.
+ *
+ * <p>Each thread reuses its invocations across calls too, but only holds them through a {@link
+ * WeakReference}. The thread's own map of thread locals then only refers to JDK classes, so threads
+ * that outlive the injector don't keep Guice's classes loaded. The invocations are allocated again
+ * after a garbage collection clears them.
+ *
+ * <p>Used when {@link InternalFlags.InterceptionOption#REUSED_INVOCATIONS} is set, since an
+ * invocation is only valid until the interceptor it was passed to returns.
+ */
+final class InterceptorChainCallback implements net.sf.cglib.proxy.MethodInterceptor {
+  /** The invocation of each thread's outermost intercepted calls, if it hasn't been collected. */
+  static final ThreadLocal<WeakReference<ReusedInvocation>> threadInvocation =
+      new ThreadLocal<WeakReference<ReusedInvocation>>();
+
+  final Method method;
+  final MethodInterceptor[] interceptors;
+
+  InterceptorChainCallback(Method method, List<MethodInterceptor> interceptors) {
+    this.method = method;
+    this.interceptors = interceptors.toArray(new MethodInterceptor[interceptors.size()]);
+  }
+
+  @Override
+  public Object intercept(Object proxy, Method method, Object[] arguments, MethodProxy methodProxy)
+      throws Throwable {
+    ReusedInvocation outermost = outermostInvocation();
+    ReusedInvocation outer = outermost.innermost;
+    ReusedInvocation invocation;
+    if (outer == null) {
+      invocation = outermost;
+    } else {
+      invocation = outer.nested;
+      if (invocation == null) {
+        invocation = outer.nested = new ReusedInvocation();
+      }
+    }
+    outermost.innermost = invocation;
+    try {
+      if (interceptors.length == 1) {
+        invocation.reset(this, proxy, arguments, methodProxy, 1);
+        try {
+          return interceptors[0].invoke(invocation);
+        } catch (Throwable t) {
+          InterceptorStackCallback.pruneStacktrace(t);
+          throw t;
+        }
+      }
+      invocation.reset(this, proxy, arguments, methodProxy, 0);
+      return invocation.proceed();
+    } finally {
+      invocation.reset(null, null, null, null, 0);
+      outermost.innermost = outer;
+    }
+  }
+
+  /** Returns the thread's outermost invocation, allocating one if it's missing or was cleared. */
+  private static ReusedInvocation outermostInvocation() {
+    WeakReference<ReusedInvocation> reference = threadInvocation.get();
+    ReusedInvocation invocation = reference != null ? reference.get() : null;
+    if (invocation == null) {
+      invocation = new ReusedInvocation();
+      threadInvocation.set(new WeakReference<ReusedInvocation>(invocation));
+    }
+    return invocation;
+  }
+
+  static final class ReusedInvocation implements MethodInvocation {
+    /** The invocation for intercepted calls made while this one runs, once there's been one. */
+    ReusedInvocation nested;
+    /**
+     * On the thread's outermost invocation, the invocation of the innermost call that is running,
+     * or null if none is.
+     */
+    ReusedInvocation innermost;
+
+    InterceptorChainCallback callback;
+    Object proxy;
+    Object[] arguments;
+    MethodProxy methodProxy;
+    /** The interceptor that {@link #proceed} calls next. */
+    int index;
+
+    void reset(
+        InterceptorChainCallback callback,
+        Object proxy,
+        Object[] arguments,
+        MethodProxy methodProxy,
+        int index) {
+      this.callback = callback;
+      this.proxy = proxy;
+      this.arguments = arguments;
+      this.methodProxy = methodProxy;
+      this.index = index;
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+      if (callback == null) {
+        throw new IllegalStateException(
+            "MethodInvocation.proceed() was called after the interceptor returned, which isn't"
+                + " supported with guice_interception=REUSED_INVOCATIONS");
+      }
+      MethodInterceptor[] interceptors = callback.interceptors;
+      int current = index;
+      try {
+        if (current == interceptors.length) {
+          return methodProxy.invokeSuper(proxy, arguments);
+        }
+        index = current + 1;
+        try {
+          return interceptors[current].invoke(this);
+        } finally {
+          // so that the caller can proceed more than once
+          index = current;
+        }
+      } catch (Throwable t) {
+        InterceptorStackCallback.pruneStacktrace(t);
+        throw t;
+      }
+    }
+
+    @Override
+    public Method getMethod() {
+      return callback.method;
+    }
+
+    @Override
+    public Object[] getArguments() {
+      return arguments;
+    }
+
+    @Override
+    public Object getThis() {
+      return proxy;
+    }
+
+    @Override
+    public AccessibleObject getStaticPart() {
+      return getMethod();
+    }
+  }
+}
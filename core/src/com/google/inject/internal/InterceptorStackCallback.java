@@ -38,6 +38,8 @@ final class InterceptorStackCallback implements net.sf.cglib.proxy.MethodInterce
           Arrays.asList(
               InterceptorStackCallback.class.getName(),
               InterceptedMethodInvocation.class.getName(),
+              InterceptorChainCallback.class.getName(),
+              InterceptorChainCallback.class.getName() + "$ReusedInvocation",
               MethodProxy.class.getName()));
 
   final MethodInterceptor[] interceptors;
@@ -107,13 +109,15 @@ final class InterceptorStackCallback implements net.sf.cglib.proxy.MethodInterce
    * Removes stacktrace elements related to AOP internal mechanics from the throwable's stack trace
    * and any causes it may have.
    */
-  private void pruneStacktrace(Throwable throwable) {
+  static void pruneStacktrace(Throwable throwable) {
     for (Throwable t = throwable; t != null; t = t.getCause()) {
       StackTraceElement[] stackTrace = t.getStackTrace();
       List<StackTraceElement> pruned = Lists.newArrayList();
       for (StackTraceElement element : stackTrace) {
         String className = element.getClassName();
-        if (!AOP_INTERNAL_CLASSES.contains(className) && !className.contains("$EnhancerByGuice$")) {
+        if (!AOP_INTERNAL_CLASSES.contains(className)
+            && !className.contains("$EnhancerByGuice$")
+            && !className.contains("$PrecomputedByGuice$")) {
           pruned.add(element);
         }
       }
@@ -18,8 +18,10 @@ package com.google.inject.internal;
 
 import com.google.inject.internal.InjectorImpl.InjectorOptions;
 import com.google.inject.spi.Dependency;
+import java.util.Arrays;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Internal context. Used to coordinate injections and support circular dependencies.
@@ -28,10 +30,31 @@ import java.util.Map;
  */
 final class InternalContext implements AutoCloseable {
 
-  private final InjectorOptions options;
+  /**
+   * The most construction contexts to keep when this context is returned to its pool. Contexts
+   * that have constructed more objects than this start again with none, rather than holding on to
+   * a construction context for every constructor in a large application.
+   */
+  private static final int MAX_POOLED_CONSTRUCTION_CONTEXTS = 256;
+
+  private InjectorOptions options;
+
+  /** The construction contexts, created when the first object is constructed. */
+  private Map<Object, ConstructionContext<?>> constructionContexts;
+
+  /**
+   * Every construction context that has been created by this context, so that they can be used
+   * again once it's pooled. They're reset by the factories that use them once each construction is
+   * finished, but their keys are cleared from {@link #constructionContexts}, so that a pooled
+   * context doesn't keep the factories of discarded child injectors.
+   */
+  private ConstructionContext<?>[] createdConstructionContexts;
+
+  /** The number of {@link #createdConstructionContexts}. */
+  private int createdConstructionContextCount;
 
-  private final Map<Object, ConstructionContext<?>> constructionContexts =
-      new IdentityHashMap<Object, ConstructionContext<?>>();
+  /** The number of {@link #createdConstructionContexts} in {@link #constructionContexts}. */
+  private int usedConstructionContextCount;
 
   /** Keeps track of the type that is currently being requested for injection. */
   private Dependency<?> dependency;
@@ -49,19 +72,38 @@ final class InternalContext implements AutoCloseable {
 
 
   /**
-   * The number of times {@link #enter()} has been called + 1 for initial construction. This value
-   * is decremented when {@link #exit()} is called.
+   * The number of times {@link #enter()} has been called + 1 for opening this context. This value
+   * is decremented when {@link #close()} is called.
    */
   private int enterCount;
 
   /**
-   * A single element array to clear when the {@link #enterCount} hits {@code 0}.
+   * A single element array to clear when the {@link #enterCount} hits {@code 0}, or null if this
+   * context is kept in {@link #activeContexts}.
+   *
+   * <p>This is the value stored in the {@code InjectorImpl.localContext} thread local of the
+   * thread using this context.
+   */
+  private Object[] toClear;
+
+  /**
+   * The map to remove this context from when the {@link #enterCount} hits {@code 0}, or null if
+   * this context is kept in a thread local.
    *
-   * <p>This is the value stored in the {@code InjectorImpl.localContext} thread local.
+   * <p>This is {@code InjectorImpl.activeContexts}, keyed by the thread using this context.
    */
-  private final Object[] toClear;
+  private final Map<Thread, InternalContext> activeContexts;
 
-  InternalContext(InjectorOptions options, Object[] toClear) {
+  /** The pool to return this context to when the {@link #enterCount} hits {@code 0}. */
+  private final Pool pool;
+
+  private InternalContext(Pool pool, Map<Thread, InternalContext> activeContexts) {
+    this.pool = pool;
+    this.activeContexts = activeContexts;
+  }
+
+  /** Starts using this context, which is stored in {@code toClear} if it's not null. */
+  private void open(InjectorOptions options, Object[] toClear) {
     this.options = options;
     this.toClear = toClear;
     this.enterCount = 1;
@@ -80,7 +122,31 @@ final class InternalContext implements AutoCloseable {
       throw new IllegalStateException("Called close() too many times");
     }
     if (newCount == 0) {
-      toClear[0] = null;
+      if (toClear != null) {
+        toClear[0] = null;
+        toClear = null;
+      } else {
+        activeContexts.remove(Thread.currentThread());
+      }
+      clear();
+      pool.release(this);
+    }
+  }
+
+  /** Lets go of everything from the injectors that used this context, before it's pooled. */
+  private void clear() {
+    options = null;
+    dependency = null;
+    Arrays.fill(dependencyStack, null);
+    if (constructionContexts != null) {
+      if (createdConstructionContextCount > MAX_POOLED_CONSTRUCTION_CONTEXTS) {
+        constructionContexts = null;
+        createdConstructionContexts = null;
+        createdConstructionContextCount = 0;
+      } else {
+        constructionContexts.clear();
+      }
+      usedConstructionContextCount = 0;
     }
   }
 
@@ -90,11 +156,28 @@ final class InternalContext implements AutoCloseable {
 
   @SuppressWarnings("unchecked")
   <T> ConstructionContext<T> getConstructionContext(Object key) {
+    Map<Object, ConstructionContext<?>> localConstructionContexts = constructionContexts;
+    if (localConstructionContexts == null) {
+      localConstructionContexts =
+          constructionContexts = new IdentityHashMap<Object, ConstructionContext<?>>();
+      createdConstructionContexts = new ConstructionContext<?>[8];
+    }
     ConstructionContext<T> constructionContext =
-        (ConstructionContext<T>) constructionContexts.get(key);
+        (ConstructionContext<T>) localConstructionContexts.get(key);
     if (constructionContext == null) {
-      constructionContext = new ConstructionContext<>();
-      constructionContexts.put(key, constructionContext);
+      if (usedConstructionContextCount < createdConstructionContextCount) {
+        constructionContext =
+            (ConstructionContext<T>) createdConstructionContexts[usedConstructionContextCount];
+      } else {
+        constructionContext = new ConstructionContext<>();
+        if (createdConstructionContextCount == createdConstructionContexts.length) {
+          createdConstructionContexts =
+              Arrays.copyOf(createdConstructionContexts, createdConstructionContextCount * 2);
+        }
+        createdConstructionContexts[createdConstructionContextCount++] = constructionContext;
+      }
+      usedConstructionContextCount++;
+      localConstructionContexts.put(key, constructionContext);
     }
     return constructionContext;
   }
@@ -138,6 +221,18 @@ final class InternalContext implements AutoCloseable {
   }
 
 
+  /** Adds pairs of dependencies or keys and their sources to the state. */
+  void pushStates(Object[] dependenciesAndSources) {
+    for (int i = 0; i < dependenciesAndSources.length; i += 2) {
+      doPushState(dependenciesAndSources[i], dependenciesAndSources[i + 1]);
+    }
+  }
+
+  /** Pops {@code count} pairs from the state without setting a dependency. */
+  void popStates(int count) {
+    dependencyStackSize -= count * 2;
+  }
+
   /** Pops from the state without setting a dependency. */
   void popState() {
     // N.B. we don't null out the array entries.  It isn't necessary since all the objects in the
@@ -165,4 +260,61 @@ final class InternalContext implements AutoCloseable {
     return builder.build();
   }
 
+
+  /**
+   * Contexts that aren't in use, shared by the injectors in a tree, so that the outermost call into
+   * an injector doesn't have to allocate a new context. Contexts are taken and returned without
+   * locking or allocation. When the pool is full, returned contexts are dropped.
+   */
+  static final class Pool {
+    private final AtomicReferenceArray<InternalContext> contexts;
+    private final Map<Thread, InternalContext> activeContexts;
+
+    /**
+     * @param activeContexts the map that contexts from this pool are kept in while they're in use,
+     *     or null if they're kept in thread locals
+     */
+    Pool(int size, Map<Thread, InternalContext> activeContexts) {
+      this.contexts = new AtomicReferenceArray<>(size);
+      this.activeContexts = activeContexts;
+    }
+
+    /**
+     * Returns a context for the calling thread to use, which is stored in {@code toClear} if it's
+     * not null.
+     */
+    InternalContext open(InjectorOptions options, Object[] toClear) {
+      InternalContext context = null;
+      int size = contexts.length();
+      int start = firstSlot(size);
+      for (int i = 0; i < size && context == null; i++) {
+        int slot = (start + i) % size;
+        InternalContext pooled = contexts.get(slot);
+        if (pooled != null && contexts.compareAndSet(slot, pooled, null)) {
+          context = pooled;
+        }
+      }
+      if (context == null) {
+        context = new InternalContext(this, activeContexts);
+      }
+      context.open(options, toClear);
+      return context;
+    }
+
+    private void release(InternalContext context) {
+      int size = contexts.length();
+      int start = firstSlot(size);
+      for (int i = 0; i < size; i++) {
+        int slot = (start + i) % size;
+        if (contexts.get(slot) == null && contexts.compareAndSet(slot, null, context)) {
+          return;
+        }
+      }
+    }
+
+    /** Spreads threads over the pool, so that they don't all compete for the same slots. */
+    private static int firstSlot(int size) {
+      return (int) (Thread.currentThread().getId() % size);
+    }
+  }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.Injector;
+import com.google.inject.spi.ProvisionMetrics;
+import com.google.inject.spi.StartupProfile;
+
+/**
+ * Finds what an injector records when diagnostics are enabled. These are kept by the injector
+ * rather than bound, so that they don't show up among its bindings. Use {@link
+ * com.google.inject.spi.InjectorDiagnostics} instead of this class.
+ */
+public final class InternalDiagnostics {
+  private InternalDiagnostics() {}
+
+  public static StartupProfile getStartupProfile(Injector injector) {
+    InjectorImpl injectorImpl = unwrap(injector);
+    return injectorImpl != null && injectorImpl.startupProfiler != null
+        ? injectorImpl.startupProfiler.getProfile()
+        : null;
+  }
+
+  public static ProvisionMetrics getProvisionMetrics(Injector injector) {
+    InjectorImpl injectorImpl = unwrap(injector);
+    return injectorImpl != null ? injectorImpl.provisionMetrics : null;
+  }
+
+  /** Returns the implementation of {@code injector}, or null if Guice didn't create it. */
+  private static InjectorImpl unwrap(Injector injector) {
+    if (injector instanceof InternalInjectorCreator.ToolStageInjector) {
+      injector = ((InternalInjectorCreator.ToolStageInjector) injector).getDelegate();
+    }
+    return injector instanceof InjectorImpl ? (InjectorImpl) injector : null;
+  }
+}
@@ -36,6 +36,21 @@ public class InternalFlags {
   private static final NullableProvidesOption NULLABLE_PROVIDES
       = parseNullableProvidesOption(NullableProvidesOption.ERROR);
 
+  private static final MembersInjectionOption MEMBERS_INJECTION
+      = parseMembersInjectionOption();
+
+  private static final InvocationOption INVOCATION = parseInvocationOption();
+
+  private static final StartupProfileOption STARTUP_PROFILE = parseStartupProfileOption();
+
+  private static final ProvisionMetricsOption PROVISION_METRICS = parseProvisionMetricsOption();
+
+  private static final ProvisioningOption PROVISIONING = parseProvisioningOption();
+
+  private static final ContextStorageOption CONTEXT_STORAGE = parseContextStorageOption();
+
+  private static final InterceptionOption INTERCEPTION = parseInterceptionOption();
+
 
   /**
    * The options for Guice stack trace collection.
@@ -68,6 +83,88 @@ public class InternalFlags {
     ERROR
   }
 
+  /**
+   * The options for how Guice injects the fields and methods of an instance.
+   */
+  public enum MembersInjectionOption {
+    /** Inject each field and method separately, using reflection or FastClass (Default) */
+    REFLECTION,
+    /**
+     * Generate a class per injected type that assigns its fields and calls its methods directly.
+     * Types with members that generated code cannot access still use reflection.
+     */
+    GENERATED
+  }
+
+  /**
+   * The options for how Guice invokes injectable constructors and provider methods.
+   */
+  public enum InvocationOption {
+    /** Use cglib FastClass where possible, and reflection otherwise (Default) */
+    FAST_CLASS,
+    /**
+     * Use a {@link java.lang.invoke.MethodHandle} per constructor or method. Where a class can be
+     * generated for it, the handle is a constant that the JIT can inline through.
+     */
+    METHOD_HANDLE
+  }
+
+  /**
+   * The options for recording a {@link com.google.inject.spi.StartupProfile} of each injector.
+   */
+  public enum StartupProfileOption {
+    /** Only log the time taken by each phase of injector creation (Default) */
+    DISABLED,
+    /** Record the time taken by each phase, module, just-in-time binding and eager singleton */
+    ENABLED
+  }
+
+  /**
+   * The options for recording {@link com.google.inject.spi.ProvisionMetrics} in each injector.
+   */
+  public enum ProvisionMetricsOption {
+    /** Don't measure provisions (Default) */
+    DISABLED,
+    /** Count and time the provisions of each key */
+    ENABLED
+  }
+
+  /**
+   * The options for how Guice provisions unscoped constructor bindings and their dependencies.
+   */
+  public enum ProvisioningOption {
+    /** Resolve each dependency through its binding, tracking the chain of dependencies (Default) */
+    RECURSIVE,
+    /**
+     * Flatten the unscoped constructor bindings that each one depends on into a plan, which calls
+     * their constructors directly and only tracks the chain of dependencies where it's needed
+     */
+    FLAT_PLAN
+  }
+
+  /** The options for where each thread's context is kept while it's using an injector. */
+  public enum ContextStorageOption {
+    /** Keep a reusable context in a thread local for each thread using the injector (Default) */
+    THREAD_LOCAL,
+    /**
+     * Keep a thread's context in a map on the injector only while the thread is using it, so that
+     * nothing is left behind in threads. Suits many short lived threads, like virtual threads
+     */
+    INJECTOR
+  }
+
+  /** The options for how intercepted methods pass calls along their chain of interceptors. */
+  public enum InterceptionOption {
+    /** Create a new {@code MethodInvocation} for each interceptor on every call (Default) */
+    NEW_INVOCATIONS,
+    /**
+     * Pass one {@code MethodInvocation} along the whole chain, and reuse those of the calls that
+     * it makes to other intercepted methods. Interceptors mustn't keep the invocation after they
+     * return, or pass it to another thread
+     */
+    REUSED_INVOCATIONS
+  }
+
   public static IncludeStackTraceOption getIncludeStackTraceOption() {
     return INCLUDE_STACK_TRACES;
   }
@@ -80,6 +177,34 @@ public class InternalFlags {
     return NULLABLE_PROVIDES;
   }
 
+  public static MembersInjectionOption getMembersInjectionOption() {
+    return MEMBERS_INJECTION;
+  }
+
+  public static InvocationOption getInvocationOption() {
+    return INVOCATION;
+  }
+
+  public static StartupProfileOption getStartupProfileOption() {
+    return STARTUP_PROFILE;
+  }
+
+  public static ProvisionMetricsOption getProvisionMetricsOption() {
+    return PROVISION_METRICS;
+  }
+
+  public static ProvisioningOption getProvisioningOption() {
+    return PROVISIONING;
+  }
+
+  public static ContextStorageOption getContextStorageOption() {
+    return CONTEXT_STORAGE;
+  }
+
+  public static InterceptionOption getInterceptionOption() {
+    return INTERCEPTION;
+  }
+
   private static IncludeStackTraceOption parseIncludeStackTraceOption() {
     return getSystemOption("guice_include_stack_traces",
         IncludeStackTraceOption.ONLY_FOR_DECLARING_SOURCE);
@@ -95,6 +220,34 @@ public class InternalFlags {
     return getSystemOption("guice_check_nullable_provides_params", defaultValue);
   }
 
+  private static MembersInjectionOption parseMembersInjectionOption() {
+    return getSystemOption("guice_members_injection", MembersInjectionOption.REFLECTION);
+  }
+
+  private static InvocationOption parseInvocationOption() {
+    return getSystemOption("guice_invocation", InvocationOption.FAST_CLASS);
+  }
+
+  private static StartupProfileOption parseStartupProfileOption() {
+    return getSystemOption("guice_startup_profile", StartupProfileOption.DISABLED);
+  }
+
+  private static ProvisionMetricsOption parseProvisionMetricsOption() {
+    return getSystemOption("guice_provision_metrics", ProvisionMetricsOption.DISABLED);
+  }
+
+  private static ProvisioningOption parseProvisioningOption() {
+    return getSystemOption("guice_provisioning", ProvisioningOption.RECURSIVE);
+  }
+
+  private static ContextStorageOption parseContextStorageOption() {
+    return getSystemOption("guice_context_storage", ContextStorageOption.THREAD_LOCAL);
+  }
+
+  private static InterceptionOption parseInterceptionOption() {
+    return getSystemOption("guice_interception", InterceptionOption.NEW_INVOCATIONS);
+  }
+
   /**
    * Gets the system option indicated by the specified key; runs as a privileged action.
    *
@@ -16,6 +16,7 @@
 
 package com.google.inject.internal;
 
+import com.google.common.collect.Maps;
 import com.google.inject.Binding;
 import com.google.inject.Injector;
 import com.google.inject.Key;
@@ -25,15 +26,26 @@ import com.google.inject.Provider;
 import com.google.inject.Scope;
 import com.google.inject.Stage;
 import com.google.inject.TypeLiteral;
-import com.google.inject.internal.util.Stopwatch;
 import com.google.inject.spi.Dependency;
+import com.google.inject.spi.HasDependencies;
+import com.google.inject.spi.ProvisionMetrics;
+import com.google.inject.spi.StartupProfile;
 import com.google.inject.spi.TypeConverterBinding;
 import java.lang.annotation.Annotation;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Builds a tree of injectors. This is a primary injector, plus child injectors needed for each
@@ -57,7 +69,9 @@ import java.util.Set;
  */
 public final class InternalInjectorCreator {
 
-  private final Stopwatch stopwatch = new Stopwatch();
+  private boolean profileStartup =
+      InternalFlags.getStartupProfileOption() == InternalFlags.StartupProfileOption.ENABLED;
+  private StartupProfiler profiler;
   private final Errors errors = new Errors();
 
   private final Initializer initializer = new Initializer();
@@ -87,6 +101,18 @@ public final class InternalInjectorCreator {
     return this;
   }
 
+  /** Records a {@link StartupProfile} of the injector, regardless of the system property. */
+  InternalInjectorCreator profileStartup() {
+    profileStartup = true;
+    return this;
+  }
+
+  /** Records {@link ProvisionMetrics}, regardless of the system property. */
+  InternalInjectorCreator recordProvisionMetrics() {
+    shellBuilder.recordProvisionMetrics();
+    return this;
+  }
+
   public InternalInjectorCreator addModules(Iterable<? extends Module> modules) {
     shellBuilder.addModules(modules);
     return this;
@@ -97,16 +123,21 @@ public final class InternalInjectorCreator {
       throw new AssertionError("Already built, builders are not reusable.");
     }
 
-    // Synchronize while we're building up the bindings and other injector state. This ensures that
-    // the JIT bindings in the parent injector don't change while we're being built
-    synchronized (shellBuilder.lock()) {
-      shells = shellBuilder.build(initializer, bindingData, stopwatch, errors);
-      stopwatch.resetAndLog("Injector construction");
+    profiler = new StartupProfiler(profileStartup);
+    try {
+      // Synchronize while we're building up the bindings and other injector state. This ensures
+      // that the JIT bindings in the parent injector don't change while we're being built
+      synchronized (shellBuilder.lock()) {
+        shells = shellBuilder.build(initializer, bindingData, profiler, errors);
+        profiler.endPhase("Injector construction");
 
-      initializeStatically();
-    }
+        initializeStatically();
+      }
 
-    injectDynamically();
+      injectDynamically();
+    } finally {
+      profiler.finish();
+    }
 
     if (shellBuilder.getStage() == Stage.TOOL) {
       // wrap the primaryInjector in a ToolStageInjector
@@ -120,35 +151,35 @@ public final class InternalInjectorCreator {
   /** Initialize and validate everything. */
   private void initializeStatically() {
     bindingData.initializeBindings();
-    stopwatch.resetAndLog("Binding initialization");
+    profiler.endPhase("Binding initialization");
 
     for (InjectorShell shell : shells) {
       shell.getInjector().index();
     }
-    stopwatch.resetAndLog("Binding indexing");
+    profiler.endPhase("Binding indexing");
 
     injectionRequestProcessor.process(shells);
-    stopwatch.resetAndLog("Collecting injection requests");
+    profiler.endPhase("Collecting injection requests");
 
     bindingData.runCreationListeners(errors);
-    stopwatch.resetAndLog("Binding validation");
+    profiler.endPhase("Binding validation");
 
     injectionRequestProcessor.validate();
-    stopwatch.resetAndLog("Static validation");
+    profiler.endPhase("Static validation");
 
     initializer.validateOustandingInjections(errors);
-    stopwatch.resetAndLog("Instance member validation");
+    profiler.endPhase("Instance member validation");
 
     new LookupProcessor(errors).process(shells);
     for (InjectorShell shell : shells) {
       ((DeferredLookups) shell.getInjector().lookups).initialize(errors);
     }
-    stopwatch.resetAndLog("Provider verification");
+    profiler.endPhase("Provider verification");
 
     // This needs to come late since some user bindings rely on requireBinding calls to create
     // jit bindings during the LookupProcessor.
     bindingData.initializeDelayedBindings();
-    stopwatch.resetAndLog("Delayed Binding initialization");
+    profiler.endPhase("Delayed Binding initialization");
 
     for (InjectorShell shell : shells) {
       if (!shell.getElements().isEmpty()) {
@@ -171,17 +202,17 @@ public final class InternalInjectorCreator {
    */
   private void injectDynamically() {
     injectionRequestProcessor.injectMembers();
-    stopwatch.resetAndLog("Static member injection");
+    profiler.endPhase("Static member injection");
 
     initializer.injectAll(errors);
-    stopwatch.resetAndLog("Instance injection");
+    profiler.endPhase("Instance injection");
     errors.throwCreationExceptionIfErrorsExist();
 
     if (shellBuilder.getStage() != Stage.TOOL) {
       for (InjectorShell shell : shells) {
         loadEagerSingletons(shell.getInjector(), shellBuilder.getStage(), errors);
       }
-      stopwatch.resetAndLog("Preloading singletons");
+      profiler.endPhase("Preloading singletons");
     }
     errors.throwCreationExceptionIfErrorsExist();
   }
@@ -200,25 +231,303 @@ public final class InternalInjectorCreator {
       // jit bindings must be accessed while holding the lock.
       candidateBindings.addAll(injector.jitBindings.values());
     }
+    List<BindingImpl<?>> eagerBindings = new ArrayList<>();
+    for (BindingImpl<?> binding : candidateBindings) {
+      if (isEagerSingleton(injector, binding, stage)) {
+        eagerBindings.add(binding);
+      }
+    }
+
+    Executor executor = injector.options.eagerSingletonExecutor;
+    if (executor != null && eagerBindings.size() > 1) {
+      loadEagerSingletonsInParallel(injector, eagerBindings, executor, errors);
+      return;
+    }
+
+    StartupProfiler.Step step = StartupProfiler.currentStep();
     InternalContext context = injector.enterContext();
     try {
-      for (BindingImpl<?> binding : candidateBindings) {
-        if (isEagerSingleton(injector, binding, stage)) {
-          Dependency<?> dependency = Dependency.get(binding.getKey());
-          Dependency previous = context.pushDependency(dependency, binding.getSource());
+      for (BindingImpl<?> binding : eagerBindings) {
+        loadEagerSingleton(binding, context, step, errors);
+      }
+    } finally {
+      context.close();
+    }
+  }
+
+  /**
+   * Loads one eager singleton. Its profile, if the injector is being profiled, is nested under
+   * {@code parentStep}.
+   */
+  private static void loadEagerSingleton(
+      BindingImpl<?> binding,
+      InternalContext context,
+      StartupProfiler.Step parentStep,
+      Errors errors) {
+    Dependency<?> dependency = Dependency.get(binding.getKey());
+    Dependency previous = context.pushDependency(dependency, binding.getSource());
+    StartupProfiler.Step step =
+        StartupProfiler.start(parentStep, StartupProfile.Kind.EAGER_SINGLETON, binding.getKey());
+
+    Errors errorsForBinding = errors.withSource(dependency);
+    try {
+      binding.getInternalFactory().get(errorsForBinding, context, dependency, false);
+    } catch (ErrorsException e) {
+      errorsForBinding.merge(e.getErrors());
+    } finally {
+      StartupProfiler.end(step);
+      context.popStateAndSetDependency(previous);
+    }
+  }
+
+  /**
+   * Loads {@code eagerBindings} on {@code executor}, starting each singleton once the eager
+   * singletons it depends on have been created. Singletons in a dependency cycle are loaded one at a
+   * time by the same task, in binding order, so that the cycle is resolved just as it would be if
+   * all singletons were loaded one at a time. Errors are reported in that order too.
+   */
+  private static void loadEagerSingletonsInParallel(
+      final InjectorImpl injector,
+      final List<BindingImpl<?>> eagerBindings,
+      Executor executor,
+      Errors errors) {
+    final int size = eagerBindings.size();
+    Map<Key<?>, Integer> indices = Maps.newHashMapWithExpectedSize(size);
+    for (int i = 0; i < size; i++) {
+      indices.put(eagerBindings.get(i).getKey(), i);
+    }
+
+    // Build the graph of eager singletons, and group the singletons in each cycle.
+    List<List<Integer>> dependencies = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Set<Integer> dependenciesOfBinding = new LinkedHashSet<>();
+      collectEagerDependencies(
+          injector, eagerBindings.get(i), indices, new HashSet<Key<?>>(), dependenciesOfBinding);
+      dependenciesOfBinding.remove(i);
+      dependencies.add(new ArrayList<>(dependenciesOfBinding));
+    }
+    List<List<Integer>> components = stronglyConnectedComponents(dependencies);
+    int componentCount = components.size();
+    int[] componentOf = new int[size];
+    for (int c = 0; c < componentCount; c++) {
+      for (int i : components.get(c)) {
+        componentOf[i] = c;
+      }
+    }
+    List<Set<Integer>> dependents = new ArrayList<>(componentCount);
+    for (int c = 0; c < componentCount; c++) {
+      dependents.add(new LinkedHashSet<Integer>());
+    }
+    int[] unloadedDependencies = new int[componentCount];
+    for (int i = 0; i < size; i++) {
+      int dependent = componentOf[i];
+      for (int dependency : dependencies.get(i)) {
+        if (componentOf[dependency] != dependent
+            && dependents.get(componentOf[dependency]).add(dependent)) {
+          unloadedDependencies[dependent]++;
+        }
+      }
+    }
+
+    final StartupProfiler.Step step = StartupProfiler.currentStep();
+    final Errors[] errorsForBindings = new Errors[size];
+    final Throwable[] failures = new Throwable[size];
+    final BlockingQueue<Integer> loaded = new LinkedBlockingQueue<>();
+    for (int c = 0; c < componentCount; c++) {
+      if (unloadedDependencies[c] == 0) {
+        startLoading(
+            injector,
+            eagerBindings,
+            c,
+            components.get(c),
+            step,
+            errorsForBindings,
+            failures,
+            loaded,
+            executor);
+      }
+    }
 
-          Errors errorsForBinding = errors.withSource(dependency);
+    // Only this thread updates the graph, so tasks never schedule each other.
+    boolean interrupted = false;
+    try {
+      for (int remaining = componentCount; remaining > 0; remaining--) {
+        Integer component;
+        while (true) {
           try {
-            binding.getInternalFactory().get(errorsForBinding, context, dependency, false);
-          } catch (ErrorsException e) {
-            errorsForBinding.merge(e.getErrors());
-          } finally {
-              context.popStateAndSetDependency(previous);
-            }
+            component = loaded.take();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        for (int dependent : dependents.get(component)) {
+          if (--unloadedDependencies[dependent] == 0) {
+            startLoading(
+                injector,
+                eagerBindings,
+                dependent,
+                components.get(dependent),
+                step,
+                errorsForBindings,
+                failures,
+                loaded,
+                executor);
+          }
         }
       }
     } finally {
-      context.close();
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (failures[i] instanceof RuntimeException) {
+        throw (RuntimeException) failures[i];
+      } else if (failures[i] instanceof Error) {
+        throw (Error) failures[i];
+      }
+      errors.merge(errorsForBindings[i]);
+    }
+  }
+
+  /**
+   * Loads the eager singletons at {@code indices}, in order, with one context. Once they've been
+   * loaded, {@code component} is added to {@code loaded}.
+   */
+  private static void startLoading(
+      final InjectorImpl injector,
+      final List<BindingImpl<?>> eagerBindings,
+      final int component,
+      final List<Integer> indices,
+      final StartupProfiler.Step parentStep,
+      final Errors[] errorsForBindings,
+      final Throwable[] failures,
+      final BlockingQueue<Integer> loaded,
+      Executor executor) {
+    Runnable task =
+        new Runnable() {
+          @Override
+          public void run() {
+            int index = indices.get(0);
+            try {
+              InternalContext context = injector.enterContext();
+              try {
+                for (int i = 0; i < indices.size(); i++) {
+                  index = indices.get(i);
+                  errorsForBindings[index] = new Errors();
+                  loadEagerSingleton(
+                      eagerBindings.get(index), context, parentStep, errorsForBindings[index]);
+                }
+              } finally {
+                context.close();
+              }
+            } catch (Throwable t) {
+              // like loading one at a time, the rest of the cycle isn't loaded
+              failures[index] = t;
+            } finally {
+              loaded.add(component);
+            }
+          }
+        };
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.run();
+    }
+  }
+
+  /**
+   * Returns the strongly connected components of a graph, each of which lists its nodes in order.
+   * Uses Tarjan's algorithm without recursion, so that long chains of singletons don't overflow the
+   * stack.
+   */
+  private static List<List<Integer>> stronglyConnectedComponents(List<List<Integer>> edges) {
+    int size = edges.size();
+    int[] order = new int[size]; // zero until visited
+    int[] lowLink = new int[size];
+    int[] nextEdge = new int[size];
+    boolean[] onStack = new boolean[size];
+    Deque<Integer> stack = new ArrayDeque<>();
+    Deque<Integer> path = new ArrayDeque<>();
+    List<List<Integer>> components = new ArrayList<>();
+    int visited = 0;
+    for (int root = 0; root < size; root++) {
+      if (order[root] != 0) {
+        continue;
+      }
+      path.push(root);
+      while (!path.isEmpty()) {
+        int node = path.peek();
+        if (order[node] == 0) {
+          order[node] = lowLink[node] = ++visited;
+          stack.push(node);
+          onStack[node] = true;
+        }
+        List<Integer> nodeEdges = edges.get(node);
+        if (nextEdge[node] < nodeEdges.size()) {
+          int next = nodeEdges.get(nextEdge[node]++);
+          if (order[next] == 0) {
+            path.push(next);
+          } else if (onStack[next]) {
+            lowLink[node] = Math.min(lowLink[node], order[next]);
+          }
+          continue;
+        }
+        path.pop();
+        if (!path.isEmpty()) {
+          int parent = path.peek();
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+        }
+        if (lowLink[node] == order[node]) {
+          List<Integer> component = new ArrayList<>();
+          int member;
+          do {
+            member = stack.pop();
+            onStack[member] = false;
+            component.add(member);
+          } while (member != node);
+          Collections.sort(component);
+          components.add(component);
+        }
+      }
+    }
+    return components;
+  }
+
+  /**
+   * Adds the indices of the eager singletons that {@code binding} needs, looking through any
+   * bindings that aren't eager singletons themselves. Providers are skipped because they don't
+   * create their targets until they're called.
+   */
+  private static void collectEagerDependencies(
+      InjectorImpl injector,
+      Binding<?> binding,
+      Map<Key<?>, Integer> indices,
+      Set<Key<?>> visited,
+      Set<Integer> result) {
+    if (!(binding instanceof HasDependencies)) {
+      return;
+    }
+    for (Dependency<?> dependency : ((HasDependencies) binding).getDependencies()) {
+      Key<?> key = dependency.getKey();
+      Class<?> rawType = key.getTypeLiteral().getRawType();
+      if (rawType == Provider.class
+          || rawType == javax.inject.Provider.class
+          || rawType == Injector.class
+          || !visited.add(key)) {
+        continue;
+      }
+      Integer index = indices.get(key);
+      if (index != null) {
+        result.add(index);
+        continue;
+      }
+      Binding<?> dependencyBinding = injector.getExistingBinding(key);
+      if (dependencyBinding != null) {
+        collectEagerDependencies(injector, dependencyBinding, indices, visited, result);
+      }
     }
   }
 
@@ -246,6 +555,10 @@ public final class InternalInjectorCreator {
       this.delegateInjector = delegateInjector;
     }
 
+    Injector getDelegate() {
+      return delegateInjector;
+    }
+
     @Override
     public void injectMembers(Object o) {
       throw new UnsupportedOperationException(
@@ -342,5 +655,11 @@ public final class InternalInjectorCreator {
       throw new UnsupportedOperationException(
           "Injector.getInstance(Class<T>) is not supported in Stage.TOOL");
     }
+
+    @Override
+    public List<Object> getInstances(Iterable<? extends Key<?>> keys) {
+      throw new UnsupportedOperationException(
+          "Injector.getInstances(Iterable<Key<?>>) is not supported in Stage.TOOL");
+    }
   }
 }
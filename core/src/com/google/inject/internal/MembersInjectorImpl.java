@@ -39,6 +39,7 @@ final class MembersInjectorImpl<T> implements MembersInjector<T> {
   /* @Nullable */ private final ImmutableList<MembersInjector<? super T>> userMembersInjectors;
   /* @Nullable */ private final ImmutableList<InjectionListener<? super T>> injectionListeners;
   /*if[AOP]*//* @Nullable */ private final ImmutableList<MethodAspect> addedAspects;
+  /* @Nullable */ private final GeneratedMembersInjector generatedMembersInjector;
   /*end[AOP]*/
 
   MembersInjectorImpl(
@@ -57,9 +58,15 @@ final class MembersInjectorImpl<T> implements MembersInjector<T> {
             : encounter.getInjectionListeners().asList();
     /*if[AOP]*/
     this.addedAspects = encounter.getAspects().isEmpty() ? null : encounter.getAspects();
+    this.generatedMembersInjector = GeneratedMembersInjector.create(typeLiteral, memberInjectors);
     /*end[AOP]*/
   }
 
+  /** Returns true if there are no members to inject and no listeners to notify. */
+  boolean isEmpty() {
+    return memberInjectors == null && userMembersInjectors == null && injectionListeners == null;
+  }
+
   public ImmutableList<SingleMemberInjector> getMemberInjectors() {
     return memberInjectors == null ? ImmutableList.<SingleMemberInjector>of() : memberInjectors;
   }
@@ -145,11 +152,17 @@ final class MembersInjectorImpl<T> implements MembersInjector<T> {
   void injectMembers(T t, Errors errors, InternalContext context, boolean toolableOnly) {
     ImmutableList<SingleMemberInjector> localMembersInjectors = memberInjectors;
     if (localMembersInjectors != null) {
-      // optimization: use manual for/each to save allocating an iterator here
-      for (int i = 0, size = localMembersInjectors.size(); i < size; i++) {
-        SingleMemberInjector injector = localMembersInjectors.get(i);
-        if (!toolableOnly || injector.getInjectionPoint().isToolable()) {
-          injector.inject(errors, context, t);
+      /*if[AOP]*/
+      GeneratedMembersInjector localGeneratedMembersInjector = generatedMembersInjector;
+      if (localGeneratedMembersInjector != null && !toolableOnly) {
+        localGeneratedMembersInjector.injectMembers(t, errors, context);
+      } else /*end[AOP]*/ {
+        // optimization: use manual for/each to save allocating an iterator here
+        for (int i = 0, size = localMembersInjectors.size(); i < size; i++) {
+          SingleMemberInjector injector = localMembersInjectors.get(i);
+          if (!toolableOnly || injector.getInjectionPoint().isToolable()) {
+            injector.inject(errors, context, t);
+          }
         }
       }
     }
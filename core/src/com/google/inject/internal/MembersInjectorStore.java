@@ -78,6 +78,11 @@ final class MembersInjectorStore {
     return cache.remove(type);
   }
 
+  /** Purges the types that failed, which are only kept to report their errors again. */
+  void removeFailures() {
+    cache.removeFailures();
+  }
+
   /** Creates a new members injector and attaches both injection listeners and method aspects. */
   private <T> MembersInjectorImpl<T> createWithListeners(TypeLiteral<T> type, Errors errors)
       throws ErrorsException {
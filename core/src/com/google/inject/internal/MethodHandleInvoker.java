@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.Maps;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Invokes a constructor or method through a {@link MethodHandle}, for {@link
+ * InternalFlags.InvocationOption#METHOD_HANDLE}.
+ *
+ * <p>The JIT only inlines the target of a method handle that it can treat as a constant, such as
+ * one read from a static final field. So where possible, each constructor or method gets a class
+ * of its own that holds its handle in a static final field (see {@code
+ * MethodHandleInvokerGenerator}), and the invoker is an instance of that class. Otherwise, the
+ * handle is held in an instance field, which still saves the reflective access checks and the
+ * {@code Method.invoke} dispatch, but isn't inlined.
+ *
+ * <p>This is public so that classes generated into the bridge class loaders can extend it.
+ */
+public abstract class MethodHandleInvoker {
+
+  /** The type of every handle: the target or null, and the arguments as an array. */
+  static final MethodType INVOKER_TYPE =
+      MethodType.methodType(Object.class, Object.class, Object[].class);
+
+  /** Handles of classes that are being generated, until the classes are initialized. */
+  private static final ConcurrentMap<String, MethodHandle> pendingHandles =
+      Maps.newConcurrentMap();
+
+  /**
+   * Invokes the constructor or method. {@code target} is ignored for constructors and static
+   * methods. Everything that the constructor or method throws is rethrown as it is.
+   */
+  public abstract Object invoke(Object target, Object[] arguments) throws Throwable;
+
+  /**
+   * Returns an invoker for {@code member}, which must be a constructor or method that has already
+   * been made accessible if it isn't public.
+   */
+  static MethodHandleInvoker create(Member member) throws IllegalAccessException {
+    MethodHandle handle;
+    int parameterCount;
+    if (member instanceof Constructor) {
+      Constructor<?> constructor = (Constructor<?>) member;
+      handle = MethodHandles.lookup().unreflectConstructor(constructor);
+      parameterCount = constructor.getParameterTypes().length;
+    } else {
+      Method method = (Method) member;
+      handle = MethodHandles.lookup().unreflect(method);
+      parameterCount = method.getParameterTypes().length;
+    }
+    if (member instanceof Constructor || Modifier.isStatic(member.getModifiers())) {
+      handle = MethodHandles.dropArguments(handle, 0, Object.class);
+    }
+    handle = handle.asSpreader(Object[].class, parameterCount).asType(INVOKER_TYPE);
+
+    /*if[AOP]*/
+    MethodHandleInvoker generated = MethodHandleInvokerGenerator.generate(member, handle);
+    if (generated != null) {
+      return generated;
+    }
+    /*end[AOP]*/
+    return new FieldInvoker(handle);
+  }
+
+  /** Holds {@code handle} until the class named {@code className} takes it. */
+  static void putPendingHandle(String className, MethodHandle handle) {
+    pendingHandles.put(className, handle);
+  }
+
+  /** Forgets the handle of {@code className}, if its class was never initialized. */
+  static void removePendingHandle(String className) {
+    pendingHandles.remove(className);
+  }
+
+  /**
+   * Returns the handle of {@code className}, which is called once by the static initializer of
+   * each generated invoker class.
+   */
+  public static MethodHandle takePendingHandle(String className) {
+    MethodHandle handle = pendingHandles.remove(className);
+    if (handle == null) {
+      throw new IllegalStateException("No method handle for " + className);
+    }
+    return handle;
+  }
+
+  /** An invoker that reads its handle from an instance field. */
+  private static final class FieldInvoker extends MethodHandleInvoker {
+    private final MethodHandle handle;
+
+    FieldInvoker(MethodHandle handle) {
+      this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] arguments) throws Throwable {
+      return handle.invokeExact(target, arguments);
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Member;
+import java.security.ProtectionDomain;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.DefaultNamingPolicy;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.NamingPolicy;
+import net.sf.cglib.core.Predicate;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates a subclass of {@link MethodHandleInvoker} for one constructor or method, which holds
+ * the member's handle in a static final field:
+ *
+ * <pre>
+ * public final class Foo$$MethodHandleInvokerByGuice$$1234 extends MethodHandleInvoker {
+ *   private static final MethodHandle HANDLE = MethodHandleInvoker.takePendingHandle("...");
+ *
+ *   public Object invoke(Object target, Object[] arguments) throws Throwable {
+ *     return HANDLE.invokeExact(target, arguments);
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>The generated classes only refer to Guice's classes, so they're loaded by the bridge class
+ * loader of the member's declaring class, and are cached per member like {@code FastClass}es.
+ */
+final class MethodHandleInvokerGenerator {
+  private static final Logger logger =
+      Logger.getLogger(MethodHandleInvokerGenerator.class.getName());
+
+  private MethodHandleInvokerGenerator() {}
+
+  /**
+   * Returns an invoker for {@code member} that calls {@code handle}, or null if no class can be
+   * generated for it.
+   */
+  static MethodHandleInvoker generate(Member member, MethodHandle handle) {
+    Class<?> declaringClass = member.getDeclaringClass();
+    ClassLoader classLoader = BytecodeGen.getClassLoader(declaringClass);
+    if (classLoader == null || !canSeeMethodHandleInvoker(classLoader)) {
+      return null;
+    }
+
+    Generator generator = new Generator(declaringClass, handle);
+    generator.setClassLoader(classLoader);
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine("Loading " + member + " MethodHandleInvoker with " + classLoader);
+    }
+    try {
+      return generator.generate(member);
+    } catch (net.sf.cglib.core.CodeGenerationException e) {
+      logger.log(Level.FINE, "Unable to generate MethodHandleInvoker for " + member, e);
+      return null;
+    } finally {
+      generator.forgetPendingHandle();
+    }
+  }
+
+  /** Returns true if classes generated in {@code classLoader} can extend our invoker. */
+  private static boolean canSeeMethodHandleInvoker(ClassLoader classLoader) {
+    try {
+      return classLoader.loadClass(MethodHandleInvoker.class.getName())
+          == MethodHandleInvoker.class;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private static final NamingPolicy NAMING_POLICY =
+      new DefaultNamingPolicy() {
+        @Override
+        protected String getTag() {
+          return "ByGuice";
+        }
+
+        @Override
+        public String getClassName(String prefix, String source, Object key, Predicate names) {
+          // as with FastClass, keep jarjar's renaming of the source out of our class names
+          return super.getClassName(prefix, "MethodHandleInvoker", key, names);
+        }
+      };
+
+  private static final Type METHOD_HANDLE_INVOKER = Type.getType(MethodHandleInvoker.class);
+  private static final Type METHOD_HANDLE = Type.getType(MethodHandle.class);
+  private static final Signature TAKE_PENDING_HANDLE =
+      new Signature("takePendingHandle", METHOD_HANDLE, new Type[] {Constants.TYPE_STRING});
+  private static final Signature INVOKE =
+      new Signature(
+          "invoke",
+          Constants.TYPE_OBJECT,
+          new Type[] {Constants.TYPE_OBJECT, Constants.TYPE_OBJECT_ARRAY});
+  private static final Signature INVOKE_EXACT =
+      new Signature(
+          "invokeExact",
+          Constants.TYPE_OBJECT,
+          new Type[] {Constants.TYPE_OBJECT, Constants.TYPE_OBJECT_ARRAY});
+  private static final String HANDLE_FIELD = "HANDLE";
+
+  /** Emits a subclass of {@link MethodHandleInvoker} that calls a constant handle. */
+  private static final class Generator extends AbstractClassGenerator {
+    private static final Source SOURCE =
+        new Source(MethodHandleInvokerGenerator.class.getName());
+
+    private final Class<?> declaringClass;
+    private final MethodHandle handle;
+    private String pendingClassName;
+
+    Generator(Class<?> declaringClass, MethodHandle handle) {
+      super(SOURCE);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+      setNamePrefix(declaringClass.getName());
+      setNamingPolicy(NAMING_POLICY);
+    }
+
+    MethodHandleInvoker generate(Object key) {
+      return (MethodHandleInvoker) super.create(key);
+    }
+
+    /** Forgets the handle if the generated class didn't take it, which leaves it unusable. */
+    void forgetPendingHandle() {
+      if (pendingClassName != null) {
+        MethodHandleInvoker.removePendingHandle(pendingClassName);
+      }
+    }
+
+    @Override
+    protected ClassLoader getDefaultClassLoader() {
+      return declaringClass.getClassLoader();
+    }
+
+    @Override
+    protected ProtectionDomain getProtectionDomain() {
+      return ReflectUtils.getProtectionDomain(declaringClass);
+    }
+
+    @Override
+    public void generateClass(ClassVisitor visitor) {
+      String className = getClassName();
+      pendingClassName = className;
+      MethodHandleInvoker.putPendingHandle(className, handle);
+
+      ClassEmitter ce = new ClassEmitter(visitor);
+      // invokeExact is signature polymorphic, which needs a Java 7 class file
+      ce.begin_class(
+          Opcodes.V1_7,
+          Constants.ACC_PUBLIC | Constants.ACC_FINAL,
+          className,
+          METHOD_HANDLE_INVOKER,
+          null,
+          Constants.SOURCE_FILE);
+      ce.declare_field(
+          Constants.ACC_PRIVATE | Constants.ACC_STATIC | Constants.ACC_FINAL,
+          HANDLE_FIELD,
+          METHOD_HANDLE,
+          null);
+
+      CodeEmitter e = ce.begin_static();
+      e.push(className);
+      e.invoke_static(METHOD_HANDLE_INVOKER, TAKE_PENDING_HANDLE);
+      e.putfield(HANDLE_FIELD);
+      e.return_value();
+      e.end_method();
+
+      EmitUtils.null_constructor(ce);
+
+      e = ce.begin_method(Constants.ACC_PUBLIC, INVOKE, new Type[] {Constants.TYPE_THROWABLE});
+      e.getfield(HANDLE_FIELD);
+      e.load_arg(0);
+      e.load_arg(1);
+      e.invoke_virtual(METHOD_HANDLE, INVOKE_EXACT);
+      e.return_value();
+      e.end_method();
+      ce.end_class();
+    }
+
+    @Override
+    protected Object firstInstance(Class type) {
+      return ReflectUtils.newInstance(type);
+    }
+
+    @Override
+    protected Object nextInstance(Object instance) {
+      return instance;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.inject.Binding;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Stage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.SortedMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates the subclasses of intercepted types that would otherwise be generated when an
+ * injector is created. If they're written into the application, next to the types they intercept,
+ * and listed in a {@link #MANIFEST} there, the injector loads them instead. Types that aren't
+ * listed are enhanced at runtime without looking for a precomputed class first.
+ *
+ * <p>The precomputed classes are the same cglib {@code Enhancer} subclasses that would be generated
+ * at runtime, so they still need cglib on the class path. They only save generating the bytecode.
+ *
+ * <p>Only the constructor bindings of the injector itself are visited, including its just-in-time
+ * bindings. Types that are only constructed by child injectors, private modules or {@code
+ * Injector.injectMembers} are enhanced at runtime as usual.
+ */
+public final class PrecomputedProxies {
+  private static final Logger logger = Logger.getLogger(PrecomputedProxies.class.getName());
+
+  /**
+   * Location of the manifests that list precomputed classes, one binary name per line. Blank lines
+   * and lines that start with {@code #} are ignored.
+   */
+  public static final String MANIFEST = "META-INF/guice/precomputed-proxies";
+
+  /** The precomputed classes listed by the manifests that each class loader can see. */
+  private static final LoadingCache<ClassLoader, ImmutableSet<String>> LISTED =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(
+              new CacheLoader<ClassLoader, ImmutableSet<String>>() {
+                @Override
+                public ImmutableSet<String> load(ClassLoader classLoader) {
+                  return readManifests(classLoader);
+                }
+              });
+
+  private PrecomputedProxies() {}
+
+  /**
+   * Returns the bytes of each class to precompute for an injector created from {@code modules},
+   * by class name. The injector is created in {@link Stage#TOOL}, so no instances are constructed.
+   */
+  public static SortedMap<String, byte[]> generate(Iterable<? extends Module> modules) {
+    Injector injector = Guice.createInjector(Stage.TOOL, modules);
+    SortedMap<String, byte[]> classes = Maps.newTreeMap();
+    for (Binding<?> binding : injector.getAllBindings().values()) {
+      if (!(binding instanceof ConstructorBindingImpl)) {
+        continue;
+      }
+      ConstructorInjector<?> constructorInjector =
+          ((ConstructorBindingImpl<?>) binding).getConstructorInjector();
+      if (constructorInjector == null) {
+        continue;
+      }
+      ProxyFactory<?> proxyFactory =
+          ProxyFactory.getFactory(constructorInjector.getConstructionProxy());
+      if (proxyFactory != null) {
+        String className = proxyFactory.getPrecomputedClassName();
+        if (!classes.containsKey(className)) {
+          classes.put(className, proxyFactory.generatePrecomputedClass());
+        }
+      }
+    }
+    return classes;
+  }
+
+  /**
+   * Returns the names of the precomputed classes that are listed by the manifests {@code
+   * classLoader} can see, which is empty if there are none.
+   */
+  static ImmutableSet<String> getListedClassNames(ClassLoader classLoader) {
+    return LISTED.getUnchecked(classLoader);
+  }
+
+  private static ImmutableSet<String> readManifests(ClassLoader classLoader) {
+    ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
+    try {
+      Enumeration<URL> manifests = classLoader.getResources(MANIFEST);
+      while (manifests.hasMoreElements()) {
+        URL manifest = manifests.nextElement();
+        try {
+          readManifest(manifest, classNames);
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Unable to read precomputed proxy manifest " + manifest, e);
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to find precomputed proxy manifests", e);
+    }
+    return classNames.build();
+  }
+
+  private static void readManifest(URL manifest, ImmutableSet.Builder<String> classNames)
+      throws IOException {
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(manifest.openStream(), Charsets.UTF_8));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          classNames.add(line);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /** Returns the path of {@code className}'s class file, relative to a classpath root. */
+  public static String toClassFile(String className) {
+    return className.replace('.', '/') + ".class";
+  }
+}
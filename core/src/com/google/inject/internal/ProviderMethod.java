@@ -16,6 +16,8 @@
 
 package com.google.inject.internal;
 
+import static com.google.inject.internal.InternalFlags.getInvocationOption;
+
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Binder;
@@ -23,6 +25,7 @@ import com.google.inject.Exposed;
 import com.google.inject.Key;
 import com.google.inject.PrivateBinder;
 import com.google.inject.Provides;
+import com.google.inject.internal.InternalFlags.InvocationOption;
 import com.google.inject.internal.InternalProviderInstanceBindingImpl.InitializationTiming;
 import com.google.inject.internal.util.StackTraceElements;
 import com.google.inject.spi.BindingTargetVisitor;
@@ -33,6 +36,7 @@ import com.google.inject.spi.ProviderWithExtensionVisitor;
 import com.google.inject.spi.ProvidesMethodBinding;
 import com.google.inject.spi.ProvidesMethodTargetVisitor;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -53,6 +57,9 @@ public abstract class ProviderMethod<T> extends InternalProviderInstanceBindingI
    * net.sf.cglib.reflect.FastClass} to invoke the actual method, since it is significantly faster.
    * However, this will fail if the method is {@code private} or {@code protected}, since fastclass
    * is subject to java access policies.
+   *
+   * <p>If {@link InvocationOption#METHOD_HANDLE} is selected, the method is invoked through a
+   * {@link MethodHandle} instead, whether or not {@code skipFastClassGeneration} is set.
    */
   static <T> ProviderMethod<T> create(
       Key<T> key,
@@ -63,6 +70,21 @@ public abstract class ProviderMethod<T> extends InternalProviderInstanceBindingI
       boolean skipFastClassGeneration,
       Annotation annotation) {
     int modifiers = method.getModifiers();
+    boolean publicMethod =
+        Modifier.isPublic(modifiers)
+            && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    if (getInvocationOption() == InvocationOption.METHOD_HANDLE) {
+      if (!publicMethod) {
+        method.setAccessible(true);
+      }
+      try {
+        return new MethodHandleProviderMethod<T>(
+            key, method, instance, dependencies, scopeAnnotation, annotation);
+      } catch (IllegalAccessException e) {
+        /* fall-through */
+      }
+    }
+
     /*if[AOP]*/
     if (!skipFastClassGeneration) {
       try {
@@ -77,8 +99,7 @@ public abstract class ProviderMethod<T> extends InternalProviderInstanceBindingI
     }
     /*end[AOP]*/
 
-    if (!Modifier.isPublic(modifiers)
-        || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+    if (!publicMethod) {
       method.setAccessible(true);
     }
 
@@ -264,6 +285,37 @@ public abstract class ProviderMethod<T> extends InternalProviderInstanceBindingI
   }
   /*end[AOP]*/
 
+  /**
+   * A {@link ProviderMethod} implementation that invokes the method through a {@link
+   * MethodHandleInvoker} that is created once per method.
+   */
+  static final class MethodHandleProviderMethod<T> extends ProviderMethod<T> {
+    final MethodHandleInvoker invoker;
+
+    MethodHandleProviderMethod(
+        Key<T> key,
+        Method method,
+        Object instance,
+        ImmutableSet<Dependency<?>> dependencies,
+        Class<? extends Annotation> scopeAnnotation,
+        Annotation annotation)
+        throws IllegalAccessException {
+      super(key, method, instance, dependencies, scopeAnnotation, annotation);
+      this.invoker = MethodHandleInvoker.create(method);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    T doProvision(Object[] parameters) throws InvocationTargetException {
+      try {
+        return (T) invoker.invoke(instance, parameters);
+      } catch (Throwable userException) {
+        // like Method.invoke, wrap everything the method throws, errors included
+        throw new InvocationTargetException(userException);
+      }
+    }
+  }
+
   /**
    * A {@link ProviderMethod} implementation that invokes the method using normal java reflection.
    */
@@ -44,6 +44,8 @@ final class ProvisionListenerCallbackStore {
       ImmutableSet.of(Key.get(Injector.class), Key.get(Stage.class), Key.get(Logger.class));
 
   private final ImmutableList<ProvisionListenerBinding> listenerBindings;
+  /** Null unless provision metrics are enabled. */
+  private final ProvisionMetricsImpl metrics;
 
   private final LoadingCache<KeyBinding, ProvisionListenerStackCallback<?>> cache =
       CacheBuilder.newBuilder()
@@ -55,13 +57,15 @@ final class ProvisionListenerCallbackStore {
                 }
               });
 
-  ProvisionListenerCallbackStore(List<ProvisionListenerBinding> listenerBindings) {
+  ProvisionListenerCallbackStore(
+      List<ProvisionListenerBinding> listenerBindings, ProvisionMetricsImpl metrics) {
     this.listenerBindings = ImmutableList.copyOf(listenerBindings);
+    this.metrics = metrics;
   }
 
   /**
    * Returns a new {@link ProvisionListenerStackCallback} for the key or {@code null} if there are
-   * no listeners
+   * no listeners and provision metrics are disabled.
    */
   @SuppressWarnings(
       "unchecked") // the ProvisionListenerStackCallback type always agrees with the passed type
@@ -71,7 +75,7 @@ final class ProvisionListenerCallbackStore {
       ProvisionListenerStackCallback<T> callback =
           (ProvisionListenerStackCallback<T>)
               cache.getUnchecked(new KeyBinding(binding.getKey(), binding));
-      return callback.hasListeners() ? callback : null;
+      return callback.isActive() ? callback : null;
     }
     return null;
   }
@@ -102,12 +106,15 @@ final class ProvisionListenerCallbackStore {
         listeners.addAll(provisionBinding.getListeners());
       }
     }
-    if (listeners == null || listeners.isEmpty()) {
+    if ((listeners == null || listeners.isEmpty()) && metrics == null) {
       // Optimization: don't bother constructing the callback if there are
       // no listeners.
       return ProvisionListenerStackCallback.emptyListener();
     }
-    return new ProvisionListenerStackCallback<T>(binding, listeners);
+    return new ProvisionListenerStackCallback<T>(
+        binding,
+        listeners != null ? listeners : ImmutableList.<ProvisionListener>of(),
+        metrics != null ? metrics.forKey(binding.getKey()) : null);
   }
 
   /** A struct that holds key & binding but uses just key for equality/hashcode. */
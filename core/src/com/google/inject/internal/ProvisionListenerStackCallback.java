@@ -25,7 +25,8 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * Intercepts provisions with a stack of listeners.
+ * Intercepts provisions with a stack of listeners, and records how long they take if provision
+ * metrics are enabled.
  *
  * @author sameb@google.com (Sam Berlin)
  */
@@ -35,18 +36,24 @@ final class ProvisionListenerStackCallback<T> {
 
   @SuppressWarnings("rawtypes")
   private static final ProvisionListenerStackCallback<?> EMPTY_CALLBACK =
-      new ProvisionListenerStackCallback(null /* unused, so ok */, ImmutableList.of());
+      new ProvisionListenerStackCallback(null /* unused, so ok */, ImmutableList.of(), null);
 
   private final ProvisionListener[] listeners;
   private final Binding<T> binding;
+  /** Null unless provision metrics are enabled. */
+  private final ProvisionMetricsImpl.KeyMetrics metrics;
 
   @SuppressWarnings("unchecked")
   public static <T> ProvisionListenerStackCallback<T> emptyListener() {
     return (ProvisionListenerStackCallback<T>) EMPTY_CALLBACK;
   }
 
-  public ProvisionListenerStackCallback(Binding<T> binding, List<ProvisionListener> listeners) {
+  public ProvisionListenerStackCallback(
+      Binding<T> binding,
+      List<ProvisionListener> listeners,
+      ProvisionMetricsImpl.KeyMetrics metrics) {
     this.binding = binding;
+    this.metrics = metrics;
     if (listeners.isEmpty()) {
       this.listeners = EMPTY_LISTENER;
     } else {
@@ -59,8 +66,23 @@ final class ProvisionListenerStackCallback<T> {
     return listeners.length > 0;
   }
 
+  /** Returns true if provisions need to go through this callback, to notify or to be measured. */
+  boolean isActive() {
+    return listeners.length > 0 || metrics != null;
+  }
+
   public T provision(Errors errors, InternalContext context, ProvisionCallback<T> callable)
       throws ErrorsException {
+    if (listeners.length == 0 && metrics != null) {
+      // Provision exactly as if there were no callback, but measure it
+      long start = System.nanoTime();
+      try {
+        return callable.call();
+      } finally {
+        metrics.record(System.nanoTime() - start);
+      }
+    }
+
     Provision provision = new Provision(errors, context, callable);
     RuntimeException caught = null;
     try {
@@ -114,6 +136,7 @@ final class ProvisionListenerStackCallback<T> {
     public T provision() {
       index++;
       if (index == listeners.length) {
+        long start = metrics != null ? System.nanoTime() : 0;
         try {
           result = callable.call();
           // Make sure we don't return the provisioned object if there were any errors
@@ -122,6 +145,10 @@ final class ProvisionListenerStackCallback<T> {
         } catch (ErrorsException ee) {
           exceptionDuringProvision = ee;
           throw new ProvisionException(errors.merge(ee.getErrors()).getMessages());
+        } finally {
+          if (metrics != null) {
+            metrics.record(System.nanoTime() - start);
+          }
         }
       } else if (index < listeners.length) {
         int currentIdx = index;
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.inject.Key;
+import com.google.inject.spi.ProvisionMetrics;
+import com.google.inject.spi.ProvisionStatistics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts provisions per key. Recording a provision doesn't lock: the count and total time are
+ * striped by thread, so that threads provisioning the same key don't contend, and the histogram
+ * buckets are updated atomically.
+ */
+final class ProvisionMetricsImpl implements ProvisionMetrics {
+
+  /** Buckets up to 2^39ns, about nine minutes. */
+  static final int HISTOGRAM_BUCKETS = 40;
+
+  /** A power of two, so that threads can be assigned a stripe with a mask. */
+  private static final int STRIPES =
+      Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), 16);
+
+  /** The count and total of each stripe are this many longs apart, to keep them off one line. */
+  private static final int STRIPE_WIDTH = 8;
+
+  private final ConcurrentMap<Key<?>, KeyMetrics> metrics = Maps.newConcurrentMap();
+
+  /** Returns the recorder for provisions of {@code key}. */
+  KeyMetrics forKey(Key<?> key) {
+    KeyMetrics keyMetrics = metrics.get(key);
+    if (keyMetrics == null) {
+      KeyMetrics newMetrics = new KeyMetrics();
+      keyMetrics = metrics.putIfAbsent(key, newMetrics);
+      if (keyMetrics == null) {
+        keyMetrics = newMetrics;
+      }
+    }
+    return keyMetrics;
+  }
+
+  @Override
+  public ProvisionStatistics getStatistics(Key<?> key) {
+    KeyMetrics keyMetrics = metrics.get(key);
+    if (keyMetrics == null) {
+      return null;
+    }
+    ProvisionStatistics statistics = keyMetrics.snapshot();
+    return statistics.getCount() > 0 ? statistics : null;
+  }
+
+  @Override
+  public Map<Key<?>, ProvisionStatistics> getAllStatistics() {
+    ImmutableMap.Builder<Key<?>, ProvisionStatistics> result = ImmutableMap.builder();
+    for (Map.Entry<Key<?>, KeyMetrics> entry : metrics.entrySet()) {
+      ProvisionStatistics statistics = entry.getValue().snapshot();
+      if (statistics.getCount() > 0) {
+        result.put(entry.getKey(), statistics);
+      }
+    }
+    return result.build();
+  }
+
+  /** Provisions of one key. */
+  static final class KeyMetrics {
+    /** For stripe i, the count is at i * STRIPE_WIDTH and the total nanos follow it. */
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+      if (nanos < 0) {
+        nanos = 0; // the clock went backwards
+      }
+      int stripe = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_WIDTH;
+      stripes.incrementAndGet(stripe);
+      stripes.addAndGet(stripe + 1, nanos);
+      int bucket = Math.min(64 - Long.numberOfLeadingZeros(nanos), HISTOGRAM_BUCKETS - 1);
+      histogram.incrementAndGet(bucket);
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+        max = maxNanos.get();
+      }
+    }
+
+    /** Returns the statistics so far. Provisions recorded concurrently may be partly included. */
+    ProvisionStatistics snapshot() {
+      long count = 0;
+      long totalNanos = 0;
+      for (int i = 0; i < STRIPES * STRIPE_WIDTH; i += STRIPE_WIDTH) {
+        count += stripes.get(i);
+        totalNanos += stripes.get(i + 1);
+      }
+      long[] buckets = new long[HISTOGRAM_BUCKETS];
+      for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+        buckets[i] = histogram.get(i);
+      }
+      return new ProvisionStatistics(count, totalNanos, maxNanos.get(), buckets);
+    }
+  }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.Lists;
+import com.google.inject.spi.Dependency;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Provisions an unscoped constructor binding, along with the unscoped constructor bindings that it
+ * depends on, without going through each dependency's factory. The dependency graph is flattened
+ * when the plan is built: each constructor becomes a step, and its parameters become the indices of
+ * earlier steps. Steps are in post-order, so running them in turn constructs every dependency
+ * before the instance that needs it.
+ *
+ * <p>Anything else that a constructor depends on, like a scoped, instance or provider binding, is a
+ * step that calls the dependency's factory as usual. So is a constructor that has provision
+ * listeners or is measured by provision metrics, that appears twice on one path through the graph,
+ * or that doesn't fit in the plan.
+ *
+ * <p>Running the plan doesn't track the chain of dependencies in the {@link InternalContext}, or
+ * add a source to the {@link Errors} for each one. Both are rebuilt from the plan, but only for the
+ * steps that need them: calls to other factories, members injection, and errors. Constructions are
+ * still marked in the context, so circular dependencies are found and proxied just as they would be
+ * without the plan.
+ */
+final class ProvisioningPlan<T> {
+
+  /** The largest number of steps in a plan. Dependencies beyond that are resolved as usual. */
+  private static final int MAX_STEPS = 128;
+
+  private static final Object[] NO_FRAMES = {};
+
+  /** The constructor of each step, or null for steps that call a factory. */
+  private final ConstructorInjector<?>[] constructors;
+
+  /**
+   * The factory that each step's parent would call to provision it without the plan. Null for the
+   * last step, which is the plan's binding.
+   */
+  private final InternalFactory<?>[] factories;
+
+  /** The dependency that each step provides. Null for the last step. */
+  private final Dependency<?>[] dependencies;
+
+  /** The step that each step is a parameter of, or -1 for the last step. */
+  private final int[] parents;
+
+  /** The steps whose values are the parameters of each constructor step. */
+  private final int[][] parameters;
+
+  /**
+   * The constructor steps whose subgraphs begin at each step, outermost first. Their constructions
+   * start when the plan reaches that step, just as they would before resolving their parameters.
+   */
+  private final int[][] entered;
+
+  /**
+   * The dependency and the source of its binding, followed by the key and source of each linked
+   * binding that was followed to reach the step's constructor. This is what the factories would
+   * have pushed onto the context's dependency chain for the step.
+   */
+  private final Object[][] frames;
+
+  /** The frames of each step's ancestors, outermost first. */
+  private final Object[][] ancestorFrames;
+
+  /** The sources that the factories would have added to the errors for each step, in order. */
+  private final Object[][] errorSources;
+
+  private ProvisioningPlan(Builder builder) {
+    int size = builder.constructors.size();
+    this.constructors = builder.constructors.toArray(new ConstructorInjector<?>[size]);
+    this.factories = builder.factories.toArray(new InternalFactory<?>[size]);
+    this.dependencies = builder.dependencies.toArray(new Dependency<?>[size]);
+    this.parents = toIntArray(builder.parents);
+    this.parameters = builder.parameters.toArray(new int[size][]);
+    this.frames = builder.frames.toArray(new Object[size][]);
+    this.errorSources = builder.errorSources.toArray(new Object[size][]);
+
+    this.entered = new int[size][];
+    this.ancestorFrames = new Object[size][];
+    for (int step = 0; step < size; step++) {
+      List<Integer> enteredHere = Lists.newArrayList();
+      for (int i = step; i >= 0 && builder.firsts.get(i) == step; i = parents[i]) {
+        if (constructors[i] != null) {
+          enteredHere.add(0, i);
+        }
+      }
+      entered[step] = toIntArray(enteredHere);
+
+      List<Object> outerFrames = Lists.newArrayList();
+      for (int i = parents[step]; i >= 0; i = parents[i]) {
+        outerFrames.addAll(0, Arrays.asList(frames[i]));
+      }
+      ancestorFrames[step] = outerFrames.isEmpty() ? NO_FRAMES : outerFrames.toArray();
+    }
+  }
+
+  /**
+   * Returns a plan for {@code constructor}, or null if some of the bindings that it depends on
+   * aren't initialized yet. {@code constructor} must be initialized, and its binding must have no
+   * provision listeners.
+   */
+  static <T> ProvisioningPlan<T> create(ConstructorInjector<T> constructor) {
+    Builder builder = new Builder();
+    Set<Object> path = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    if (!builder.addConstructorStep(constructor, null, null, NO_FRAMES, NO_FRAMES, path)) {
+      return null;
+    }
+    return new ProvisioningPlan<T>(builder);
+  }
+
+  /** Returns the number of constructors that this plan calls, including the binding's own. */
+  int getConstructorCount() {
+    int count = 0;
+    for (ConstructorInjector<?> constructor : constructors) {
+      if (constructor != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Provisions an instance, just as {@link ConstructorInjector#construct} would for a binding with
+   * no provision listeners.
+   */
+  @SuppressWarnings("unchecked")
+  T provision(Errors errors, InternalContext context, Dependency<?> dependency)
+      throws ErrorsException {
+    int last = constructors.length - 1;
+    Object[] values = new Object[constructors.length];
+    ConstructionContext<Object>[] constructing = new ConstructionContext[constructors.length];
+    int[] errorCounts = new int[constructors.length];
+    Errors[] stepErrors = new Errors[constructors.length];
+    try {
+      for (int step = 0; step < last; step++) {
+        int fallback = enter(step, errors, context, constructing, errorCounts);
+        if (fallback == last) {
+          // re-entered from outside the plan, so let the constructor proxy it or report the cycle
+          return (T) constructors[last].construct(errors, context, dependency, null);
+        }
+
+        if (fallback >= 0 || constructors[step] == null) {
+          step = fallback >= 0 ? fallback : step;
+          values[step] = callFactory(step, errors, stepErrors, context);
+        } else if (errors.size() > errorCounts[step]) {
+          // a parameter failed, so this step fails without being constructed
+          constructing[step].finishConstruction();
+          constructing[step] = null;
+        } else {
+          values[step] = construct(step, values, constructing[step], errors, stepErrors, context);
+          constructing[step] = null;
+        }
+      }
+
+      if (last == 0 && enter(0, errors, context, constructing, errorCounts) == 0) {
+        return (T) constructors[last].construct(errors, context, dependency, null);
+      }
+      if (errors.size() > errorCounts[last]) {
+        constructing[last].finishConstruction();
+        constructing[last] = null;
+        throw errors.toException();
+      }
+      T result = (T) construct(last, values, constructing[last], errors, stepErrors, context);
+      constructing[last] = null;
+      return result;
+    } finally {
+      for (ConstructionContext<Object> constructionContext : constructing) {
+        if (constructionContext != null) {
+          constructionContext.finishConstruction();
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts constructing each step whose subgraph begins at {@code step}. Returns the outermost of
+   * them that's already being constructed, or -1 if none are.
+   */
+  private int enter(
+      int step,
+      Errors errors,
+      InternalContext context,
+      ConstructionContext<Object>[] constructing,
+      int[] errorCounts) {
+    for (int enteredStep : entered[step]) {
+      ConstructionContext<Object> constructionContext =
+          context.getConstructionContext(constructors[enteredStep]);
+      if (constructionContext.isConstructing()
+          || constructionContext.getCurrentReference() != null) {
+        return enteredStep;
+      }
+      constructionContext.startConstruction();
+      constructing[enteredStep] = constructionContext;
+      errorCounts[enteredStep] = errors.size();
+    }
+    return -1;
+  }
+
+  /**
+   * Constructs a step whose parameters have all been provisioned, and injects its members. Returns
+   * null if that fails, after recording the errors.
+   */
+  private Object construct(
+      int step,
+      Object[] values,
+      ConstructionContext<Object> constructionContext,
+      Errors errors,
+      Errors[] stepErrors,
+      InternalContext context)
+      throws ErrorsException {
+    @SuppressWarnings("unchecked")
+    ConstructorInjector<Object> constructor = (ConstructorInjector<Object>) constructors[step];
+    int[] parameterSteps = parameters[step];
+    Object[] arguments = new Object[parameterSteps.length];
+    for (int i = 0; i < parameterSteps.length; i++) {
+      arguments[i] = values[parameterSteps[i]];
+    }
+
+    Object t;
+    try {
+      try {
+        t = constructor.getConstructionProxy().newInstance(arguments);
+        constructionContext.setProxyDelegates(t);
+      } finally {
+        constructionContext.finishConstruction();
+      }
+    } catch (InvocationTargetException userException) {
+      Throwable cause = userException.getCause() != null ? userException.getCause() : userException;
+      Errors constructorErrors =
+          errorsFor(step, errors, stepErrors)
+              .withSource(constructor.getConstructionProxy().getInjectionPoint())
+              .errorInjectingConstructor(cause);
+      if (parents[step] < 0) {
+        throw constructorErrors.toException();
+      }
+      return null;
+    }
+
+    MembersInjectorImpl<Object> membersInjector = constructor.getMembersInjector();
+    if (membersInjector.isEmpty()) {
+      return t;
+    }
+
+    Errors errorsForStep = errorsFor(step, errors, stepErrors);
+    Object[] outerFrames = ancestorFrames[step];
+    Object[] ownFrames = frames[step];
+    constructionContext.setCurrentReference(t);
+    context.pushStates(outerFrames);
+    context.pushStates(ownFrames);
+    try {
+      membersInjector.injectMembers(t, errorsForStep, context, false);
+      membersInjector.notifyListeners(t, errorsForStep);
+      return t;
+    } catch (ErrorsException e) {
+      if (parents[step] < 0) {
+        throw e;
+      }
+      errorsFor(parents[step], errors, stepErrors).merge(e.getErrors());
+      return null;
+    } finally {
+      context.popStates((outerFrames.length + ownFrames.length) / 2);
+      constructionContext.removeCurrentReference();
+    }
+  }
+
+  /**
+   * Provisions a step with its factory, as the parameter injector of its parent would. Returns null
+   * if that fails, after recording the errors.
+   */
+  private Object callFactory(
+      int step, Errors errors, Errors[] stepErrors, InternalContext context) {
+    Errors parentErrors = errorsFor(parents[step], errors, stepErrors);
+    Dependency<?> stepDependency = dependencies[step];
+    Object[] outerFrames = ancestorFrames[step];
+    context.pushStates(outerFrames);
+    Dependency<?> previous = context.pushDependency(stepDependency, frames[step][1]);
+    try {
+      return factories[step].get(
+          parentErrors.withSource(stepDependency), context, stepDependency, false);
+    } catch (ErrorsException e) {
+      parentErrors.merge(e.getErrors());
+      return null;
+    } finally {
+      context.popStateAndSetDependency(previous);
+      context.popStates(outerFrames.length / 2);
+    }
+  }
+
+  /** Returns the errors that the factories would have passed to {@code step}'s constructor. */
+  private Errors errorsFor(int step, Errors errors, Errors[] stepErrors) {
+    int parent = parents[step];
+    if (parent < 0) {
+      return errors;
+    }
+    Errors result = stepErrors[step];
+    if (result == null) {
+      result = errorsFor(parent, errors, stepErrors);
+      for (Object source : errorSources[step]) {
+        result = result.withSource(source);
+      }
+      stepErrors[step] = result;
+    }
+    return result;
+  }
+
+  private static int[] toIntArray(List<Integer> list) {
+    int[] result = new int[list.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = list.get(i);
+    }
+    return result;
+  }
+
+  /** Flattens a dependency graph into the steps of a plan. */
+  private static final class Builder {
+    final List<ConstructorInjector<?>> constructors = Lists.newArrayList();
+    final List<InternalFactory<?>> factories = Lists.newArrayList();
+    final List<Dependency<?>> dependencies = Lists.newArrayList();
+    final List<Integer> parents = Lists.newArrayList();
+    final List<int[]> parameters = Lists.newArrayList();
+    final List<Integer> firsts = Lists.newArrayList();
+    final List<Object[]> frames = Lists.newArrayList();
+    final List<Object[]> errorSources = Lists.newArrayList();
+
+    /**
+     * Adds the steps for {@code constructor}'s parameters, and then its own. Returns false if a
+     * binding isn't ready to be planned yet.
+     *
+     * @param path the constructors that are already being constructed on the way to this one
+     */
+    boolean addConstructorStep(
+        ConstructorInjector<?> constructor,
+        InternalFactory<?> factory,
+        Dependency<?> dependency,
+        Object[] stepFrames,
+        Object[] stepErrorSources,
+        Set<Object> path) {
+      int first = constructors.size();
+      path.add(constructor);
+      SingleParameterInjector<?>[] parameterInjectors = constructor.getParameterInjectors();
+      int[] parameterSteps = new int[parameterInjectors == null ? 0 : parameterInjectors.length];
+      for (int i = 0; i < parameterSteps.length; i++) {
+        int parameterStep = addParameterStep(parameterInjectors[i], path);
+        if (parameterStep < 0) {
+          return false;
+        }
+        parameterSteps[i] = parameterStep;
+      }
+      path.remove(constructor);
+
+      int step = addStep(constructor, factory, dependency, parameterSteps, first);
+      frames.add(stepFrames);
+      errorSources.add(stepErrorSources);
+      for (int parameterStep : parameterSteps) {
+        parents.set(parameterStep, step);
+      }
+      return true;
+    }
+
+    /** Adds the steps for one parameter. Returns -1 if a binding isn't ready yet. */
+    int addParameterStep(SingleParameterInjector<?> parameterInjector, Set<Object> path) {
+      Dependency<?> dependency = parameterInjector.getDependency();
+      Object source = parameterInjector.getSource();
+      InternalFactory<?> factory = parameterInjector.getFactory();
+
+      // follow linked bindings to the binding that provides the instance
+      List<Object> stepFrames = Lists.<Object>newArrayList(dependency, source);
+      List<Object> stepErrorSources = Lists.<Object>newArrayList(dependency);
+      boolean linked = false;
+      InternalFactory<?> target = factory;
+      while (target instanceof FactoryProxy) {
+        FactoryProxy<?> proxy = (FactoryProxy<?>) target;
+        if (proxy.getTargetFactory() == null) {
+          return -1;
+        }
+        stepFrames.add(proxy.getTargetKey());
+        stepFrames.add(proxy.getSource());
+        stepErrorSources.add(proxy.getTargetKey());
+        target = proxy.getTargetFactory();
+        linked = true;
+      }
+
+      if (target instanceof ConstructorBindingImpl.Factory && constructors.size() < MAX_STEPS) {
+        ConstructorBindingImpl.Factory<?> constructorFactory =
+            (ConstructorBindingImpl.Factory<?>) target;
+        ConstructorInjector<?> constructor = constructorFactory.getConstructorInjector();
+        if (constructor == null) {
+          return -1;
+        }
+        // a constructor that's already on the path is a cycle, which the factory will handle
+        if (constructorFactory.canProvisionWithPlan(linked) && !path.contains(constructor)) {
+          boolean ready =
+              addConstructorStep(
+                  constructor,
+                  factory,
+                  dependency,
+                  stepFrames.toArray(),
+                  stepErrorSources.toArray(),
+                  path);
+          return ready ? constructors.size() - 1 : -1;
+        }
+      }
+
+      int step = addStep(null, factory, dependency, null, constructors.size());
+      frames.add(new Object[] {dependency, source});
+      errorSources.add(new Object[] {dependency});
+      return step;
+    }
+
+    private int addStep(
+        ConstructorInjector<?> constructor,
+        InternalFactory<?> factory,
+        Dependency<?> dependency,
+        int[] parameterSteps,
+        int first) {
+      constructors.add(constructor);
+      factories.add(factory);
+      dependencies.add(dependency);
+      parents.add(-1);
+      parameters.add(parameterSteps);
+      firsts.add(first);
+      return constructors.size() - 1;
+    }
+  }
+}
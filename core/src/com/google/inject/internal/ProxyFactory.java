@@ -17,21 +17,33 @@
 package com.google.inject.internal;
 
 import static com.google.inject.internal.BytecodeGen.newFastClassForMember;
+import static com.google.inject.internal.InternalFlags.getInterceptionOption;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.inject.internal.InternalFlags.InterceptionOption;
 import com.google.inject.spi.InjectionPoint;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import net.sf.cglib.core.ClassGenerator;
+import net.sf.cglib.core.DefaultGeneratorStrategy;
 import net.sf.cglib.core.MethodWrapper;
+import net.sf.cglib.core.NamingPolicy;
+import net.sf.cglib.core.Predicate;
 import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.CallbackFilter;
 import net.sf.cglib.proxy.Enhancer;
@@ -42,12 +54,19 @@ import org.aopalliance.intercept.MethodInterceptor;
  * Builds a construction proxy that can participate in AOP. This class manages applying type and
  * method matchers to come up with the set of intercepted methods.
  *
+ * <p>The enhanced subclass is normally generated by cglib. If a class generated ahead of time by
+ * {@link #generatePrecomputedClass} is listed in a {@link PrecomputedProxies#MANIFEST} that the
+ * classloader of the intercepted type can see, it is loaded instead. It's still a cglib class.
+ *
  * @author jessewilson@google.com (Jesse Wilson)
  */
 final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
 
   private static final Logger logger = Logger.getLogger(ProxyFactory.class.getName());
 
+  /** Separates the intercepted type's name from the hash in names of precomputed classes. */
+  private static final String PRECOMPUTED_TAG = "$$PrecomputedByGuice$$";
+
   private final InjectionPoint injectionPoint;
   private final ImmutableMap<Method, List<MethodInterceptor>> interceptors;
   private final Class<T> declaringClass;
@@ -136,7 +155,10 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
       ImmutableList<MethodInterceptor> deDuplicated =
           ImmutableSet.copyOf(pair.interceptors).asList();
       interceptorsMapBuilder.put(pair.method, deDuplicated);
-      callbacks[i] = new InterceptorStackCallback(pair.method, deDuplicated);
+      callbacks[i] =
+          getInterceptionOption() == InterceptionOption.REUSED_INVOCATIONS
+              ? new InterceptorChainCallback(pair.method, deDuplicated)
+              : new InterceptorStackCallback(pair.method, deDuplicated);
     }
 
     interceptors =
@@ -156,6 +178,24 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
       return new DefaultConstructionProxyFactory<T>(injectionPoint).create();
     }
 
+    ConstructionProxy<T> precomputed = loadPrecomputedClass();
+    if (precomputed != null) {
+      return precomputed;
+    }
+
+    // Create the proxied class. We're careful to ensure that all enhancer state is not-specific
+    // to this injector. Otherwise, the proxies for each injector will waste PermGen memory
+    try {
+      Enhancer enhancer = BytecodeGen.newEnhancer(declaringClass, visibility);
+      enhancer.setCallbackFilter(new IndicesCallbackFilter(methods));
+      enhancer.setCallbackTypes(callbackTypes(callbacks));
+      return new ProxyConstructor<T>(enhancer, injectionPoint, callbacks, interceptors, this);
+    } catch (Throwable e) {
+      throw new Errors().errorEnhancingClass(declaringClass, e).toException();
+    }
+  }
+
+  private static Class<? extends Callback>[] callbackTypes(Callback[] callbacks) {
     @SuppressWarnings("unchecked")
     Class<? extends Callback>[] callbackTypes = new Class[callbacks.length];
     for (int i = 0; i < callbacks.length; i++) {
@@ -165,17 +205,171 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
         callbackTypes[i] = net.sf.cglib.proxy.MethodInterceptor.class;
       }
     }
+    return callbackTypes;
+  }
 
-    // Create the proxied class. We're careful to ensure that all enhancer state is not-specific
-    // to this injector. Otherwise, the proxies for each injector will waste PermGen memory
+  /**
+   * Returns the name of the class that {@link #generatePrecomputedClass} generates, or null if no
+   * methods are intercepted. The name hashes the signature of every method and whether it's
+   * intercepted, so a class generated for other interceptor bindings or for another version of the
+   * type is never loaded.
+   */
+  String getPrecomputedClassName() {
+    return interceptors.isEmpty() ? null : precomputedClassName(sortedIndices());
+  }
+
+  /**
+   * Generates the enhanced subclass that {@link #create} loads, if it's present, instead of
+   * generating one at runtime. Returns null if no methods are intercepted.
+   */
+  byte[] generatePrecomputedClass() {
+    if (interceptors.isEmpty()) {
+      return null;
+    }
+
+    int[] order = sortedIndices();
+    final String className = precomputedClassName(order);
+    List<Method> sortedMethods = Lists.newArrayListWithCapacity(order.length);
+    Callback[] sortedCallbacks = new Callback[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedMethods.add(methods.get(order[i]));
+      sortedCallbacks[i] = callbacks[order[i]];
+    }
+
+    Enhancer enhancer = BytecodeGen.newEnhancer(declaringClass, visibility);
+    enhancer.setCallbackFilter(new IndicesCallbackFilter(sortedMethods));
+    enhancer.setCallbackTypes(callbackTypes(sortedCallbacks));
+    enhancer.setNamingPolicy(
+        new NamingPolicy() {
+          @Override
+          public String getClassName(String prefix, String source, Object key, Predicate names) {
+            return className;
+          }
+        });
+    // the class is only captured, so it mustn't come from or go into the cache
+    enhancer.setUseCache(false);
+    enhancer.setStrategy(
+        new DefaultGeneratorStrategy() {
+          @Override
+          public byte[] generate(ClassGenerator classGenerator) throws Exception {
+            throw new GeneratedClass(super.generate(classGenerator));
+          }
+        });
     try {
-      Enhancer enhancer = BytecodeGen.newEnhancer(declaringClass, visibility);
-      enhancer.setCallbackFilter(new IndicesCallbackFilter(methods));
-      enhancer.setCallbackTypes(callbackTypes);
-      return new ProxyConstructor<T>(enhancer, injectionPoint, callbacks, interceptors);
-    } catch (Throwable e) {
-      throw new Errors().errorEnhancingClass(declaringClass, e).toException();
+      enhancer.createClass();
+    } catch (GeneratedClass generated) {
+      return generated.bytes;
     }
+    throw new AssertionError("Enhancer didn't generate " + className);
+  }
+
+  /** Carries the generated bytes out of the enhancer, before they're defined as a class. */
+  private static class GeneratedClass extends RuntimeException {
+    final byte[] bytes;
+
+    GeneratedClass(byte[] bytes) {
+      super(null, null, false, false);
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * Returns a construction proxy for the precomputed class, or null if it isn't listed in a
+   * manifest or can't be loaded. Its callbacks are indexed in the order of {@link #sortedIndices},
+   * which unlike the order that {@link Enhancer#getMethods} finds methods in is the same in every
+   * JVM.
+   */
+  private ConstructionProxy<T> loadPrecomputedClass() {
+    ClassLoader classLoader = declaringClass.getClassLoader();
+    if (classLoader == null) {
+      return null;
+    }
+    ImmutableSet<String> listed = PrecomputedProxies.getListedClassNames(classLoader);
+    if (listed.isEmpty()) {
+      return null;
+    }
+
+    int[] order = sortedIndices();
+    String className = precomputedClassName(order);
+    if (!listed.contains(className)) {
+      return null;
+    }
+    try {
+      Class<?> precomputed = Class.forName(className, false, classLoader);
+      if (precomputed.getSuperclass() != declaringClass) {
+        return null;
+      }
+      Callback[] sortedCallbacks = new Callback[order.length];
+      for (int i = 0; i < order.length; i++) {
+        sortedCallbacks[i] = callbacks[order[i]];
+      }
+      return new PrecomputedProxyConstructor<T>(
+          precomputed, injectionPoint, sortedCallbacks, interceptors, this);
+    } catch (ClassNotFoundException e) {
+      logger.log(Level.FINE, "Precomputed " + className + " is listed but missing", e);
+      return null;
+    } catch (NoSuchMethodException e) {
+      logger.log(Level.FINE, "Precomputed " + className + " has no matching constructor", e);
+      return null;
+    } catch (LinkageError e) {
+      logger.log(Level.FINE, "Unable to load precomputed " + className, e);
+      return null;
+    }
+  }
+
+  private int[] sortedIndices() {
+    final String[] signatures = new String[methods.size()];
+    Integer[] indices = new Integer[methods.size()];
+    for (int i = 0; i < signatures.length; i++) {
+      signatures[i] = signature(methods.get(i));
+      indices[i] = i;
+    }
+    Arrays.sort(
+        indices,
+        new Comparator<Integer>() {
+          @Override
+          public int compare(Integer a, Integer b) {
+            return signatures[a].compareTo(signatures[b]);
+          }
+        });
+    int[] order = new int[indices.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = indices[i];
+    }
+    return order;
+  }
+
+  private String precomputedClassName(int[] order) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (int index : order) {
+      hasher
+          .putString(signature(methods.get(index)), StandardCharsets.UTF_8)
+          .putBoolean(callbacks[index] != net.sf.cglib.proxy.NoOp.INSTANCE);
+    }
+    return declaringClass.getName()
+        + PRECOMPUTED_TAG
+        + Long.toHexString(hasher.hash().asLong());
+  }
+
+  private static String signature(Method method) {
+    StringBuilder signature = new StringBuilder().append(method.getName()).append('(');
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      signature.append(parameterType.getName()).append(';');
+    }
+    return signature.append(')').append(method.getReturnType().getName()).toString();
+  }
+
+  /**
+   * Returns the factory that created {@code constructionProxy}, or null if it wasn't created by a
+   * factory that intercepts methods.
+   */
+  static ProxyFactory<?> getFactory(ConstructionProxy<?> constructionProxy) {
+    if (constructionProxy instanceof ProxyConstructor) {
+      return ((ProxyConstructor<?>) constructionProxy).factory;
+    } else if (constructionProxy instanceof PrecomputedProxyConstructor) {
+      return ((PrecomputedProxyConstructor<?>) constructionProxy).factory;
+    }
+    return null;
   }
 
   private static class MethodInterceptorsPair {
@@ -243,13 +437,15 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
     final int constructorIndex;
     final ImmutableMap<Method, List<MethodInterceptor>> methodInterceptors;
     final FastClass fastClass;
+    final ProxyFactory<T> factory;
 
     @SuppressWarnings("unchecked") // the constructor promises to construct 'T's
     ProxyConstructor(
         Enhancer enhancer,
         InjectionPoint injectionPoint,
         Callback[] callbacks,
-        ImmutableMap<Method, List<MethodInterceptor>> methodInterceptors) {
+        ImmutableMap<Method, List<MethodInterceptor>> methodInterceptors,
+        ProxyFactory<T> factory) {
       this.enhanced = enhancer.createClass(); // this returns a cached class if possible
       this.injectionPoint = injectionPoint;
       this.constructor = (Constructor<T>) injectionPoint.getMember();
@@ -257,6 +453,7 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
       this.methodInterceptors = methodInterceptors;
       this.fastClass = newFastClassForMember(enhanced, constructor);
       this.constructorIndex = fastClass.getIndex(constructor.getParameterTypes());
+      this.factory = factory;
     }
 
     @Override
@@ -285,4 +482,70 @@ final class ProxyFactory<T> implements ConstructionProxyFactory<T> {
       return methodInterceptors;
     }
   }
+
+  /**
+   * Constructs instances of a precomputed class. The class is loaded rather than generated, and
+   * its constructor is invoked reflectively so that no fast class is generated for it either.
+   */
+  private static class PrecomputedProxyConstructor<T> implements ConstructionProxy<T> {
+    final Class<?> precomputed;
+    final Constructor<?> precomputedConstructor;
+    final InjectionPoint injectionPoint;
+    final Constructor<T> constructor;
+    final Callback[] callbacks;
+    final ImmutableMap<Method, List<MethodInterceptor>> methodInterceptors;
+    final ProxyFactory<T> factory;
+
+    @SuppressWarnings("unchecked") // the constructor promises to construct 'T's
+    PrecomputedProxyConstructor(
+        Class<?> precomputed,
+        InjectionPoint injectionPoint,
+        Callback[] callbacks,
+        ImmutableMap<Method, List<MethodInterceptor>> methodInterceptors,
+        ProxyFactory<T> factory)
+        throws NoSuchMethodException {
+      this.precomputed = precomputed;
+      this.injectionPoint = injectionPoint;
+      this.constructor = (Constructor<T>) injectionPoint.getMember();
+      this.precomputedConstructor =
+          precomputed.getDeclaredConstructor(constructor.getParameterTypes());
+      if (!Modifier.isPublic(precomputed.getModifiers())
+          || !Modifier.isPublic(precomputedConstructor.getModifiers())) {
+        precomputedConstructor.setAccessible(true);
+      }
+      this.callbacks = callbacks;
+      this.methodInterceptors = methodInterceptors;
+      this.factory = factory;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") // the constructor promises to produce 'T's
+    public T newInstance(Object... arguments) throws InvocationTargetException {
+      Enhancer.registerCallbacks(precomputed, callbacks);
+      try {
+        return (T) precomputedConstructor.newInstance(arguments);
+      } catch (InstantiationException e) {
+        throw new AssertionError(e); // shouldn't happen, we know this is a concrete type
+      } catch (IllegalAccessException e) {
+        throw new AssertionError(e); // a security manager is blocking us, we're hosed
+      } finally {
+        Enhancer.registerCallbacks(precomputed, null);
+      }
+    }
+
+    @Override
+    public InjectionPoint getInjectionPoint() {
+      return injectionPoint;
+    }
+
+    @Override
+    public Constructor<T> getConstructor() {
+      return constructor;
+    }
+
+    @Override
+    public ImmutableMap<Method, List<MethodInterceptor>> getMethodInterceptors() {
+      return methodInterceptors;
+    }
+  }
 }
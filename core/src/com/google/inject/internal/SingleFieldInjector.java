@@ -60,4 +60,31 @@ final class SingleFieldInjector implements SingleMemberInjector {
         context.popStateAndSetDependency(previous);
       }
   }
+
+  /** Assigns a {@code value} that has already been resolved to the field of {@code o}. */
+  void setValue(Object o, Object value) {
+    try {
+      field.set(o, value);
+    } catch (IllegalAccessException e) {
+      throw new AssertionError(e); // a security manager is blocking us, we're hosed
+    }
+  }
+
+  /**
+   * Returns the value to inject into this field without assigning it. Failures are recorded in
+   * {@code errors} and null is returned.
+   */
+  Object getValue(Errors errors, InternalContext context) {
+    errors = errors.withSource(dependency);
+    Dependency previous = context.pushDependency(dependency, binding.getSource());
+
+    try {
+      return binding.getInternalFactory().get(errors, context, dependency, false);
+    } catch (ErrorsException e) {
+      errors.withSource(injectionPoint).merge(e.getErrors());
+      return null;
+    } finally {
+      context.popStateAndSetDependency(previous);
+    }
+  }
 }
@@ -77,6 +77,11 @@ final class SingleMethodInjector implements SingleMemberInjector {
     return injectionPoint;
   }
 
+  /** Returns the injectors for this method's parameters, or null if it has no parameters. */
+  SingleParameterInjector<?>[] getParameterInjectors() {
+    return parameterInjectors;
+  }
+
   @Override
   public void inject(Errors errors, InternalContext context, Object o) {
     Object[] parameters;
@@ -86,7 +91,11 @@ final class SingleMethodInjector implements SingleMemberInjector {
       errors.merge(e.getErrors());
       return;
     }
+    invoke(errors, o, parameters);
+  }
 
+  /** Invokes the method on {@code o} with {@code parameters} that have already been resolved. */
+  void invoke(Errors errors, Object o, Object[] parameters) {
     try {
       methodInvoker.invoke(o, parameters);
     } catch (IllegalAccessException e) {
@@ -32,6 +32,18 @@ final class SingleParameterInjector<T> {
     this.factory = binding.getInternalFactory();
   }
 
+  Dependency<T> getDependency() {
+    return dependency;
+  }
+
+  Object getSource() {
+    return source;
+  }
+
+  InternalFactory<? extends T> getFactory() {
+    return factory;
+  }
+
   T inject(Errors errors, InternalContext context) throws ErrorsException {
     Dependency<T> localDependency = dependency;
     Dependency previous = context.pushDependency(localDependency, source);
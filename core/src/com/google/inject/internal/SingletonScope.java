@@ -61,11 +61,13 @@ public class SingletonScope implements Scope {
    * Allows us to detect when circular proxies are necessary. It's only used during singleton
    * instance initialization, after initialization direct access through volatile field is used.
    *
+   * <p>Each injector tree has its own factory, see {@link InjectorImpl#singletonLockFactory}. This
+   * one is only used when the scope is called directly rather than by an injector.
+   *
    * <p>NB: Factory uses {@link Key}s as a user locks ids, different injectors can share them.
    * Cycles are detected properly as cycle detection does not rely on user locks ids, but error
    * message generated could be less than ideal.
    */
-  // TODO(user): we may use one factory per injector tree for optimization reasons
   private static final CycleDetectingLockFactory<Key<?>> cycleDetectingLockFactory =
       new CycleDetectingLockFactory<Key<?>>();
 
@@ -103,21 +105,23 @@ public class SingletonScope implements Scope {
        */
       final ConstructionContext<T> constructionContext = new ConstructionContext<>();
 
-      /** For each binding there is a separate lock that we hold during object creation. */
-      final CycleDetectingLock<Key<?>> creationLock = cycleDetectingLockFactory.create(key);
-
       /**
        * The singleton provider needs a reference back to the injector, in order to get ahold of
        * InternalContext during instantiation.
        */
       final /* @Nullable */ InjectorImpl injector;
 
+      /** For each binding there is a separate lock that we hold during object creation. */
+      final CycleDetectingLock<Key<?>> creationLock;
+
       {
         // If we are getting called by Scoping
         if (creator instanceof ProviderToInternalFactoryAdapter) {
           injector = ((ProviderToInternalFactoryAdapter) creator).getInjector();
+          creationLock = injector.singletonLockFactory.create(key);
         } else {
           injector = null;
+          creationLock = cycleDetectingLockFactory.create(key);
         }
       }
 
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.Lists;
+import com.google.inject.internal.util.Stopwatch;
+import com.google.inject.spi.StartupProfile;
+import com.google.inject.spi.StartupProfile.Kind;
+import java.util.List;
+
+/**
+ * Times the phases of injector creation, and logs each one. When startup profiling is enabled, it
+ * also records a {@link StartupProfile} of the phases and of the modules, just-in-time bindings and
+ * eager singletons within them.
+ *
+ * <p>Steps are nested under whatever step is running on the same thread, so that code deep inside
+ * module execution or binding creation can record steps without having the profiler passed to it.
+ * Nothing is recorded on a thread that isn't creating an injector, or once creation is finished.
+ */
+public final class StartupProfiler {
+
+  /** The step that is running on each thread, while an injector is being profiled. */
+  private static final ThreadLocal<Step> currentStep = new ThreadLocal<>();
+
+  private final Stopwatch stopwatch = new Stopwatch();
+  private final Step root;
+  private Step phase;
+  private volatile StartupProfile profile;
+
+  StartupProfiler(boolean recording) {
+    if (recording) {
+      root = new Step(null, Kind.INJECTOR, "Injector creation");
+      // restored when we're finished, in case this injector is created while creating another
+      root.previous = currentStep.get();
+      phase = new Step(root, Kind.PHASE, null);
+      currentStep.set(phase);
+    } else {
+      root = null;
+    }
+  }
+
+  /** Returns true if a {@link StartupProfile} is being recorded. */
+  boolean isRecording() {
+    return root != null;
+  }
+
+  /** Ends the current phase of injector creation, and starts the next one. */
+  void endPhase(String label) {
+    stopwatch.resetAndLog(label);
+    if (root != null && profile == null) {
+      phase.name = label;
+      phase.end();
+      phase = new Step(root, Kind.PHASE, null);
+      currentStep.set(phase);
+    }
+  }
+
+  /** Stops recording. Anything that happened since the last phase ended is discarded. */
+  void finish() {
+    if (root != null && profile == null) {
+      synchronized (root.children) {
+        root.children.remove(phase);
+      }
+      end(root);
+      profile = root.toProfile();
+    }
+  }
+
+  /** Returns the profile recorded so far, or the complete profile once creation is finished. */
+  StartupProfile getProfile() {
+    StartupProfile result = profile;
+    return result != null ? result : root.toProfile();
+  }
+
+  /**
+   * Starts timing a step on this thread, nested under the step that's already running. Returns
+   * null, cheaply, if the thread isn't being profiled.
+   */
+  public static Step start(Kind kind, Object name) {
+    Step parent = currentStep.get();
+    return parent != null ? start(parent, kind, name) : null;
+  }
+
+  /** Returns the step that's running on this thread, or null if the thread isn't being profiled. */
+  static Step currentStep() {
+    return currentStep.get();
+  }
+
+  /**
+   * Starts timing a step on this thread, nested under {@code parent}, which may have been started
+   * on another thread. Returns null if {@code parent} is null.
+   */
+  static Step start(Step parent, Kind kind, Object name) {
+    if (parent == null) {
+      return null;
+    }
+    Step step = new Step(parent, kind, String.valueOf(name));
+    step.previous = currentStep.get();
+    currentStep.set(step);
+    return step;
+  }
+
+  /** Stops timing {@code step}, which must have been started on this thread. Ignores null. */
+  public static void end(Step step) {
+    if (step != null) {
+      step.end();
+      if (step.previous != null) {
+        currentStep.set(step.previous);
+      } else {
+        currentStep.remove();
+      }
+    }
+  }
+
+  /** A step of injector creation that is being timed. */
+  public static final class Step {
+    private final Kind kind;
+    private final long startNanos = System.nanoTime();
+    /** Steps nested in this one. Guarded by itself, since they may be added by many threads. */
+    private final List<Step> children = Lists.newArrayList();
+    private volatile String name;
+    private volatile long durationNanos = -1;
+    private Step previous;
+
+    private Step(Step parent, Kind kind, String name) {
+      this.kind = kind;
+      this.name = name;
+      if (parent != null) {
+        synchronized (parent.children) {
+          parent.children.add(this);
+        }
+      }
+    }
+
+    private void end() {
+      durationNanos = System.nanoTime() - startNanos;
+    }
+
+    /** Converts this step, and its children, to a profile. Steps that haven't ended are cut off. */
+    private StartupProfile toProfile() {
+      long duration = durationNanos >= 0 ? durationNanos : System.nanoTime() - startNanos;
+      List<StartupProfile> childProfiles = Lists.newArrayList();
+      synchronized (children) {
+        for (Step child : children) {
+          childProfiles.add(child.toProfile());
+        }
+      }
+      String profileName = name != null ? name : "(unfinished)";
+      return new StartupProfile(kind, profileName, duration, childProfiles);
+    }
+  }
+}
@@ -16,141 +16,168 @@
 
 package com.google.inject.internal;
 
-import com.google.common.base.Objects;
-import com.google.common.base.Preconditions;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalCause;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.LinkedHashMultiset;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.google.inject.Key;
 import com.google.inject.internal.util.SourceProvider;
-import java.util.Map;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Minimal set that doesn't hold strong references to the contained keys.
  *
+ * <p>It is safe for concurrent use without locking. Each key maps to an immutable multiset of its
+ * sources, which is replaced atomically when a source is added or removed. Keys blacklisted by a
+ * child injector are registered against a weak reference to its state, and once the state is
+ * collected its keys are removed in a batch by the next operation on the set.
+ *
  * @author dweis@google.com (Daniel Weis)
  */
 final class WeakKeySet {
 
-  private Map<Key<?>, Multiset<Object>> backingMap;
+  /** Stands in for a null source, which multisets don't allow. */
+  private static final Object NULL_SOURCE = new Object();
 
-  /**
-   * This is already locked externally on add and getSources but we need it to handle clean up in
-   * the evictionCache's RemovalListener.
-   */
-  private final Object lock;
+  private final ConcurrentMap<Key<?>, ImmutableMultiset<Object>> backingMap =
+      Maps.newConcurrentMap();
 
-  /**
-   * Tracks child injector lifetimes and evicts blacklisted keys/sources after the child injector is
-   * garbage collected.
-   */
-  private final Cache<State, Set<KeyAndSource>> evictionCache =
-      CacheBuilder.newBuilder()
-          .weakKeys()
-          .removalListener(
-              new RemovalListener<State, Set<KeyAndSource>>() {
-                @Override
-                public void onRemoval(RemovalNotification<State, Set<KeyAndSource>> notification) {
-                  Preconditions.checkState(RemovalCause.COLLECTED.equals(notification.getCause()));
-
-                  cleanUpForCollectedState(notification.getValue());
-                }
-              })
-          .build();
+  /** The registrations of states that haven't been collected, by their states. */
+  private final ConcurrentMap<State, Registration> registrations =
+      new MapMaker().weakKeys().makeMap();
 
-  /**
-   * There may be multiple child injectors blacklisting a certain key so only remove the source
-   * that's relevant.
-   */
-  private void cleanUpForCollectedState(Set<KeyAndSource> keysAndSources) {
-    synchronized (lock) {
-      for (KeyAndSource keyAndSource : keysAndSources) {
-        Multiset<Object> set = backingMap.get(keyAndSource.key);
-        if (set != null) {
-          set.remove(keyAndSource.source);
-          if (set.isEmpty()) {
-            backingMap.remove(keyAndSource.key);
-          }
-        }
-      }
-    }
-  }
-
-  WeakKeySet(Object lock) {
-    this.lock = lock;
-  }
+  /** Where the registrations of collected states are enqueued. */
+  private final ReferenceQueue<State> collectedStates = new ReferenceQueue<>();
 
   public void add(Key<?> key, State state, Object source) {
-    if (backingMap == null) {
-      backingMap = Maps.newHashMap();
-    }
+    cleanUp();
     // if it's an instanceof Class, it was a JIT binding, which we don't
     // want to retain.
     if (source instanceof Class || source == SourceProvider.UNKNOWN_SOURCE) {
       source = null;
     }
-    Multiset<Object> sources = backingMap.get(key);
-    if (sources == null) {
-      sources = LinkedHashMultiset.create();
-      backingMap.put(key, sources);
-    }
     Object convertedSource = Errors.convert(source);
-    sources.add(convertedSource);
+    if (convertedSource == null) {
+      convertedSource = NULL_SOURCE;
+    }
+    addSource(key, convertedSource);
 
     // Avoid all the extra work if we can.
     if (state.parent() != State.NONE) {
-      Set<KeyAndSource> keyAndSources = evictionCache.getIfPresent(state);
-      if (keyAndSources == null) {
-        evictionCache.put(state, keyAndSources = Sets.newHashSet());
+      Registration registration = registrations.get(state);
+      if (registration == null) {
+        Registration newRegistration = new Registration(state, collectedStates);
+        registration = registrations.putIfAbsent(state, newRegistration);
+        if (registration == null) {
+          registration = newRegistration;
+        }
       }
-      keyAndSources.add(new KeyAndSource(key, convertedSource));
+      registration.keysAndSources.add(new KeyAndSource(key, convertedSource));
     }
   }
 
   public boolean contains(Key<?> key) {
-    evictionCache.cleanUp();
-    return backingMap != null && backingMap.containsKey(key);
+    cleanUp();
+    return backingMap.containsKey(key);
   }
 
-  public Set<Object> getSources(Key<?> key) {
-    evictionCache.cleanUp();
-    Multiset<Object> sources = (backingMap == null) ? null : backingMap.get(key);
-    return (sources == null) ? null : sources.elementSet();
+  /** Returns true if no keys are blacklisted, once those of collected states are evicted. */
+  boolean isEmpty() {
+    cleanUp();
+    return backingMap.isEmpty();
   }
 
-  private static final class KeyAndSource {
-    final Key<?> key;
-    final Object source;
-
-    KeyAndSource(Key<?> key, Object source) {
-      this.key = key;
-      this.source = source;
+  public Set<Object> getSources(Key<?> key) {
+    cleanUp();
+    ImmutableMultiset<Object> sources = backingMap.get(key);
+    if (sources == null) {
+      return null;
+    }
+    Set<Object> result = Sets.newLinkedHashSet();
+    for (Object source : sources.elementSet()) {
+      result.add(source == NULL_SOURCE ? null : source);
     }
+    return result;
+  }
 
-    @Override
-    public int hashCode() {
-      return Objects.hashCode(key, source);
+  private void addSource(Key<?> key, Object source) {
+    while (true) {
+      ImmutableMultiset<Object> sources = backingMap.get(key);
+      if (sources == null) {
+        if (backingMap.putIfAbsent(key, ImmutableMultiset.of(source)) == null) {
+          return;
+        }
+      } else {
+        ImmutableMultiset<Object> newSources =
+            ImmutableMultiset.builder().addAll(sources).add(source).build();
+        if (backingMap.replace(key, sources, newSources)) {
+          return;
+        }
+      }
     }
+  }
 
-    @Override
-    public boolean equals(Object obj) {
-      if (this == obj) {
-        return true;
+  /**
+   * There may be multiple child injectors blacklisting a certain key so only remove the source
+   * that's relevant.
+   */
+  private void removeSource(Key<?> key, Object source) {
+    while (true) {
+      ImmutableMultiset<Object> sources = backingMap.get(key);
+      if (sources == null || !sources.contains(source)) {
+        return;
       }
+      if (sources.size() == 1) {
+        if (backingMap.remove(key, sources)) {
+          return;
+        }
+      } else {
+        Multiset<Object> remaining = LinkedHashMultiset.create(sources);
+        remaining.remove(source);
+        if (backingMap.replace(key, sources, ImmutableMultiset.copyOf(remaining))) {
+          return;
+        }
+      }
+    }
+  }
 
-      if (!(obj instanceof KeyAndSource)) {
-        return false;
+  /** Removes the keys and sources of every state that has been collected since the last call. */
+  private void cleanUp() {
+    Reference<? extends State> collected;
+    while ((collected = collectedStates.poll()) != null) {
+      Queue<KeyAndSource> keysAndSources = ((Registration) collected).keysAndSources;
+      KeyAndSource keyAndSource;
+      while ((keyAndSource = keysAndSources.poll()) != null) {
+        removeSource(keyAndSource.key, keyAndSource.source);
       }
+    }
+  }
+
+  /** The keys and sources that a state has added, which are removed once it's collected. */
+  private static final class Registration extends WeakReference<State> {
+    /** One entry for each add, so that each source is removed as often as it was added. */
+    final Queue<KeyAndSource> keysAndSources = new ConcurrentLinkedQueue<>();
+
+    Registration(State state, ReferenceQueue<State> queue) {
+      super(state, queue);
+    }
+  }
 
-      KeyAndSource other = (KeyAndSource) obj;
-      return Objects.equal(key, other.key) && Objects.equal(source, other.source);
+  private static final class KeyAndSource {
+    final Key<?> key;
+    final Object source;
+
+    KeyAndSource(Key<?> key, Object source) {
+      this.key = key;
+      this.source = source;
     }
   }
 }
@@ -26,6 +26,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Map;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
@@ -38,12 +39,22 @@ import org.objectweb.asm.Opcodes;
 /**
  * Looks up line numbers for classes and their members.
  *
+ * <p>Once the bytecode has been read, the line numbers are kept in a pair of sorted arrays rather
+ * than a map, and no reference to the class itself is kept. That keeps instances small and lets
+ * them be cached for as long as the class is loaded, without keeping it loaded.
+ *
  * @author Chris Nokleberg
  */
 final class LineNumbers {
 
-  private final Class type;
-  private final Map<String, Integer> lines = Maps.newHashMap();
+  private static final String[] NO_MEMBERS = new String[0];
+  private static final int[] NO_LINES = new int[0];
+
+  private final String typeName;
+  /** Keys of the members with known line numbers, sorted. */
+  private final String[] memberKeys;
+  /** The line number of each member in {@link #memberKeys}. */
+  private final int[] memberLines;
   private String source;
   private int firstLine = Integer.MAX_VALUE;
 
@@ -55,13 +66,14 @@ final class LineNumbers {
    * @throws java.io.IOException if an error occurs while reading bytecode
    */
   public LineNumbers(Class type) throws IOException {
-    this.type = type;
+    this.typeName = type.getName();
 
+    Map<String, Integer> lines = Maps.newHashMap();
     if (!type.isArray()) {
       InputStream in = type.getResourceAsStream("/" + type.getName().replace('.', '/') + ".class");
       if (in != null) {
         try {
-          new ClassReader(in).accept(new LineNumberReader(), ClassReader.SKIP_FRAMES);
+          new ClassReader(in).accept(new LineNumberReader(lines), ClassReader.SKIP_FRAMES);
         } finally {
           try {
             in.close();
@@ -70,6 +82,18 @@ final class LineNumbers {
         }
       }
     }
+
+    if (lines.isEmpty()) {
+      memberKeys = NO_MEMBERS;
+      memberLines = NO_LINES;
+    } else {
+      memberKeys = lines.keySet().toArray(new String[lines.size()]);
+      Arrays.sort(memberKeys);
+      memberLines = new int[memberKeys.length];
+      for (int i = 0; i < memberKeys.length; i++) {
+        memberLines[i] = lines.get(memberKeys[i]);
+      }
+    }
   }
 
   /**
@@ -91,12 +115,13 @@ final class LineNumbers {
    */
   public Integer getLineNumber(Member member) {
     Preconditions.checkArgument(
-        type == member.getDeclaringClass(),
+        typeName.equals(member.getDeclaringClass().getName()),
         "Member %s belongs to %s, not %s",
         member,
         member.getDeclaringClass(),
-        type);
-    return lines.get(memberKey(member));
+        typeName);
+    int index = Arrays.binarySearch(memberKeys, memberKey(member));
+    return index >= 0 ? memberLines[index] : null;
   }
 
   /** Gets the first line number. */
@@ -133,12 +158,14 @@ final class LineNumbers {
 
   private class LineNumberReader extends ClassVisitor {
 
+    private final Map<String, Integer> lines;
     private int line = -1;
     private String pendingMethod;
     private String name;
 
-    LineNumberReader() {
+    LineNumberReader(Map<String, Integer> lines) {
       super(Opcodes.ASM5);
+      this.lines = lines;
     }
 
     @Override
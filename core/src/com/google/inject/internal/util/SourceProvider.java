@@ -89,6 +89,22 @@ public final class SourceProvider {
     throw new AssertionError();
   }
 
+  /**
+   * Returns the calling line of code, like {@link #get(StackTraceElement[])}, but only reads as
+   * far into {@code stackTrace} as the first element that isn't skipped. Use this with a lazily
+   * decoded stack trace, such as one from {@link com.google.common.base.Throwables#lazyStackTrace},
+   * so that the frames below the caller are never turned into {@link StackTraceElement}s.
+   */
+  public StackTraceElement get(List<StackTraceElement> stackTrace) {
+    Preconditions.checkNotNull(stackTrace, "The stack trace cannot be null.");
+    for (StackTraceElement element : stackTrace) {
+      if (!shouldBeSkipped(element.getClassName())) {
+        return element;
+      }
+    }
+    throw new AssertionError();
+  }
+
   /** Returns the non-skipped module class name. */
   public Object getFromClassNames(List<String> moduleClassNames) {
     Preconditions.checkNotNull(moduleClassNames, "The list of module class names cannot be null.");
@@ -37,10 +37,15 @@ public class StackTraceElements {
       new InMemoryStackTraceElement[0];
 
   /*if[AOP]*/
+  /**
+   * Line numbers for every class that's been asked about, shared by all injectors. Each class's
+   * bytecode is read the first time it's needed, and its line numbers are kept until the class is
+   * unloaded. They're small, and don't refer to the class, so there's no need for soft values,
+   * which would be cleared and reread whenever the heap is under pressure.
+   */
   static final LoadingCache<Class<?>, LineNumbers> lineNumbersCache =
       CacheBuilder.newBuilder()
           .weakKeys()
-          .softValues()
           .build(
               new CacheLoader<Class<?>, LineNumbers>() {
                 @Override
@@ -116,6 +116,11 @@ public abstract class DefaultElementVisitor<V> implements ElementVisitor<V> {
     return visitOther(option);
   }
 
+  @Override
+  public V visit(LoadEagerSingletonsInParallelOption option) {
+    return visitOther(option);
+  }
+
   @Override
   public V visit(ModuleAnnotatedMethodScannerBinding binding) {
     return visitOther(binding);
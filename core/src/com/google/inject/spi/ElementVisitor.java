@@ -105,6 +105,13 @@ public interface ElementVisitor<V> {
    */
   V visit(RequireExactBindingAnnotationsOption option);
 
+  /**
+   * Visit a request to load eager singletons in parallel.
+   *
+   * @since 4.2
+   */
+  V visit(LoadEagerSingletonsInParallelOption option);
+
   /**
    * Visits a {@link Binder#scanModulesForAnnotatedMethods} command.
    *
@@ -19,6 +19,7 @@ package com.google.inject.spi;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.inject.internal.InternalFlags.getIncludeStackTraceOption;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -47,6 +48,7 @@ import com.google.inject.internal.InternalFlags.IncludeStackTraceOption;
 import com.google.inject.internal.MoreTypes;
 import com.google.inject.internal.PrivateElementsImpl;
 import com.google.inject.internal.ProviderMethodsModule;
+import com.google.inject.internal.StartupProfiler;
 import com.google.inject.internal.util.SourceProvider;
 import com.google.inject.internal.util.StackTraceElements;
 import com.google.inject.matcher.Matcher;
@@ -58,6 +60,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Exposes elements of a module so they can be inspected, validated or {@link
@@ -340,17 +343,25 @@ public final class Elements {
         // Always store this in the parent binder (even if it was a private module)
         // so that we know not to process it again, and so that scanners inherit down.
         modules.put(module, new ModuleInfo(binder, moduleSource, skipScanning));
+        StartupProfiler.Step step =
+            module instanceof ProviderMethodsModule
+                ? null // @Provides methods are counted in their module
+                : StartupProfiler.start(StartupProfile.Kind.MODULE, module.getClass().getName());
         try {
-          module.configure(binder);
-        } catch (RuntimeException e) {
-          Collection<Message> messages = Errors.getMessagesFromThrowable(e);
-          if (!messages.isEmpty()) {
-            elements.addAll(messages);
-          } else {
-            addError(e);
+          try {
+            module.configure(binder);
+          } catch (RuntimeException e) {
+            Collection<Message> messages = Errors.getMessagesFromThrowable(e);
+            if (!messages.isEmpty()) {
+              elements.addAll(messages);
+            } else {
+              addError(e);
+            }
           }
+          binder.install(ProviderMethodsModule.forModule(module));
+        } finally {
+          StartupProfiler.end(step);
         }
-        binder.install(ProviderMethodsModule.forModule(module));
         // We are done with this module, so undo module source change
         if (unwrapModuleSource) {
           moduleSource = moduleSource.getParent();
@@ -469,6 +480,11 @@ public final class Elements {
       elements.add(new RequireExactBindingAnnotationsOption(getElementSource()));
     }
 
+    @Override
+    public void loadEagerSingletonsInParallel(Executor executor) {
+      elements.add(new LoadEagerSingletonsInParallelOption(getElementSource(), executor));
+    }
+
     @Override
     public void scanModulesForAnnotatedMethods(ModuleAnnotatedMethodScanner scanner) {
       scanners.add(scanner);
@@ -538,20 +554,19 @@ public final class Elements {
         declaringSource = originalSource.getDeclaringSource();
       }
       IncludeStackTraceOption stackTraceOption = getIncludeStackTraceOption();
-      if (stackTraceOption == IncludeStackTraceOption.COMPLETE
-          || (stackTraceOption == IncludeStackTraceOption.ONLY_FOR_DECLARING_SOURCE
-              && declaringSource == null)) {
-        callStack = new Throwable().getStackTrace();
-      }
       if (stackTraceOption == IncludeStackTraceOption.COMPLETE) {
+        callStack = new Throwable().getStackTrace();
         partialCallStack = getPartialCallStack(callStack);
       }
       if (declaringSource == null) {
         // So 'source' and 'originalSource' are null otherwise declaringSource has some value
-        if (stackTraceOption == IncludeStackTraceOption.COMPLETE
-            || stackTraceOption == IncludeStackTraceOption.ONLY_FOR_DECLARING_SOURCE) {
+        if (stackTraceOption == IncludeStackTraceOption.COMPLETE) {
           // With the above conditions and assignments 'callStack' is non-null
           declaringSource = sourceProvider.get(callStack);
+        } else if (stackTraceOption == IncludeStackTraceOption.ONLY_FOR_DECLARING_SOURCE) {
+          // Only the frames down to the caller are decoded, rather than the whole call stack,
+          // which is usually dozens of frames deep by the time modules are being configured.
+          declaringSource = sourceProvider.get(Throwables.lazyStackTrace(new Throwable()));
         } else { // or if (stackTraceOption == IncludeStackTraceOptions.OFF)
           // As neither 'declaring source' nor 'call stack' is available use 'module source'
           declaringSource = sourceProvider.getFromClassNames(moduleSource.getModuleClassNames());
@@ -34,16 +34,23 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,6 +66,25 @@ public final class InjectionPoint {
 
   private static final Logger logger = Logger.getLogger(InjectionPoint.class.getName());
 
+  /**
+   * The injection points of every type that's been asked about, shared by all injectors. Finding
+   * them means walking the type's hierarchy and reading the annotations of its members, which only
+   * needs doing once however many injectors use the type.
+   *
+   * <p>Each type's injection points are kept with the class in it that has the most specific class
+   * loader, such as {@code Foo} for {@code List<Foo>}, for as long as that class is loaded. They
+   * only refer to classes that its class loader can see, so they never keep another class loader
+   * from being unloaded. Types whose classes can't see Guice aren't cached, as the injection points
+   * would keep Guice loaded for as long as those classes are.
+   */
+  private static final ClassValue<CachedInjectionPoints> cache =
+      new ClassValue<CachedInjectionPoints>() {
+        @Override
+        protected CachedInjectionPoints computeValue(Class<?> type) {
+          return canSeeGuice(type.getClassLoader()) ? new CachedInjectionPoints() : null;
+        }
+      };
+
   private final boolean optional;
   private final Member member;
   private final TypeLiteral<?> declaringType;
@@ -235,7 +261,27 @@ public final class InjectionPoint {
    *     parameter with multiple binding annotations.
    */
   public static InjectionPoint forConstructorOf(TypeLiteral<?> type) {
+    ConcurrentMap<TypeLiteral<?>, Result<InjectionPoint>> constructors =
+        cachedInjectionPointsFor(type).constructors;
+    Result<InjectionPoint> result = constructors.get(type);
+    if (result == null) {
+      try {
+        result = new Result<>(findConstructorOf(type), ImmutableList.<Message>of());
+      } catch (ConfigurationException e) {
+        result = new Result<>(null, e.getErrorMessages());
+      }
+      constructors.put(type, result);
+    }
+    return result.getOrThrow();
+  }
+
+  private static InjectionPoint findConstructorOf(TypeLiteral<?> type) {
     Class<?> rawType = getRawType(type.getType());
+    Constructor<?> indexedConstructor = InjectionPointIndex.getInjectableConstructor(rawType);
+    if (indexedConstructor != null) {
+      return new InjectionPoint(type, indexedConstructor);
+    }
+
     Errors errors = new Errors(rawType);
 
     Constructor<?> injectableConstructor = null;
@@ -327,6 +373,13 @@ public final class InjectionPoint {
    *     the valid injection points.
    */
   public static Set<InjectionPoint> forStaticMethodsAndFields(TypeLiteral<?> type) {
+    ConcurrentMap<TypeLiteral<?>, Result<Set<InjectionPoint>>> staticMembers =
+        cachedInjectionPointsFor(type).staticMembers;
+    Result<Set<InjectionPoint>> cached = staticMembers.get(type);
+    if (cached != null) {
+      return cached.getOrThrow();
+    }
+
     Errors errors = new Errors();
 
     Set<InjectionPoint> result;
@@ -338,10 +391,9 @@ public final class InjectionPoint {
       result = getInjectionPoints(type, true, errors);
     }
 
-    if (errors.hasErrors()) {
-      throw new ConfigurationException(errors.getMessages()).withPartialValue(result);
-    }
-    return result;
+    cached = new Result<>(result, errors.getMessages());
+    staticMembers.put(type, cached);
+    return cached.getOrThrow();
   }
 
   /**
@@ -371,12 +423,16 @@ public final class InjectionPoint {
    *     the valid injection points.
    */
   public static Set<InjectionPoint> forInstanceMethodsAndFields(TypeLiteral<?> type) {
-    Errors errors = new Errors();
-    Set<InjectionPoint> result = getInjectionPoints(type, false, errors);
-    if (errors.hasErrors()) {
-      throw new ConfigurationException(errors.getMessages()).withPartialValue(result);
+    ConcurrentMap<TypeLiteral<?>, Result<Set<InjectionPoint>>> instanceMembers =
+        cachedInjectionPointsFor(type).instanceMembers;
+    Result<Set<InjectionPoint>> result = instanceMembers.get(type);
+    if (result == null) {
+      Errors errors = new Errors();
+      Set<InjectionPoint> injectionPoints = getInjectionPoints(type, false, errors);
+      result = new Result<>(injectionPoints, errors.getMessages());
+      instanceMembers.put(type, result);
     }
-    return result;
+    return result.getOrThrow();
   }
 
   /**
@@ -641,6 +697,13 @@ public final class InjectionPoint {
    */
   private static Set<InjectionPoint> getInjectionPoints(
       final TypeLiteral<?> type, boolean statics, Errors errors) {
+    if (!statics) {
+      InjectableMembers indexedMembers = InjectionPointIndex.getInstanceMembers(type);
+      if (indexedMembers != null) {
+        return toInjectionPoints(indexedMembers, errors);
+      }
+    }
+
     InjectableMembers injectableMembers = new InjectableMembers();
     OverrideIndex overrideIndex = null;
 
@@ -730,6 +793,11 @@ public final class InjectionPoint {
       }
     }
 
+    return toInjectionPoints(injectableMembers, errors);
+  }
+
+  private static Set<InjectionPoint> toInjectionPoints(
+      InjectableMembers injectableMembers, Errors errors) {
     if (injectableMembers.isEmpty()) {
       return Collections.emptySet();
     }
@@ -787,7 +855,7 @@ public final class InjectionPoint {
     return result;
   }
 
-  private static List<TypeLiteral<?>> hierarchyFor(TypeLiteral<?> type) {
+  static List<TypeLiteral<?>> hierarchyFor(TypeLiteral<?> type) {
     List<TypeLiteral<?>> hierarchy = new ArrayList<>();
     TypeLiteral<?> current = type;
     while (current.getRawType() != Object.class) {
@@ -862,4 +930,121 @@ public final class InjectionPoint {
       return true;
     }
   }
+
+  /**
+   * Returns the cached injection points for {@code type}, or an empty cache that is thrown away if
+   * they can't be cached.
+   */
+  private static CachedInjectionPoints cachedInjectionPointsFor(TypeLiteral<?> type) {
+    Class<?> owner = ownerOf(type.getType());
+    CachedInjectionPoints cached = owner != null ? cache.get(owner) : null;
+    return cached != null ? cached : new CachedInjectionPoints();
+  }
+
+  /**
+   * Returns the class in {@code type} whose class loader can see all of the others, or null if
+   * there's no such class, as for a type variable or for classes of unrelated class loaders.
+   */
+  private static Class<?> ownerOf(Type type) {
+    if (type instanceof Class) {
+      Class<?> clazz = (Class<?>) type;
+      while (clazz.isArray()) {
+        clazz = clazz.getComponentType();
+      }
+      return clazz;
+    } else if (type instanceof ParameterizedType) {
+      ParameterizedType parameterizedType = (ParameterizedType) type;
+      Class<?> owner = ownerOf(parameterizedType.getRawType());
+      if (parameterizedType.getOwnerType() != null) {
+        owner = moreSpecific(owner, ownerOf(parameterizedType.getOwnerType()));
+      }
+      for (Type argument : parameterizedType.getActualTypeArguments()) {
+        owner = moreSpecific(owner, ownerOf(argument));
+      }
+      return owner;
+    } else if (type instanceof GenericArrayType) {
+      return ownerOf(((GenericArrayType) type).getGenericComponentType());
+    } else if (type instanceof WildcardType) {
+      WildcardType wildcardType = (WildcardType) type;
+      Class<?> owner = ownerOf(wildcardType.getUpperBounds()[0]);
+      for (Type lowerBound : wildcardType.getLowerBounds()) {
+        owner = moreSpecific(owner, ownerOf(lowerBound));
+      }
+      return owner;
+    }
+    return null;
+  }
+
+  /** Returns whichever of {@code a} and {@code b} has a class loader that can see the other's. */
+  private static Class<?> moreSpecific(Class<?> a, Class<?> b) {
+    if (a == null || b == null) {
+      return null;
+    }
+    if (isAncestor(b.getClassLoader(), a.getClassLoader())) {
+      return a;
+    }
+    return isAncestor(a.getClassLoader(), b.getClassLoader()) ? b : null;
+  }
+
+  /** Returns true if {@code ancestor} is {@code classLoader} or one of its parents. */
+  private static boolean isAncestor(ClassLoader ancestor, ClassLoader classLoader) {
+    if (ancestor == null) {
+      return true; // the bootstrap class loader
+    }
+    for (ClassLoader current = classLoader; current != null; current = current.getParent()) {
+      if (current == ancestor) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean canSeeGuice(ClassLoader classLoader) {
+    ClassLoader guiceClassLoader = InjectionPoint.class.getClassLoader();
+    if (classLoader == null) {
+      return guiceClassLoader == null;
+    }
+    try {
+      return Class.forName(InjectionPoint.class.getName(), false, classLoader)
+          == InjectionPoint.class;
+    } catch (ClassNotFoundException e) {
+      return false;
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  /** The injection points found so far for the types that are cached with one class. */
+  private static final class CachedInjectionPoints {
+    final ConcurrentMap<TypeLiteral<?>, Result<InjectionPoint>> constructors =
+        new ConcurrentHashMap<>();
+    final ConcurrentMap<TypeLiteral<?>, Result<Set<InjectionPoint>>> instanceMembers =
+        new ConcurrentHashMap<>();
+    final ConcurrentMap<TypeLiteral<?>, Result<Set<InjectionPoint>>> staticMembers =
+        new ConcurrentHashMap<>();
+  }
+
+  /**
+   * The injection points that were found for a type, along with any errors. A new exception is
+   * thrown for the errors each time, so that its stack trace shows the caller.
+   */
+  private static final class Result<T> {
+    /** The injection points, or the valid ones if there were errors. May be null. */
+    final T value;
+
+    final ImmutableList<Message> errors;
+
+    Result(T value, Collection<Message> errors) {
+      this.value = value;
+      this.errors = ImmutableList.copyOf(errors);
+    }
+
+    T getOrThrow() {
+      if (errors.isEmpty()) {
+        return value;
+      }
+      ConfigurationException exception = new ConfigurationException(errors);
+      throw value != null ? exception.withPartialValue(value) : exception;
+    }
+  }
 }
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.InjectionPoint.InjectableField;
+import com.google.inject.spi.InjectionPoint.InjectableMembers;
+import com.google.inject.spi.InjectionPoint.InjectableMethod;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Injectable members that were recorded at compile time by the {@code guice-aot} annotation
+ * processor. Looking members up by name avoids reflecting over every field and method in a type's
+ * hierarchy, and reading the annotations of each one.
+ *
+ * <p>The index is written to the same directory or jar as the classes that it describes, and a
+ * type's entry is only used if the type was loaded from there. That's found by asking the type's
+ * own class loader where its class file is, so an index never describes classes that were compiled
+ * somewhere else, such as the same class in another jar on the class path.
+ *
+ * <p>The index is only used when every type in the hierarchy was indexed and no indexed method is
+ * redeclared by a subtype. Otherwise, or if a recorded member can't be found by name in the loaded
+ * class, callers fall back to reflection so that overrides and errors are handled as usual.
+ */
+final class InjectionPointIndex {
+  private static final Logger logger = Logger.getLogger(InjectionPointIndex.class.getName());
+
+  /** Location of the index files written by the annotation processor. */
+  static final String RESOURCE = "META-INF/guice/injection-points";
+
+  private static final ImmutableMap<String, Class<?>> PRIMITIVES;
+
+  static {
+    ImmutableMap.Builder<String, Class<?>> primitives = ImmutableMap.builder();
+    for (Class<?> primitive :
+        new Class<?>[] {
+          boolean.class, byte.class, char.class, short.class,
+          int.class, long.class, float.class, double.class
+        }) {
+      primitives.put(primitive.getName(), primitive);
+    }
+    PRIMITIVES = primitives.build();
+  }
+
+  /** The indexes visible to each class loader that has been asked about. */
+  private static final LoadingCache<ClassLoader, Indexes> INDEXES =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(
+              new CacheLoader<ClassLoader, Indexes>() {
+                @Override
+                public Indexes load(ClassLoader classLoader) {
+                  return new Indexes(classLoader);
+                }
+              });
+
+  private InjectionPointIndex() {}
+
+  /** The members of one type, as recorded by the annotation processor. */
+  static final class Entry {
+    /** Parameter types of the {@literal @}Inject constructor, or null if none was recorded. */
+    List<String> constructor;
+
+    final List<String> fields = Lists.newArrayList();
+    /** Method name followed by its parameter types, for each {@literal @}Inject method. */
+    final List<List<String>> methods = Lists.newArrayList();
+  }
+
+  /**
+   * Returns the injectable instance members of {@code type}, in the same order as reflection would
+   * find them, or null if reflection must be used instead.
+   */
+  static InjectableMembers getInstanceMembers(TypeLiteral<?> type) {
+    List<TypeLiteral<?>> hierarchy = InjectionPoint.hierarchyFor(type);
+    InjectableMembers injectableMembers = new InjectableMembers();
+    List<Method> injectableMethods = Lists.newArrayList();
+    try {
+      for (int i = hierarchy.size() - 1; i >= 0; i--) {
+        TypeLiteral<?> current = hierarchy.get(i);
+        Class<?> rawType = current.getRawType();
+        Entry entry = getEntry(rawType);
+        if (entry == null) {
+          return null;
+        }
+
+        // overridden methods need the full treatment in InjectionPoint.getInjectionPoints
+        for (Method method : injectableMethods) {
+          if (declaresMethod(rawType, method.getName(), method.getParameterTypes())) {
+            return null;
+          }
+        }
+
+        for (String name : entry.fields) {
+          Field field = rawType.getDeclaredField(name);
+          Annotation atInject = InjectionPoint.getAtInject(field);
+          if (atInject == null) {
+            return null;
+          }
+          injectableMembers.add(new InjectableField(current, field, atInject));
+        }
+
+        for (List<String> signature : entry.methods) {
+          Method method =
+              rawType.getDeclaredMethod(
+                  signature.get(0),
+                  loadTypes(rawType.getClassLoader(), signature.subList(1, signature.size())));
+          Annotation atInject = InjectionPoint.getAtInject(method);
+          if (atInject == null) {
+            return null;
+          }
+          injectableMembers.add(new InjectableMethod(current, method, atInject));
+          injectableMethods.add(method);
+        }
+      }
+    } catch (NoSuchFieldException e) {
+      return stale(type, e);
+    } catch (NoSuchMethodException e) {
+      return stale(type, e);
+    } catch (ClassNotFoundException e) {
+      return stale(type, e);
+    }
+    return injectableMembers;
+  }
+
+  /**
+   * Returns the {@literal @}Inject constructor of {@code type}, or null if reflection must be used
+   * to find it.
+   */
+  static Constructor<?> getInjectableConstructor(Class<?> type) {
+    Entry entry = getEntry(type);
+    if (entry == null || entry.constructor == null) {
+      return null;
+    }
+    try {
+      Constructor<?> constructor =
+          type.getDeclaredConstructor(loadTypes(type.getClassLoader(), entry.constructor));
+      Inject guiceInject = constructor.getAnnotation(Inject.class);
+      if (guiceInject == null
+          ? !constructor.isAnnotationPresent(javax.inject.Inject.class)
+          : guiceInject.optional()) {
+        return null;
+      }
+      return constructor;
+    } catch (NoSuchMethodException e) {
+      return stale(TypeLiteral.get(type), e);
+    } catch (ClassNotFoundException e) {
+      return stale(TypeLiteral.get(type), e);
+    }
+  }
+
+  private static <T> T stale(TypeLiteral<?> type, Exception e) {
+    logger.log(Level.FINE, "Ignoring out of date injection point index for " + type, e);
+    return null;
+  }
+
+  private static Entry getEntry(Class<?> type) {
+    ClassLoader classLoader = type.getClassLoader();
+    if (classLoader == null) {
+      return null; // bootstrap types are never indexed
+    }
+    return INDEXES.getUnchecked(classLoader).getEntry(type);
+  }
+
+  private static boolean declaresMethod(Class<?> type, String name, Class<?>[] parameterTypes) {
+    try {
+      type.getDeclaredMethod(name, parameterTypes);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private static Class<?>[] loadTypes(ClassLoader classLoader, List<String> names)
+      throws ClassNotFoundException {
+    Class<?>[] types = new Class<?>[names.size()];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = loadType(classLoader, names.get(i));
+    }
+    return types;
+  }
+
+  private static Class<?> loadType(ClassLoader classLoader, String name)
+      throws ClassNotFoundException {
+    if (name.endsWith("[]")) {
+      Class<?> componentType = loadType(classLoader, name.substring(0, name.length() - 2));
+      return Array.newInstance(componentType, 0).getClass();
+    }
+    Class<?> primitive = PRIMITIVES.get(name);
+    return primitive != null ? primitive : Class.forName(name, false, classLoader);
+  }
+
+  /**
+   * The indexes visible to a class loader, by the location of the classes that they describe. Each
+   * index is read the first time that one of its types is asked about.
+   */
+  private static final class Indexes {
+    /** Each index resource, by the URL of the directory or jar root that contains it. */
+    private final Map<String, URL> resourcesByRoot = Maps.newHashMap();
+
+    private final ConcurrentMap<String, Map<String, Entry>> indexesByRoot =
+        Maps.newConcurrentMap();
+
+    Indexes(ClassLoader classLoader) {
+      try {
+        Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+        while (resources.hasMoreElements()) {
+          URL resource = resources.nextElement();
+          String root = rootOf(resource, RESOURCE);
+          if (root != null && !resourcesByRoot.containsKey(root)) {
+            resourcesByRoot.put(root, resource);
+          }
+        }
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Unable to find injection point indexes", e);
+      }
+    }
+
+    /** Returns the entry for {@code type} in the index next to its class file, if there is one. */
+    Entry getEntry(Class<?> type) {
+      if (resourcesByRoot.isEmpty()) {
+        return null;
+      }
+      String classFile = type.getName().replace('.', '/') + ".class";
+      URL classUrl = type.getClassLoader().getResource(classFile);
+      String root = classUrl != null ? rootOf(classUrl, classFile) : null;
+      if (root == null) {
+        return null;
+      }
+      Map<String, Entry> index = indexesByRoot.get(root);
+      if (index == null) {
+        URL resource = resourcesByRoot.get(root);
+        if (resource == null) {
+          return null;
+        }
+        index = readIndex(resource);
+        Map<String, Entry> raced = indexesByRoot.putIfAbsent(root, index);
+        index = raced != null ? raced : index;
+      }
+      return index.get(type.getName());
+    }
+
+    /** Returns the URL of the directory or jar root that {@code path} was found at by a loader. */
+    private static String rootOf(URL url, String path) {
+      String location = url.toString();
+      return location.endsWith(path)
+          ? location.substring(0, location.length() - path.length())
+          : null;
+    }
+
+    private static Map<String, Entry> readIndex(URL resource) {
+      try {
+        return InjectionPointIndex.readIndex(resource);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Unable to read injection point index " + resource, e);
+        return ImmutableMap.of();
+      }
+    }
+  }
+
+  /**
+   * Reads one index. Each type starts with its binary name on an unindented line, followed by
+   * indented {@code constructor}, {@code field} and {@code method} lines. For example:
+   *
+   * <pre>
+   * com.example.Service
+   *   constructor com.example.Database int
+   *   field clock
+   *   method setListeners java.util.List com.example.Listener[]
+   * </pre>
+   */
+  private static Map<String, Entry> readIndex(URL resource) throws IOException {
+    Map<String, Entry> entries = Maps.newHashMap();
+    Splitter splitter = Splitter.on(' ').omitEmptyStrings();
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(resource.openStream(), Charsets.UTF_8));
+    try {
+      Entry entry = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        if (!line.startsWith(" ")) {
+          entry = new Entry();
+          entries.put(line.trim(), entry);
+          continue;
+        }
+        if (entry == null) {
+          throw new IOException("Expected a type name in " + resource + ": " + line);
+        }
+        List<String> parts = ImmutableList.copyOf(splitter.split(line));
+        String kind = parts.get(0);
+        List<String> rest = parts.subList(1, parts.size());
+        if (kind.equals("constructor")) {
+          entry.constructor = rest;
+        } else if (kind.equals("field") && rest.size() == 1) {
+          entry.fields.add(rest.get(0));
+        } else if (kind.equals("method") && !rest.isEmpty()) {
+          entry.methods.add(rest);
+        } else {
+          throw new IOException("Unexpected line in " + resource + ": " + line);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.inject.Injector;
+import com.google.inject.internal.InternalDiagnostics;
+
+/**
+ * Looks up the diagnostics that an injector records when they're enabled. They aren't bound in the
+ * injector, so they don't show up among its bindings or change how it's configured.
+ *
+ * @since 4.2
+ */
+public final class InjectorDiagnostics {
+  private InjectorDiagnostics() {}
+
+  /**
+   * Returns the profile of creating {@code injector}, or null unless the {@code
+   * guice_startup_profile} system property was {@code ENABLED} when it was created. The profile is
+   * complete once the injector has been created. Child injectors have profiles of their own.
+   */
+  public static StartupProfile getStartupProfile(Injector injector) {
+    return InternalDiagnostics.getStartupProfile(checkNotNull(injector, "injector"));
+  }
+
+  /**
+   * Returns the provision metrics of {@code injector}, or null unless the {@code
+   * guice_provision_metrics} system property was {@code ENABLED} when it was created. Child
+   * injectors have metrics of their own, and private environments share those of their injector.
+   */
+  public static ProvisionMetrics getProvisionMetrics(Injector injector) {
+    return InternalDiagnostics.getProvisionMetrics(checkNotNull(injector, "injector"));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.inject.Injector;
+import com.google.inject.internal.InjectorFootprints;
+import java.util.Map;
+
+/**
+ * An estimate of the memory that an injector's own metadata takes, by the structure that holds
+ * it. Measure an injector with {@link #measure}, and drop what it only needed while it was created
+ * with {@link #compact}:
+ *
+ * <pre>
+ *   Injector injector = Guice.createInjector(modules);
+ *   InjectorFootprint.compact(injector);
+ *   logger.info(InjectorFootprint.measure(injector).toString());
+ * </pre>
+ *
+ * <p>Sizes are estimated for a 64-bit JVM with compressed references. They include the objects
+ * that each structure reaches, but not the objects that the application bound, nor classes,
+ * reflective members or other injectors. Objects shared by several structures are counted once, in
+ * the first of them in the order of {@link Structure}. Parent injectors are not included.
+ *
+ * @since 4.2
+ */
+public final class InjectorFootprint {
+
+  /** The structures that an injector's metadata is kept in. */
+  public enum Structure {
+    /** The sources of bindings, including their module names and any stack traces. */
+    SOURCES,
+    /** The keys of bindings, including their type literals and annotations. */
+    KEYS,
+    /** The constructors, fields and methods that bindings inject, and their dependencies. */
+    INJECTION_POINTS,
+    /** The keys that child injectors have bound, which this injector mustn't bind just in time. */
+    BLACKLIST,
+    /** The constructors, members injectors and provision listeners cached for each type. */
+    CACHES,
+    /** The bindings themselves, including their factories, and the maps that index them. */
+    BINDINGS
+  }
+
+  private final ImmutableMap<Structure, Long> bytes;
+  private final ImmutableMap<Structure, Integer> objects;
+
+  public InjectorFootprint(Map<Structure, Long> bytes, Map<Structure, Integer> objects) {
+    checkArgument(bytes.keySet().equals(objects.keySet()), "structures must match");
+    this.bytes = Maps.immutableEnumMap(bytes);
+    this.objects = Maps.immutableEnumMap(objects);
+  }
+
+  /** Returns an estimate of the memory taken by {@code injector}'s metadata. */
+  public static InjectorFootprint measure(Injector injector) {
+    return InjectorFootprints.measure(injector);
+  }
+
+  /**
+   * Drops what {@code injector} kept from its creation but no longer needs: the errors cached for
+   * types that couldn't be injected, the state of recording private modules, and its blacklist if
+   * it has no child injectors that bind keys. Anything that's dropped is recreated if it's needed
+   * again.
+   */
+  public static void compact(Injector injector) {
+    InjectorFootprints.compact(injector);
+  }
+
+  /** Returns the estimated bytes taken by {@code structure}. */
+  public long getBytes(Structure structure) {
+    Long structureBytes = bytes.get(structure);
+    return structureBytes != null ? structureBytes : 0L;
+  }
+
+  /** Returns the number of objects counted for {@code structure}. */
+  public int getObjectCount(Structure structure) {
+    Integer structureObjects = objects.get(structure);
+    return structureObjects != null ? structureObjects : 0;
+  }
+
+  /** Returns the estimated bytes taken by all structures. */
+  public long getTotalBytes() {
+    long total = 0;
+    for (long structureBytes : bytes.values()) {
+      total += structureBytes;
+    }
+    return total;
+  }
+
+  /** Returns a table with the bytes and objects of each structure. */
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (Structure structure : Structure.values()) {
+      result.append(
+          String.format(
+              "%-16s %,12d bytes %,9d objects%n",
+              structure, getBytes(structure), getObjectCount(structure)));
+    }
+    return result.append(String.format("%-16s %,12d bytes", "TOTAL", getTotalBytes())).toString();
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.inject.Binder;
+import java.util.concurrent.Executor;
+
+/**
+ * A request to create eager singletons in parallel on an executor.
+ *
+ * @since 4.2
+ */
+public final class LoadEagerSingletonsInParallelOption implements Element {
+  private final Object source;
+  private final Executor executor;
+
+  LoadEagerSingletonsInParallelOption(Object source, Executor executor) {
+    this.source = checkNotNull(source, "source");
+    this.executor = checkNotNull(executor, "executor");
+  }
+
+  @Override
+  public Object getSource() {
+    return source;
+  }
+
+  /** Returns the executor that eager singletons are created on. */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  @Override
+  public void applyTo(Binder binder) {
+    binder.withSource(getSource()).loadEagerSingletonsInParallel(executor);
+  }
+
+  @Override
+  public <T> T acceptVisitor(ElementVisitor<T> visitor) {
+    return visitor.visit(this);
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import com.google.inject.Key;
+import java.util.Map;
+
+/**
+ * How many times, and how quickly, an injector has provisioned each of its bindings. When the
+ * {@code guice_provision_metrics} system property is {@code ENABLED}, each injector records its
+ * metrics, which are looked up with {@link InjectorDiagnostics}:
+ *
+ * <pre>
+ *   ProvisionMetrics metrics = InjectorDiagnostics.getProvisionMetrics(injector);
+ *   ProvisionStatistics statistics = metrics.getStatistics(Key.get(PaymentService.class));
+ * </pre>
+ *
+ * <p>A provision is counted each time a binding's constructor or provider is called, so scoped
+ * bindings are only counted when the scope creates a new instance. The time includes provisioning
+ * the binding's dependencies, just like {@link ProvisionListener}s see. Private environments share
+ * the metrics of their injector.
+ *
+ * @since 4.2
+ */
+public interface ProvisionMetrics {
+
+  /** Returns the statistics for {@code key}, or null if it has never been provisioned. */
+  ProvisionStatistics getStatistics(Key<?> key);
+
+  /** Returns the statistics for every key that has been provisioned. */
+  Map<Key<?>, ProvisionStatistics> getAllStatistics();
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.primitives.Longs;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the provisions of one key. Provision times are kept in a histogram with a bucket
+ * per power of two nanoseconds, so percentiles are rounded up to the next power of two.
+ *
+ * @see ProvisionMetrics
+ * @since 4.2
+ */
+public final class ProvisionStatistics {
+
+  private final long count;
+  private final long totalNanos;
+  private final long maxNanos;
+  private final long[] histogram;
+
+  /**
+   * @param histogram the number of provisions that took {@code [2^(i-1), 2^i)} nanoseconds for
+   *     each bucket {@code i}. Bucket zero counts provisions that took no measurable time, and the
+   *     last bucket also counts anything slower.
+   */
+  public ProvisionStatistics(long count, long totalNanos, long maxNanos, long[] histogram) {
+    checkArgument(count >= 0 && totalNanos >= 0 && maxNanos >= 0, "negative statistics");
+    this.count = count;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+    this.histogram = histogram.clone();
+  }
+
+  /** Returns the number of provisions. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns the time spent in all provisions. */
+  public long getTotalTime(TimeUnit unit) {
+    return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Returns the average time per provision, or zero if there were none. */
+  public long getMeanTime(TimeUnit unit) {
+    return count == 0 ? 0 : unit.convert(totalNanos / count, TimeUnit.NANOSECONDS);
+  }
+
+  /** Returns the time taken by the slowest provision. */
+  public long getMaxTime(TimeUnit unit) {
+    return unit.convert(maxNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns an upper bound on the time taken by {@code percentile} percent of provisions, or zero
+   * if there were none.
+   */
+  public long getPercentileTime(double percentile, TimeUnit unit) {
+    checkArgument(percentile >= 0 && percentile <= 100, "percentile must be in [0, 100]");
+    long total = 0;
+    for (long bucketCount : histogram) {
+      total += bucketCount;
+    }
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < histogram.length; i++) {
+      seen += histogram[i];
+      if (seen >= rank && seen > 0) {
+        long upperBound = i == histogram.length - 1 ? maxNanos : Math.min(1L << i, maxNanos);
+        return unit.convert(upperBound, TimeUnit.NANOSECONDS);
+      }
+    }
+    return 0;
+  }
+
+  /** Returns the number of provisions in each bucket of the histogram. */
+  public List<Long> getHistogram() {
+    return Longs.asList(histogram.clone());
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(ProvisionStatistics.class)
+        .add("count", count)
+        .add("meanNanos", getMeanTime(TimeUnit.NANOSECONDS))
+        .add("p99Nanos", getPercentileTime(99, TimeUnit.NANOSECONDS))
+        .add("maxNanos", maxNanos)
+        .toString();
+  }
+}
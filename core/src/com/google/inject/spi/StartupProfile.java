@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the time went while an injector was created. Each profile covers one step of injector
+ * creation, and holds the profiles of the steps that happened during it. When the {@code
+ * guice_startup_profile} system property is {@code ENABLED}, each injector records its profile,
+ * which is looked up with {@link InjectorDiagnostics}:
+ *
+ * <pre>
+ *   StartupProfile profile = InjectorDiagnostics.getStartupProfile(injector);
+ *   Files.write(profile.toFoldedStacks(), new File("startup.folded"), UTF_8);
+ * </pre>
+ *
+ * <p>Eager singletons that are {@link com.google.inject.Binder#loadEagerSingletonsInParallel
+ * loaded in parallel} overlap, so the durations of a profile's children may add up to more than
+ * its own duration.
+ *
+ * @since 4.2
+ */
+public final class StartupProfile {
+
+  /** The kind of step that a profile covers. */
+  public enum Kind {
+    /** Creating an injector, including its private environments. */
+    INJECTOR,
+    /** One phase of injector creation, like executing modules or creating bindings. */
+    PHASE,
+    /** Calling {@link com.google.inject.Module#configure} on a module. */
+    MODULE,
+    /** Creating a just-in-time binding. */
+    JIT_BINDING,
+    /** Creating an eager singleton, or any singleton in {@code Stage.PRODUCTION}. */
+    EAGER_SINGLETON
+  }
+
+  private final Kind kind;
+  private final String name;
+  private final long durationNanos;
+  private final ImmutableList<StartupProfile> children;
+
+  public StartupProfile(
+      Kind kind, String name, long durationNanos, List<StartupProfile> children) {
+    checkArgument(durationNanos >= 0, "durationNanos must not be negative");
+    this.kind = checkNotNull(kind, "kind");
+    this.name = checkNotNull(name, "name");
+    this.durationNanos = durationNanos;
+    this.children = ImmutableList.copyOf(children);
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Returns what this profile covers: the phase's name, the module's class name or the binding's
+   * key.
+   */
+  public String getName() {
+    return name;
+  }
+
+  public long getDuration(TimeUnit unit) {
+    return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Returns the profiles of the steps that happened during this one, in the order they started. */
+  public List<StartupProfile> getChildren() {
+    return children;
+  }
+
+  /**
+   * Returns this profile as a JSON object with {@code kind}, {@code name}, {@code durationNanos}
+   * and {@code children} properties.
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder();
+    appendJson(json);
+    return json.toString();
+  }
+
+  private void appendJson(StringBuilder json) {
+    json.append("{\"kind\":\"").append(kind).append("\",\"name\":");
+    appendJsonString(json, name);
+    json.append(",\"durationNanos\":").append(durationNanos).append(",\"children\":[");
+    for (int i = 0; i < children.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      children.get(i).appendJson(json);
+    }
+    json.append("]}");
+  }
+
+  private static void appendJsonString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+
+  /**
+   * Returns this profile in the folded stack format read by flame graph tools. There is one line
+   * per profile, with the names of the profiles leading to it separated by semicolons, followed
+   * by the microseconds spent in it and not in its children.
+   */
+  public String toFoldedStacks() {
+    StringBuilder stacks = new StringBuilder();
+    appendFoldedStacks(stacks, "");
+    return stacks.toString();
+  }
+
+  private void appendFoldedStacks(StringBuilder stacks, String parentStack) {
+    String frame = kind == Kind.INJECTOR || kind == Kind.PHASE ? name : kind + " " + name;
+    String stack = parentStack + frame.replace(';', ',').replace('\n', ' ');
+    long selfNanos = durationNanos;
+    for (StartupProfile child : children) {
+      selfNanos -= child.durationNanos;
+    }
+    stacks
+        .append(stack)
+        .append(' ')
+        .append(TimeUnit.NANOSECONDS.toMicros(Math.max(selfNanos, 0)))
+        .append('\n');
+    for (StartupProfile child : children) {
+      child.appendFoldedStacks(stacks, stack + ";");
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof StartupProfile)) {
+      return false;
+    }
+    StartupProfile other = (StartupProfile) o;
+    return kind == other.kind
+        && name.equals(other.name)
+        && durationNanos == other.durationNanos
+        && children.equals(other.children);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(kind, name, durationNanos, children);
+  }
+
+  @Override
+  public String toString() {
+    return kind + " " + name + ": " + TimeUnit.NANOSECONDS.toMillis(durationNanos) + "ms";
+  }
+}
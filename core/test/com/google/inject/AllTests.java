@@ -17,7 +17,12 @@
 package com.google.inject;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.inject.internal.InternalContextTest;
+import com.google.inject.internal.MethodHandleInvocationTest;
 import com.google.inject.internal.MoreTypesTest;
+import com.google.inject.internal.ProvisionMetricsTest;
+import com.google.inject.internal.ProvisioningPlanTest;
+import com.google.inject.internal.StartupProfilerTest;
 import com.google.inject.internal.UniqueAnnotationsTest;
 import com.google.inject.internal.WeakKeySetTest;
 import com.google.inject.internal.util.LineNumbersTest;
@@ -30,6 +35,7 @@ import com.google.inject.spi.ElementSourceTest;
 import com.google.inject.spi.ElementsTest;
 import com.google.inject.spi.HasDependenciesTest;
 import com.google.inject.spi.InjectionPointTest;
+import com.google.inject.spi.InjectorFootprintTest;
 import com.google.inject.spi.InjectorSpiTest;
 import com.google.inject.spi.MessageTest;
 import com.google.inject.spi.ModuleAnnotatedMethodScannerTest;
@@ -37,6 +43,7 @@ import com.google.inject.spi.ModuleRewriterTest;
 import com.google.inject.spi.ModuleSourceTest;
 import com.google.inject.spi.ProviderMethodsTest;
 import com.google.inject.spi.SpiBindingsTest;
+import com.google.inject.spi.StartupProfileTest;
 import com.google.inject.spi.ToolStageInjectorTest;
 import com.google.inject.util.NoopOverrideTest;
 import com.google.inject.util.OverrideModuleTest;
@@ -106,7 +113,12 @@ public class AllTests {
 
     // internal
     suite.addTestSuite(LineNumbersTest.class);
+    suite.addTestSuite(MethodHandleInvocationTest.class);
     suite.addTestSuite(MoreTypesTest.class);
+    suite.addTestSuite(ProvisionMetricsTest.class);
+    suite.addTestSuite(ProvisioningPlanTest.class);
+    suite.addTestSuite(InternalContextTest.class);
+    suite.addTestSuite(StartupProfilerTest.class);
     suite.addTestSuite(UniqueAnnotationsTest.class);
 
     // matcher
@@ -122,10 +134,12 @@ public class AllTests {
     suite.addTestSuite(ElementApplyToTest.class);
     suite.addTestSuite(HasDependenciesTest.class);
     suite.addTestSuite(InjectionPointTest.class);
+    suite.addTestSuite(InjectorFootprintTest.class);
     suite.addTestSuite(InjectorSpiTest.class);
     suite.addTestSuite(ModuleRewriterTest.class);
     suite.addTestSuite(ProviderMethodsTest.class);
     suite.addTestSuite(SpiBindingsTest.class);
+    suite.addTestSuite(StartupProfileTest.class);
     suite.addTestSuite(ToolStageInjectorTest.class);
     suite.addTestSuite(ModuleSourceTest.class);
     suite.addTestSuite(ElementSourceTest.class);
@@ -141,6 +155,8 @@ public class AllTests {
 
     /*if[AOP]*/
     suite.addTestSuite(com.google.inject.internal.ProxyFactoryTest.class);
+    suite.addTestSuite(com.google.inject.internal.GeneratedMembersInjectorTest.class);
+    suite.addTestSuite(com.google.inject.internal.InterceptorChainCallbackTest.class);
     suite.addTestSuite(IntegrationTest.class);
     suite.addTestSuite(MethodInterceptionTest.class);
     suite.addTestSuite(com.googlecode.guice.BytecodeGenTest.class);
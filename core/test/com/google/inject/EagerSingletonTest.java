@@ -16,10 +16,19 @@
 
 package com.google.inject;
 
+import static com.google.inject.Asserts.assertContains;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.spi.ProvisionListener;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import junit.framework.TestCase;
 
 /** @author jessewilson@google.com (Jesse Wilson) */
@@ -30,6 +39,8 @@ public class EagerSingletonTest extends TestCase {
     A.instanceCount = 0;
     B.instanceCount = 0;
     C.instanceCount = 0;
+    provisions.clear();
+    provisionedOnEagerThread.clear();
   }
 
   public void testJustInTimeEagerSingletons() {
@@ -143,6 +154,249 @@ public class EagerSingletonTest extends TestCase {
     }
   }
 
+  public void testParallelEagerSingletons() {
+    final ExecutorService executor = newExecutor();
+    try {
+      Guice.createInjector(
+          Stage.PRODUCTION,
+          new AbstractModule() {
+            @Override
+            protected void configure() {
+              binder().loadEagerSingletonsInParallel(executor);
+              bindListener(Matchers.any(), RECORD_PROVISIONS);
+              bind(Top.class);
+              bind(Middle.class).in(Singleton.class);
+              bind(Unscoped.class);
+              bind(Leaf.class);
+              bind(A.class);
+            }
+          });
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(1, A.instanceCount);
+    assertEquals(
+        ImmutableList.of(
+            "Leaf started", "Leaf created",
+            "Middle started", "Middle created",
+            "Top started", "Top created"),
+        ImmutableList.copyOf(provisions));
+    assertEquals(Collections.nCopies(3, true), ImmutableList.copyOf(provisionedOnEagerThread));
+  }
+
+  public void testParallelEagerSingletonErrorsAreOrdered() {
+    final ExecutorService executor = newExecutor();
+    try {
+      Guice.createInjector(
+          Stage.PRODUCTION,
+          new AbstractModule() {
+            @Override
+            protected void configure() {
+              binder().loadEagerSingletonsInParallel(executor);
+              bind(String.class).toProvider(new FailingProvider<String>("first")).in(Singleton.class);
+              bind(Integer.class).toProvider(new FailingProvider<Integer>("second")).in(Singleton.class);
+              bind(Long.class).toProvider(new FailingProvider<Long>("third")).in(Singleton.class);
+            }
+          });
+      fail();
+    } catch (CreationException expected) {
+      assertEquals(3, expected.getErrorMessages().size());
+      assertContains(
+          expected.getMessage(),
+          "1) Error in custom provider, java.lang.IllegalStateException: first",
+          "2) Error in custom provider, java.lang.IllegalStateException: second",
+          "3) Error in custom provider, java.lang.IllegalStateException: third");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testParallelEagerSingletonCycleIsLoadedInBindingOrder() {
+    assertPingCreatedFirst(Guice.createInjector(Stage.PRODUCTION, new PingPongModule(null)));
+
+    for (int i = 0; i < 10; i++) {
+      ExecutorService executor = newExecutor();
+      try {
+        assertPingCreatedFirst(
+            Guice.createInjector(Stage.PRODUCTION, new PingPongModule(executor)));
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
+  /** Pong gets a proxy to Ping when Ping is created first, as it is when loading sequentially. */
+  private static void assertPingCreatedFirst(Injector injector) {
+    PingImpl ping = (PingImpl) injector.getInstance(Ping.class);
+    PongImpl pong = (PongImpl) injector.getInstance(Pong.class);
+    assertSame(pong, ping.pong);
+    assertTrue(Scopes.isCircularProxy(pong.ping));
+    assertSame(ping, injector.getInstance(PingUser.class).ping);
+  }
+
+  public void testChildInjectorInheritsEagerSingletonExecutor() {
+    final ExecutorService executor = newExecutor();
+    try {
+      Injector parent =
+          Guice.createInjector(
+              Stage.PRODUCTION,
+              new AbstractModule() {
+                @Override
+                protected void configure() {
+                  binder().loadEagerSingletonsInParallel(executor);
+                }
+              });
+      parent.createChildInjector(
+          new AbstractModule() {
+            @Override
+            protected void configure() {
+              bindListener(Matchers.any(), RECORD_PROVISIONS);
+              bind(Top.class);
+              bind(Middle.class).in(Singleton.class);
+              bind(Leaf.class);
+            }
+          });
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(
+        ImmutableList.of(
+            "Leaf started", "Leaf created",
+            "Middle started", "Middle created",
+            "Top started", "Top created"),
+        ImmutableList.copyOf(provisions));
+    assertEquals(Collections.nCopies(3, true), ImmutableList.copyOf(provisionedOnEagerThread));
+  }
+
+  private static ExecutorService newExecutor() {
+    return Executors.newFixedThreadPool(
+        4,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "eager-singletons");
+          }
+        });
+  }
+
+  static final List<String> provisions = Collections.synchronizedList(new ArrayList<String>());
+  static final List<Boolean> provisionedOnEagerThread =
+      Collections.synchronizedList(new ArrayList<Boolean>());
+
+  /** Records when each of Top, Middle and Leaf starts and finishes being created. */
+  static final ProvisionListener RECORD_PROVISIONS =
+      new ProvisionListener() {
+        @Override
+        public <T> void onProvision(ProvisionInvocation<T> provision) {
+          Class<?> type = provision.getBinding().getKey().getTypeLiteral().getRawType();
+          if (type != Top.class && type != Middle.class && type != Leaf.class) {
+            provision.provision();
+            return;
+          }
+          provisions.add(type.getSimpleName() + " started");
+          provision.provision();
+          provisions.add(type.getSimpleName() + " created");
+          provisionedOnEagerThread.add(Thread.currentThread().getName().equals("eager-singletons"));
+        }
+      };
+
+  @Singleton
+  static class Top {
+    @Inject
+    Top(Unscoped unscoped) {}
+  }
+
+  static class Unscoped {
+    @Inject
+    Unscoped(Middle middle) {}
+  }
+
+  static class Middle {
+    @Inject
+    Middle(Provider<Top> top, Leaf leaf) {}
+  }
+
+  @Singleton
+  static class Leaf {
+    Leaf() {
+      // make it likely that dependents would be started first if they weren't ordered
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+
+  static class FailingProvider<T> implements Provider<T> {
+    final String message;
+
+    FailingProvider(String message) {
+      this.message = message;
+    }
+
+    @Override
+    public T get() {
+      try {
+        Thread.sleep(message.equals("first") ? 20 : 0);
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      throw new IllegalStateException(message);
+    }
+  }
+
+  static class PingPongModule extends AbstractModule {
+    final ExecutorService executor;
+
+    PingPongModule(ExecutorService executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    protected void configure() {
+      if (executor != null) {
+        binder().loadEagerSingletonsInParallel(executor);
+      }
+      bind(PingUser.class).in(Singleton.class);
+      bind(Ping.class).to(PingImpl.class).in(Singleton.class);
+      bind(Pong.class).to(PongImpl.class).in(Singleton.class);
+    }
+  }
+
+  interface Ping {}
+
+  interface Pong {}
+
+  static class PingImpl implements Ping {
+    final Pong pong;
+
+    @Inject
+    PingImpl(Pong pong) {
+      this.pong = pong;
+    }
+  }
+
+  static class PongImpl implements Pong {
+    final Ping ping;
+
+    @Inject
+    PongImpl(Ping ping) {
+      this.ping = ping;
+    }
+  }
+
+  static class PingUser {
+    final Ping ping;
+
+    @Inject
+    PingUser(Ping ping) {
+      this.ping = ping;
+    }
+  }
+
   /** Creates a copy of a class in a child classloader. */
   private static Class<?> copyClass(final Class<?> cls) {
     URLClassLoader parent = (URLClassLoader) EagerSingletonTest.class.getClassLoader();
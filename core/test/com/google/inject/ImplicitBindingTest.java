@@ -17,10 +17,16 @@
 package com.google.inject;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 import com.google.inject.spi.Message;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import junit.framework.TestCase;
 
 /** @author crazybob@google.com (Bob Lee) */
@@ -438,4 +444,41 @@ public class ImplicitBindingTest extends TestCase {
     // InetAddress has a package private constructor.  We probably shouldn't be calling it :(
     assertNotNull(injector.getInstance(java.net.InetAddress.class));
   }
+
+  public void testConcurrentLookupsShareOneJitBinding() throws Exception {
+    final Injector parent = Guice.createInjector();
+    final Injector child = parent.createChildInjector();
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Binding<?>>> futures = Lists.newArrayList();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      for (int i = 0; i < 64; i++) {
+        final Injector injector = i % 2 == 0 ? parent : child;
+        futures.add(
+            executor.submit(
+                new Callable<Binding<?>>() {
+                  @Override
+                  public Binding<?> call() throws Exception {
+                    start.await();
+                    injector.getInstance(ConcurrentlyBound.class);
+                    return injector.getBinding(ConcurrentlyBound.class);
+                  }
+                }));
+      }
+      start.countDown();
+      Binding<?> expected = parent.getBinding(ConcurrentlyBound.class);
+      for (Future<Binding<?>> future : futures) {
+        assertSame(expected, future.get());
+      }
+      assertSame(expected, parent.getExistingBinding(Key.get(ConcurrentlyBound.class)));
+      assertSame(expected, child.getExistingBinding(Key.get(ConcurrentlyBound.class)));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  static class ConcurrentlyBound {
+    @Inject
+    ConcurrentlyBound(Foo foo) {}
+  }
 }
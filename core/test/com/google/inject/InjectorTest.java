@@ -20,13 +20,16 @@ import static com.google.inject.Asserts.assertContains;
 import static com.google.inject.Asserts.assertNotSerializable;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
+import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.lang.annotation.Retention;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import junit.framework.TestCase;
 
@@ -109,6 +112,82 @@ public class InjectorTest extends TestCase {
     assertEquals(5, bar.getI());
   }
 
+  public void testGetInstances() throws CreationException {
+    Injector injector = createFooInjector();
+
+    List<Object> instances =
+        injector.getInstances(
+            ImmutableList.of(
+                Key.get(Bar.class), Key.get(String.class, S.class), Key.get(Bar.class)));
+    assertEquals(3, instances.size());
+    Bar bar = (Bar) instances.get(0);
+    assertEquals("test", bar.getTee().getS());
+    assertEquals("test", instances.get(1));
+    assertSame(bar, instances.get(2));
+  }
+
+  public void testGetInstancesReportsEachMissingBinding() throws CreationException {
+    Injector injector = createFooInjector();
+    try {
+      injector.getInstances(
+          ImmutableList.of(
+              Key.get(Bar.class), Key.get(String.class, Other.class), Key.get(Runnable.class)));
+      fail();
+    } catch (ConfigurationException expected) {
+      assertEquals(2, expected.getErrorMessages().size());
+      // messages are sorted by their sources, not by key
+      assertContains(expected.getMessage(), "No implementation for java.lang.Runnable was bound.");
+      assertContains(
+          expected.getMessage(),
+          "No implementation for java.lang.String annotated with " + Other.class);
+    }
+  }
+
+  public void testGetInstancesReportsEachFailure() throws CreationException {
+    final AtomicInteger provided = new AtomicInteger();
+    Injector injector =
+        Guice.createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {}
+
+              @Provides
+              @S
+              String provideS() {
+                throw new IllegalStateException("no S");
+              }
+
+              @Provides
+              @I
+              String provideI() {
+                throw new IllegalStateException("no I");
+              }
+
+              @Provides
+              @Other
+              String provideOther() {
+                provided.incrementAndGet();
+                return "other";
+              }
+            });
+
+    try {
+      injector.getInstances(
+          ImmutableList.of(
+              Key.get(String.class, S.class),
+              Key.get(String.class, Other.class),
+              Key.get(String.class, I.class)));
+      fail();
+    } catch (ProvisionException expected) {
+      assertEquals(2, expected.getErrorMessages().size());
+      assertContains(
+          expected.getMessage(), "no S", "while locating java.lang.String annotated with " + S.class);
+      assertContains(
+          expected.getMessage(), "no I", "while locating java.lang.String annotated with " + I.class);
+    }
+    assertEquals(1, provided.get());
+  }
+
   public void testIntAndIntegerAreInterchangeable() throws CreationException {
     Injector injector =
         Guice.createInjector(
@@ -22,6 +22,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.inject.internal.InternalFlags;
+import com.google.inject.internal.InternalFlags.InterceptionOption;
 import com.google.inject.matcher.AbstractMatcher;
 import com.google.inject.matcher.Matchers;
 import com.google.inject.spi.ConstructorBinding;
@@ -395,6 +397,10 @@ public class MethodInterceptionTest extends TestCase {
   }
 
   public void testCallLater() {
+    if (InternalFlags.getInterceptionOption() == InterceptionOption.REUSED_INVOCATIONS) {
+      // reused invocations are reset when the interceptor returns, so they can't proceed later
+      return;
+    }
     final Queue<Runnable> queue = Lists.newLinkedList();
     Injector injector =
         Guice.createInjector(
@@ -2,13 +2,16 @@ package com.google.inject.internal;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimaps;
+import com.google.inject.Guice;
 import com.google.inject.internal.CycleDetectingLock.CycleDetectingLockFactory;
 import com.google.inject.internal.CycleDetectingLock.CycleDetectingLockFactory.ReentrantCycleDetectingLock;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
@@ -223,6 +226,56 @@ public class CycleDetectingLockTest extends TestCase {
     assertTrue(edges.contains(ImmutableList.of("c", "a")));
   }
 
+  /**
+   * Verifies that threads taking locks in the same order, so that they wait for each other but
+   * never form a cycle, always get their locks while the ownership of the locks keeps changing.
+   */
+  public void testContendedLocksWithoutCycleAreTaken() throws Exception {
+    final CycleDetectingLockFactory<String> factory = new CycleDetectingLockFactory<>();
+    final CycleDetectingLock<String> lockA = factory.create("a");
+    final CycleDetectingLock<String> lockB = factory.create("b");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> futures = Lists.newArrayList();
+      for (int i = 0; i < 4; i++) {
+        futures.add(
+            executor.submit(
+                new Callable<Integer>() {
+                  @Override
+                  public Integer call() {
+                    int cycles = 0;
+                    for (int j = 0; j < 10000; j++) {
+                      if (!lockA.lockOrDetectPotentialLocksCycle().isEmpty()) {
+                        cycles++;
+                        continue;
+                      }
+                      if (lockB.lockOrDetectPotentialLocksCycle().isEmpty()) {
+                        lockB.unlock();
+                      } else {
+                        cycles++;
+                      }
+                      lockA.unlock();
+                    }
+                    return cycles;
+                  }
+                }));
+      }
+      for (Future<Integer> future : futures) {
+        assertEquals(0, (int) future.get(DEADLOCK_TIMEOUT_SECONDS * 10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testInjectorTreeSharesSingletonLockFactory() {
+    InjectorImpl parent = (InjectorImpl) Guice.createInjector();
+    InjectorImpl child = (InjectorImpl) parent.createChildInjector();
+    InjectorImpl other = (InjectorImpl) Guice.createInjector();
+    assertSame(parent.singletonLockFactory, child.singletonLockFactory);
+    assertNotSame(parent.singletonLockFactory, other.singletonLockFactory);
+  }
+
   private static <T> Future<ListMultimap<Thread, T>> grabLocksInThread(
       final CycleDetectingLock<T> lock1,
       final CycleDetectingLock<T> lock2,
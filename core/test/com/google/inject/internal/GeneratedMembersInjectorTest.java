@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.Message;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+public class GeneratedMembersInjectorTest extends TestCase {
+
+  private InjectorImpl injector;
+
+  @Override
+  protected void setUp() throws Exception {
+    injector =
+        (InjectorImpl)
+            Guice.createInjector(
+                new AbstractModule() {
+                  @Override
+                  protected void configure() {
+                    bind(String.class).toInstance("guice");
+                    bind(Integer.class).toInstance(7);
+                    bind(Long.class).toInstance(11L);
+                  }
+                });
+  }
+
+  public void testInjectsFieldsAndMethodsInOrder() {
+    GeneratedMembersInjector generated = generate(Target.class);
+    assertNotNull(generated);
+
+    Target target = new Target();
+    Errors errors = inject(generated, target);
+
+    assertEquals(0, errors.size());
+    assertEquals("guice", target.baseString);
+    assertEquals(7, target.number);
+    assertEquals(11L, target.big);
+    assertEquals("guice", target.fromMethod);
+    assertEquals(7, target.fromMethodNumber);
+    assertEquals("base:guice;method;", target.order.toString());
+  }
+
+  public void testMethodFailureIsReportedAgainstMethod() {
+    GeneratedMembersInjector generated = generate(Failing.class);
+    assertNotNull(generated);
+
+    Errors errors = inject(generated, new Failing());
+
+    assertEquals(1, errors.size());
+    Message message = errors.getMessages().get(0);
+    assertTrue(message.getMessage(), message.getMessage().contains("Error injecting method"));
+    assertTrue(message.getCause() instanceof IllegalStateException);
+    assertTrue(message.getSources().toString(), message.getSources().toString().contains("fail"));
+  }
+
+  public void testMembersAfterFailureAreNotProvisionedAgain() {
+    final AtomicInteger provisions = new AtomicInteger();
+    injector =
+        (InjectorImpl)
+            Guice.createInjector(
+                new AbstractModule() {
+                  @Override
+                  protected void configure() {
+                    bind(Counted.class)
+                        .toProvider(
+                            new Provider<Counted>() {
+                              @Override
+                              public Counted get() {
+                                provisions.incrementAndGet();
+                                return new Counted();
+                              }
+                            });
+                  }
+                });
+    GeneratedMembersInjector generated = generate(FailingThenMore.class);
+    assertNotNull(generated);
+
+    FailingThenMore instance = new FailingThenMore();
+    Errors errors = inject(generated, instance);
+
+    assertEquals(1, errors.size());
+    assertNotNull(instance.field);
+    assertNotNull(instance.fromMethod);
+    assertEquals(2, provisions.get());
+  }
+
+  public void testPrivateMembersAreNotGenerated() {
+    assertNull(generate(HasPrivateField.class));
+  }
+
+  private <T> GeneratedMembersInjector generate(Class<T> type) {
+    MembersInjectorImpl<T> membersInjector =
+        (MembersInjectorImpl<T>) injector.getMembersInjector(type);
+    return GeneratedMembersInjector.generate(
+        TypeLiteral.get(type), membersInjector.getMemberInjectors());
+  }
+
+  private Errors inject(GeneratedMembersInjector generated, Object instance) {
+    Errors errors = new Errors();
+    InternalContext context = injector.enterContext();
+    try {
+      generated.injectMembers(instance, errors, context);
+    } finally {
+      context.close();
+    }
+    return errors;
+  }
+
+  static class Base {
+    final StringBuilder order = new StringBuilder();
+    String baseString;
+
+    @Inject
+    void initBase(String s) {
+      baseString = s;
+      order.append("base:").append(s).append(';');
+    }
+  }
+
+  static class Target extends Base {
+    @Inject int number;
+    @Inject protected long big;
+    String fromMethod;
+    int fromMethodNumber;
+
+    @Inject
+    public long method(String s, int i) {
+      fromMethod = s;
+      fromMethodNumber = i;
+      order.append("method;");
+      return i;
+    }
+  }
+
+  static class Failing {
+    @Inject
+    void fail() {
+      throw new IllegalStateException("boom");
+    }
+  }
+
+  static class Counted {}
+
+  static class FailingThenMore extends Failing {
+    @Inject Counted field;
+    Counted fromMethod;
+
+    @Inject
+    void more(Counted counted) {
+      fromMethod = counted;
+    }
+  }
+
+  static class HasPrivateField {
+    @Inject private String string;
+  }
+}
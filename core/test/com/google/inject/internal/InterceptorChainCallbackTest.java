@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.Asserts;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import net.sf.cglib.proxy.Enhancer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+public class InterceptorChainCallbackTest extends TestCase {
+
+  private final List<String> calls = Collections.synchronizedList(Lists.<String>newArrayList());
+  private final List<MethodInvocation> invocations =
+      Collections.synchronizedList(Lists.<MethodInvocation>newArrayList());
+
+  public void testInterceptorsRunInOrder() throws Exception {
+    Counter counter = enhance(new Recording("a"), new Recording("b"), new Recording("c"));
+    assertEquals(4, counter.add(4));
+    assertEquals(ImmutableList.of("a add[4]", "b add[4]", "c add[4]"), calls);
+  }
+
+  public void testSingleInterceptor() throws Exception {
+    Counter counter = enhance(new Recording("only"));
+    assertEquals(1, counter.add(1));
+    assertEquals(3, counter.add(2));
+    assertEquals(ImmutableList.of("only add[1]", "only add[2]"), calls);
+  }
+
+  public void testOutermostCallsReuseTheirInvocation() throws Exception {
+    Counter counter = enhance(new Recording("a"), new Recording("b"));
+    counter.add(1);
+    counter.addTwice(1);
+    assertSame(invocations.get(0), invocations.get(2));
+
+    try {
+      enhance(new Failing()).add(1);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    counter.add(1);
+    assertSame(invocations.get(0), invocations.get(invocations.size() - 1));
+  }
+
+  public void testThreadOnlyKeepsInvocationsWeakly() throws Exception {
+    final Counter counter = enhance(new Recording("a"), new Recording("b"));
+    final CountDownLatch cleared = new CountDownLatch(1);
+    final AtomicInteger result = new AtomicInteger();
+    // a thread of its own, so that no other test has recorded its invocations
+    Thread thread =
+        new Thread() {
+          @Override
+          public void run() {
+            counter.addTwice(1);
+            try {
+              cleared.await();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            result.set(counter.add(1));
+          }
+        };
+    thread.start();
+    while (invocations.size() < 6) {
+      Thread.sleep(10);
+    }
+    WeakReference<MethodInvocation> invocationRef =
+        new WeakReference<MethodInvocation>(invocations.get(0));
+    invocations.clear();
+
+    Asserts.awaitClear(invocationRef);
+    cleared.countDown();
+    thread.join();
+    assertEquals(3, result.get());
+  }
+
+  public void testInterceptorCanProceedTwice() throws Exception {
+    MethodInterceptor twice =
+        new MethodInterceptor() {
+          @Override
+          public Object invoke(MethodInvocation invocation) throws Throwable {
+            invocation.proceed();
+            return invocation.proceed();
+          }
+        };
+    Counter counter = enhance(twice, new Recording("inner"));
+    assertEquals(2, counter.add(1));
+    assertEquals(ImmutableList.of("inner add[1]", "inner add[1]"), calls);
+  }
+
+  public void testNestedCallsHaveTheirOwnInvocation() throws Exception {
+    Counter counter = enhance(new Recording("a"), new Recording("b"));
+    assertEquals(2, counter.addTwice(1));
+
+    // addTwice is intercepted, and so is each add it calls
+    assertEquals(
+        ImmutableList.of(
+            "a addTwice[1]", "b addTwice[1]", "a add[1]", "b add[1]", "a add[1]", "b add[1]"),
+        calls);
+    assertNotSame(invocations.get(0), invocations.get(2));
+    assertSame(invocations.get(2), invocations.get(4));
+  }
+
+  public void testProceedAfterReturnFails() throws Throwable {
+    Counter counter = enhance(new Recording("a"));
+    counter.add(1);
+    try {
+      invocations.get(0).proceed();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  private Counter enhance(MethodInterceptor... interceptors) throws Exception {
+    List<MethodInterceptor> chain = Arrays.asList(interceptors);
+    Enhancer enhancer = new Enhancer();
+    enhancer.setSuperclass(Counter.class);
+    enhancer.setUseFactory(false);
+    enhancer.setCallbackTypes(
+        new Class<?>[] {
+          net.sf.cglib.proxy.MethodInterceptor.class,
+          net.sf.cglib.proxy.MethodInterceptor.class,
+          net.sf.cglib.proxy.NoOp.class
+        });
+    enhancer.setCallbackFilter(
+        new net.sf.cglib.proxy.CallbackFilter() {
+          @Override
+          public int accept(Method method) {
+            return method.getName().equals("add") ? 0 : method.getName().equals("addTwice") ? 1 : 2;
+          }
+        });
+    Class<?> enhanced = enhancer.createClass();
+    Enhancer.registerCallbacks(
+        enhanced,
+        new net.sf.cglib.proxy.Callback[] {
+          new InterceptorChainCallback(Counter.class.getMethod("add", int.class), chain),
+          new InterceptorChainCallback(Counter.class.getMethod("addTwice", int.class), chain),
+          net.sf.cglib.proxy.NoOp.INSTANCE
+        });
+    try {
+      return (Counter) enhanced.newInstance();
+    } finally {
+      Enhancer.registerCallbacks(enhanced, null);
+    }
+  }
+
+  public static class Counter {
+    int count;
+
+    public int add(int amount) {
+      count += amount;
+      return count;
+    }
+
+    public int addTwice(int amount) {
+      add(amount);
+      return add(amount);
+    }
+  }
+
+  static class Failing implements MethodInterceptor {
+    @Override
+    public Object invoke(MethodInvocation invocation) {
+      throw new IllegalStateException("failed");
+    }
+  }
+
+  class Recording implements MethodInterceptor {
+    final String name;
+
+    Recording(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+      calls.add(
+          name
+              + " "
+              + invocation.getMethod().getName()
+              + Arrays.toString(invocation.getArguments()));
+      invocations.add(invocation);
+      return invocation.proceed();
+    }
+  }
+}
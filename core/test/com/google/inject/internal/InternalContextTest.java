@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Asserts;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.TestCase;
+
+/**
+ * Tests how {@link InjectorImpl#enterContext} finds the context of the calling thread. Run with
+ * each value of the {@code guice_context_storage} property.
+ */
+public class InternalContextTest extends TestCase {
+
+  private InjectorImpl injector;
+
+  @Override
+  protected void setUp() throws Exception {
+    injector = (InjectorImpl) Guice.createInjector();
+  }
+
+  public void testNestedCallsShareContext() {
+    InternalContext outer = injector.enterContext();
+    try {
+      InternalContext inner = ((InjectorImpl) injector.createChildInjector()).enterContext();
+      try {
+        assertSame(outer, inner);
+        assertSame(outer, injector.getLocalContext());
+      } finally {
+        inner.close();
+      }
+      assertSame(outer, injector.getLocalContext());
+    } finally {
+      outer.close();
+    }
+  }
+
+  public void testContextIsReleasedWhenOutermostCallEnds() {
+    InternalContext first = injector.enterContext();
+    first.close();
+    assertNull(injector.getLocalContext());
+
+    // reused from the pool
+    InternalContext second = injector.enterContext();
+    try {
+      assertSame(first, second);
+      assertSame(second, injector.getLocalContext());
+    } finally {
+      second.close();
+    }
+  }
+
+  public void testPooledContextDoesNotKeepChildInjector() {
+    InjectorImpl child =
+        (InjectorImpl)
+            injector.createChildInjector(
+                new AbstractModule() {
+                  @Override
+                  protected void configure() {
+                    bind(Unscoped.class);
+                  }
+                });
+    child.getInstance(Unscoped.class);
+    WeakReference<InjectorImpl> childReference = new WeakReference<>(child);
+    child = null;
+    Asserts.awaitClear(childReference);
+  }
+
+  public void testEachThreadHasItsOwnContext() throws Exception {
+    final InternalContext context = injector.enterContext();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      InternalContext other =
+          executor
+              .submit(
+                  new Callable<InternalContext>() {
+                    @Override
+                    public InternalContext call() {
+                      InternalContext otherContext = injector.enterContext();
+                      otherContext.close();
+                      return otherContext;
+                    }
+                  })
+              .get();
+      assertNotSame(context, other);
+      assertSame(context, injector.getLocalContext());
+    } finally {
+      executor.shutdown();
+      context.close();
+    }
+  }
+
+  static class Unscoped {
+    @Inject Dependency dependency;
+  }
+
+  static class Dependency {}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Key;
+import com.google.inject.ProvisionException;
+import com.google.inject.Provides;
+import com.google.inject.internal.InternalFlags.InvocationOption;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.InjectionPoint;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import junit.framework.TestCase;
+
+/**
+ * Tests the constructors and provider methods that are invoked through method handles when {@code
+ * guice_invocation} is {@code METHOD_HANDLE}. The proxies are created directly, so that they're
+ * tested whatever the option is.
+ */
+public class MethodHandleInvocationTest extends TestCase {
+
+  public void testConstructorThrowablesAreWrapped() throws Exception {
+    ConstructionProxy<Thrower> proxy = newConstructionProxy();
+    assertNotNull(proxy.newInstance((Throwable) null));
+    assertWrapped(proxy, new IOException());
+    assertWrapped(proxy, new IllegalStateException());
+    assertWrapped(proxy, new AssertionError());
+  }
+
+  public void testProviderMethodThrowablesAreWrapped() throws Exception {
+    ProviderMethod<String> providerMethod = newProviderMethod();
+    assertEquals("provided", providerMethod.doProvision(new Object[] {null}));
+    assertWrapped(providerMethod, new IOException());
+    assertWrapped(providerMethod, new IllegalStateException());
+    assertWrapped(providerMethod, new AssertionError());
+  }
+
+  /*if[AOP]*/
+  public void testHandlesAreHeldByGeneratedClasses() throws Exception {
+    String invokerClass = newConstructionProxy().invoker.getClass().getName();
+    assertTrue(invokerClass, invokerClass.contains("$$MethodHandleInvokerByGuice$$"));
+    invokerClass = newProviderMethod().invoker.getClass().getName();
+    assertTrue(invokerClass, invokerClass.contains("$$MethodHandleInvokerByGuice$$"));
+
+    // classes are generated once per member
+    assertSame(
+        newConstructionProxy().invoker.getClass(), newConstructionProxy().invoker.getClass());
+    assertNotSame(
+        newConstructionProxy().invoker.getClass(), newProviderMethod().invoker.getClass());
+  }
+  /*end[AOP]*/
+
+  public void testInjectorPropagatesThrowables() {
+    if (InternalFlags.getInvocationOption() != InvocationOption.METHOD_HANDLE) {
+      return;
+    }
+    IOException exception = new IOException();
+    try {
+      Guice.createInjector(new ThrowerModule(exception)).getInstance(Thrower.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertSame(exception, expected.getCause());
+    }
+
+    AssertionError error = new AssertionError();
+    try {
+      Guice.createInjector(new ThrowerModule(error)).getInstance(Thrower.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertSame(error, expected.getCause());
+    }
+    try {
+      Guice.createInjector(new ThrowerModule(error)).getInstance(String.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertSame(error, expected.getCause());
+    }
+  }
+
+  private static void assertWrapped(ConstructionProxy<Thrower> proxy, Throwable throwable) {
+    try {
+      proxy.newInstance(throwable);
+      fail();
+    } catch (InvocationTargetException expected) {
+      assertSame(throwable, expected.getCause());
+    }
+  }
+
+  private static void assertWrapped(ProviderMethod<String> providerMethod, Throwable throwable)
+      throws IllegalAccessException {
+    try {
+      providerMethod.doProvision(new Object[] {throwable});
+      fail();
+    } catch (InvocationTargetException expected) {
+      assertSame(throwable, expected.getCause());
+    }
+  }
+
+  private static DefaultConstructionProxyFactory.MethodHandleProxy<Thrower> newConstructionProxy()
+      throws Exception {
+    return new DefaultConstructionProxyFactory.MethodHandleProxy<Thrower>(
+        InjectionPoint.forConstructorOf(Thrower.class),
+        Thrower.class.getDeclaredConstructor(Throwable.class));
+  }
+
+  private static ProviderMethod.MethodHandleProviderMethod<String> newProviderMethod()
+      throws Exception {
+    Method method = ThrowerModule.class.getDeclaredMethod("provideString", Throwable.class);
+    return new ProviderMethod.MethodHandleProviderMethod<String>(
+        Key.get(String.class),
+        method,
+        new ThrowerModule(null),
+        ImmutableSet.<Dependency<?>>of(),
+        null,
+        method.getAnnotation(Provides.class));
+  }
+
+  static class Thrower {
+    @Inject
+    Thrower(Throwable throwable) throws Throwable {
+      if (throwable != null) {
+        throw throwable;
+      }
+    }
+  }
+
+  static class ThrowerModule extends AbstractModule {
+    final Throwable throwable;
+
+    ThrowerModule(Throwable throwable) {
+      this.throwable = throwable;
+    }
+
+    @Override
+    protected void configure() {
+      bind(Throwable.class).toInstance(throwable);
+    }
+
+    @Provides
+    String provideString(Throwable throwable) throws Throwable {
+      if (throwable != null) {
+        throw throwable;
+      }
+      return "provided";
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.PrivateModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+import com.google.inject.internal.InternalFlags.ProvisionMetricsOption;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+import com.google.inject.spi.InjectorDiagnostics;
+import com.google.inject.spi.ProvisionListener;
+import com.google.inject.spi.ProvisionMetrics;
+import com.google.inject.spi.ProvisionStatistics;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+public class ProvisionMetricsTest extends TestCase {
+
+  public void testCountsProvisionsPerKey() {
+    Injector injector =
+        createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                bind(Unscoped.class);
+                bind(Scoped.class).in(Singleton.class);
+                bind(String.class).toInstance("instance");
+              }
+
+              @Provides
+              @Named("provided")
+              String provideString() {
+                return "provided";
+              }
+            });
+    for (int i = 0; i < 3; i++) {
+      injector.getInstance(Unscoped.class);
+      injector.getInstance(Scoped.class);
+      injector.getInstance(Key.get(String.class, Names.named("provided")));
+      injector.getInstance(String.class);
+    }
+
+    ProvisionMetrics metrics = InjectorDiagnostics.getProvisionMetrics(injector);
+    assertEquals(3, metrics.getStatistics(Key.get(Unscoped.class)).getCount());
+    assertEquals(1, metrics.getStatistics(Key.get(Scoped.class)).getCount());
+    assertEquals(
+        3, metrics.getStatistics(Key.get(String.class, Names.named("provided"))).getCount());
+    assertNull("instances aren't provisioned", metrics.getStatistics(Key.get(String.class)));
+    assertEquals(3, metrics.getAllStatistics().size());
+  }
+
+  public void testListenersStillNotified() {
+    final AtomicInteger notified = new AtomicInteger();
+    Injector injector =
+        createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                bindListener(
+                    Matchers.any(),
+                    new ProvisionListener() {
+                      @Override
+                      public <T> void onProvision(ProvisionInvocation<T> provision) {
+                        notified.incrementAndGet();
+                      }
+                    });
+              }
+            });
+    injector.getInstance(Unscoped.class);
+    injector.getInstance(Unscoped.class);
+
+    assertEquals(2, notified.get());
+    ProvisionMetrics metrics = InjectorDiagnostics.getProvisionMetrics(injector);
+    assertEquals(2, metrics.getStatistics(Key.get(Unscoped.class)).getCount());
+  }
+
+  public void testPrivateModulesShareMetrics() {
+    Injector injector =
+        createInjector(
+            new PrivateModule() {
+              @Override
+              protected void configure() {
+                bind(Unscoped.class);
+                expose(Unscoped.class);
+              }
+            });
+    injector.getInstance(Unscoped.class);
+
+    ProvisionMetrics metrics = InjectorDiagnostics.getProvisionMetrics(injector);
+    assertEquals(1, metrics.getStatistics(Key.get(Unscoped.class)).getCount());
+  }
+
+  public void testHistogram() {
+    ProvisionMetricsImpl.KeyMetrics keyMetrics =
+        new ProvisionMetricsImpl().forKey(Key.get(Object.class));
+    for (int i = 0; i < 98; i++) {
+      keyMetrics.record(1000);
+    }
+    keyMetrics.record(5000);
+    keyMetrics.record(1L << 50);
+
+    ProvisionStatistics statistics = keyMetrics.snapshot();
+    assertEquals(100, statistics.getCount());
+    assertEquals(98 * 1000 + 5000 + (1L << 50), statistics.getTotalTime(NANOSECONDS));
+    assertEquals(1L << 50, statistics.getMaxTime(NANOSECONDS));
+    assertEquals(1024, statistics.getPercentileTime(50, NANOSECONDS));
+    assertEquals(8192, statistics.getPercentileTime(99, NANOSECONDS));
+    assertEquals(1L << 50, statistics.getPercentileTime(100, NANOSECONDS));
+    assertEquals(98, (long) statistics.getHistogram().get(10));
+  }
+
+  public void testMetricsAreNotBound() {
+    Injector injector =
+        createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {}
+            });
+    assertNotNull(InjectorDiagnostics.getProvisionMetrics(injector));
+    assertNull(injector.getExistingBinding(Key.get(ProvisionMetrics.class)));
+  }
+
+  public void testChildInjectorsHaveTheirOwnMetrics() {
+    Injector parent = Guice.createInjector();
+    Injector child =
+        parent.createChildInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                bind(Unscoped.class);
+              }
+            });
+    if (InternalFlags.getProvisionMetricsOption() == ProvisionMetricsOption.ENABLED) {
+      child.getInstance(Unscoped.class);
+      assertNotSame(
+          InjectorDiagnostics.getProvisionMetrics(parent),
+          InjectorDiagnostics.getProvisionMetrics(child));
+      assertEquals(
+          1,
+          InjectorDiagnostics.getProvisionMetrics(child)
+              .getStatistics(Key.get(Unscoped.class))
+              .getCount());
+    } else {
+      assertNull(InjectorDiagnostics.getProvisionMetrics(parent));
+      assertNull(InjectorDiagnostics.getProvisionMetrics(child));
+    }
+  }
+
+  private static Injector createInjector(Module module) {
+    return new InternalInjectorCreator()
+        .stage(Stage.DEVELOPMENT)
+        .recordProvisionMetrics()
+        .addModules(ImmutableList.of(module))
+        .build();
+  }
+
+  static class Unscoped {}
+
+  static class Scoped {}
+}
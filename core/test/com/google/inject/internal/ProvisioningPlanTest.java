@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Binding;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Key;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.DependencyAndSource;
+import com.google.inject.spi.Message;
+import com.google.inject.spi.ProvisionListener;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class ProvisioningPlanTest extends TestCase {
+
+  private final List<List<DependencyAndSource>> chains = Lists.newArrayList();
+  private InjectorImpl injector;
+
+  @Override
+  protected void setUp() throws Exception {
+    injector =
+        (InjectorImpl)
+            Guice.createInjector(
+                new AbstractModule() {
+                  @Override
+                  protected void configure() {
+                    bind(Service.class).to(ServiceImpl.class);
+                    bind(Left.class).to(LeftImpl.class);
+                    bind(Right.class).to(RightImpl.class);
+                    // only the @Provides binding has a listener, so the others can be planned
+                    bindListener(
+                        new AbstractMatcher<Binding<?>>() {
+                          @Override
+                          public boolean matches(Binding<?> binding) {
+                            return binding.getKey().equals(Key.get(String.class));
+                          }
+                        },
+                        new ProvisionListener() {
+                          @Override
+                          public <T> void onProvision(ProvisionInvocation<T> provision) {
+                            chains.add(provision.getDependencyChain());
+                          }
+                        });
+                  }
+
+                  @Provides
+                  String provideString() {
+                    return "provided";
+                  }
+                });
+  }
+
+  public void testConstructsWholeGraph() throws ErrorsException {
+    ProvisioningPlan<Root> plan = plan(Root.class);
+    if (injector.provisionMetrics == null) {
+      // Root, Middle, ServiceImpl, Leaf twice; Config is a singleton, so it's left to its factory
+      assertEquals(5, plan.getConstructorCount());
+    } else {
+      // each dependency is left to its factory, so that its provisions are measured
+      assertEquals(1, plan.getConstructorCount());
+    }
+
+    Root root = provision(plan, Root.class, new Errors());
+    assertTrue(root.middle.service instanceof ServiceImpl);
+    assertNotSame(root.leaf, root.middle.leaf);
+    assertSame(injector.getInstance(Config.class), root.middle.config);
+    assertEquals("provided", ((ServiceImpl) root.middle.service).string);
+  }
+
+  public void testDependencyChainIsRebuiltForFactories() throws ErrorsException {
+    injector.getInstance(Root.class);
+    provision(plan(Root.class), Root.class, new Errors());
+
+    assertEquals(2, chains.size());
+    assertEquals(chains.get(0).toString(), chains.get(1).toString());
+  }
+
+  public void testErrorsHaveSameSourcesAsWithoutPlan() {
+    Errors withoutPlan = new Errors();
+    try {
+      injector
+          .getBindingOrThrow(Key.get(Failing.class), withoutPlan, InjectorImpl.JitLimitation.NO_JIT)
+          .getInternalFactory()
+          .get(withoutPlan, injector.enterContext(), Dependency.get(Key.get(Failing.class)), false);
+      fail();
+    } catch (ErrorsException expected) {
+    }
+
+    Errors withPlan = new Errors();
+    try {
+      provision(plan(Failing.class), Failing.class, withPlan);
+      fail();
+    } catch (ErrorsException expected) {
+    }
+
+    assertEquals(1, withPlan.size());
+    Message expected = withoutPlan.getMessages().get(0);
+    Message actual = withPlan.getMessages().get(0);
+    assertEquals(expected.getMessage(), actual.getMessage());
+    assertEquals(expected.getSources(), actual.getSources());
+  }
+
+  public void testCircularDependencyIsProxied() throws ErrorsException {
+    LeftImpl left = provision(plan(LeftImpl.class), LeftImpl.class, new Errors());
+    assertTrue(left.right instanceof RightImpl);
+    Left proxy = ((RightImpl) left.right).left;
+    assertTrue(proxy instanceof CircularDependencyProxy);
+    assertSame(left.right, proxy.getRight());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> ProvisioningPlan<T> plan(Class<T> type) {
+    ConstructorBindingImpl.Factory<T> factory =
+        (ConstructorBindingImpl.Factory<T>)
+            ((BindingImpl<T>) injector.getBinding(type)).getInternalFactory();
+    ProvisioningPlan<T> plan = ProvisioningPlan.create(factory.getConstructorInjector());
+    assertNotNull(plan);
+    return plan;
+  }
+
+  private <T> T provision(ProvisioningPlan<T> plan, Class<T> type, Errors errors)
+      throws ErrorsException {
+    Dependency<T> dependency = Dependency.get(Key.get(type));
+    InternalContext context = injector.enterContext();
+    Dependency<?> previous = context.pushDependency(dependency, type);
+    try {
+      return plan.provision(errors, context, dependency);
+    } finally {
+      context.popStateAndSetDependency(previous);
+      context.close();
+    }
+  }
+
+  static class Root {
+    final Middle middle;
+    final Leaf leaf;
+
+    @Inject
+    Root(Middle middle, Leaf leaf) {
+      this.middle = middle;
+      this.leaf = leaf;
+    }
+  }
+
+  static class Middle {
+    final Service service;
+    final Leaf leaf;
+    final Config config;
+
+    @Inject
+    Middle(Service service, Leaf leaf, Config config) {
+      this.service = service;
+      this.leaf = leaf;
+      this.config = config;
+    }
+  }
+
+  interface Service {}
+
+  static class ServiceImpl implements Service {
+    @Inject String string;
+  }
+
+  static class Leaf {}
+
+  @Singleton
+  static class Config {}
+
+  static class Failing {
+    @Inject
+    Failing(Middle middle, Thrower thrower) {}
+  }
+
+  static class Thrower {
+    Thrower() {
+      throw new IllegalStateException("failed");
+    }
+  }
+
+  interface Left {
+    Right getRight();
+  }
+
+  interface Right {}
+
+  static class LeftImpl implements Left {
+    final Right right;
+
+    @Inject
+    LeftImpl(Right right) {
+      this.right = right;
+    }
+
+    @Override
+    public Right getRight() {
+      return right;
+    }
+  }
+
+  static class RightImpl implements Right {
+    final Left left;
+
+    @Inject
+    RightImpl(Left left) {
+      this.left = left;
+    }
+  }
+}
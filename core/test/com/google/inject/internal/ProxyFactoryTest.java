@@ -21,13 +21,26 @@ import static com.google.inject.matcher.Matchers.any;
 import static com.google.inject.matcher.Matchers.not;
 import static com.google.inject.matcher.Matchers.only;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
 import com.google.inject.Inject;
 import com.google.inject.spi.InjectionPoint;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import junit.framework.TestCase;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
@@ -211,4 +224,127 @@ public class ProxyFactoryTest extends TestCase {
       count++;
     }
   }
+
+  public void testPrecomputedClassIsLoaded() throws Exception {
+    aspects.add(new MethodAspect(any(), annotatedWith(Intercept.class), new PrefixInterceptor()));
+    DefiningClassLoader classLoader = new DefiningClassLoader();
+    ProxyFactory<?> factory = greeterFactory(classLoader);
+    String className = factory.getPrecomputedClassName();
+    byte[] bytes = factory.generatePrecomputedClass();
+    classLoader.add(className, bytes);
+    classLoader.list(className);
+
+    Object greeter = factory.create().newInstance();
+    assertEquals(className, greeter.getClass().getName());
+    assertEquals("intercepted hello", greeter.getClass().getMethod("greet").invoke(greeter));
+    assertEquals("bye", greeter.getClass().getMethod("leave").invoke(greeter));
+  }
+
+  public void testPrecomputedClassForOtherInterceptorsIsIgnored() throws Exception {
+    aspects.add(new MethodAspect(any(), annotatedWith(Intercept.class), new PrefixInterceptor()));
+    DefiningClassLoader classLoader = new DefiningClassLoader();
+    ProxyFactory<?> factory = greeterFactory(classLoader);
+    classLoader.add(factory.getPrecomputedClassName(), factory.generatePrecomputedClass());
+    classLoader.list(factory.getPrecomputedClassName());
+
+    aspects.add(
+        new MethodAspect(any(), not(annotatedWith(Intercept.class)), new PrefixInterceptor()));
+    ProxyFactory<?> otherFactory = greeterFactory(classLoader);
+    assertFalse(factory.getPrecomputedClassName().equals(otherFactory.getPrecomputedClassName()));
+
+    Object greeter = otherFactory.create().newInstance();
+    assertTrue(greeter.getClass().getName().contains("$$EnhancerByGuice$$"));
+    assertEquals("intercepted bye", greeter.getClass().getMethod("leave").invoke(greeter));
+  }
+
+  public void testUnlistedPrecomputedClassIsNotLookedUp() throws Exception {
+    aspects.add(new MethodAspect(any(), annotatedWith(Intercept.class), new PrefixInterceptor()));
+    DefiningClassLoader classLoader = new DefiningClassLoader();
+    ProxyFactory<?> factory = greeterFactory(classLoader);
+    String className = factory.getPrecomputedClassName();
+    classLoader.add(className, factory.generatePrecomputedClass());
+
+    Object greeter = factory.create().newInstance();
+    assertTrue(greeter.getClass().getName().contains("$$EnhancerByGuice$$"));
+    assertFalse(classLoader.requested.contains(className));
+  }
+
+  /** Returns a factory for a copy of {@link Greeter} that is defined by {@code classLoader}. */
+  private ProxyFactory<?> greeterFactory(DefiningClassLoader classLoader) throws IOException {
+    String name = Greeter.class.getName();
+    try (InputStream in =
+        ProxyFactoryTest.class.getClassLoader().getResourceAsStream(
+            PrecomputedProxies.toClassFile(name))) {
+      classLoader.add(name, ByteStreams.toByteArray(in));
+    }
+    Class<?> greeterClass = classLoader.defineOrFind(name);
+    return new ProxyFactory<>(InjectionPoint.forConstructorOf(greeterClass), aspects);
+  }
+
+  public static class Greeter {
+    @Intercept
+    public String greet() {
+      return "hello";
+    }
+
+    public String leave() {
+      return "bye";
+    }
+  }
+
+  static class PrefixInterceptor implements MethodInterceptor {
+    @Override
+    public Object invoke(MethodInvocation methodInvocation) throws Throwable {
+      return "intercepted " + methodInvocation.proceed();
+    }
+  }
+
+  /** Defines classes from bytes, like a classloader that precomputed classes were written to. */
+  static class DefiningClassLoader extends ClassLoader {
+    final Map<String, byte[]> classes = Maps.newHashMap();
+    final List<String> listed = Lists.newArrayList();
+    final Set<String> requested = Sets.newConcurrentHashSet();
+
+    DefiningClassLoader() {
+      super(ProxyFactoryTest.class.getClassLoader());
+    }
+
+    void add(String name, byte[] bytes) {
+      classes.put(name, bytes);
+    }
+
+    /** Lists {@code name} in the manifest of precomputed classes that this loader can see. */
+    void list(String name) {
+      listed.add(name);
+    }
+
+    synchronized Class<?> defineOrFind(String name) {
+      Class<?> loaded = findLoadedClass(name);
+      if (loaded == null) {
+        byte[] bytes = classes.get(name);
+        loaded = defineClass(name, bytes, 0, bytes.length);
+      }
+      return loaded;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      requested.add(name);
+      if (classes.containsKey(name)) {
+        return defineOrFind(name);
+      }
+      return super.loadClass(name, resolve);
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(String name) throws IOException {
+      if (!name.equals(PrecomputedProxies.MANIFEST) || listed.isEmpty()) {
+        return super.findResources(name);
+      }
+      File manifest = File.createTempFile("precomputed-proxies", null);
+      manifest.deleteOnExit();
+      Files.asCharSink(manifest, StandardCharsets.UTF_8).writeLines(listed);
+      return Iterators.asEnumeration(Iterators.singletonIterator(manifest.toURI().toURL()));
+    }
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+import com.google.inject.internal.InternalFlags.StartupProfileOption;
+import com.google.inject.spi.InjectorDiagnostics;
+import com.google.inject.spi.StartupProfile;
+import com.google.inject.spi.StartupProfile.Kind;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class StartupProfilerTest extends TestCase {
+
+  public void testRecordsModulesJitBindingsAndEagerSingletons() {
+    Injector injector =
+        new InternalInjectorCreator()
+            .stage(Stage.PRODUCTION)
+            .profileStartup()
+            .addModules(ImmutableList.of(new OuterModule()))
+            .build();
+    StartupProfile profile = InjectorDiagnostics.getStartupProfile(injector);
+    assertNull(injector.getExistingBinding(Key.get(StartupProfile.class)));
+
+    assertEquals(Kind.INJECTOR, profile.getKind());
+    StartupProfile moduleExecution = findPhase(profile, "Module execution");
+    StartupProfile outer = find(moduleExecution, Kind.MODULE, OuterModule.class.getName());
+    find(outer, Kind.MODULE, InnerModule.class.getName());
+
+    StartupProfile preloading = findPhase(profile, "Preloading singletons");
+    StartupProfile eager = find(preloading, Kind.EAGER_SINGLETON, Key.get(Eager.class).toString());
+    // Eager looks up its dependency while it's being created
+    find(eager, Kind.JIT_BINDING, Key.get(Dependency.class).toString());
+
+    List<String> phases = Lists.newArrayList();
+    for (StartupProfile phase : profile.getChildren()) {
+      assertEquals(Kind.PHASE, phase.getKind());
+      phases.add(phase.getName());
+    }
+    assertTrue(phases.toString(), phases.contains("Binding creation"));
+    assertTrue(phases.toString(), phases.contains("Untargetted binding creation"));
+    assertEquals("Preloading singletons", phases.get(phases.size() - 1));
+
+    assertSame(
+        "The profile is complete once the injector is created",
+        profile,
+        InjectorDiagnostics.getStartupProfile(injector));
+  }
+
+  public void testChildInjectorsHaveTheirOwnProfile() {
+    InjectorImpl parent =
+        (InjectorImpl)
+            new InternalInjectorCreator()
+                .stage(Stage.DEVELOPMENT)
+                .profileStartup()
+                .addModules(ImmutableList.of(new InnerModule()))
+                .build();
+    Injector child =
+        new InternalInjectorCreator()
+            .stage(Stage.DEVELOPMENT)
+            .parentInjector(parent)
+            .profileStartup()
+            .addModules(ImmutableList.of(new OuterModule()))
+            .build();
+
+    StartupProfile parentProfile = InjectorDiagnostics.getStartupProfile(parent);
+    StartupProfile childProfile = InjectorDiagnostics.getStartupProfile(child);
+    assertNotSame(parentProfile, childProfile);
+    find(findPhase(childProfile, "Module execution"), Kind.MODULE, OuterModule.class.getName());
+    StartupProfile parentModules = findPhase(parentProfile, "Module execution");
+    for (StartupProfile module : parentModules.getChildren()) {
+      assertFalse(module.getName().equals(OuterModule.class.getName()));
+    }
+  }
+
+  public void testNotRecordedUnlessEnabled() {
+    if (InternalFlags.getStartupProfileOption() == StartupProfileOption.ENABLED) {
+      return;
+    }
+    Injector injector = Guice.createInjector(new OuterModule());
+    assertNull(InjectorDiagnostics.getStartupProfile(injector));
+  }
+
+  private static StartupProfile findPhase(StartupProfile profile, String name) {
+    return find(profile, Kind.PHASE, name);
+  }
+
+  private static StartupProfile find(StartupProfile profile, Kind kind, String name) {
+    for (StartupProfile child : profile.getChildren()) {
+      if (child.getKind() == kind && child.getName().equals(name)) {
+        return child;
+      }
+    }
+    throw new AssertionError("No " + kind + " " + name + " in " + profile.toJson());
+  }
+
+  static class OuterModule extends AbstractModule {
+    @Override
+    protected void configure() {
+      install(new InnerModule());
+      bind(Eager.class).asEagerSingleton();
+    }
+  }
+
+  static class InnerModule extends AbstractModule {
+    @Override
+    protected void configure() {}
+  }
+
+  @Singleton
+  static class Eager {
+    @Inject
+    Eager(Injector injector) {
+      injector.getInstance(Dependency.class);
+    }
+  }
+
+  static class Dependency {}
+}
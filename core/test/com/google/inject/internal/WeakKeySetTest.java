@@ -27,6 +27,7 @@ import static com.google.inject.internal.WeakKeySetUtils.assertSourceNotInSet;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
 import com.google.inject.Binding;
 import com.google.inject.Guice;
@@ -34,6 +35,7 @@ import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.Scope;
 import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
 import com.google.inject.spi.ModuleAnnotatedMethodScannerBinding;
 import com.google.inject.spi.ProvisionListenerBinding;
 import com.google.inject.spi.ScopeBinding;
@@ -59,7 +61,7 @@ public class WeakKeySetTest extends TestCase {
 
   @Override
   protected void setUp() throws Exception {
-    set = new WeakKeySet(new Object());
+    set = new WeakKeySet();
   }
 
   public void testEviction() {
@@ -152,6 +154,41 @@ public class WeakKeySetTest extends TestCase {
     awaitClear(weakKey1Ref);
   }
 
+  public void testConcurrentAddsAndEviction() throws Exception {
+    final Object source = new Object();
+    TestState retainedState = new TestState();
+    set.add(Key.get(Long.class), retainedState, source);
+
+    List<Thread> threads = Lists.newArrayList();
+    for (int i = 0; i < 8; i++) {
+      Thread thread =
+          new Thread() {
+            @Override
+            public void run() {
+              for (int j = 0; j < 100; j++) {
+                TestState state = new TestState();
+                for (int k = 0; k < 5; k++) {
+                  set.add(Key.get(String.class, Names.named("key" + ((j + k) % 10))), state, source);
+                }
+              }
+            }
+          };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    awaitFullGc();
+
+    for (int k = 0; k < 10; k++) {
+      assertNotInSet(set, Key.get(String.class, Names.named("key" + k)));
+    }
+    assertInSet(set, Key.get(Long.class), 1, source);
+    assertNotNull(retainedState);
+  }
+
   public void testNoEviction_keyOverlap_2x() {
     TestState state1 = new TestState();
     TestState state2 = new TestState();
@@ -20,10 +20,12 @@ import static com.google.inject.Asserts.assertContains;
 import static com.google.inject.Asserts.getDeclaringSourcePart;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Asserts;
 import com.google.inject.CreationException;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.matcher.Matchers;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Modifier;
 import javax.inject.Inject;
 import junit.framework.TestCase;
@@ -166,5 +168,22 @@ public class LineNumbersTest extends TestCase {
     Object instance = injector.getInstance(generated);
     assertEquals(instance.getClass(), generated);
   }
+
+  public void testLineNumbersAreLookedUpFromCompactTable() throws Exception {
+    LineNumbers lineNumbers = StackTraceElements.lineNumbersCache.getUnchecked(A.class);
+    assertEquals("LineNumbersTest.java", lineNumbers.getSource());
+    Integer constructorLine = lineNumbers.getLineNumber(A.class.getDeclaredConstructor(B.class));
+    assertNotNull(constructorLine);
+    assertTrue(constructorLine >= lineNumbers.getFirstLine());
+  }
+
+  public void testCachedLineNumbersDoNotKeepClassLoaded() {
+    Class<?> generated = new GeneratingClassLoader().generate();
+    StackTraceElements.forType(generated);
+    assertNotNull(StackTraceElements.lineNumbersCache.getIfPresent(generated));
+    WeakReference<Class<?>> classRef = new WeakReference<Class<?>>(generated);
+    generated = null;
+    Asserts.awaitClear(classRef);
+  }
   /*end[AOP]*/
 }
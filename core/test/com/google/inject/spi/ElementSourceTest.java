@@ -76,6 +76,13 @@ public class ElementSourceTest extends TestCase {
               assertEquals(0, callStack.length);
               return;
             case ONLY_FOR_DECLARING_SOURCE:
+              // Check declaring source
+              StackTraceElement declaringSource =
+                  (StackTraceElement) elementSource.getDeclaringSource();
+              assertEquals(
+                  "com.google.inject.spi.ElementSourceTest$C", declaringSource.getClassName());
+              assertEquals("configure", declaringSource.getMethodName());
+              assertTrue(declaringSource.getLineNumber() > 0);
               // Check call stack
               assertEquals(0, callStack.length);
               return;
@@ -24,6 +24,8 @@ import static com.google.inject.name.Names.named;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Asserts;
 import com.google.inject.ConfigurationException;
 import com.google.inject.Inject;
 import com.google.inject.Key;
@@ -32,10 +34,13 @@ import com.google.inject.TypeLiteral;
 import com.google.inject.internal.ErrorsException;
 import com.google.inject.name.Named;
 import com.google.inject.spi.InjectionPoint.Signature;
+import com.google.inject.util.Types;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -210,6 +215,101 @@ public class InjectionPointTest extends TestCase {
         injectionPoints);
   }
 
+  public void testInjectionPointsAreSharedAcrossCalls() {
+    assertSame(
+        InjectionPoint.forConstructorOf(Constructable.class),
+        InjectionPoint.forConstructorOf(TypeLiteral.get(Constructable.class)));
+    assertSame(
+        InjectionPoint.forInstanceMethodsAndFields(HasInjections.class),
+        InjectionPoint.forInstanceMethodsAndFields(HasInjections.class));
+    assertSame(
+        InjectionPoint.forStaticMethodsAndFields(HasInjections.class),
+        InjectionPoint.forStaticMethodsAndFields(HasInjections.class));
+  }
+
+  public void testInjectionPointsAreSharedForParameterizedTypes() {
+    TypeLiteral<?> listOfInjections =
+        TypeLiteral.get(Types.newParameterizedType(ArrayList.class, HasInjections.class));
+    assertSame(
+        InjectionPoint.forInstanceMethodsAndFields(listOfInjections),
+        InjectionPoint.forInstanceMethodsAndFields(listOfInjections));
+  }
+
+  public void testCachedInjectionPointsDoNotKeepClassLoaderLoaded() throws Exception {
+    ClassLoader classLoader = new IsolatingClassLoader(Isolated.class.getName());
+    Class<?> isolated = classLoader.loadClass(Isolated.class.getName());
+    assertNotSame(Isolated.class, isolated);
+    assertEquals(1, InjectionPoint.forInstanceMethodsAndFields(isolated).size());
+    // cached with the isolated class rather than with ArrayList, which is never unloaded
+    InjectionPoint.forInstanceMethodsAndFields(
+        TypeLiteral.get(Types.newParameterizedType(ArrayList.class, isolated)));
+    InjectionPoint.forConstructorOf(isolated);
+
+    WeakReference<ClassLoader> classLoaderRef = new WeakReference<>(classLoader);
+    classLoader = null;
+    isolated = null;
+    Asserts.awaitClear(classLoaderRef);
+  }
+
+  static class Isolated {
+    @Inject String name;
+  }
+
+  /** Defines its own copy of one class, and delegates to its parent for all others. */
+  static class IsolatingClassLoader extends ClassLoader {
+    private final String isolatedName;
+
+    IsolatingClassLoader(String isolatedName) {
+      super(InjectionPointTest.class.getClassLoader());
+      this.isolatedName = isolatedName;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.equals(isolatedName)) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> loaded = findLoadedClass(name);
+        if (loaded != null) {
+          return loaded;
+        }
+        try {
+          byte[] bytes =
+              ByteStreams.toByteArray(
+                  getParent().getResourceAsStream(name.replace('.', '/') + ".class"));
+          return defineClass(name, bytes, 0, bytes.length);
+        } catch (IOException e) {
+          throw new ClassNotFoundException(name, e);
+        }
+      }
+    }
+  }
+
+  public void testErrorsAreReportedOnEveryCall() {
+    ConfigurationException first = null;
+    for (int i = 0; i < 2; i++) {
+      try {
+        InjectionPoint.forInstanceMethodsAndFields(HasBadInjection.class);
+        fail();
+      } catch (ConfigurationException expected) {
+        assertContains(expected.getMessage(), "Injected field " + HasBadInjection.class.getName());
+        assertNotNull(expected.getPartialValue());
+        if (first != null) {
+          assertNotSame(first, expected);
+          assertEquals(first.getErrorMessages(), expected.getErrorMessages());
+          assertEquals(first.getPartialValue(), expected.getPartialValue());
+        }
+        first = expected;
+      }
+    }
+  }
+
+  static class HasBadInjection {
+    @javax.inject.Inject final String finalField = null;
+    @Inject String goodField;
+  }
+
   static class HasInjections {
     @Inject
     public static void staticMethod(@Named("a") String a) {}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import static com.google.inject.Asserts.awaitFullGc;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.ConfigurationException;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.PrivateModule;
+import com.google.inject.name.Names;
+import com.google.inject.spi.InjectorFootprint.Structure;
+import junit.framework.TestCase;
+
+public class InjectorFootprintTest extends TestCase {
+
+  public void testMeasure() {
+    Injector injector =
+        Guice.createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                bind(String.class).annotatedWith(Names.named("name")).toInstance("footprint");
+                bind(Service.class).to(ServiceImpl.class);
+              }
+            });
+    injector.getInstance(Service.class);
+
+    InjectorFootprint footprint = InjectorFootprint.measure(injector);
+    long total = 0;
+    for (Structure structure : Structure.values()) {
+      if (structure == Structure.BLACKLIST) {
+        assertEquals(0, footprint.getBytes(structure));
+        assertEquals(0, footprint.getObjectCount(structure));
+      } else {
+        assertTrue(structure.toString(), footprint.getBytes(structure) > 0);
+        assertTrue(structure.toString(), footprint.getObjectCount(structure) > 0);
+      }
+      total += footprint.getBytes(structure);
+    }
+    assertEquals(total, footprint.getTotalBytes());
+    assertTrue(footprint.toString().contains("INJECTION_POINTS"));
+    assertTrue(footprint.toString().contains("TOTAL"));
+  }
+
+  public void testMeasureDoesNotCountBoundInstances() {
+    final byte[] big = new byte[1 << 20];
+    Injector injector =
+        Guice.createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                bind(byte[].class).toInstance(big);
+              }
+            });
+    assertTrue(InjectorFootprint.measure(injector).getTotalBytes() < big.length);
+  }
+
+  public void testCompactDropsCachedFailures() {
+    Injector injector = Guice.createInjector();
+    try {
+      injector.getMembersInjector(NeedsUnboundService.class);
+      fail();
+    } catch (ConfigurationException expected) {
+    }
+    InjectorFootprint before = InjectorFootprint.measure(injector);
+
+    InjectorFootprint.compact(injector);
+    InjectorFootprint after = InjectorFootprint.measure(injector);
+    assertTrue(after.getBytes(Structure.CACHES) < before.getBytes(Structure.CACHES));
+
+    // the failure is reported again
+    try {
+      injector.getMembersInjector(NeedsUnboundService.class);
+      fail();
+    } catch (ConfigurationException expected) {
+    }
+  }
+
+  public void testCompactDropsBlacklistOfCollectedChildren() {
+    Injector parent = Guice.createInjector();
+    createChildBinding(parent, ServiceImpl.class);
+    assertTrue(InjectorFootprint.measure(parent).getBytes(Structure.BLACKLIST) > 0);
+
+    awaitFullGc();
+    InjectorFootprint.compact(parent);
+    assertEquals(0, InjectorFootprint.measure(parent).getBytes(Structure.BLACKLIST));
+    assertNotNull(parent.getInstance(ServiceImpl.class));
+
+    // the blacklist is recreated for new children
+    Injector child = createChildBinding(parent, OtherServiceImpl.class);
+    InjectorFootprint.compact(parent);
+    assertTrue(InjectorFootprint.measure(parent).getBytes(Structure.BLACKLIST) > 0);
+    try {
+      parent.getInstance(OtherServiceImpl.class);
+      fail();
+    } catch (ConfigurationException expected) {
+    }
+    assertNotNull(child.getInstance(OtherServiceImpl.class));
+  }
+
+  public void testCompactPrivateModules() {
+    Injector injector =
+        Guice.createInjector(
+            new PrivateModule() {
+              @Override
+              protected void configure() {
+                bind(Service.class).to(ServiceImpl.class);
+                expose(Service.class);
+              }
+            });
+    InjectorFootprint.compact(injector);
+    assertNotNull(injector.getInstance(Service.class));
+  }
+
+  private static Injector createChildBinding(Injector parent, final Class<?> type) {
+    return parent.createChildInjector(
+        new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(type);
+          }
+        });
+  }
+
+  interface Service {}
+
+  static class ServiceImpl implements Service {
+    @Inject Injector injector;
+  }
+
+  static class OtherServiceImpl implements Service {}
+
+  static class NeedsUnboundService {
+    @Inject Service service;
+  }
+}
@@ -41,6 +41,7 @@ import com.google.inject.Stage;
 import com.google.inject.TypeLiteral;
 import com.google.inject.internal.Errors;
 import com.google.inject.internal.InternalFlags;
+import com.google.inject.internal.InternalFlags.InvocationOption;
 import com.google.inject.internal.ProviderMethod;
 import com.google.inject.internal.ProviderMethodsModule;
 import com.google.inject.name.Named;
@@ -610,6 +611,15 @@ public class ProviderMethodsTest extends TestCase implements Module {
   public void testShareFastClass() {
     CallerInspecterModule module = new CallerInspecterModule();
     Guice.createInjector(Stage.PRODUCTION, module);
+    if (InternalFlags.getInvocationOption() == InvocationOption.METHOD_HANDLE) {
+      // no fast class is generated; each provider method gets a class that holds its handle
+      assertFalse(module.fooCallerClass.equals(module.barCallerClass));
+      assertTrue(
+          module.fooCallerClass, module.fooCallerClass.contains("$$MethodHandleInvokerByGuice$$"));
+      assertTrue(
+          module.barCallerClass, module.barCallerClass.contains("$$MethodHandleInvokerByGuice$$"));
+      return;
+    }
     assertEquals(module.fooCallerClass, module.barCallerClass);
     assertTrue(module.fooCallerClass.contains("$$FastClassByGuice$$"));
   }
@@ -635,6 +645,9 @@ public class ProviderMethodsTest extends TestCase implements Module {
   }
 
   public void testShareFastClassWithSuperClass() {
+    if (InternalFlags.getInvocationOption() == InvocationOption.METHOD_HANDLE) {
+      return; // provider methods are invoked through method handles, not fastclass
+    }
     CallerInspecterSubClassModule module = new CallerInspecterSubClassModule();
     Guice.createInjector(Stage.PRODUCTION, module);
     assertEquals(
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.spi;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.spi.StartupProfile.Kind;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+public class StartupProfileTest extends TestCase {
+
+  private final StartupProfile profile =
+      new StartupProfile(
+          Kind.INJECTOR,
+          "Injector creation",
+          10000000,
+          ImmutableList.of(
+              new StartupProfile(
+                  Kind.PHASE,
+                  "Module execution",
+                  6000000,
+                  ImmutableList.of(
+                      new StartupProfile(
+                          Kind.MODULE,
+                          "com.example.Module",
+                          4000000,
+                          ImmutableList.<StartupProfile>of()))),
+              new StartupProfile(
+                  Kind.PHASE,
+                  "Preloading singletons",
+                  3000000,
+                  ImmutableList.of(
+                      new StartupProfile(
+                          Kind.EAGER_SINGLETON,
+                          "Key[type=a.B, annotation=@\"x;y\"]",
+                          3000000,
+                          ImmutableList.<StartupProfile>of())))));
+
+  public void testDuration() {
+    assertEquals(10, profile.getDuration(TimeUnit.MILLISECONDS));
+  }
+
+  public void testToJson() {
+    assertEquals(
+        "{\"kind\":\"INJECTOR\",\"name\":\"Injector creation\",\"durationNanos\":10000000,"
+            + "\"children\":["
+            + "{\"kind\":\"PHASE\",\"name\":\"Module execution\",\"durationNanos\":6000000,"
+            + "\"children\":["
+            + "{\"kind\":\"MODULE\",\"name\":\"com.example.Module\",\"durationNanos\":4000000,"
+            + "\"children\":[]}]},"
+            + "{\"kind\":\"PHASE\",\"name\":\"Preloading singletons\",\"durationNanos\":3000000,"
+            + "\"children\":["
+            + "{\"kind\":\"EAGER_SINGLETON\",\"name\":\"Key[type=a.B, annotation=@\\\"x;y\\\"]\","
+            + "\"durationNanos\":3000000,\"children\":[]}]}]}",
+        profile.toJson());
+  }
+
+  public void testToFoldedStacks() {
+    assertEquals(
+        "Injector creation 1000\n"
+            + "Injector creation;Module execution 2000\n"
+            + "Injector creation;Module execution;MODULE com.example.Module 4000\n"
+            + "Injector creation;Preloading singletons 0\n"
+            + "Injector creation;Preloading singletons;"
+            + "EAGER_SINGLETON Key[type=a.B, annotation=@\"x,y\"] 3000\n",
+        profile.toFoldedStacks());
+  }
+}
@@ -24,6 +24,8 @@ import com.google.inject.Binder;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
+import com.google.inject.internal.InternalFlags;
+import com.google.inject.internal.InternalFlags.InvocationOption;
 import com.googlecode.guice.BytecodeGenTest.LogCreator;
 import com.googlecode.guice.PackageVisibilityTestModule.PublicUserOfPackagePrivate;
 import java.lang.ref.WeakReference;
@@ -319,6 +321,9 @@ public class BytecodeGenTest extends TestCase {
   // This tests for a situation where a osgi bundle contains a version of guice.  When guice
   // generates a fast class it will use a bridge classloader
   public void testFastClassUsesBridgeClassloader() throws Throwable {
+    if (InternalFlags.getInvocationOption() == InvocationOption.METHOD_HANDLE) {
+      return; // constructors are invoked through method handles, not fastclass
+    }
     Injector injector = Guice.createInjector();
     // These classes are all in the same classloader as guice itself, so other than the private one
     // they can all be fast class invoked
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.aot;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Records the injectable constructor, fields and methods of every class in a compilation, so that
+ * Guice can look them up by name at runtime instead of reflecting over each class hierarchy. Add
+ * this processor to the compiler's processor path; the index is written to {@value #RESOURCE} in
+ * the class output and is picked up automatically from the class path.
+ *
+ * <p>Only members declared by each class are recorded. Guice still uses reflection for any class
+ * whose hierarchy includes an unindexed type or an overridden {@literal @}Inject method, and for
+ * classes that would fail validation, so that errors are reported exactly as before. The index
+ * describes the classes from the same compilation, and Guice only uses it for classes that are
+ * loaded from the same directory or jar, so it should be rebuilt and packaged with them. If a
+ * recorded member can't be found in the loaded class, Guice reflects over the class instead.
+ */
+@SupportedAnnotationTypes("*")
+public final class InjectionPointProcessor extends AbstractProcessor {
+
+  /** Must match {@code com.google.inject.spi.InjectionPointIndex.RESOURCE}. */
+  static final String RESOURCE = "META-INF/guice/injection-points";
+
+  private static final String GUICE_INJECT = "com.google.inject.Inject";
+  private static final String JAVAX_INJECT = "javax.inject.Inject";
+  private static final String GUICE_BINDING_ANNOTATION = "com.google.inject.BindingAnnotation";
+  private static final String JAVAX_QUALIFIER = "javax.inject.Qualifier";
+
+  /** Index entries by binary type name, in the order types were found. */
+  private final Map<String, String> entries = new LinkedHashMap<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      writeIndex();
+    } else {
+      for (Element element : roundEnv.getRootElements()) {
+        scan(element);
+      }
+    }
+    return false; // other processors may want the same annotations
+  }
+
+  private void scan(Element element) {
+    if (element.getKind() == ElementKind.CLASS) {
+      TypeElement type = (TypeElement) element;
+      String entry = entryFor(type);
+      if (entry != null) {
+        entries.put(binaryName(type), entry);
+      }
+    }
+    for (Element enclosed : element.getEnclosedElements()) {
+      if (enclosed.getKind().isClass() || enclosed.getKind().isInterface()) {
+        scan(enclosed);
+      }
+    }
+  }
+
+  /** Returns the index entry for {@code type}, or null if Guice should reflect over it. */
+  private String entryFor(TypeElement type) {
+    List<ExecutableElement> injectableConstructors = new ArrayList<>();
+    StringBuilder fields = new StringBuilder();
+    StringBuilder methods = new StringBuilder();
+
+    for (Element member : type.getEnclosedElements()) {
+      AnnotationMirror atInject = getAtInject(member);
+      if (atInject == null) {
+        continue;
+      }
+      Set<Modifier> modifiers = member.getModifiers();
+      switch (member.getKind()) {
+        case CONSTRUCTOR:
+          injectableConstructors.add((ExecutableElement) member);
+          break;
+
+        case FIELD:
+          if (modifiers.contains(Modifier.STATIC)) {
+            break;
+          }
+          if (modifiers.contains(Modifier.FINAL)) {
+            return null;
+          }
+          fields.append("  field ").append(member.getSimpleName()).append('\n');
+          break;
+
+        case METHOD:
+          ExecutableElement method = (ExecutableElement) member;
+          if (modifiers.contains(Modifier.STATIC)) {
+            break;
+          }
+          if (modifiers.contains(Modifier.ABSTRACT)
+              || !method.getTypeParameters().isEmpty()
+              || hasBindingAnnotation(method)) {
+            return null;
+          }
+          methods.append("  method ").append(method.getSimpleName());
+          appendParameterTypes(methods, method);
+          methods.append('\n');
+          break;
+
+        default:
+          break;
+      }
+    }
+
+    StringBuilder entry = new StringBuilder(binaryName(type)).append('\n');
+    if (injectableConstructors.size() == 1) {
+      ExecutableElement constructor = injectableConstructors.get(0);
+      if (!isOptional(getAtInject(constructor)) && !hasBindingAnnotation(constructor)) {
+        entry.append("  constructor");
+        appendParameterTypes(entry, constructor);
+        entry.append('\n');
+      }
+    }
+    return entry.append(fields).append(methods).toString();
+  }
+
+  private void appendParameterTypes(StringBuilder out, ExecutableElement executable) {
+    for (VariableElement parameter : executable.getParameters()) {
+      out.append(' ').append(typeName(parameter.asType()));
+    }
+  }
+
+  /** Returns the name of the erasure of {@code type}, as understood by {@code Class.forName}. */
+  private String typeName(TypeMirror type) {
+    TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+    switch (erased.getKind()) {
+      case ARRAY:
+        return typeName(((ArrayType) erased).getComponentType()) + "[]";
+      case DECLARED:
+        return binaryName((TypeElement) ((DeclaredType) erased).asElement());
+      default:
+        return erased.toString(); // a primitive
+    }
+  }
+
+  private String binaryName(TypeElement type) {
+    return processingEnv.getElementUtils().getBinaryName(type).toString();
+  }
+
+  private static AnnotationMirror getAtInject(Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      String name = annotationName(annotation);
+      if (name.equals(GUICE_INJECT) || name.equals(JAVAX_INJECT)) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isOptional(AnnotationMirror atInject) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+        atInject.getElementValues().entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals("optional")) {
+        return Boolean.TRUE.equals(entry.getValue().getValue());
+      }
+    }
+    return false;
+  }
+
+  /** Binding annotations on a method or constructor itself are an error that Guice reports. */
+  private static boolean hasBindingAnnotation(Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      Element annotationType = annotation.getAnnotationType().asElement();
+      for (AnnotationMirror metaAnnotation : annotationType.getAnnotationMirrors()) {
+        String name = annotationName(metaAnnotation);
+        if (name.equals(GUICE_BINDING_ANNOTATION) || name.equals(JAVAX_QUALIFIER)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static String annotationName(AnnotationMirror annotation) {
+    return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+  }
+
+  private void writeIndex() {
+    if (entries.isEmpty()) {
+      return;
+    }
+    try {
+      FileObject resource =
+          processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE);
+      Writer writer = new OutputStreamWriter(resource.openOutputStream(), "UTF-8");
+      try {
+        writer.write("# Generated by " + InjectionPointProcessor.class.getName() + "\n");
+        for (String entry : entries.values()) {
+          writer.write(entry);
+        }
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Unable to write " + RESOURCE + ": " + e);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.aot;
+
+import com.google.inject.Module;
+import com.google.inject.internal.PrecomputedProxies;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the classes that Guice would generate for method interception into a class output
+ * directory, so that they are loaded instead of being generated each time an injector is created.
+ * The classes are listed in {@code META-INF/guice/precomputed-proxies} in the same directory, and
+ * Guice only looks for the classes that are listed there. Run it after compilation, with the
+ * application's classes and Guice on the class path:
+ *
+ * <pre>
+ * java com.google.inject.aot.ProxyClassWriter target/classes com.example.AppModule ...</pre>
+ *
+ * <p>Each module must have a no-argument constructor. The modules are used to create an injector
+ * in {@code Stage.TOOL}, so no instances are constructed. A precomputed class is only loaded if
+ * the intercepted type and its interceptor bindings haven't changed since it was written; any
+ * other intercepted type is enhanced at runtime as before, so the classes must be rewritten
+ * whenever the modules or intercepted types change for the benefit to last.
+ *
+ * <p>The precomputed classes are cglib subclasses like the ones generated at runtime, so cglib is
+ * still needed on the application's class path. Writing them ahead of time only saves generating
+ * their bytecode.
+ */
+public final class ProxyClassWriter {
+  private ProxyClassWriter() {}
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: ProxyClassWriter <class output directory> <module class name>...");
+      System.exit(1);
+    }
+    List<Module> modules = new ArrayList<>();
+    for (int i = 1; i < args.length; i++) {
+      modules.add((Module) Class.forName(args[i]).newInstance());
+    }
+    int written = write(new File(args[0]), modules);
+    System.out.println("Wrote " + written + " precomputed proxy classes to " + args[0]);
+  }
+
+  /**
+   * Writes the classes that an injector created from {@code modules} would generate into {@code
+   * directory}, replacing the manifest of any earlier run with a list of them, and returns how many
+   * were written.
+   */
+  public static int write(File directory, Iterable<? extends Module> modules) throws IOException {
+    Map<String, byte[]> classes = PrecomputedProxies.generate(modules);
+    for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+      File file = new File(directory, PrecomputedProxies.toClassFile(entry.getKey()));
+      File parent = file.getParentFile();
+      if (!parent.isDirectory() && !parent.mkdirs()) {
+        throw new IOException("Unable to create " + parent);
+      }
+      try (OutputStream out = new FileOutputStream(file)) {
+        out.write(entry.getValue());
+      }
+    }
+    File manifest = new File(directory, PrecomputedProxies.MANIFEST);
+    File parent = manifest.getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Unable to create " + parent);
+    }
+    try (Writer out =
+        new OutputStreamWriter(new FileOutputStream(manifest), StandardCharsets.UTF_8)) {
+      for (String className : classes.keySet()) {
+        out.write(className);
+        out.write('\n');
+      }
+    }
+    return classes.size();
+  }
+}
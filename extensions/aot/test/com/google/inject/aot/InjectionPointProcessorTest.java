@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.aot;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.inject.spi.InjectionPoint;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Member;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+
+public class InjectionPointProcessorTest extends TestCase {
+
+  private final List<File> sources = Lists.newArrayList();
+  private File sourceDir;
+  private File outputDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    sourceDir = Files.createTempDir();
+    outputDir = Files.createTempDir();
+  }
+
+  public void testIndexesDeclaredMembers() throws IOException {
+    compile(
+        "package test;",
+        "import javax.inject.Inject;",
+        "public class Base {",
+        "  @Inject String name;",
+        "  @Inject static String ignored;",
+        "  @Inject void setAll(int count, String[] names, java.util.List<String> list) {}",
+        "  void notInjected() {}",
+        "}");
+    compile(
+        "package test;",
+        "public class Service extends Base {",
+        "  @com.google.inject.Inject Service(Runnable runnable) {}",
+        "  @com.google.inject.Inject(optional = true) Base base;",
+        "  public static class Nested {}",
+        "}");
+    compile(
+        "package test;",
+        "import javax.inject.Inject;",
+        "public class Invalid {",
+        "  @Inject final String value = null;",
+        "}");
+
+    assertEquals(
+        Joiner.on('\n')
+            .join(
+                "test.Base",
+                "  field name",
+                "  method setAll int java.lang.String[] java.util.List",
+                "test.Service",
+                "  constructor java.lang.Runnable",
+                "  field base",
+                "test.Service$Nested",
+                ""),
+        readIndexWithoutHeader());
+  }
+
+  public void testInjectionPointsAreReadFromIndex() throws Exception {
+    compile(
+        "package test;",
+        "import javax.inject.Inject;",
+        "public class Base {",
+        "  @Inject String name;",
+        "  @Inject void setCount(int count) {}",
+        "}");
+    compile(
+        "package test;",
+        "public class Service extends Base {",
+        "  @javax.inject.Inject Service(Runnable runnable) {}",
+        "  @javax.inject.Inject Integer number;",
+        "}");
+
+    Class<?> service = loadClass("test.Service");
+    assertEquals(
+        ImmutableList.of("name", "setCount", "number"),
+        memberNames(InjectionPoint.forInstanceMethodsAndFields(service)));
+    assertEquals(
+        service.getDeclaredConstructor(Runnable.class),
+        InjectionPoint.forConstructorOf(service).getMember());
+  }
+
+  public void testIndexIsUsedInsteadOfReflection() throws Exception {
+    compile(
+        "package test;",
+        "public class Service {",
+        "  @javax.inject.Inject Integer number;",
+        "  @javax.inject.Inject String name;",
+        "}");
+    File index = new File(outputDir, InjectionPointProcessor.RESOURCE);
+    String contents = Files.toString(index, StandardCharsets.UTF_8);
+    Files.write(
+        contents.replace("  field number\n  field name\n", "  field name\n  field number\n"),
+        index,
+        StandardCharsets.UTF_8);
+
+    assertEquals(
+        ImmutableList.of("name", "number"),
+        memberNames(InjectionPoint.forInstanceMethodsAndFields(loadClass("test.Service"))));
+  }
+
+  public void testIndexOfOtherLocationIsNotUsed() throws Exception {
+    compile(
+        "package test;",
+        "public class Service {",
+        "  @javax.inject.Inject Integer number;",
+        "  @javax.inject.Inject String name;",
+        "}");
+    File index = new File(outputDir, InjectionPointProcessor.RESOURCE);
+    String contents = Files.toString(index, StandardCharsets.UTF_8);
+    assertTrue(index.delete());
+
+    // an index of the same class that isn't next to the class that's loaded
+    File otherIndex = new File(Files.createTempDir(), InjectionPointProcessor.RESOURCE);
+    Files.createParentDirs(otherIndex);
+    Files.write(
+        contents.replace("  field number\n  field name\n", "  field name\n  field number\n"),
+        otherIndex,
+        StandardCharsets.UTF_8);
+    File otherRoot = otherIndex.getParentFile().getParentFile().getParentFile();
+
+    URLClassLoader classLoader =
+        new URLClassLoader(
+            new URL[] {otherRoot.toURI().toURL(), outputDir.toURI().toURL()},
+            InjectionPointProcessorTest.class.getClassLoader());
+    assertEquals(
+        ImmutableList.of("number", "name"),
+        memberNames(
+            InjectionPoint.forInstanceMethodsAndFields(classLoader.loadClass("test.Service"))));
+  }
+
+  public void testMissingMembersFallBackToReflection() throws Exception {
+    compile(
+        "package test;",
+        "public class Service {",
+        "  @javax.inject.Inject Integer number;",
+        "  @javax.inject.Inject String name;",
+        "  @javax.inject.Inject Service(Runnable runnable) {}",
+        "}");
+    File index = new File(outputDir, InjectionPointProcessor.RESOURCE);
+    String contents = Files.toString(index, StandardCharsets.UTF_8);
+
+    // rename a field and change the constructor, but keep the index of the original class
+    compile(
+        "package test;",
+        "public class Service {",
+        "  @javax.inject.Inject Integer number;",
+        "  @javax.inject.Inject String label;",
+        "  @javax.inject.Inject Service(String string) {}",
+        "}");
+    Files.write(contents, index, StandardCharsets.UTF_8);
+
+    Class<?> service = loadClass("test.Service");
+    assertEquals(
+        ImmutableList.of("number", "label"),
+        memberNames(InjectionPoint.forInstanceMethodsAndFields(service)));
+    assertEquals(
+        service.getDeclaredConstructor(String.class),
+        InjectionPoint.forConstructorOf(service).getMember());
+  }
+
+  private Class<?> loadClass(String name) throws Exception {
+    URLClassLoader classLoader =
+        new URLClassLoader(
+            new URL[] {outputDir.toURI().toURL()},
+            InjectionPointProcessorTest.class.getClassLoader());
+    return classLoader.loadClass(name);
+  }
+
+  private List<String> memberNames(Iterable<InjectionPoint> injectionPoints) {
+    List<String> names = Lists.newArrayList();
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      Member member = injectionPoint.getMember();
+      names.add(member.getName());
+    }
+    return names;
+  }
+
+  /** Adds or replaces a source file and recompiles all sources so far in one compilation. */
+  private void compile(String... lines) throws IOException {
+    String source = Joiner.on('\n').join(lines);
+    String className = source.substring(source.indexOf("class ") + 6).split(" ")[0];
+    File file = new File(sourceDir, className + ".java");
+    Files.write(source, file, StandardCharsets.UTF_8);
+    if (!sources.contains(file)) {
+      sources.add(file);
+    }
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+    try {
+      Iterable<? extends JavaFileObject> compilationUnits =
+          fileManager.getJavaFileObjectsFromFiles(sources);
+      List<String> options =
+          ImmutableList.of(
+              "-d",
+              outputDir.getPath(),
+              "-classpath",
+              System.getProperty("java.class.path"),
+              "-processor",
+              InjectionPointProcessor.class.getName());
+      assertTrue(compiler.getTask(null, fileManager, null, options, null, compilationUnits).call());
+    } finally {
+      fileManager.close();
+    }
+  }
+
+  private String readIndexWithoutHeader() throws IOException {
+    String index =
+        Files.toString(
+            new File(outputDir, InjectionPointProcessor.RESOURCE), StandardCharsets.UTF_8);
+    assertTrue(index, index.startsWith("# Generated by "));
+    return index.substring(index.indexOf('\n') + 1);
+  }
+}
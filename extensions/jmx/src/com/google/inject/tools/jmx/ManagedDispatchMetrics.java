@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.tools.jmx;
+
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.servlet.DispatchMetrics;
+import java.util.List;
+import java.util.Set;
+import javax.management.MBeanServer;
+
+class ManagedDispatchMetrics implements ManagedDispatchMetricsMBean {
+
+  final DispatchMetrics metrics;
+
+  ManagedDispatchMetrics(DispatchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /** Registers the dispatch metrics of {@code injector}, if it has any. */
+  static void manage(MBeanServer server, String domain, Injector injector) {
+    Key<DispatchMetrics> key = Key.get(DispatchMetrics.class);
+    Binding<DispatchMetrics> binding = injector.getExistingBinding(key);
+    if (binding == null) {
+      return;
+    }
+    DispatchMetrics metrics = binding.getProvider().get();
+    String name = Manager.objectName(domain, key) + ",metrics=dispatch";
+    Manager.register(server, new ManagedDispatchMetrics(metrics), name);
+    for (String route : metrics.getAllStatistics().keySet()) {
+      Manager.register(
+          server,
+          new ManagedDispatchStatistics(metrics, route),
+          name + ",route=" + Manager.quote(route));
+    }
+  }
+
+  @Override
+  public String[] getRoutes() {
+    Set<String> routes = metrics.getAllStatistics().keySet();
+    return routes.toArray(new String[routes.size()]);
+  }
+
+  @Override
+  public String[] getSlowRequests() {
+    List<String> slowRequests = metrics.getSlowRequests();
+    return slowRequests.toArray(new String[slowRequests.size()]);
+  }
+}
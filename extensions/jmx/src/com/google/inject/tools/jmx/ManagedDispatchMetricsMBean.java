@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.tools.jmx;
+
+/**
+ * JMX interface to the dispatch metrics of a servlet module.
+ *
+ * @since 4.2
+ */
+public interface ManagedDispatchMetricsMBean {
+
+  /** Gets the routes of the filters and servlets, in the order they're dispatched. */
+  String[] getRoutes();
+
+  /**
+   * Gets the most recent slow requests, latest first, with the time taken by each filter and
+   * servlet.
+   */
+  String[] getSlowRequests();
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.tools.jmx;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.inject.servlet.DispatchMetrics;
+import com.google.inject.servlet.DispatchStatistics;
+
+class ManagedDispatchStatistics implements ManagedDispatchStatisticsMBean {
+
+  private static final DispatchStatistics NONE = new DispatchStatistics(0, 0, 0, 0, new long[0]);
+
+  final DispatchMetrics metrics;
+  final String route;
+
+  ManagedDispatchStatistics(DispatchMetrics metrics, String route) {
+    this.metrics = metrics;
+    this.route = route;
+  }
+
+  private DispatchStatistics statistics() {
+    DispatchStatistics statistics = metrics.getStatistics(route);
+    return statistics != null ? statistics : NONE;
+  }
+
+  @Override
+  public String getRoute() {
+    return route;
+  }
+
+  @Override
+  public long getCount() {
+    return statistics().getCount();
+  }
+
+  @Override
+  public long getErrorCount() {
+    return statistics().getErrorCount();
+  }
+
+  @Override
+  public long getTotalTimeNanos() {
+    return statistics().getTotalTime(NANOSECONDS);
+  }
+
+  @Override
+  public long getMeanTimeNanos() {
+    return statistics().getMeanTime(NANOSECONDS);
+  }
+
+  @Override
+  public long getMaxTimeNanos() {
+    return statistics().getMaxTime(NANOSECONDS);
+  }
+
+  @Override
+  public long getMedianTimeNanos() {
+    return statistics().getPercentileTime(50, NANOSECONDS);
+  }
+
+  @Override
+  public long getP99TimeNanos() {
+    return statistics().getPercentileTime(99, NANOSECONDS);
+  }
+}
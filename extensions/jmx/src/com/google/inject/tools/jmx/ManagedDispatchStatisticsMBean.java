@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.tools.jmx;
+
+/**
+ * JMX interface to the dispatch metrics of a filter or servlet. Times are in nanoseconds, and
+ * exclude the rest of the chain that a filter calls.
+ *
+ * @since 4.2
+ */
+public interface ManagedDispatchStatisticsMBean {
+
+  /** Gets the route of the filter or servlet. */
+  String getRoute();
+
+  /** Gets the number of requests dispatched to the route. */
+  long getCount();
+
+  /** Gets the number of requests for which the filter or servlet threw. */
+  long getErrorCount();
+
+  /** Gets the total time spent in the route. */
+  long getTotalTimeNanos();
+
+  /** Gets the average time per request. */
+  long getMeanTimeNanos();
+
+  /** Gets the time taken by the slowest request. */
+  long getMaxTimeNanos();
+
+  /** Gets an upper bound on the time taken by half of the requests. */
+  long getMedianTimeNanos();
+
+  /** Gets an upper bound on the time taken by 99% of the requests. */
+  long getP99TimeNanos();
+}
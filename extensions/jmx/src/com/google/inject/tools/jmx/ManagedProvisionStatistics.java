@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.tools.jmx;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.inject.Key;
+import com.google.inject.spi.ProvisionMetrics;
+import com.google.inject.spi.ProvisionStatistics;
+
+class ManagedProvisionStatistics implements ManagedProvisionStatisticsMBean {
+
+  private static final ProvisionStatistics NONE =
+      new ProvisionStatistics(0, 0, 0, new long[0]);
+
+  final ProvisionMetrics metrics;
+  final Key<?> key;
+
+  ManagedProvisionStatistics(ProvisionMetrics metrics, Key<?> key) {
+    this.metrics = metrics;
+    this.key = key;
+  }
+
+  private ProvisionStatistics statistics() {
+    ProvisionStatistics statistics = metrics.getStatistics(key);
+    return statistics != null ? statistics : NONE;
+  }
+
+  @Override
+  public String getKey() {
+    return key.toString();
+  }
+
+  @Override
+  public long getCount() {
+    return statistics().getCount();
+  }
+
+  @Override
+  public long getTotalTimeNanos() {
+    return statistics().getTotalTime(NANOSECONDS);
+  }
+
+  @Override
+  public long getMeanTimeNanos() {
+    return statistics().getMeanTime(NANOSECONDS);
+  }
+
+  @Override
+  public long getMaxTimeNanos() {
+    return statistics().getMaxTime(NANOSECONDS);
+  }
+
+  @Override
+  public long getMedianTimeNanos() {
+    return statistics().getPercentileTime(50, NANOSECONDS);
+  }
+
+  @Override
+  public long getP99TimeNanos() {
+    return statistics().getPercentileTime(99, NANOSECONDS);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.tools.jmx;
+
+/**
+ * JMX interface to the provision metrics of a binding. Times are in nanoseconds, and include
+ * provisioning the binding's dependencies.
+ *
+ * @since 4.2
+ */
+public interface ManagedProvisionStatisticsMBean {
+
+  /** Gets the binding key. */
+  String getKey();
+
+  /** Gets the number of times the binding has been provisioned. */
+  long getCount();
+
+  /** Gets the total time spent provisioning the binding. */
+  long getTotalTimeNanos();
+
+  /** Gets the average time per provision. */
+  long getMeanTimeNanos();
+
+  /** Gets the time taken by the slowest provision. */
+  long getMaxTimeNanos();
+
+  /** Gets an upper bound on the time taken by half of the provisions. */
+  long getMedianTimeNanos();
+
+  /** Gets an upper bound on the time taken by 99% of the provisions. */
+  long getP99TimeNanos();
+}
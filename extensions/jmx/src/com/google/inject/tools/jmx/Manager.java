@@ -21,6 +21,8 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.Module;
+import com.google.inject.spi.InjectorDiagnostics;
+import com.google.inject.spi.ProvisionMetrics;
 import java.lang.annotation.Annotation;
 import java.lang.management.ManagementFactory;
 import javax.management.MBeanServer;
@@ -34,6 +36,9 @@ import javax.management.ObjectName;
  */
 public class Manager {
 
+  /** Whether guice-servlet, which this extension doesn't require, is on the classpath. */
+  private static final boolean SERVLET_AVAILABLE = isServletAvailable();
+
   /**
    * Registers all the bindings of an Injector with the platform MBean server. Consider using the
    * name of your root {@link Module} class as the domain.
@@ -45,34 +50,67 @@ public class Manager {
   /**
    * Registers all the bindings of an Injector with the given MBean server. Consider using the name
    * of your root {@link Module} class as the domain.
+   *
+   * <p>If the injector records {@link ProvisionMetrics}, the provision statistics of each binding
+   * are registered too, with the additional name property {@code metrics=provision}. If it records
+   * guice-servlet's {@code DispatchMetrics}, its slow requests are registered with the name property
+   * {@code metrics=dispatch}, and the statistics of each filter and servlet with an additional
+   * {@code route} property.
    */
   public static void manage(MBeanServer server, String domain, Injector injector) {
+    ProvisionMetrics metrics = InjectorDiagnostics.getProvisionMetrics(injector);
+
     // Register each binding independently.
     for (Binding<?> binding : injector.getBindings().values()) {
-      // Construct the name manually so we can ensure proper ordering of the
-      // key/value pairs.
-      StringBuilder name = new StringBuilder();
-      name.append(domain).append(":");
       Key<?> key = binding.getKey();
-      name.append("type=").append(quote(key.getTypeLiteral().toString()));
-      Annotation annotation = key.getAnnotation();
-      if (annotation != null) {
-        name.append(",annotation=").append(quote(annotation.toString()));
-      } else {
-        Class<? extends Annotation> annotationType = key.getAnnotationType();
-        if (annotationType != null) {
-          name.append(",annotation=").append(quote("@" + annotationType.getName()));
-        }
+      String name = objectName(domain, key);
+      register(server, new ManagedBinding(binding), name);
+      if (metrics != null) {
+        register(server, new ManagedProvisionStatistics(metrics, key), name + ",metrics=provision");
       }
+    }
+
+    if (SERVLET_AVAILABLE) {
+      ManagedDispatchMetrics.manage(server, domain, injector);
+    }
+  }
 
-      try {
-        server.registerMBean(new ManagedBinding(binding), new ObjectName(name.toString()));
-      } catch (MalformedObjectNameException e) {
-        throw new RuntimeException("Bad object name: " + name, e);
-      } catch (Exception e) {
-        throw new RuntimeException(e);
+  private static boolean isServletAvailable() {
+    try {
+      Class.forName(
+          "com.google.inject.servlet.DispatchMetrics", false, Manager.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  static String objectName(String domain, Key<?> key) {
+    // Construct the name manually so we can ensure proper ordering of the
+    // key/value pairs.
+    StringBuilder name = new StringBuilder();
+    name.append(domain).append(":");
+    name.append("type=").append(quote(key.getTypeLiteral().toString()));
+    Annotation annotation = key.getAnnotation();
+    if (annotation != null) {
+      name.append(",annotation=").append(quote(annotation.toString()));
+    } else {
+      Class<? extends Annotation> annotationType = key.getAnnotationType();
+      if (annotationType != null) {
+        name.append(",annotation=").append(quote("@" + annotationType.getName()));
       }
     }
+    return name.toString();
+  }
+
+  static void register(MBeanServer server, Object mbean, String name) {
+    try {
+      server.registerMBean(mbean, new ObjectName(name));
+    } catch (MalformedObjectNameException e) {
+      throw new RuntimeException("Bad object name: " + name, e);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
   }
 
   static String quote(String value) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.tools.jmx;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.spi.InjectorDiagnostics;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import junit.framework.TestCase;
+
+public class ManagerTest extends TestCase {
+
+  public void testBindingsAreRegistered() throws Exception {
+    Injector injector = createInjector();
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    Manager.manage(server, "test", injector);
+
+    ObjectName name = new ObjectName(Manager.objectName("test", Key.get(Bar.class)));
+    assertEquals(Key.get(Bar.class).toString(), server.getAttribute(name, "Key"));
+    String source = (String) server.getAttribute(name, "Source");
+    assertTrue(source, source.contains(ManagerTest.class.getName()));
+  }
+
+  public void testProvisionStatisticsAreRegistered() throws Exception {
+    Injector injector = createInjector();
+    injector.getInstance(Bar.class);
+    injector.getInstance(Bar.class);
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    Manager.manage(server, "test", injector);
+
+    ObjectName name =
+        new ObjectName(Manager.objectName("test", Key.get(Bar.class)) + ",metrics=provision");
+    if (InjectorDiagnostics.getProvisionMetrics(injector) == null) {
+      // run with -Dguice_provision_metrics=ENABLED, as the build does
+      assertFalse(server.isRegistered(name));
+      return;
+    }
+    assertEquals(Key.get(Bar.class).toString(), server.getAttribute(name, "Key"));
+    assertEquals(2L, server.getAttribute(name, "Count"));
+    long maxTimeNanos = (Long) server.getAttribute(name, "MaxTimeNanos");
+    assertTrue(maxTimeNanos <= (Long) server.getAttribute(name, "TotalTimeNanos"));
+  }
+
+  private static Injector createInjector() {
+    return Guice.createInjector(
+        new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(Bar.class);
+          }
+        });
+  }
+
+  static class Bar {}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How many requests, and how quickly, each filter and servlet of a {@link ServletModule} has
+ * handled. When the {@code guice_servlet_metrics} system property is {@code true}, the injector has
+ * an extra binding to its metrics:
+ *
+ * <pre>
+ *   DispatchMetrics metrics = injector.getInstance(DispatchMetrics.class);
+ *   DispatchStatistics statistics =
+ *       metrics.getStatistics("servlet /api/* com.example.ApiServlet");
+ * </pre>
+ *
+ * <p>Statistics are kept per route, which is the kind, URI pattern and key of a filter or servlet,
+ * like {@code "filter /* com.example.AuthFilter"}. A filter's time excludes the rest of the chain
+ * that it calls, so that each filter's own latency can be told apart. A request is counted as an
+ * error when the filter or servlet throws.
+ *
+ * <p>Requests that take longer than the {@code guice_servlet_slow_request_millis} system property,
+ * one second by default, are sampled with the time that each of their filters and servlets took.
+ *
+ * @since 4.2
+ */
+public interface DispatchMetrics {
+
+  /** Returns the statistics for {@code route}, or null if it isn't a route of the module. */
+  DispatchStatistics getStatistics(String route);
+
+  /** Returns the statistics for every route, in the order that the routes are dispatched. */
+  Map<String, DispatchStatistics> getAllStatistics();
+
+  /**
+   * Returns the most recent slow requests, latest first. Each is described by its method, URI and
+   * time, followed by the time taken by each filter and servlet that it was dispatched to.
+   */
+  List<String> getSlowRequests();
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Key;
+import com.google.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Counts dispatches per route. The routes are added when the pipelines are created, and each
+ * pipeline keeps the recorders of its own filters and servlets, so recording a dispatch neither
+ * looks up its route nor locks. Only slow requests are sampled under a lock.
+ */
+@Singleton
+final class DispatchMetricsImpl implements DispatchMetrics {
+
+  /** Whether servlet modules bind their injector's metrics, from {@code guice_servlet_metrics}. */
+  static final boolean ENABLED =
+      Boolean.parseBoolean(ServletUtils.getSystemProperty("guice_servlet_metrics"));
+
+  /** Buckets up to 2^39ns, about nine minutes. */
+  static final int HISTOGRAM_BUCKETS = 40;
+
+  /** The most slow requests that are kept. */
+  static final int MAX_SLOW_REQUESTS = 32;
+
+  private static final long DEFAULT_SLOW_REQUEST_MILLIS = 1000;
+
+  private final Map<String, RouteMetrics> routes = Maps.newLinkedHashMap();
+  private final Deque<String> slowRequests = new ArrayDeque<>();
+  private final long slowRequestNanos;
+
+  DispatchMetricsImpl() {
+    this(TimeUnit.MILLISECONDS.toNanos(getSlowRequestMillis()));
+  }
+
+  DispatchMetricsImpl(long slowRequestNanos) {
+    this.slowRequestNanos = slowRequestNanos;
+  }
+
+  private static long getSlowRequestMillis() {
+    String millis = ServletUtils.getSystemProperty("guice_servlet_slow_request_millis");
+    try {
+      return (millis != null) ? Long.parseLong(millis) : DEFAULT_SLOW_REQUEST_MILLIS;
+    } catch (NumberFormatException e) {
+      return DEFAULT_SLOW_REQUEST_MILLIS;
+    }
+  }
+
+  /** Returns the route of a filter or servlet, which names its statistics. */
+  static String route(String kind, UriPatternMatcher patternMatcher, Key<?> key) {
+    String target =
+        (key.getAnnotationType() == null) ? key.getTypeLiteral().toString() : key.toString();
+    return kind + " " + patternMatcher.getOriginalPattern() + " " + target;
+  }
+
+  /** Returns the recorder for dispatches to {@code route}, adding the route if it's new. */
+  synchronized RouteMetrics forRoute(String route) {
+    RouteMetrics routeMetrics = routes.get(route);
+    if (routeMetrics == null) {
+      routeMetrics = new RouteMetrics(route);
+      routes.put(route, routeMetrics);
+    }
+    return routeMetrics;
+  }
+
+  /** Starts recording the dispatches of {@code request}. */
+  Trace newTrace(HttpServletRequest request) {
+    return new Trace(request);
+  }
+
+  @Override
+  public synchronized DispatchStatistics getStatistics(String route) {
+    RouteMetrics routeMetrics = routes.get(route);
+    return (routeMetrics != null) ? routeMetrics.snapshot() : null;
+  }
+
+  @Override
+  public Map<String, DispatchStatistics> getAllStatistics() {
+    List<RouteMetrics> allRoutes;
+    synchronized (this) {
+      allRoutes = ImmutableList.copyOf(routes.values());
+    }
+    ImmutableMap.Builder<String, DispatchStatistics> result = ImmutableMap.builder();
+    for (RouteMetrics routeMetrics : allRoutes) {
+      result.put(routeMetrics.route, routeMetrics.snapshot());
+    }
+    return result.build();
+  }
+
+  @Override
+  public List<String> getSlowRequests() {
+    synchronized (slowRequests) {
+      return ImmutableList.copyOf(slowRequests);
+    }
+  }
+
+  private void addSlowRequest(String slowRequest) {
+    synchronized (slowRequests) {
+      if (slowRequests.size() == MAX_SLOW_REQUESTS) {
+        slowRequests.removeLast();
+      }
+      slowRequests.addFirst(slowRequest);
+    }
+  }
+
+  private static String formatMillis(long nanos) {
+    return String.format("%.3fms", nanos / 1e6);
+  }
+
+  /** Dispatches to one filter or servlet. */
+  static final class RouteMetrics {
+    final String route;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    RouteMetrics(String route) {
+      this.route = route;
+    }
+
+    void record(long nanos, boolean failed) {
+      if (nanos < 0) {
+        nanos = 0; // the clock went backwards
+      }
+      count.incrementAndGet();
+      if (failed) {
+        errorCount.incrementAndGet();
+      }
+      totalNanos.addAndGet(nanos);
+      int bucket = Math.min(64 - Long.numberOfLeadingZeros(nanos), HISTOGRAM_BUCKETS - 1);
+      histogram.incrementAndGet(bucket);
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+        max = maxNanos.get();
+      }
+    }
+
+    /** Returns the statistics so far. Dispatches recorded concurrently may be partly included. */
+    DispatchStatistics snapshot() {
+      long[] buckets = new long[HISTOGRAM_BUCKETS];
+      for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+        buckets[i] = histogram.get(i);
+      }
+      return new DispatchStatistics(
+          count.get(), errorCount.get(), totalNanos.get(), maxNanos.get(), buckets);
+    }
+  }
+
+  /**
+   * The dispatches of one request, which are kept until the request finishes in case it turns out
+   * to be slow. Used by the thread that dispatches the request only.
+   */
+  final class Trace {
+    private final HttpServletRequest request;
+    private final long startNanos = System.nanoTime();
+    private final List<RouteMetrics> dispatchedRoutes = Lists.newArrayListWithCapacity(4);
+    private long[] dispatchNanos = new long[4];
+
+    Trace(HttpServletRequest request) {
+      this.request = request;
+    }
+
+    /**
+     * Starts a dispatch to {@code routeMetrics}, and returns its index in the trace. Dispatches are
+     * listed in the order they start, so that filters come before the servlets that they lead to.
+     */
+    int start(RouteMetrics routeMetrics) {
+      int index = dispatchedRoutes.size();
+      if (index == dispatchNanos.length) {
+        long[] newDispatchNanos = new long[index * 2];
+        System.arraycopy(dispatchNanos, 0, newDispatchNanos, 0, index);
+        dispatchNanos = newDispatchNanos;
+      }
+      dispatchedRoutes.add(routeMetrics);
+      return index;
+    }
+
+    /** Records the dispatch at {@code index}. */
+    void finish(int index, long nanos, boolean failed) {
+      dispatchedRoutes.get(index).record(nanos, failed);
+      dispatchNanos[index] = nanos;
+    }
+
+    /** Samples the request if it was slow. */
+    void finish() {
+      long nanos = System.nanoTime() - startNanos;
+      if (nanos < slowRequestNanos) {
+        return;
+      }
+      StringBuilder slowRequest =
+          new StringBuilder()
+              .append(request.getMethod())
+              .append(' ')
+              .append(request.getRequestURI())
+              .append(' ')
+              .append(formatMillis(nanos));
+      for (int i = 0; i < dispatchedRoutes.size(); i++) {
+        slowRequest
+            .append(i == 0 ? ": " : ", ")
+            .append(dispatchedRoutes.get(i).route)
+            .append(' ')
+            .append(formatMillis(dispatchNanos[i]));
+      }
+      addSlowRequest(slowRequest.toString());
+    }
+  }
+}
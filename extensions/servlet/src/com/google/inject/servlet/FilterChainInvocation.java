@@ -19,6 +19,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -43,25 +44,47 @@ import javax.servlet.http.HttpServletResponse;
 class FilterChainInvocation implements FilterChain {
 
   private static final ImmutableSet<String> SERVLET_INTERNAL_METHODS =
-      ImmutableSet.of(FilterChainInvocation.class.getName() + ".doFilter");
+      ImmutableSet.of(
+          FilterChainInvocation.class.getName() + ".doFilter",
+          FilterChainInvocation.class.getName() + ".doFilterAndRecord");
 
   private final FilterDefinition[] filterDefinitions;
+  private final UriPatternIndex filterIndex;
   private final FilterChain proceedingChain;
   private final ManagedServletPipeline servletPipeline;
+  // set only if dispatch metrics are recorded, with the recorder of each filter
+  private final DispatchMetricsImpl.Trace trace;
+  private final DispatchMetricsImpl.RouteMetrics[] filterMetrics;
 
   //state variable tracks current link in filterchain
   private int index = -1;
+  // time spent in the rest of the chain, which is subtracted from the time of the filter calling it
+  private long chainNanos;
   // whether or not we've caught an exception & cleaned up stack traces
   private boolean cleanedStacks = false;
 
   public FilterChainInvocation(
       FilterDefinition[] filterDefinitions,
+      UriPatternIndex filterIndex,
       ManagedServletPipeline servletPipeline,
       FilterChain proceedingChain) {
+    this(filterDefinitions, filterIndex, servletPipeline, proceedingChain, null, null);
+  }
+
+  FilterChainInvocation(
+      FilterDefinition[] filterDefinitions,
+      UriPatternIndex filterIndex,
+      ManagedServletPipeline servletPipeline,
+      FilterChain proceedingChain,
+      DispatchMetricsImpl.Trace trace,
+      DispatchMetricsImpl.RouteMetrics[] filterMetrics) {
 
     this.filterDefinitions = filterDefinitions;
+    this.filterIndex = filterIndex;
     this.servletPipeline = servletPipeline;
     this.proceedingChain = proceedingChain;
+    this.trace = trace;
+    this.filterMetrics = filterMetrics;
   }
 
   @Override
@@ -73,16 +96,20 @@ class FilterChainInvocation implements FilterChain {
     HttpServletRequest originalRequest =
         (previous != null) ? previous.getOriginalRequest() : request;
     GuiceFilter.localContext.set(new GuiceFilter.Context(originalRequest, request, response));
+    long start = (trace != null) ? System.nanoTime() : 0;
+    long outerChainNanos = chainNanos;
     try {
       Filter filter = findNextFilter(request);
-      if (filter != null) {
+      if (filter != null && trace != null) {
+        doFilterAndRecord(filter, servletRequest, servletResponse);
+      } else if (filter != null) {
         // call to the filter, which can either consume the request or
         // recurse back into this method. (in which case we will go to find the next filter,
         // or dispatch to the servlet if no more filters are left)
         filter.doFilter(servletRequest, servletResponse, this);
       } else {
         //we've reached the end of the filterchain, let's try to dispatch to a servlet
-        final boolean serviced = servletPipeline.service(servletRequest, servletResponse);
+        final boolean serviced = servletPipeline.service(servletRequest, servletResponse, trace);
 
         //dispatch to the normal filter chain only if one of our servlets did not match
         if (!serviced) {
@@ -101,21 +128,49 @@ class FilterChainInvocation implements FilterChain {
       Throwables.propagateIfInstanceOf(t, IOException.class);
       throw Throwables.propagate(t);
     } finally {
+      if (trace != null) {
+        chainNanos = outerChainNanos + (System.nanoTime() - start);
+      }
       GuiceFilter.localContext.set(previous);
     }
   }
 
+  /** Calls the filter, and records the time it took apart from the rest of the chain. */
+  private void doFilterAndRecord(
+      Filter filter, ServletRequest servletRequest, ServletResponse servletResponse)
+      throws IOException, ServletException {
+    int dispatch = trace.start(filterMetrics[index]);
+    chainNanos = 0;
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      filter.doFilter(servletRequest, servletResponse, this);
+      failed = false;
+    } finally {
+      trace.finish(dispatch, System.nanoTime() - start - chainNanos, failed);
+    }
+  }
+
   /**
-   * Iterates over the remaining filter definitions. Returns the first applicable filter, or null if
-   * none apply.
+   * Finds the remaining filter definitions that match the request in the filter index. Returns the
+   * first applicable filter, or null if none apply. The request's path is looked up again at each
+   * step, since a filter may have wrapped the request with another URI.
    */
   private Filter findNextFilter(HttpServletRequest request) {
-    while (++index < filterDefinitions.length) {
-      Filter filter = filterDefinitions[index].getFilterIfMatching(request);
+    if (index + 1 >= filterDefinitions.length) {
+      index = filterDefinitions.length;
+      return null;
+    }
+    int[] matches = filterIndex.getMatches(ServletUtils.getContextRelativePath(request));
+    int next = Arrays.binarySearch(matches, index + 1);
+    for (int i = (next >= 0) ? next : -next - 1; i < matches.length; i++) {
+      index = matches[i];
+      Filter filter = filterDefinitions[index].getFilter();
       if (filter != null) {
         return filter;
       }
     }
+    index = filterDefinitions.length;
     return null;
   }
 
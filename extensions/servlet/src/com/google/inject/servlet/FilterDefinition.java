@@ -163,8 +163,16 @@ class FilterDefinition implements ProviderWithExtensionVisitor<FilterDefinition>
     }
   }
 
-  //VisibleForTesting
   Filter getFilter() {
     return filter.get();
   }
+
+  UriPatternMatcher getPatternMatcher() {
+    return patternMatcher;
+  }
+
+  /** Returns the route that {@link DispatchMetrics} keep the statistics of this filter under. */
+  String getRoute() {
+    return DispatchMetricsImpl.route("filter", patternMatcher, filterKey);
+  }
 }
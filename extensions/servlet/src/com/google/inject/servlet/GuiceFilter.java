@@ -17,12 +17,14 @@
 package com.google.inject.servlet;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.google.inject.Key;
 import com.google.inject.OutOfScopeException;
 import com.google.inject.internal.Errors;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
@@ -159,7 +161,7 @@ public class GuiceFilter implements Filter {
     return servletContext.get();
   }
 
-  private static Context getContext(Key<?> key) {
+  static Context getContext(Key<?> key) {
     Context context = localContext.get();
     if (context == null) {
       throw new OutOfScopeException(
@@ -174,10 +176,16 @@ public class GuiceFilter implements Filter {
   }
 
   static class Context implements RequestScoper {
+    /** The attribute of the original request that holds its request-scoped objects. */
+    static final String SCOPED_OBJECTS_ATTRIBUTE = Context.class.getName() + ".scopedObjects";
+
     final HttpServletRequest originalRequest;
     final HttpServletRequest request;
     final HttpServletResponse response;
 
+    // Looked up on first use, as most contexts of a request never need it.
+    private Map<Key<?>, Object> scopedObjects;
+
     // Synchronized to prevent two threads from using the same request
     // scope concurrently.
     final Lock lock = new ReentrantLock();
@@ -203,6 +211,28 @@ public class GuiceFilter implements Filter {
       return response;
     }
 
+    /**
+     * Returns the objects scoped to the original request by {@link ServletScopes#REQUEST}, by key.
+     * Every context of the request shares them, including contexts for the request when the
+     * container dispatches it again. Callers must synchronize on the map.
+     */
+    Map<Key<?>, Object> getScopedObjects() {
+      Map<Key<?>, Object> objects = scopedObjects;
+      if (objects == null) {
+        synchronized (originalRequest) {
+          @SuppressWarnings("unchecked")
+          Map<Key<?>, Object> shared =
+              (Map<Key<?>, Object>) originalRequest.getAttribute(SCOPED_OBJECTS_ATTRIBUTE);
+          if (shared == null) {
+            shared = Maps.newHashMap();
+            originalRequest.setAttribute(SCOPED_OBJECTS_ATTRIBUTE, shared);
+          }
+          objects = scopedObjects = shared;
+        }
+      }
+      return objects;
+    }
+
     @Override
     public CloseableScope open() {
       lock.lock();
@@ -94,6 +94,9 @@ final class InternalServletModule extends AbstractModule {
     bind(ManagedFilterPipeline.class);
     bind(ManagedServletPipeline.class);
     bind(FilterPipeline.class).to(ManagedFilterPipeline.class).asEagerSingleton();
+    if (DispatchMetricsImpl.ENABLED) {
+      bind(DispatchMetrics.class).to(DispatchMetricsImpl.class);
+    }
 
     bind(ServletContext.class).toProvider(BackwardsCompatibleServletContextProvider.class);
     bind(BackwardsCompatibleServletContextProvider.class);
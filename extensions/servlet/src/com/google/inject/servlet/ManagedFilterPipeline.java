@@ -46,7 +46,12 @@ import javax.servlet.http.HttpServletRequestWrapper;
 class ManagedFilterPipeline implements FilterPipeline {
   private final FilterDefinition[] filterDefinitions;
   private final ManagedServletPipeline servletPipeline;
+  // built in initPipeline, and published by initialized
+  private UriPatternIndex filterIndex;
   private final Provider<ServletContext> servletContext;
+  // set only if dispatch metrics are recorded, with the recorder of each filter
+  private DispatchMetricsImpl dispatchMetrics;
+  private DispatchMetricsImpl.RouteMetrics[] filterMetrics;
 
   //Unfortunately, we need the injector itself in order to create filters + servlets
   private final Injector injector;
@@ -68,6 +73,23 @@ class ManagedFilterPipeline implements FilterPipeline {
     this.filterDefinitions = collectFilterDefinitions(injector);
   }
 
+  /** Records dispatches to the filters and servlets if the injector has dispatch metrics. */
+  @Inject(optional = true)
+  void setDispatchMetrics(DispatchMetrics dispatchMetrics) {
+    if (!(dispatchMetrics instanceof DispatchMetricsImpl)) {
+      return;
+    }
+    DispatchMetricsImpl metrics = (DispatchMetricsImpl) dispatchMetrics;
+    DispatchMetricsImpl.RouteMetrics[] routeMetrics =
+        new DispatchMetricsImpl.RouteMetrics[filterDefinitions.length];
+    for (int i = 0; i < filterDefinitions.length; i++) {
+      routeMetrics[i] = metrics.forRoute(filterDefinitions[i].getRoute());
+    }
+    servletPipeline.initDispatchMetrics(metrics);
+    this.filterMetrics = routeMetrics;
+    this.dispatchMetrics = metrics;
+  }
+
   /**
    * Introspects the injector and collects all instances of bound {@code List<FilterDefinition>}
    * into a master list.
@@ -85,6 +107,15 @@ class ManagedFilterPipeline implements FilterPipeline {
     return filterDefinitions.toArray(new FilterDefinition[filterDefinitions.size()]);
   }
 
+  /** Indexes the filters' URI patterns, so that dispatch doesn't test each of them. */
+  private UriPatternIndex buildFilterIndex() {
+    List<UriPatternMatcher> patternMatchers = Lists.newArrayList();
+    for (FilterDefinition filterDefinition : filterDefinitions) {
+      patternMatchers.add(filterDefinition.getPatternMatcher());
+    }
+    return new UriPatternIndex(patternMatchers);
+  }
+
   @Override
   public synchronized void initPipeline(ServletContext servletContext) throws ServletException {
 
@@ -98,6 +129,8 @@ class ManagedFilterPipeline implements FilterPipeline {
       filterDefinition.init(servletContext, injector, initializedSoFar);
     }
 
+    filterIndex = buildFilterIndex();
+
     //next, initialize servlets...
     servletPipeline.init(servletContext, injector);
 
@@ -116,9 +149,27 @@ class ManagedFilterPipeline implements FilterPipeline {
       initPipeline(servletContext.get());
     }
 
-    //obtain the servlet pipeline to dispatch against
-    new FilterChainInvocation(filterDefinitions, servletPipeline, proceedingFilterChain)
-        .doFilter(withDispatcher(request, servletPipeline), response);
+    if (dispatchMetrics == null) {
+      //obtain the servlet pipeline to dispatch against
+      new FilterChainInvocation(
+              filterDefinitions, filterIndex, servletPipeline, proceedingFilterChain)
+          .doFilter(withDispatcher(request, servletPipeline), response);
+      return;
+    }
+
+    DispatchMetricsImpl.Trace trace = dispatchMetrics.newTrace((HttpServletRequest) request);
+    try {
+      new FilterChainInvocation(
+              filterDefinitions,
+              filterIndex,
+              servletPipeline,
+              proceedingFilterChain,
+              trace,
+              filterMetrics)
+          .doFilter(withDispatcher(request, servletPipeline), response);
+    } finally {
+      trace.finish();
+    }
   }
 
   /**
@@ -44,6 +44,10 @@ import javax.servlet.http.HttpServletRequestWrapper;
 @Singleton
 class ManagedServletPipeline {
   private final ServletDefinition[] servletDefinitions;
+  // built in init, or on first use by a pipeline that wasn't initialized
+  private volatile UriPatternIndex servletIndex;
+  // set only if dispatch metrics are recorded, with the recorder of each servlet
+  private DispatchMetricsImpl.RouteMetrics[] servletMetrics;
   private static final TypeLiteral<ServletDefinition> SERVLET_DEFS =
       TypeLiteral.get(ServletDefinition.class);
 
@@ -79,16 +83,64 @@ class ManagedServletPipeline {
     for (ServletDefinition servletDefinition : servletDefinitions) {
       servletDefinition.init(servletContext, injector, initializedSoFar);
     }
+    servletIndex = buildServletIndex();
+  }
+
+  /** Indexes the servlets' URI patterns, so that dispatch doesn't test each of them. */
+  private UriPatternIndex buildServletIndex() {
+    List<UriPatternMatcher> patternMatchers = Lists.newArrayList();
+    for (ServletDefinition servletDefinition : servletDefinitions) {
+      patternMatchers.add(servletDefinition.getPatternMatcher());
+    }
+    return new UriPatternIndex(patternMatchers);
+  }
+
+  private UriPatternIndex getServletIndex() {
+    UriPatternIndex index = servletIndex;
+    if (index == null) {
+      servletIndex = index = buildServletIndex();
+    }
+    return index;
+  }
+
+  /** Adds the routes of the servlets to {@code metrics}, and records dispatches to them. */
+  void initDispatchMetrics(DispatchMetricsImpl metrics) {
+    DispatchMetricsImpl.RouteMetrics[] routeMetrics =
+        new DispatchMetricsImpl.RouteMetrics[servletDefinitions.length];
+    for (int i = 0; i < servletDefinitions.length; i++) {
+      routeMetrics[i] = metrics.forRoute(servletDefinitions[i].getRoute());
+    }
+    servletMetrics = routeMetrics;
   }
 
   public boolean service(ServletRequest request, ServletResponse response)
       throws IOException, ServletException {
+    return service(request, response, null);
+  }
+
+  /** Services the request, and records the dispatch in {@code trace} if it isn't null. */
+  boolean service(
+      ServletRequest request, ServletResponse response, DispatchMetricsImpl.Trace trace)
+      throws IOException, ServletException {
 
     //stop at the first matching servlet and service
-    for (ServletDefinition servletDefinition : servletDefinitions) {
-      if (servletDefinition.service(request, response)) {
+    String path = ServletUtils.getContextRelativePath((HttpServletRequest) request);
+    int match = getServletIndex().getFirstMatch(path);
+    if (match != -1) {
+      if (trace == null || servletMetrics == null) {
+        servletDefinitions[match].doService(request, response);
         return true;
       }
+      int dispatch = trace.start(servletMetrics[match]);
+      long start = System.nanoTime();
+      boolean failed = true;
+      try {
+        servletDefinitions[match].doService(request, response);
+        failed = false;
+      } finally {
+        trace.finish(dispatch, System.nanoTime() - start, failed);
+      }
+      return true;
     }
 
     //there was no match...
@@ -112,56 +164,56 @@ class ManagedServletPipeline {
     // TODO(dhanji): check servlet spec to see if the following is legal or not.
     // Need to strip query string if requested...
 
-    for (final ServletDefinition servletDefinition : servletDefinitions) {
-      if (servletDefinition.shouldServe(path)) {
-        return new RequestDispatcher() {
-          @Override
-          public void forward(ServletRequest servletRequest, ServletResponse servletResponse)
-              throws ServletException, IOException {
-            Preconditions.checkState(
-                !servletResponse.isCommitted(),
-                "Response has been committed--you can only call forward before"
-                    + " committing the response (hint: don't flush buffers)");
-
-            // clear buffer before forwarding
-            servletResponse.resetBuffer();
-
-            ServletRequest requestToProcess;
-            if (servletRequest instanceof HttpServletRequest) {
-              requestToProcess = wrapRequest((HttpServletRequest) servletRequest, newRequestUri);
-            } else {
-              // This should never happen, but instead of throwing an exception
-              // we will allow a happy case pass thru for maximum tolerance to
-              // legacy (and internal) code.
-              requestToProcess = servletRequest;
-            }
-
-            // now dispatch to the servlet
-            doServiceImpl(servletDefinition, requestToProcess, servletResponse);
-          }
+    int match = getServletIndex().getFirstMatch(path);
+    if (match != -1) {
+      final ServletDefinition servletDefinition = servletDefinitions[match];
+      return new RequestDispatcher() {
+        @Override
+        public void forward(ServletRequest servletRequest, ServletResponse servletResponse)
+            throws ServletException, IOException {
+          Preconditions.checkState(
+              !servletResponse.isCommitted(),
+              "Response has been committed--you can only call forward before"
+                  + " committing the response (hint: don't flush buffers)");
 
-          @Override
-          public void include(ServletRequest servletRequest, ServletResponse servletResponse)
-              throws ServletException, IOException {
-            // route to the target servlet
-            doServiceImpl(servletDefinition, servletRequest, servletResponse);
+          // clear buffer before forwarding
+          servletResponse.resetBuffer();
+
+          ServletRequest requestToProcess;
+          if (servletRequest instanceof HttpServletRequest) {
+            requestToProcess = wrapRequest((HttpServletRequest) servletRequest, newRequestUri);
+          } else {
+            // This should never happen, but instead of throwing an exception
+            // we will allow a happy case pass thru for maximum tolerance to
+            // legacy (and internal) code.
+            requestToProcess = servletRequest;
           }
 
-          private void doServiceImpl(
-              ServletDefinition servletDefinition,
-              ServletRequest servletRequest,
-              ServletResponse servletResponse)
-              throws ServletException, IOException {
-            servletRequest.setAttribute(REQUEST_DISPATCHER_REQUEST, Boolean.TRUE);
-
-            try {
-              servletDefinition.doService(servletRequest, servletResponse);
-            } finally {
-              servletRequest.removeAttribute(REQUEST_DISPATCHER_REQUEST);
-            }
+          // now dispatch to the servlet
+          doServiceImpl(servletDefinition, requestToProcess, servletResponse);
+        }
+
+        @Override
+        public void include(ServletRequest servletRequest, ServletResponse servletResponse)
+            throws ServletException, IOException {
+          // route to the target servlet
+          doServiceImpl(servletDefinition, servletRequest, servletResponse);
+        }
+
+        private void doServiceImpl(
+            ServletDefinition servletDefinition,
+            ServletRequest servletRequest,
+            ServletResponse servletResponse)
+            throws ServletException, IOException {
+          servletRequest.setAttribute(REQUEST_DISPATCHER_REQUEST, Boolean.TRUE);
+
+          try {
+            servletDefinition.doService(servletRequest, servletResponse);
+          } finally {
+            servletRequest.removeAttribute(REQUEST_DISPATCHER_REQUEST);
           }
-        };
-      }
+        }
+      };
     }
 
     //otherwise, can't process
@@ -296,4 +296,13 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
   String getKey() {
     return servletKey.toString();
   }
+
+  UriPatternMatcher getPatternMatcher() {
+    return patternMatcher;
+  }
+
+  /** Returns the route that {@link DispatchMetrics} keep the statistics of this servlet under. */
+  String getRoute() {
+    return DispatchMetricsImpl.route("servlet", patternMatcher, servletKey);
+  }
 }
@@ -29,6 +29,9 @@ import com.google.inject.Scope;
 import com.google.inject.Scopes;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.servlet.http.HttpServletRequest;
@@ -56,6 +59,31 @@ public class ServletScopes {
     INSTANCE
   }
 
+  /**
+   * Whether {@link #REQUEST} also stores each object as an attribute of the request, named by its
+   * key's {@code toString()}, and looks up attributes of that name that it didn't store itself.
+   * Objects are otherwise only kept in a map of the request by key, which saves building the
+   * attribute name on each call. Enable it for code that reads or seeds request-scoped objects as
+   * attributes, by setting the system property {@code guice_request_scope_attributes} to {@code
+   * true}.
+   */
+  //VisibleForTesting
+  static boolean mirrorRequestAttributes =
+      Boolean.parseBoolean(ServletUtils.getSystemProperty("guice_request_scope_attributes"));
+
+  /**
+   * Whether {@link #SESSION} also stores each object as an attribute of the session, named by its
+   * key's {@code toString()}. Objects are otherwise only kept in the session's map of scoped
+   * objects, and an attribute of that name is moved into the map and removed the first time that
+   * its key is scoped, as sessions from before the map stored objects that way. Enable it for code
+   * that reads session-scoped objects as attributes, by setting the system property {@code
+   * guice_session_scope_attributes} to {@code true}. The attributes are then kept, and are looked
+   * up for keys that aren't in the map yet.
+   */
+  //VisibleForTesting
+  static boolean mirrorSessionAttributes =
+      Boolean.parseBoolean(ServletUtils.getSystemProperty("guice_session_scope_attributes"));
+
   /** HTTP servlet request scope. */
   public static final Scope REQUEST = new RequestScope();
 
@@ -103,20 +131,26 @@ public class ServletScopes {
             // exception is thrown.
           }
 
-          // Always synchronize and get/set attributes on the underlying request
+          // Always get/set objects on the context of the underlying request
           // object since Filters may wrap the request and change the value of
           // {@code GuiceFilter.getRequest()}.
           //
           // This _correctly_ throws up if the thread is out of scope.
-          HttpServletRequest request = GuiceFilter.getOriginalRequest(key);
+          GuiceFilter.Context context = GuiceFilter.getContext(key);
           if (REQUEST_CONTEXT_KEYS.contains(key)) {
             // Don't store these keys as attributes, since they are handled by
             // GuiceFilter itself.
             return creator.get();
           }
-          String name = key.toString();
-          synchronized (request) {
-            Object obj = request.getAttribute(name);
+          Map<Key<?>, Object> scopedObjects = context.getScopedObjects();
+          synchronized (scopedObjects) {
+            Object obj = scopedObjects.get(key);
+            if (obj == null && mirrorRequestAttributes) {
+              obj = context.getOriginalRequest().getAttribute(key.toString());
+              if (obj != null) {
+                scopedObjects.put(key, obj);
+              }
+            }
             if (NullObject.INSTANCE == obj) {
               return null;
             }
@@ -125,7 +159,11 @@ public class ServletScopes {
             if (t == null) {
               t = creator.get();
               if (!Scopes.isCircularProxy(t)) {
-                request.setAttribute(name, (t != null) ? t : NullObject.INSTANCE);
+                Object value = (t != null) ? t : NullObject.INSTANCE;
+                scopedObjects.put(key, value);
+                if (mirrorRequestAttributes) {
+                  context.getOriginalRequest().setAttribute(key.toString(), value);
+                }
               }
             }
             return t;
@@ -145,9 +183,21 @@ public class ServletScopes {
     }
   }
 
-  /** HTTP session scope. */
+  /**
+   * HTTP session scope.
+   *
+   * <p>Objects are kept in a concurrent map, which is stored in a single attribute of the session
+   * and is serialized with it, and also as attributes named by their keys if {@code
+   * guice_session_scope_attributes} is set. Objects that have already been scoped are looked up
+   * without locking, so parallel requests of one session don't wait for each other. An object that
+   * hasn't been scoped yet is created at most once, while holding the map's monitor.
+   */
   public static final Scope SESSION = new SessionScope();
 
+  /** The attribute of the session that holds its session-scoped objects. */
+  static final String SESSION_SCOPED_OBJECTS_ATTRIBUTE =
+      ServletScopes.class.getName() + ".sessionScopedObjects";
+
   private static final class SessionScope implements Scope {
     @Override
     public <T> Provider<T> scope(final Key<T> key, final Provider<T> creator) {
@@ -156,21 +206,45 @@ public class ServletScopes {
         @Override
         public T get() {
           HttpSession session = GuiceFilter.getRequest(key).getSession();
-          synchronized (session) {
-            Object obj = session.getAttribute(name);
-            if (NullObject.INSTANCE == obj) {
-              return null;
-            }
-            @SuppressWarnings("unchecked")
-            T t = (T) obj;
-            if (t == null) {
-              t = creator.get();
-              if (!Scopes.isCircularProxy(t)) {
-                session.setAttribute(name, (t != null) ? t : NullObject.INSTANCE);
+          ConcurrentMap<String, Object> scopedObjects = getSessionScopedObjects(session);
+          Object obj = scopedObjects.get(name);
+          if (obj == null) {
+            // Only one object may be created for a key, but locking per key could deadlock two
+            // threads that create objects which depend on each other.
+            synchronized (scopedObjects) {
+              obj = scopedObjects.get(name);
+              if (obj == null) {
+                // Attributes of this name are mirrored objects, or are from sessions from before
+                // objects were kept in the map.
+                Object attribute = session.getAttribute(name);
+                obj = attribute;
+                if (obj == null) {
+                  T t = creator.get();
+                  if (Scopes.isCircularProxy(t)) {
+                    return t;
+                  }
+                  obj = (t != null) ? t : NullObject.INSTANCE;
+                }
+                scopedObjects.put(name, obj);
+                // Set the attribute again, so that the container replicates the new object.
+                session.setAttribute(SESSION_SCOPED_OBJECTS_ATTRIBUTE, scopedObjects);
+                if (mirrorSessionAttributes) {
+                  if (attribute == null) {
+                    session.setAttribute(name, obj);
+                  }
+                } else if (attribute != null) {
+                  // It's been moved into the map, so don't keep it twice.
+                  session.removeAttribute(name);
+                }
               }
             }
-            return t;
           }
+          if (NullObject.INSTANCE == obj) {
+            return null;
+          }
+          @SuppressWarnings("unchecked")
+          T t = (T) obj;
+          return t;
         }
 
         @Override
@@ -180,6 +254,24 @@ public class ServletScopes {
       };
     }
 
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMap<String, Object> getSessionScopedObjects(HttpSession session) {
+      ConcurrentMap<String, Object> scopedObjects =
+          (ConcurrentMap<String, Object>) session.getAttribute(SESSION_SCOPED_OBJECTS_ATTRIBUTE);
+      if (scopedObjects == null) {
+        synchronized (session) {
+          scopedObjects =
+              (ConcurrentMap<String, Object>)
+                  session.getAttribute(SESSION_SCOPED_OBJECTS_ATTRIBUTE);
+          if (scopedObjects == null) {
+            scopedObjects = new ConcurrentHashMap<>();
+            session.setAttribute(SESSION_SCOPED_OBJECTS_ATTRIBUTE, scopedObjects);
+          }
+        }
+      }
+      return scopedObjects;
+    }
+
     @Override
     public String toString() {
       return "ServletScopes.SESSION";
@@ -226,9 +318,14 @@ public class ServletScopes {
     // Snapshot the seed map and add all the instances to our continuing HTTP request.
     final ContinuingHttpServletRequest continuingRequest =
         new ContinuingHttpServletRequest(GuiceFilter.getRequest(Key.get(HttpServletRequest.class)));
+    Map<Key<?>, Object> scopedObjects = Maps.newHashMap();
+    continuingRequest.setAttribute(GuiceFilter.Context.SCOPED_OBJECTS_ATTRIBUTE, scopedObjects);
     for (Map.Entry<Key<?>, Object> entry : seedMap.entrySet()) {
       Object value = validateAndCanonicalizeValue(entry.getKey(), entry.getValue());
-      continuingRequest.setAttribute(entry.getKey().toString(), value);
+      scopedObjects.put(entry.getKey(), value);
+      if (mirrorRequestAttributes) {
+        continuingRequest.setAttribute(entry.getKey().toString(), value);
+      }
     }
 
     return new RequestScoper() {
@@ -293,6 +390,40 @@ public class ServletScopes {
         : transferNonHttpRequest();
   }
 
+  /**
+   * Returns an executor that runs each task on {@code executor} in the request scope that is active
+   * for the thread that calls this method. This is a convenience for {@link
+   * #transferRequest(Callable)}: the request is transferred once, rather than for each task.
+   *
+   * <p>This isn't integrated with servlet 3 asynchronous processing, which guice-servlet doesn't
+   * compile against. Tasks that the container runs for {@code AsyncContext.start}, and {@code
+   * AsyncListener} callbacks, are only in the request scope if they're submitted to the returned
+   * executor. When the container dispatches the request again, {@link GuiceFilter} applies the
+   * request scope as usual, and the scoped objects follow because they're kept with the original
+   * request.
+   *
+   * <p>As with {@link #transferRequest()}, only one thread at a time applies the request scope.
+   * Each task blocks until the thread that called this method and any other task have released it,
+   * so the tasks run one after another however many threads {@code executor} has, and a task that
+   * waits, as a long poll does, holds up the request's other tasks until it returns.
+   *
+   * @param executor runs the tasks, typically on other threads.
+   * @return an executor that runs tasks on {@code executor} in the current request scope
+   * @throws OutOfScopeException if this method is called from a non-request thread, or if the
+   *     request has completed.
+   * @since 4.2
+   */
+  public static Executor transferRequest(final Executor executor) {
+    Preconditions.checkNotNull(executor, "executor");
+    final RequestScoper requestScoper = transferRequest();
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        executor.execute(wrap(command, requestScoper));
+      }
+    };
+  }
+
   private static RequestScoper transferHttpRequest() {
     final GuiceFilter.Context context = GuiceFilter.localContext.get();
     if (context == null) {
@@ -451,4 +582,19 @@ public class ServletScopes {
       }
     };
   }
+
+  private static Runnable wrap(final Runnable delegate, final RequestScoper requestScoper) {
+    Preconditions.checkNotNull(delegate, "command");
+    return new Runnable() {
+      @Override
+      public void run() {
+        RequestScoper.CloseableScope scope = requestScoper.open();
+        try {
+          delegate.run();
+        } finally {
+          scope.close();
+        }
+      }
+    };
+  }
 }
@@ -23,6 +23,8 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.net.UrlEscapers;
 import java.nio.charset.Charset;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -223,4 +225,18 @@ final class ServletUtils {
     }
   }
 
+  /** Returns the value of a system property, or null if it isn't set or can't be read. */
+  static String getSystemProperty(final String name) {
+    try {
+      return AccessController.doPrivileged(
+          new PrivilegedAction<String>() {
+            @Override
+            public String run() {
+              return System.getProperty(name);
+            }
+          });
+    } catch (SecurityException e) {
+      return null;
+    }
+  }
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Finds the URI patterns of a pipeline that match a URI, without testing each pattern in turn.
+ * Servlet-style patterns are looked up in a map of literal paths, a trie of path prefixes and a
+ * trie of reversed path suffixes. Regex patterns are combined into one alternation, which finds
+ * the first regex that matches in one pass and rules out every regex for URIs that none of them
+ * match; only the regexes after the first match are then tested on their own. The matches for
+ * recently seen paths are cached, so most requests cost a single lookup however many patterns are
+ * mapped.
+ *
+ * <p>Matches are returned as the indices of the patterns, in the order that the patterns were
+ * given.
+ */
+final class UriPatternIndex {
+  private static final int[] NO_MATCHES = new int[0];
+
+  /** The most paths whose matches are cached. Paths with IDs in them can be very many. */
+  private static final int MAX_CACHED_PATHS = 1024;
+
+  /** Backreferences are numbered by group, so they break once regexes are combined. */
+  private static final Pattern BACKREFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)");
+
+  private final int patternCount;
+  private final Map<String, int[]> literals;
+  /** Patterns like {@code /path/*}, which match URIs that start with their literal. */
+  private final TrieNode prefixes = new TrieNode();
+  /** Patterns like {@code *.html}, which match URIs that end with their literal. */
+  private final TrieNode suffixes = new TrieNode();
+
+  /** The regexes in the alternation, their indices, and the groups they're wrapped in. */
+  private final Pattern[] regexes;
+  private final int[] regexIndices;
+  private final int[] regexGroups;
+  private final Pattern combinedRegex;
+
+  /** Patterns that can't be indexed, which are tested on every lookup, and their indices. */
+  private final UriPatternMatcher[] unindexed;
+  private final int[] unindexedIndices;
+
+  private final Cache<String, int[]> matchesByPath =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_PATHS).build();
+
+  UriPatternIndex(List<UriPatternMatcher> patternMatchers) {
+    this.patternCount = patternMatchers.size();
+    Map<String, List<Integer>> literalIndices = Maps.newHashMap();
+    List<Pattern> regexList = Lists.newArrayList();
+    List<Integer> regexIndexList = Lists.newArrayList();
+    List<UriPatternMatcher> unindexedList = Lists.newArrayList();
+    List<Integer> unindexedIndexList = Lists.newArrayList();
+
+    for (int i = 0; i < patternCount; i++) {
+      UriPatternMatcher patternMatcher = patternMatchers.get(i);
+      String pattern = patternMatcher.getOriginalPattern();
+      if (patternMatcher.getPatternType() == UriPatternType.SERVLET) {
+        // the same grammar as UriPatternType's servlet-style matcher
+        if (pattern.startsWith("*")) {
+          suffixes.add(new StringBuilder(pattern.substring(1)).reverse(), i);
+        } else if (pattern.endsWith("*")) {
+          prefixes.add(pattern.substring(0, pattern.length() - 1), i);
+        } else {
+          List<Integer> indices = literalIndices.get(pattern);
+          if (indices == null) {
+            indices = Lists.newArrayList();
+            literalIndices.put(pattern, indices);
+          }
+          indices.add(i);
+        }
+      } else if (patternMatcher.getPatternType() == UriPatternType.REGEX
+          && !BACKREFERENCE.matcher(pattern).find()) {
+        regexList.add(Pattern.compile(pattern));
+        regexIndexList.add(i);
+      } else {
+        unindexedList.add(patternMatcher);
+        unindexedIndexList.add(i);
+      }
+    }
+
+    this.literals = Maps.newHashMap();
+    for (Map.Entry<String, List<Integer>> entry : literalIndices.entrySet()) {
+      literals.put(entry.getKey(), Ints.toArray(entry.getValue()));
+    }
+
+    Pattern combined = combine(regexList);
+    if (combined == null && !regexList.isEmpty()) {
+      // test them one by one instead
+      for (int i = 0; i < regexList.size(); i++) {
+        unindexedList.add(patternMatchers.get(regexIndexList.get(i)));
+        unindexedIndexList.add(regexIndexList.get(i));
+      }
+      regexList.clear();
+      regexIndexList.clear();
+    }
+    this.combinedRegex = combined;
+    this.regexes = regexList.toArray(new Pattern[regexList.size()]);
+    this.regexIndices = Ints.toArray(regexIndexList);
+    this.regexGroups = new int[regexes.length];
+    int group = 1;
+    for (int i = 0; i < regexes.length; i++) {
+      regexGroups[i] = group;
+      group += 1 + regexes[i].matcher("").groupCount();
+    }
+    this.unindexed = unindexedList.toArray(new UriPatternMatcher[unindexedList.size()]);
+    this.unindexedIndices = Ints.toArray(unindexedIndexList);
+  }
+
+  /** Returns the alternation of {@code regexes}, or null if they can't be combined. */
+  private static Pattern combine(List<Pattern> regexes) {
+    if (regexes.isEmpty()) {
+      return null;
+    }
+    StringBuilder alternation = new StringBuilder();
+    for (Pattern regex : regexes) {
+      if (alternation.length() > 0) {
+        alternation.append('|');
+      }
+      alternation.append('(').append(regex.pattern()).append(')');
+    }
+    try {
+      Pattern combined = Pattern.compile(alternation.toString());
+      int groupCount = 0;
+      for (Pattern regex : regexes) {
+        groupCount += 1 + regex.matcher("").groupCount();
+      }
+      // a regex that escaped its group, with a comment for example, changes the count
+      return combined.matcher("").groupCount() == groupCount ? combined : null;
+    } catch (PatternSyntaxException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the indices of the patterns that match {@code uri}, in ascending order. The result
+   * must not be modified.
+   */
+  int[] getMatches(String uri) {
+    if (uri == null || patternCount == 0) {
+      return NO_MATCHES;
+    }
+    // Strip out the query, as the pattern matchers do.
+    int queryIdx = uri.indexOf('?');
+    String path = (queryIdx != -1) ? uri.substring(0, queryIdx) : uri;
+
+    int[] matches = matchesByPath.getIfPresent(path);
+    if (matches == null) {
+      matches = findMatches(path);
+      matchesByPath.put(path, matches);
+    }
+    return matches;
+  }
+
+  /** Returns the index of the first pattern that matches {@code uri}, or -1 if none match. */
+  int getFirstMatch(String uri) {
+    int[] matches = getMatches(uri);
+    return matches.length > 0 ? matches[0] : -1;
+  }
+
+  private int[] findMatches(String path) {
+    BitSet matches = new BitSet(patternCount);
+
+    int[] literalMatches = literals.get(path);
+    if (literalMatches != null) {
+      for (int index : literalMatches) {
+        matches.set(index);
+      }
+    }
+
+    TrieNode node = prefixes;
+    for (int i = 0; node != null; i++) {
+      node.addIndices(matches);
+      node = (i < path.length()) ? node.get(path.charAt(i)) : null;
+    }
+    node = suffixes;
+    for (int i = path.length() - 1; node != null; i--) {
+      node.addIndices(matches);
+      node = (i >= 0) ? node.get(path.charAt(i)) : null;
+    }
+
+    if (combinedRegex != null) {
+      Matcher matcher = combinedRegex.matcher(path);
+      if (matcher.matches()) {
+        int first = 0;
+        while (matcher.start(regexGroups[first]) == -1) {
+          first++;
+        }
+        matches.set(regexIndices[first]);
+        for (int i = first + 1; i < regexes.length; i++) {
+          if (regexes[i].matcher(path).matches()) {
+            matches.set(regexIndices[i]);
+          }
+        }
+      }
+    }
+
+    for (int i = 0; i < unindexed.length; i++) {
+      if (unindexed[i].matches(path)) {
+        matches.set(unindexedIndices[i]);
+      }
+    }
+
+    if (matches.isEmpty()) {
+      return NO_MATCHES;
+    }
+    int[] result = new int[matches.cardinality()];
+    int index = -1;
+    for (int i = 0; i < result.length; i++) {
+      result[i] = index = matches.nextSetBit(index + 1);
+    }
+    return result;
+  }
+
+  /** A node of a character trie, with the indices of the patterns whose literal ends here. */
+  private static final class TrieNode {
+    private final Map<Character, TrieNode> children = Maps.newHashMap();
+    private int[] indices = NO_MATCHES;
+
+    void add(CharSequence literal, int index) {
+      TrieNode node = this;
+      for (int i = 0; i < literal.length(); i++) {
+        TrieNode child = node.children.get(literal.charAt(i));
+        if (child == null) {
+          child = new TrieNode();
+          node.children.put(literal.charAt(i), child);
+        }
+        node = child;
+      }
+      int[] newIndices = new int[node.indices.length + 1];
+      System.arraycopy(node.indices, 0, newIndices, 0, node.indices.length);
+      newIndices[node.indices.length] = index;
+      node.indices = newIndices;
+    }
+
+    TrieNode get(char c) {
+      return children.isEmpty() ? null : children.get(c);
+    }
+
+    void addIndices(BitSet matches) {
+      for (int index : indices) {
+        matches.set(index);
+      }
+    }
+  }
+}
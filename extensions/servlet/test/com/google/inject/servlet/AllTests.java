@@ -52,6 +52,9 @@ public class AllTests {
     suite.addTestSuite(ExtensionSpiTest.class);
 
     suite.addTestSuite(UriPatternTypeTest.class);
+    suite.addTestSuite(UriPatternIndexTest.class);
+
+    suite.addTestSuite(DispatchMetricsTest.class);
 
     return suite;
   }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import static com.google.inject.servlet.ServletTestUtils.newFakeHttpServletRequest;
+import static com.google.inject.servlet.ServletTestUtils.newNoOpFilterChain;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import junit.framework.TestCase;
+
+public class DispatchMetricsTest extends TestCase {
+  private static final String FILTER_ROUTE = "filter /* " + SleepingFilter.class.getName();
+  private static final String SERVLET_ROUTE = "servlet /* " + SleepingServlet.class.getName();
+  private static final String FAILING_ROUTE = "servlet *.fail " + FailingServlet.class.getName();
+
+  @Override
+  protected void setUp() {
+    GuiceFilter.reset();
+  }
+
+  public void testRoutesAreAddedBeforeDispatch() {
+    DispatchMetrics metrics = createInjector(1000).getInstance(DispatchMetrics.class);
+    Map<String, DispatchStatistics> statistics = metrics.getAllStatistics();
+    assertEquals(
+        ImmutableList.of(FILTER_ROUTE, FAILING_ROUTE, SERVLET_ROUTE),
+        ImmutableList.copyOf(statistics.keySet()));
+    assertEquals(0, statistics.get(FILTER_ROUTE).getCount());
+    assertNull(metrics.getStatistics("servlet /other " + SleepingServlet.class.getName()));
+    assertTrue(metrics.getSlowRequests().isEmpty());
+  }
+
+  public void testFilterTimeExcludesRestOfChain() throws Exception {
+    Injector injector = createInjector(1000);
+    dispatch(injector, newFakeHttpServletRequest());
+
+    DispatchMetrics metrics = injector.getInstance(DispatchMetrics.class);
+    DispatchStatistics filterStatistics = metrics.getStatistics(FILTER_ROUTE);
+    assertEquals(1, filterStatistics.getCount());
+    assertEquals(0, filterStatistics.getErrorCount());
+    assertTrue(filterStatistics.getTotalTime(MILLISECONDS) >= SleepingFilter.MILLIS);
+    assertTrue(filterStatistics.getTotalTime(MILLISECONDS) < SleepingServlet.MILLIS);
+
+    DispatchStatistics servletStatistics = metrics.getStatistics(SERVLET_ROUTE);
+    assertEquals(1, servletStatistics.getCount());
+    assertTrue(servletStatistics.getTotalTime(MILLISECONDS) >= SleepingServlet.MILLIS);
+    assertEquals(
+        servletStatistics.getMaxTime(MILLISECONDS),
+        servletStatistics.getPercentileTime(99, MILLISECONDS));
+    assertEquals(0, metrics.getStatistics(FAILING_ROUTE).getCount());
+
+    // faster than the slow request threshold
+    assertTrue(metrics.getSlowRequests().isEmpty());
+  }
+
+  public void testErrorsAreCounted() throws Exception {
+    Injector injector = createInjector(1000);
+    HttpServletRequest request =
+        new HttpServletRequestWrapper(newFakeHttpServletRequest()) {
+          @Override
+          public String getRequestURI() {
+            return "/index.fail";
+          }
+        };
+    try {
+      dispatch(injector, request);
+      fail();
+    } catch (ServletException expected) {
+    }
+
+    DispatchMetrics metrics = injector.getInstance(DispatchMetrics.class);
+    assertEquals(1, metrics.getStatistics(FAILING_ROUTE).getErrorCount());
+    // the filter threw too, as the servlet's exception went through it
+    assertEquals(1, metrics.getStatistics(FILTER_ROUTE).getErrorCount());
+    assertEquals(0, metrics.getStatistics(SERVLET_ROUTE).getCount());
+  }
+
+  public void testSlowRequestsAreSampled() throws Exception {
+    Injector injector = createInjector(0);
+    dispatch(injector, newFakeHttpServletRequest());
+
+    List<String> slowRequests = injector.getInstance(DispatchMetrics.class).getSlowRequests();
+    assertEquals(1, slowRequests.size());
+    String slowRequest = slowRequests.get(0);
+    assertTrue(slowRequest, slowRequest.startsWith("GET / "));
+    assertTrue(slowRequest, slowRequest.contains(": " + FILTER_ROUTE + " "));
+    assertTrue(slowRequest, slowRequest.contains(", " + SERVLET_ROUTE + " "));
+  }
+
+  public void testOnlyRecentSlowRequestsAreKept() {
+    DispatchMetricsImpl metrics = new DispatchMetricsImpl(0);
+    HttpServletRequest request = newFakeHttpServletRequest();
+    for (int i = 0; i < DispatchMetricsImpl.MAX_SLOW_REQUESTS + 1; i++) {
+      DispatchMetricsImpl.Trace trace = metrics.newTrace(request);
+      trace.finish(trace.start(metrics.forRoute("route" + i)), 0, false);
+      trace.finish();
+    }
+
+    List<String> slowRequests = metrics.getSlowRequests();
+    assertEquals(DispatchMetricsImpl.MAX_SLOW_REQUESTS, slowRequests.size());
+    String latest = "route" + DispatchMetricsImpl.MAX_SLOW_REQUESTS;
+    assertTrue(slowRequests.get(0).endsWith(": " + latest + " 0.000ms"));
+    assertTrue(slowRequests.get(slowRequests.size() - 1).contains(": route1 "));
+  }
+
+  public void testNoMetricsUnlessBound() throws Exception {
+    Injector injector =
+        Guice.createInjector(
+            new ServletModule() {
+              @Override
+              protected void configureServlets() {
+                serve("/*").with(SleepingServlet.class);
+              }
+            });
+    if (!DispatchMetricsImpl.ENABLED) {
+      assertNull(injector.getExistingBinding(Key.get(DispatchMetrics.class)));
+    }
+    dispatch(injector, newFakeHttpServletRequest());
+  }
+
+  private static Injector createInjector(final long slowRequestMillis) {
+    return Guice.createInjector(
+        new ServletModule() {
+          @Override
+          protected void configureServlets() {
+            bind(DispatchMetrics.class)
+                .toInstance(new DispatchMetricsImpl(MILLISECONDS.toNanos(slowRequestMillis)));
+            filter("/*").through(SleepingFilter.class);
+            serve("*.fail").with(FailingServlet.class);
+            serve("/*").with(SleepingServlet.class);
+          }
+        });
+  }
+
+  private static void dispatch(Injector injector, HttpServletRequest request)
+      throws IOException, ServletException {
+    FilterPipeline pipeline = injector.getInstance(FilterPipeline.class);
+    pipeline.initPipeline(null);
+    pipeline.dispatch(request, null, newNoOpFilterChain());
+  }
+
+  @Singleton
+  static class SleepingFilter implements Filter {
+    static final long MILLIS = 10;
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+      sleep(MILLIS);
+      chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {}
+  }
+
+  @Singleton
+  static class SleepingServlet extends HttpServlet {
+    static final long MILLIS = 200;
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response) {
+      sleep(MILLIS);
+    }
+  }
+
+  @Singleton
+  static class FailingServlet extends HttpServlet {
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+        throws ServletException {
+      throw new ServletException("failed");
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
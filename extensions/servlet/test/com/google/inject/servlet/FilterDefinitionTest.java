@@ -124,7 +124,7 @@ public class FilterDefinitionTest extends TestCase {
     matchingFilter.doFilter(
         request,
         null,
-        new FilterChainInvocation(null, null, null) {
+        new FilterChainInvocation(null, null, null, null) {
           @Override
           public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
             proceed[0] = true;
@@ -187,7 +187,7 @@ public class FilterDefinitionTest extends TestCase {
     matchingFilter.doFilter(
         request,
         null,
-        new FilterChainInvocation(null, null, null) {
+        new FilterChainInvocation(null, null, null, null) {
           @Override
           public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
             proceed[0] = true;
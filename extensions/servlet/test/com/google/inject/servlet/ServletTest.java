@@ -20,6 +20,7 @@ import static com.google.inject.Asserts.assertContains;
 import static com.google.inject.Asserts.reserialize;
 import static com.google.inject.servlet.ServletTestUtils.newFakeHttpServletRequest;
 import static com.google.inject.servlet.ServletTestUtils.newFakeHttpServletResponse;
+import static com.google.inject.servlet.ServletTestUtils.newFakeHttpSession;
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
 import static java.lang.annotation.ElementType.PARAMETER;
@@ -47,7 +48,15 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -376,6 +385,58 @@ public class ServletTest extends TestCase {
     assertTrue(invoked[0]);
   }
 
+  public void testRequestObjectsAreNotAttributes() throws Exception {
+    final Injector injector = createInjector();
+    final HttpServletRequest request = newFakeHttpServletRequest();
+
+    GuiceFilter filter = new GuiceFilter();
+    final InRequest[] inRequest = new InRequest[1];
+    FilterChain filterChain =
+        new FilterChain() {
+          @Override
+          public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+            inRequest[0] = injector.getInstance(InRequest.class);
+            assertNull(injector.getInstance(IN_REQUEST_NULL_KEY));
+          }
+        };
+
+    filter.doFilter(request, null, filterChain);
+
+    assertNull(request.getAttribute(Key.get(InRequest.class).toString()));
+    assertNull(request.getAttribute(IN_REQUEST_NULL_KEY.toString()));
+    Map<?, ?> scopedObjects =
+        (Map<?, ?>) request.getAttribute(GuiceFilter.Context.SCOPED_OBJECTS_ATTRIBUTE);
+    assertSame(inRequest[0], scopedObjects.get(Key.get(InRequest.class)));
+    assertEquals(NullObject.INSTANCE, scopedObjects.get(IN_REQUEST_NULL_KEY));
+  }
+
+  public void testRequestObjectsMirroredToAttributes() throws Exception {
+    final Injector injector = createInjector();
+    final HttpServletRequest request = newFakeHttpServletRequest();
+    final InRequest seeded = new InRequest();
+    request.setAttribute(IN_REQUEST_NULL_KEY.toString(), seeded);
+
+    GuiceFilter filter = new GuiceFilter();
+    final InRequest[] inRequest = new InRequest[1];
+    FilterChain filterChain =
+        new FilterChain() {
+          @Override
+          public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+            inRequest[0] = injector.getInstance(InRequest.class);
+            assertSame(seeded, injector.getInstance(IN_REQUEST_NULL_KEY));
+          }
+        };
+
+    ServletScopes.mirrorRequestAttributes = true;
+    try {
+      filter.doFilter(request, null, filterChain);
+    } finally {
+      ServletScopes.mirrorRequestAttributes = false;
+    }
+
+    assertSame(inRequest[0], request.getAttribute(Key.get(InRequest.class).toString()));
+  }
+
   public void testNewSessionObject() throws CreationException, IOException, ServletException {
     final Injector injector = createInjector();
     final HttpServletRequest request = newFakeHttpServletRequest();
@@ -445,10 +506,130 @@ public class ServletTest extends TestCase {
 
     HttpSession deserializedSession = reserialize(session);
 
-    String inSessionKey = IN_SESSION_KEY.toString();
-    String inSessionNullKey = IN_SESSION_NULL_KEY.toString();
-    assertTrue(deserializedSession.getAttribute(inSessionKey) instanceof InSession);
-    assertEquals(NullObject.INSTANCE, deserializedSession.getAttribute(inSessionNullKey));
+    Map<?, ?> scopedObjects =
+        (Map<?, ?>)
+            deserializedSession.getAttribute(ServletScopes.SESSION_SCOPED_OBJECTS_ATTRIBUTE);
+    assertTrue(scopedObjects.get(IN_SESSION_KEY.toString()) instanceof InSession);
+    assertEquals(NullObject.INSTANCE, scopedObjects.get(IN_SESSION_NULL_KEY.toString()));
+  }
+
+  public void testSessionObjectFromAttribute() throws Exception {
+    final Injector injector = createInjector();
+    final HttpServletRequest request = newFakeHttpServletRequest();
+    final InSession existing = new InSession();
+    final HttpSession session = request.getSession();
+    session.setAttribute(IN_SESSION_KEY.toString(), existing);
+
+    GuiceFilter filter = new GuiceFilter();
+    final boolean[] invoked = new boolean[1];
+    FilterChain filterChain =
+        new FilterChain() {
+          @Override
+          public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+            invoked[0] = true;
+            assertSame(existing, injector.getInstance(InSession.class));
+            assertSame(existing, injector.getInstance(InSession.class));
+          }
+        };
+
+    filter.doFilter(request, null, filterChain);
+
+    assertTrue(invoked[0]);
+    // moved into the map, so that it isn't stored twice
+    assertNull(session.getAttribute(IN_SESSION_KEY.toString()));
+    Map<?, ?> scopedObjects =
+        (Map<?, ?>) session.getAttribute(ServletScopes.SESSION_SCOPED_OBJECTS_ATTRIBUTE);
+    assertSame(existing, scopedObjects.get(IN_SESSION_KEY.toString()));
+  }
+
+  public void testSessionObjectsMirroredToAttributes() throws Exception {
+    final Injector injector = createInjector();
+    final HttpServletRequest request = newFakeHttpServletRequest();
+    final HttpSession session = request.getSession();
+    final InSession existing = new InSession();
+    session.setAttribute(IN_SESSION_NULL_KEY.toString(), existing);
+
+    GuiceFilter filter = new GuiceFilter();
+    final InSession[] inSession = new InSession[1];
+    FilterChain filterChain =
+        new FilterChain() {
+          @Override
+          public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+            inSession[0] = injector.getInstance(InSession.class);
+            assertSame(existing, injector.getInstance(IN_SESSION_NULL_KEY));
+          }
+        };
+
+    ServletScopes.mirrorSessionAttributes = true;
+    try {
+      filter.doFilter(request, null, filterChain);
+    } finally {
+      ServletScopes.mirrorSessionAttributes = false;
+    }
+
+    assertSame(inSession[0], session.getAttribute(IN_SESSION_KEY.toString()));
+    assertSame(existing, session.getAttribute(IN_SESSION_NULL_KEY.toString()));
+  }
+
+  public void testSessionObjectsCreatedOnceConcurrently() throws Exception {
+    final AtomicInteger created = new AtomicInteger();
+    final CountDownLatch creating = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Injector injector =
+        Guice.createInjector(
+            new ServletModule() {
+              @Override
+              protected void configureServlets() {
+                bind(InSession.class)
+                    .toProvider(
+                        new Provider<InSession>() {
+                          @Override
+                          public InSession get() {
+                            created.incrementAndGet();
+                            creating.countDown();
+                            try {
+                              release.await();
+                            } catch (InterruptedException e) {
+                              throw new RuntimeException(e);
+                            }
+                            return new InSession();
+                          }
+                        })
+                    .in(SessionScoped.class);
+              }
+            });
+    final HttpSession session = newFakeHttpSession();
+    final GuiceFilter filter = new GuiceFilter();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<InSession>> results = Lists.newArrayList();
+      for (int i = 0; i < 2; i++) {
+        results.add(
+            executor.submit(
+                new Callable<InSession>() {
+                  @Override
+                  public InSession call() throws Exception {
+                    final InSession[] inSession = new InSession[1];
+                    filter.doFilter(
+                        newFakeHttpServletRequest(session),
+                        null,
+                        new FilterChain() {
+                          @Override
+                          public void doFilter(ServletRequest request, ServletResponse response) {
+                            inSession[0] = injector.getInstance(InSession.class);
+                          }
+                        });
+                    return inSession[0];
+                  }
+                }));
+      }
+      assertTrue(creating.await(1, TimeUnit.SECONDS));
+      release.countDown();
+      assertSame(results.get(0).get(), results.get(1).get());
+      assertEquals(1, created.get());
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   public void testGuiceFilterConstructors() throws Exception {
@@ -8,6 +8,7 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
 import java.util.Map;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletRequest;
@@ -43,6 +44,11 @@ public class ServletTestUtils {
 
   /** Returns a fake, HttpServletRequest which stores attributes in a HashMap. */
   public static HttpServletRequest newFakeHttpServletRequest() {
+    return newFakeHttpServletRequest(newFakeHttpSession());
+  }
+
+  /** Returns a fake, HttpServletRequest of {@code session} which stores attributes in a HashMap. */
+  public static HttpServletRequest newFakeHttpServletRequest(final HttpSession session) {
     HttpServletRequest delegate =
         (HttpServletRequest)
             Proxy.newProxyInstance(
@@ -52,7 +58,6 @@ public class ServletTestUtils {
 
     return new HttpServletRequestWrapper(delegate) {
       final Map<String, Object> attributes = Maps.newHashMap();
-      final HttpSession session = newFakeHttpSession();
 
       @Override
       public String getMethod() {
@@ -103,7 +108,9 @@ public class ServletTestUtils {
   }
 
   private static class FakeHttpSessionHandler implements InvocationHandler, Serializable {
-    final Map<String, Object> attributes = Maps.newHashMap();
+    // Synchronized, as requests of one session may use it concurrently.
+    final Map<String, Object> attributes =
+        Collections.synchronizedMap(Maps.<String, Object>newHashMap());
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
@@ -113,6 +120,9 @@ public class ServletTestUtils {
         return null;
       } else if ("getAttribute".equals(name)) {
         return attributes.get(args[0]);
+      } else if ("removeAttribute".equals(name)) {
+        attributes.remove(args[0]);
+        return null;
       } else {
         throw new UnsupportedOperationException();
       }
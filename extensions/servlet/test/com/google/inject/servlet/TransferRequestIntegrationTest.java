@@ -23,15 +23,23 @@ import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.OutOfScopeException;
 import com.google.inject.Provides;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
 import junit.framework.TestCase;
 
-// TODO: Add test for HTTP transferring.
 /** Tests transferring of entire request scope. */
 
 public class TransferRequestIntegrationTest extends TestCase {
@@ -67,6 +75,105 @@ public class TransferRequestIntegrationTest extends TestCase {
     }
   }
 
+  public void testTransferNonHttp_outOfScope_executor() {
+    try {
+      ServletScopes.transferRequest(Executors.newSingleThreadExecutor());
+      fail();
+    } catch (OutOfScopeException expected) {
+    }
+  }
+
+  public void testTransferHttpRequest_executor() throws Exception {
+    final Injector injector = createInjector();
+    final HttpServletRequest request = ServletTestUtils.newFakeHttpServletRequest();
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    final Object[] original = new Object[1];
+    final Executor[] requestExecutor = new Executor[1];
+
+    // The request thread starts the work and returns, as it would after starting async processing.
+    new GuiceFilter()
+        .doFilter(
+            request,
+            null,
+            new FilterChain() {
+              @Override
+              public void doFilter(ServletRequest servletRequest, ServletResponse response) {
+                original[0] = injector.getInstance(Object.class);
+                requestExecutor[0] = ServletScopes.transferRequest(executorService);
+              }
+            });
+
+    final BlockingQueue<Object> results = new ArrayBlockingQueue<>(2);
+    for (int i = 0; i < 2; i++) {
+      requestExecutor[0].execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              results.add(injector.getInstance(Object.class));
+              results.add(GuiceFilter.getRequest(Key.get(HttpServletRequest.class)));
+            }
+          });
+      assertSame(original[0], results.poll(1, TimeUnit.SECONDS));
+      assertSame(request, results.poll(1, TimeUnit.SECONDS));
+    }
+    executorService.shutdownNow();
+
+    // The container dispatches the request again, on another thread.
+    final Object[] dispatched = new Object[1];
+    new GuiceFilter()
+        .doFilter(
+            request,
+            null,
+            new FilterChain() {
+              @Override
+              public void doFilter(ServletRequest servletRequest, ServletResponse response) {
+                dispatched[0] = injector.getInstance(Object.class);
+              }
+            });
+    assertSame(original[0], dispatched[0]);
+  }
+
+  public void testTransferHttpRequest_executorBlocksWhileRequestIsActive() throws Exception {
+    final Injector injector = createInjector();
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    final boolean[] ran = new boolean[1];
+    final boolean[] ranDuringRequest = new boolean[1];
+    final CountDownLatch finished = new CountDownLatch(1);
+
+    try {
+      new GuiceFilter()
+          .doFilter(
+              ServletTestUtils.newFakeHttpServletRequest(),
+              null,
+              new FilterChain() {
+                @Override
+                public void doFilter(ServletRequest servletRequest, ServletResponse response)
+                    throws ServletException {
+                  injector.getInstance(Object.class);
+                  ServletScopes.transferRequest(executorService)
+                      .execute(
+                          new Runnable() {
+                            @Override
+                            public void run() {
+                              ran[0] = true;
+                              finished.countDown();
+                            }
+                          });
+                  try {
+                    ranDuringRequest[0] = finished.await(100, TimeUnit.MILLISECONDS);
+                  } catch (InterruptedException e) {
+                    throw new ServletException(e);
+                  }
+                }
+              });
+      assertFalse(ranDuringRequest[0]);
+      assertTrue(finished.await(1, TimeUnit.SECONDS));
+      assertTrue(ran[0]);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   public void testTransferNonHttpRequest() throws Exception {
     final Injector injector =
         Guice.createInjector(
@@ -241,4 +348,65 @@ public class TransferRequestIntegrationTest extends TestCase {
     ImmutableMap<Key<?>, Object> seedMap = ImmutableMap.of();
     assertFalse(ServletScopes.scopeRequest(callable, seedMap).call());
   }
+
+  public void testTransferHttpRequest_executorRunsTasksOneAtATime() throws Exception {
+    final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    final Executor[] requestExecutor = new Executor[1];
+    new GuiceFilter()
+        .doFilter(
+            ServletTestUtils.newFakeHttpServletRequest(),
+            null,
+            new FilterChain() {
+              @Override
+              public void doFilter(ServletRequest servletRequest, ServletResponse response) {
+                requestExecutor[0] = ServletScopes.transferRequest(executorService);
+              }
+            });
+
+    final CountDownLatch firstStarted = new CountDownLatch(1);
+    final CountDownLatch secondStarted = new CountDownLatch(1);
+    final BlockingQueue<Boolean> overlapped = new ArrayBlockingQueue<>(1);
+    try {
+      requestExecutor[0].execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              firstStarted.countDown();
+              try {
+                overlapped.add(secondStarted.await(100, TimeUnit.MILLISECONDS));
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            }
+          });
+      assertTrue(firstStarted.await(1, TimeUnit.SECONDS));
+      requestExecutor[0].execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              secondStarted.countDown();
+            }
+          });
+      assertFalse(overlapped.poll(1, TimeUnit.SECONDS));
+      assertTrue(secondStarted.await(1, TimeUnit.SECONDS));
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static Injector createInjector() {
+    return Guice.createInjector(
+        new AbstractModule() {
+          @Override
+          protected void configure() {
+            bindScope(RequestScoped.class, ServletScopes.REQUEST);
+          }
+
+          @Provides
+          @RequestScoped
+          Object provideObject() {
+            return new Object();
+          }
+        });
+  }
 }
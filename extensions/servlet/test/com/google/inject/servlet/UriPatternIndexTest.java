@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import static com.google.inject.servlet.UriPatternType.REGEX;
+import static com.google.inject.servlet.UriPatternType.SERVLET;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class UriPatternIndexTest extends TestCase {
+
+  private static final ImmutableList<String> URIS =
+      ImmutableList.of(
+          "/",
+          "/index.html",
+          "/index.html?page=2",
+          "/foo",
+          "/foo/",
+          "/foo/bar",
+          "/foo/bar.html",
+          "/foo/bar.jsp",
+          "/users/42/profile",
+          "/users/abc/profile",
+          "/aa/aa",
+          "/aa/bb",
+          "");
+
+  public void testServletPatterns() {
+    UriPatternIndex index =
+        index(SERVLET, "/foo", "/foo/*", "*.html", "/*", "*", "/foo/bar.html", "*.jsp");
+    assertMatches(index, "/foo", 0, 3, 4);
+    assertMatches(index, "/foo/bar.html", 1, 2, 3, 4, 5);
+    assertMatches(index, "/foo/bar.html?x=y", 1, 2, 3, 4, 5);
+    assertMatches(index, "/index.jsp", 3, 4, 6);
+    assertMatches(index, "", 4);
+    assertMatches(index, null);
+    assertEquals(1, index.getFirstMatch("/foo/bar"));
+  }
+
+  public void testRegexPatterns() {
+    UriPatternIndex index = index(REGEX, "/users/([0-9]+)/.*", "/(.*)/profile", "/static/.*");
+    assertMatches(index, "/users/42/profile", 0, 1);
+    assertMatches(index, "/users/abc/profile", 1);
+    assertMatches(index, "/static/app.js?v=3", 2);
+    assertMatches(index, "/other");
+    assertEquals(1, index.getFirstMatch("/users/abc/profile"));
+  }
+
+  public void testRegexesThatCannotBeCombined() {
+    // backreferences and duplicate group names are tested one by one
+    assertAgreesWithMatchers(
+        index(REGEX, "/(a+)/\\1", "/(?<x>a+)/.*", "/(?<x>b+)/.*", "/.*"),
+        matchers(REGEX, "/(a+)/\\1", "/(?<x>a+)/.*", "/(?<x>b+)/.*", "/.*"));
+    assertMatches(index(REGEX, "/(a+)/\\1", "/.*"), "/aa/aa", 0, 1);
+    assertMatches(index(REGEX, "/(a+)/\\1", "/.*"), "/aa/bb", 1);
+  }
+
+  public void testMixedPatternsAgreeWithMatchers() {
+    List<UriPatternMatcher> matchers = Lists.newArrayList();
+    matchers.addAll(matchers(SERVLET, "/foo/*", "*.html", "/index.html", "/*"));
+    matchers.addAll(matchers(REGEX, "/foo/.*\\.jsp", "/users/[0-9]+/.*", "(?i)/FOO.*"));
+    matchers.addAll(matchers(SERVLET, "/foo/*", "/", "*"));
+    assertAgreesWithMatchers(new UriPatternIndex(matchers), matchers);
+  }
+
+  public void testNoPatterns() {
+    UriPatternIndex index = new UriPatternIndex(ImmutableList.<UriPatternMatcher>of());
+    assertMatches(index, "/index.html");
+    assertEquals(-1, index.getFirstMatch("/index.html"));
+  }
+
+  public void testCachedMatches() {
+    UriPatternIndex index = index(SERVLET, "/foo/*", "*.html");
+    int[] matches = index.getMatches("/foo/bar.html");
+    assertSame(matches, index.getMatches("/foo/bar.html"));
+    assertSame(matches, index.getMatches("/foo/bar.html?q=1"));
+  }
+
+  private static void assertAgreesWithMatchers(
+      UriPatternIndex index, List<UriPatternMatcher> matchers) {
+    for (String uri : URIS) {
+      List<Integer> expected = Lists.newArrayList();
+      for (int i = 0; i < matchers.size(); i++) {
+        if (matchers.get(i).matches(uri)) {
+          expected.add(i);
+        }
+      }
+      assertEquals(uri, expected, Ints.asList(index.getMatches(uri)));
+    }
+  }
+
+  private static void assertMatches(UriPatternIndex index, String uri, int... expected) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(index.getMatches(uri)));
+  }
+
+  private static UriPatternIndex index(UriPatternType type, String... patterns) {
+    return new UriPatternIndex(matchers(type, patterns));
+  }
+
+  private static List<UriPatternMatcher> matchers(UriPatternType type, String... patterns) {
+    List<UriPatternMatcher> matchers = Lists.newArrayList();
+    for (String pattern : patterns) {
+      matchers.add(UriPatternType.get(type, pattern));
+    }
+    return matchers;
+  }
+}
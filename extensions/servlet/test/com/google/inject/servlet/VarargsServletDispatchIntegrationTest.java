@@ -121,7 +121,8 @@ public class VarargsServletDispatchIntegrationTest extends TestCase {
     //create ourselves a mock request with test URI
     HttpServletRequest requestMock = createMock(HttpServletRequest.class);
 
-    expect(requestMock.getRequestURI()).andReturn("/index.html").times(3);
+    // the servlets are found in the index, so the path is only computed once
+    expect(requestMock.getRequestURI()).andReturn("/index.html").times(1);
     expect(requestMock.getContextPath()).andReturn("").anyTimes();
 
     //dispatch request